@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bremersee.common.model.AccessControlList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the access controllers.
+ *
+ * <p>Every invocation checks the next principal of a fixed pool. The share of principals, that
+ * have the permission to read, is given by {@code hitRatio}; half of them are granted by their
+ * user name, the other half by one of their roles.
+ *
+ * @author Christian Bremer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccessControllerBenchmark {
+
+  private static final int PRINCIPALS = 1024;
+
+  /**
+   * The number of users, roles and groups per entry of the access control list.
+   */
+  @Param({"10", "100", "1000"})
+  public int aclSize;
+
+  /**
+   * The number of roles of a principal.
+   */
+  @Param({"1", "10", "50"})
+  public int roleCount;
+
+  /**
+   * The share of principals, that have the permission to read.
+   */
+  @Param({"0.0", "0.5", "1.0"})
+  public double hitRatio;
+
+  private AccessController accessController;
+
+  private AccessController compiledAccessController;
+
+  private AccessController viewAccessController;
+
+  private AccessPrincipal[] principals;
+
+  private List<List<String>> roleLists;
+
+  private List<List<String>> groupLists;
+
+  private int index;
+
+  /**
+   * Creates the access control list and the principals.
+   */
+  @Setup
+  public void setup() {
+    final AccessControlList dto = BenchmarkData.createAccessControlList(aclSize);
+    final Acl<? extends Ace> acl = AclBuilder.builder().from(dto).buildAcl();
+    accessController = AccessController.from(acl);
+    compiledAccessController = AccessController.compile(acl);
+    viewAccessController = AccessController.view(acl);
+
+    final Random random = new Random(42L);
+    final int hits = (int) Math.round(PRINCIPALS * hitRatio);
+    final List<AccessPrincipal> list = new ArrayList<>(PRINCIPALS);
+    for (int i = 0; i < PRINCIPALS; i++) {
+      final List<String> roles = BenchmarkData.names("other-role", 0, roleCount);
+      final String user;
+      if (i < hits && i % 2 == 0) {
+        user = BenchmarkData.name("user", random.nextInt(aclSize));
+      } else if (i < hits) {
+        user = BenchmarkData.name("stranger", i);
+        roles.set(random.nextInt(roleCount), BenchmarkData.name("role", random.nextInt(aclSize)));
+      } else {
+        user = BenchmarkData.name("stranger", i);
+      }
+      list.add(AccessPrincipal.of(user, roles, Collections.singletonList("other-group")));
+    }
+    Collections.shuffle(list, random);
+    principals = list.toArray(new AccessPrincipal[0]);
+    roleLists = new ArrayList<>(PRINCIPALS);
+    groupLists = new ArrayList<>(PRINCIPALS);
+    for (final AccessPrincipal principal : principals) {
+      roleLists.add(new ArrayList<>(principal.getRoles()));
+      groupLists.add(new ArrayList<>(principal.getGroups()));
+    }
+  }
+
+  private AccessPrincipal nextPrincipal() {
+    final AccessPrincipal principal = principals[index];
+    index = (index + 1) & (PRINCIPALS - 1);
+    return principal;
+  }
+
+  /**
+   * Has permission.
+   *
+   * @return the result
+   */
+  @Benchmark
+  public boolean hasPermission() {
+    final AccessPrincipal p = nextPrincipal();
+    return accessController
+        .hasPermission(p.getUser(), p.getRoles(), p.getGroups(), PermissionConstants.READ);
+  }
+
+  /**
+   * Has permission with roles and groups as lists, like they are usually passed by the callers.
+   *
+   * @return the result
+   */
+  @Benchmark
+  public boolean hasPermissionWithLists() {
+    final int i = index;
+    index = (index + 1) & (PRINCIPALS - 1);
+    return accessController.hasPermission(
+        principals[i].getUser(), roleLists.get(i), groupLists.get(i), PermissionConstants.READ);
+  }
+
+  /**
+   * Has any permission, the first permission (delete) is only granted to the owner.
+   *
+   * @return the result
+   */
+  @Benchmark
+  public boolean hasAnyPermission() {
+    final AccessPrincipal p = nextPrincipal();
+    return accessController.hasAnyPermission(
+        p.getUser(),
+        p.getRoles(),
+        p.getGroups(),
+        PermissionConstants.DELETE,
+        PermissionConstants.READ);
+  }
+
+  /**
+   * Has permission with a principal.
+   *
+   * @return the result
+   */
+  @Benchmark
+  public boolean hasPermissionWithPrincipal() {
+    return accessController.hasPermission(nextPrincipal(), PermissionConstants.READ);
+  }
+
+  /**
+   * Has permission of the compiled access controller.
+   *
+   * @return the result
+   */
+  @Benchmark
+  public boolean compiledHasPermission() {
+    return compiledAccessController.hasPermission(nextPrincipal(), PermissionConstants.READ);
+  }
+
+  /**
+   * Has any permission of the compiled access controller.
+   *
+   * @return the result
+   */
+  @Benchmark
+  public boolean compiledHasAnyPermission() {
+    return compiledAccessController.hasAnyPermission(
+        nextPrincipal(),
+        PermissionConstants.DELETE,
+        PermissionConstants.READ);
+  }
+
+  /**
+   * Has permission of the view access controller.
+   *
+   * @return the result
+   */
+  @Benchmark
+  public boolean viewHasPermission() {
+    return viewAccessController.hasPermission(nextPrincipal(), PermissionConstants.READ);
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of equals and hash code of the access control entry.
+ *
+ * @author Christian Bremer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AceBenchmark {
+
+  /**
+   * The number of users, roles and groups of the entry.
+   */
+  @Param({"1", "10", "100"})
+  public int aceSize;
+
+  private AceImpl ace;
+
+  private AceImpl equalAce;
+
+  private AceImpl otherAce;
+
+  /**
+   * Creates the entries.
+   */
+  @Setup
+  public void setup() {
+    ace = createAce(aceSize, "user");
+    equalAce = createAce(aceSize, "user");
+    otherAce = createAce(aceSize, "other");
+  }
+
+  private static AceImpl createAce(final int size, final String userPrefix) {
+    final AceImpl ace = new AceImpl();
+    ace.getUsers().addAll(BenchmarkData.names(userPrefix, 0, size));
+    ace.getRoles().addAll(BenchmarkData.names("role", 0, size));
+    ace.getGroups().addAll(BenchmarkData.names("group", 0, size));
+    return ace;
+  }
+
+  /**
+   * Equals of equal entries.
+   *
+   * @return the result
+   */
+  @Benchmark
+  public boolean equalsEqual() {
+    return ace.equals(equalAce);
+  }
+
+  /**
+   * Equals of different entries.
+   *
+   * @return the result
+   */
+  @Benchmark
+  public boolean equalsDifferent() {
+    return ace.equals(otherAce);
+  }
+
+  /**
+   * Hash code.
+   *
+   * @return the hash code
+   */
+  @Benchmark
+  public int hashCodeOfAce() {
+    return ace.hashCode();
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import java.util.concurrent.TimeUnit;
+import org.bremersee.common.model.AccessControlList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the conversion between the access control list dto and the acl.
+ *
+ * @author Christian Bremer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AclConversionBenchmark {
+
+  /**
+   * The number of users, roles and groups per entry of the access control list.
+   */
+  @Param({"1", "10", "100"})
+  public int aclSize;
+
+  private AccessControlList dto;
+
+  private Acl<? extends Ace> acl;
+
+  private AclMapper<Acl<? extends Ace>> mapper;
+
+  private BulkAclConverter<Acl<? extends Ace>> converter;
+
+  /**
+   * Creates the access control lists, the mapper and the converter.
+   */
+  @Setup
+  public void setup() {
+    dto = BenchmarkData.createAccessControlList(aclSize);
+    acl = AclBuilder.builder().from(dto).buildAcl();
+    mapper = new AclMapperImpl<>(AclImpl::new, PermissionConstants.ALL, true);
+    converter = new BulkAclConverter<>(AclImpl::new, PermissionConstants.ALL, "ROLE_ADMIN");
+  }
+
+  /**
+   * Builder from dto.
+   *
+   * @return the acl
+   */
+  @Benchmark
+  public Acl<? extends Ace> builderFromAccessControlList() {
+    return AclBuilder.builder().from(dto).buildAcl();
+  }
+
+  /**
+   * Builder from acl.
+   *
+   * @return the dto
+   */
+  @Benchmark
+  public AccessControlList builderFromAcl() {
+    return AclBuilder.builder().from(acl).buildAccessControlList();
+  }
+
+  /**
+   * Mapper from dto to acl.
+   *
+   * @return the acl
+   */
+  @Benchmark
+  public Acl<? extends Ace> mapperToAcl() {
+    return mapper.map(dto);
+  }
+
+  /**
+   * Mapper from acl to dto.
+   *
+   * @return the dto
+   */
+  @Benchmark
+  public AccessControlList mapperToAccessControlList() {
+    return mapper.map(acl);
+  }
+
+  /**
+   * Dto factory.
+   *
+   * @return the dto
+   */
+  @Benchmark
+  public AccessControlList dtoFactory() {
+    return AclFactory.dtoFactory().createAccessControlList(acl.getOwner(), acl.entryMap());
+  }
+
+  /**
+   * Bulk converter from dto to acl.
+   *
+   * @return the acl
+   */
+  @Benchmark
+  public Acl<? extends Ace> converterToAcl() {
+    return converter.toAcl(dto);
+  }
+
+  /**
+   * Bulk converter from acl to dto.
+   *
+   * @return the dto
+   */
+  @Benchmark
+  public AccessControlList converterToAccessControlList() {
+    return converter.toAccessControlList(acl);
+  }
+
+}
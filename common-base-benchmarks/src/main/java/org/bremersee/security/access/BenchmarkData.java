@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.bremersee.common.model.AccessControlEntry;
+import org.bremersee.common.model.AccessControlList;
+
+/**
+ * Creates the access control lists of the benchmarks.
+ *
+ * @author Christian Bremer
+ */
+final class BenchmarkData {
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * Returns the name with the given prefix and index, e.g. {@code user-7}.
+   *
+   * @param prefix the prefix
+   * @param index  the index
+   * @return the name
+   */
+  static String name(final String prefix, final int index) {
+    return prefix + "-" + index;
+  }
+
+  /**
+   * Returns the names with the given prefix.
+   *
+   * @param prefix the prefix
+   * @param from   the first index (inclusive)
+   * @param to     the last index (exclusive)
+   * @return the names
+   */
+  static List<String> names(final String prefix, final int from, final int to) {
+    final List<String> names = new ArrayList<>(Math.max(0, to - from));
+    for (int i = from; i < to; i++) {
+      names.add(name(prefix, i));
+    }
+    return names;
+  }
+
+  /**
+   * Creates an access control list dto. The users {@code user-0 .. user-(size-1)}, the roles
+   * {@code role-0 .. role-(size-1)} and the groups {@code group-0 .. group-(size-1)} have the
+   * permission to read; the permission to write is granted to the first half of them. The other
+   * known permissions are only granted to the owner.
+   *
+   * @param size the number of users, roles and groups per entry
+   * @return the access control list dto
+   */
+  static AccessControlList createAccessControlList(final int size) {
+    final List<AccessControlEntry> entries = new ArrayList<>();
+    entries.add(AccessControlEntry.builder()
+        .permission(PermissionConstants.READ)
+        .users(names("user", 0, size))
+        .roles(names("role", 0, size))
+        .groups(names("group", 0, size))
+        .build());
+    entries.add(AccessControlEntry.builder()
+        .permission(PermissionConstants.WRITE)
+        .users(names("user", 0, size / 2))
+        .roles(names("role", 0, size / 2))
+        .groups(names("group", 0, size / 2))
+        .build());
+    for (final String permission : PermissionConstants.ALL) {
+      if (!PermissionConstants.READ.equals(permission)
+          && !PermissionConstants.WRITE.equals(permission)) {
+        entries.add(AccessControlEntry.builder()
+            .permission(permission)
+            .users(new ArrayList<>())
+            .roles(new ArrayList<>())
+            .groups(new ArrayList<>())
+            .build());
+      }
+    }
+    return AccessControlList.builder()
+        .owner("owner")
+        .entries(entries)
+        .build();
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import static org.springframework.util.Assert.notNull;
+
+import java.util.function.Function;
+import javax.validation.constraints.NotNull;
+import org.bremersee.common.model.AccessControlList;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Filters the items of a flux by their access control lists (see {@link AclFilter}).
+ *
+ * @author Christian Bremer
+ */
+@SuppressWarnings("unused")
+public abstract class ReactiveAclFilter {
+
+  private ReactiveAclFilter() {
+  }
+
+  /**
+   * Filters the given items with the given acl filter.
+   *
+   * @param <T>    the type of the items
+   * @param items  the items
+   * @param filter the acl filter
+   * @return the items, the principal of the filter has the permission for
+   */
+  public static <T> Flux<T> filter(
+      @Nullable final Flux<T> items,
+      @NotNull final AclFilter<T> filter) {
+
+    notNull(filter, "Acl filter must not be null.");
+    return items == null ? Flux.empty() : items.filter(filter);
+  }
+
+  /**
+   * Filters the given items with an access control list (entity).
+   *
+   * @param <T>          the type of the items
+   * @param items        the items
+   * @param aclExtractor the function that returns the access control list of an item
+   * @param principal    the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permission   the permission
+   * @return the items, the principal has the permission for
+   */
+  public static <T> Flux<T> filterByAcl(
+      @Nullable final Flux<T> items,
+      @NotNull final Function<? super T, ? extends Acl<? extends Ace>> aclExtractor,
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission) {
+
+    return filter(items, AclFilter.forAcl(aclExtractor, principal, permission));
+  }
+
+  /**
+   * Filters the given items with an access control list (dto).
+   *
+   * @param <T>          the type of the items
+   * @param items        the items
+   * @param aclExtractor the function that returns the access control list of an item
+   * @param principal    the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permission   the permission
+   * @return the items, the principal has the permission for
+   */
+  public static <T> Flux<T> filterByAccessControlList(
+      @Nullable final Flux<T> items,
+      @NotNull final Function<? super T, ? extends AccessControlList> aclExtractor,
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission) {
+
+    return filter(items, AclFilter.forAccessControlList(aclExtractor, principal, permission));
+  }
+
+  /**
+   * Filters the given items with an access control list (entity) and the given permission
+   * implications.
+   *
+   * @param <T>          the type of the items
+   * @param items        the items
+   * @param aclExtractor the function that returns the access control list of an item
+   * @param principal    the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permission   the permission
+   * @param implications the permission implications
+   * @return the items, the principal has the permission for
+   */
+  public static <T> Flux<T> filterByAcl(
+      @Nullable final Flux<T> items,
+      @NotNull final Function<? super T, ? extends Acl<? extends Ace>> aclExtractor,
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission,
+      @Nullable final PermissionImplications implications) {
+
+    return filter(items, AclFilter.forAcl(aclExtractor, principal, permission, implications));
+  }
+
+  /**
+   * Filters the given items with an access control list (dto) and the given permission
+   * implications.
+   *
+   * @param <T>          the type of the items
+   * @param items        the items
+   * @param aclExtractor the function that returns the access control list of an item
+   * @param principal    the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permission   the permission
+   * @param implications the permission implications
+   * @return the items, the principal has the permission for
+   */
+  public static <T> Flux<T> filterByAccessControlList(
+      @Nullable final Flux<T> items,
+      @NotNull final Function<? super T, ? extends AccessControlList> aclExtractor,
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission,
+      @Nullable final PermissionImplications implications) {
+
+    return filter(
+        items,
+        AclFilter.forAccessControlList(aclExtractor, principal, permission, implications));
+  }
+
+}
@@ -16,14 +16,20 @@
 
 package org.bremersee.web.reactive;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
 import javax.validation.constraints.NotNull;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.bremersee.exception.ExceptionAnalysis;
+import org.bremersee.exception.HeadersOnlyMode;
 import org.bremersee.exception.RestApiExceptionMapper;
+import org.bremersee.exception.RestApiExceptionTemplateCache;
 import org.bremersee.exception.RestApiExceptionUtils;
 import org.bremersee.exception.model.RestApiException;
 import org.bremersee.http.MediaTypeHelper;
@@ -31,8 +37,12 @@ import org.springframework.boot.autoconfigure.web.ResourceProperties;
 import org.springframework.boot.autoconfigure.web.reactive.error.AbstractErrorWebExceptionHandler;
 import org.springframework.boot.web.reactive.error.ErrorAttributes;
 import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.EncoderHttpMessageWriter;
+import org.springframework.http.codec.HttpMessageWriter;
 import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.lang.Nullable;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.PathMatcher;
@@ -48,6 +58,10 @@ import reactor.core.publisher.Mono;
 /**
  * The reactive api exception handler.
  *
+ * <p>The rest api exception is written into the body as json or xml, if the client accepts it.
+ * Otherwise or if the response should contain only headers (see {@link HeadersOnlyMode}), the
+ * attributes of the rest api exception are sent as headers and the body is empty.
+ *
  * @author Christian Bremer
  */
 @Validated
@@ -63,6 +77,28 @@ public class ApiExceptionHandler extends AbstractErrorWebExceptionHandler {
   @NotNull
   private final RestApiExceptionMapper restApiExceptionMapper;
 
+  /**
+   * Determines, when the error response contains only headers. Default is {@link
+   * HeadersOnlyMode#ON_REQUEST}.
+   */
+  @Getter(AccessLevel.PROTECTED)
+  @Setter
+  @NotNull
+  private HeadersOnlyMode headersOnlyMode = HeadersOnlyMode.ON_REQUEST;
+
+  /**
+   * Specifies whether the json responses are rendered from pre-serialized templates, whenever it
+   * is possible. The templates are written with the object mapper of the json encoder of the
+   * message writers. Xml responses are written by the jaxb encoder, so they are never rendered
+   * from templates. Default is {@code false}.
+   */
+  @Getter(AccessLevel.PROTECTED)
+  private boolean templatesEnabled;
+
+  private List<HttpMessageWriter<?>> messageWriters = Collections.emptyList();
+
+  private volatile RestApiExceptionTemplateCache templateCache;
+
   /**
    * Instantiates a new api exception handler.
    *
@@ -88,6 +124,52 @@ public class ApiExceptionHandler extends AbstractErrorWebExceptionHandler {
     this.restApiExceptionMapper = restApiExceptionMapper;
   }
 
+  @Override
+  public void setMessageWriters(final List<HttpMessageWriter<?>> messageWriters) {
+    super.setMessageWriters(messageWriters);
+    this.messageWriters = messageWriters != null ? messageWriters : Collections.emptyList();
+    this.templateCache = null;
+  }
+
+  /**
+   * Specifies whether the json responses are rendered from pre-serialized templates, whenever it
+   * is possible.
+   *
+   * @param templatesEnabled {@code true} if templates should be used, otherwise {@code false}
+   */
+  public void setTemplatesEnabled(final boolean templatesEnabled) {
+    this.templatesEnabled = templatesEnabled;
+    this.templateCache = null;
+  }
+
+  /**
+   * Gets the template cache, that writes the templates with the object mapper of the json
+   * encoder.
+   *
+   * @return the template cache or {@code null}, if there is no json encoder
+   */
+  @SuppressWarnings("WeakerAccess")
+  @Nullable
+  protected RestApiExceptionTemplateCache getTemplateCache() {
+    RestApiExceptionTemplateCache cache = templateCache;
+    if (cache == null) {
+      final ObjectMapper objectMapper = messageWriters.stream()
+          .filter(writer -> writer instanceof EncoderHttpMessageWriter)
+          .map(writer -> ((EncoderHttpMessageWriter<?>) writer).getEncoder())
+          .filter(encoder -> encoder instanceof Jackson2JsonEncoder)
+          .map(encoder -> ((Jackson2JsonEncoder) encoder).getObjectMapper())
+          .findFirst()
+          .orElse(null);
+      if (objectMapper == null) {
+        return null;
+      }
+      cache = new RestApiExceptionTemplateCache(
+          objectMapper, null, false, RestApiExceptionTemplateCache.DEFAULT_MAXIMUM_SIZE);
+      templateCache = cache;
+    }
+    return cache;
+  }
+
   @Override
   protected RouterFunction<ServerResponse> getRoutingFunction(
       final ErrorAttributes errorAttributes) {
@@ -116,46 +198,67 @@ public class ApiExceptionHandler extends AbstractErrorWebExceptionHandler {
   @SuppressWarnings("WeakerAccess")
   protected Mono<ServerResponse> renderErrorResponse(final ServerRequest request) {
 
-    final RestApiException response = restApiExceptionMapper
-        .build(getError(request), request.path(), null);
+    final ExceptionAnalysis analysis = restApiExceptionMapper.analyze(getError(request), null);
+    final RestApiException response = restApiExceptionMapper.build(analysis, request.path());
+    if (headersOnlyMode != null && headersOnlyMode.isHeadersOnly(request.headers()
+        .header(RestApiExceptionUtils.TRANSPORT_HEADER_NAME).stream().findFirst().orElse(null))) {
+      return renderHeadersOnly(analysis.getHttpStatus(), response, null);
+    }
     final String accepts = MediaTypeHelper.toString(request.headers().accept());
     if (MediaTypeHelper.canContentTypeBeJson(accepts)) {
+      final RestApiExceptionTemplateCache cache = templatesEnabled ? getTemplateCache() : null;
+      final byte[] body = cache != null ? cache.renderJson(response) : null;
       return ServerResponse
-          .status(restApiExceptionMapper.detectHttpStatus(getError(request), null))
+          .status(analysis.getHttpStatus())
           .contentType(MediaType.APPLICATION_JSON)
-          .body(BodyInserters.fromObject(response));
+          .body(body != null ? BodyInserters.fromObject(body) : BodyInserters.fromObject(response));
     } else if (MediaTypeHelper.canContentTypeBeXml(accepts)) {
       return ServerResponse
-          .status(restApiExceptionMapper.detectHttpStatus(getError(request), null))
+          .status(analysis.getHttpStatus())
           .contentType(MediaType.APPLICATION_XML)
           .body(BodyInserters.fromObject(response));
     } else {
-      final String id = StringUtils.hasText(response.getId())
-          ? response.getId()
-          : RestApiExceptionUtils.NO_ID_VALUE;
-      final String timestamp = response.getTimestamp() != null
-          ? response.getTimestamp().format(RestApiExceptionUtils.TIMESTAMP_FORMATTER)
-          : OffsetDateTime.now(ZoneId.of("UTC")).format(RestApiExceptionUtils.TIMESTAMP_FORMATTER);
-      final String msg = StringUtils.hasText(response.getMessage())
-          ? response.getMessage()
-          : RestApiExceptionUtils.NO_MESSAGE_VALUE;
-      final String code = StringUtils.hasText(response.getErrorCode())
-          ? response.getErrorCode()
-          : RestApiExceptionUtils.NO_ERROR_CODE_VALUE;
-      final String cls = StringUtils.hasText(response.getClassName())
-          ? response.getClassName()
-          : RestApiExceptionUtils.NO_CLASS_VALUE;
-      return ServerResponse
-          .status(restApiExceptionMapper.detectHttpStatus(getError(request), null))
-          .header(RestApiExceptionUtils.ID_HEADER_NAME, id)
-          .header(RestApiExceptionUtils.TIMESTAMP_HEADER_NAME, timestamp)
-          .header(RestApiExceptionUtils.MESSAGE_HEADER_NAME, msg)
-          .header(RestApiExceptionUtils.CODE_HEADER_NAME, code)
-          .header(RestApiExceptionUtils.CLASS_HEADER_NAME, cls)
-          .contentType(MediaTypeHelper.findContentType(
-              request.headers().accept(), MediaType.TEXT_PLAIN))
-          .body(BodyInserters.empty());
+      return renderHeadersOnly(
+          analysis.getHttpStatus(),
+          response,
+          MediaTypeHelper.findContentType(request.headers().accept(), MediaType.TEXT_PLAIN));
+    }
+  }
+
+  private static Mono<ServerResponse> renderHeadersOnly(
+      final HttpStatus httpStatus,
+      final RestApiException response,
+      @Nullable final MediaType contentType) {
+
+    final String id = StringUtils.hasText(response.getId())
+        ? response.getId()
+        : RestApiExceptionUtils.NO_ID_VALUE;
+    final String timestamp = response.getTimestamp() != null
+        ? response.getTimestamp().format(RestApiExceptionUtils.TIMESTAMP_FORMATTER)
+        : OffsetDateTime.now(ZoneId.of("UTC")).format(RestApiExceptionUtils.TIMESTAMP_FORMATTER);
+    final String msg = StringUtils.hasText(response.getMessage())
+        ? response.getMessage()
+        : RestApiExceptionUtils.NO_MESSAGE_VALUE;
+    final String code = StringUtils.hasText(response.getErrorCode())
+        ? response.getErrorCode()
+        : RestApiExceptionUtils.NO_ERROR_CODE_VALUE;
+    final String cls = StringUtils.hasText(response.getClassName())
+        ? response.getClassName()
+        : RestApiExceptionUtils.NO_CLASS_VALUE;
+    final ServerResponse.BodyBuilder builder = ServerResponse
+        .status(httpStatus)
+        .header(
+            RestApiExceptionUtils.TRANSPORT_HEADER_NAME,
+            RestApiExceptionUtils.HEADERS_ONLY_VALUE)
+        .header(RestApiExceptionUtils.ID_HEADER_NAME, id)
+        .header(RestApiExceptionUtils.TIMESTAMP_HEADER_NAME, timestamp)
+        .header(RestApiExceptionUtils.MESSAGE_HEADER_NAME, msg)
+        .header(RestApiExceptionUtils.CODE_HEADER_NAME, code)
+        .header(RestApiExceptionUtils.CLASS_HEADER_NAME, cls);
+    if (contentType != null) {
+      builder.contentType(contentType);
     }
+    return builder.body(BodyInserters.empty());
   }
 
 }
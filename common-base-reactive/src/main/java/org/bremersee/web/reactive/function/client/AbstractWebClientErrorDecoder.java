@@ -16,6 +16,15 @@
 
 package org.bremersee.web.reactive.function.client;
 
+import java.io.ByteArrayOutputStream;
+import lombok.Getter;
+import lombok.Setter;
+import org.bremersee.exception.RestApiExceptionParserImpl;
+import org.bremersee.exception.RestApiExceptionUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.BodyExtractors;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import reactor.core.publisher.Mono;
 
@@ -23,17 +32,115 @@ import reactor.core.publisher.Mono;
  * An abstract implementation of the error decoder for the
  * {@link org.springframework.web.reactive.function.client.WebClient}.
  *
+ * <p>The response body is collected as bytes. A body, that is parsed as json or xml (see {@link
+ * RestApiExceptionParserImpl#isParsedBody(byte[], int, java.util.Map)}), is collected up to the
+ * maximum parsed body size; if it is larger, it is discarded and the exception is built from the
+ * headers only. Of other bodies only the maximum body size is collected and the rest is
+ * discarded. The body of a headers only response (see {@link
+ * RestApiExceptionUtils#isHeadersOnly(java.util.Map)}) is not collected at all. Such responses
+ * can be requested with the {@link HeadersOnlyRequestAppender}.
+ *
  * @author Christian Bremer
  */
 public abstract class AbstractWebClientErrorDecoder<E extends Throwable>
     implements WebClientErrorDecoder<E> {
 
+  /**
+   * The maximum number of bytes, that are read from a response body, that is not parsed as json
+   * or xml.
+   */
+  @Getter
+  @Setter
+  private int maxBodySize = RestApiExceptionParserImpl.DEFAULT_MAX_BODY_SIZE;
+
+  /**
+   * The maximum number of bytes of a response body, that is parsed as json or xml.
+   */
+  @Getter
+  @Setter
+  private int maxParsedBodySize = RestApiExceptionParserImpl.DEFAULT_MAX_PARSED_BODY_SIZE;
+
   @Override
   public Mono<E> apply(ClientResponse clientResponse) {
+    if (RestApiExceptionUtils.isHeadersOnly(clientResponse.headers().asHttpHeaders())) {
+      return clientResponse
+          .bodyToMono(Void.class)
+          .then(Mono.fromSupplier(() -> buildExceptionFromBytes(clientResponse, new byte[0])));
+    }
+    final int max = Math.max(0, maxBodySize);
+    final int maxParsed = Math.max(0, maxParsedBodySize);
+    final HttpHeaders headers = clientResponse.headers().asHttpHeaders();
     return clientResponse
-        .bodyToMono(String.class)
-        .switchIfEmpty(Mono.just(""))
-        .map(response -> buildException(clientResponse, response));
+        .body(BodyExtractors.toDataBuffers())
+        .collect(() -> new BodyCollector(max, maxParsed, headers), BodyCollector::append)
+        .map(collector -> buildExceptionFromBytes(clientResponse, collector.toByteArray()));
+  }
+
+  /**
+   * Collects the bytes of the data buffers up to the limit. If the limit is reached and the body
+   * is parsed as json or xml, the limit is raised to the maximum parsed body size. If this is
+   * exceeded, too, the collected bytes are discarded.
+   */
+  private static final class BodyCollector {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final int maxParsedBodySize;
+
+    private final HttpHeaders headers;
+
+    private int limit;
+
+    private boolean limitChecked;
+
+    private boolean parsed;
+
+    private boolean tooLarge;
+
+    private BodyCollector(final int limit, final int maxParsedBodySize, final HttpHeaders headers) {
+      this.limit = limit;
+      this.maxParsedBodySize = maxParsedBodySize;
+      this.headers = headers;
+    }
+
+    private void append(final DataBuffer buffer) {
+      try {
+        if (tooLarge) {
+          return;
+        }
+        int remaining = buffer.readableByteCount();
+        remaining -= write(buffer, remaining);
+        if (remaining > 0 && !limitChecked) {
+          limitChecked = true;
+          if (RestApiExceptionParserImpl.isParsedBody(out.toByteArray(), out.size(), headers)) {
+            parsed = true;
+            limit = maxParsedBodySize;
+            remaining -= write(buffer, remaining);
+          }
+        }
+        if (remaining > 0 && parsed) {
+          tooLarge = true;
+          out.reset();
+        }
+      } finally {
+        DataBufferUtils.release(buffer);
+      }
+    }
+
+    private int write(final DataBuffer buffer, final int available) {
+      final int length = Math.min(limit - out.size(), available);
+      if (length <= 0) {
+        return 0;
+      }
+      final byte[] bytes = new byte[length];
+      buffer.read(bytes);
+      out.write(bytes, 0, length);
+      return length;
+    }
+
+    private byte[] toByteArray() {
+      return out.toByteArray();
+    }
   }
 
 }
@@ -72,4 +72,20 @@ public class DefaultWebClientErrorDecoder
     return new WebClientException(clientResponse.statusCode(), headers, restApiException);
   }
 
+  @Override
+  public WebClientException buildExceptionFromBytes(
+      final ClientResponse clientResponse,
+      final byte[] response) {
+
+    final Map<String, ? extends Collection<String>> headers = Collections
+        .unmodifiableMap(clientResponse.headers().asHttpHeaders());
+    final RestApiException restApiException = parser.parseExceptionFromBytes(
+        response,
+        clientResponse.headers().asHttpHeaders());
+    if (log.isDebugEnabled()) {
+      log.debug("msg=[Decoded error.] restApiException=[{}]", restApiException);
+    }
+    return new WebClientException(clientResponse.statusCode(), headers, restApiException);
+  }
+
 }
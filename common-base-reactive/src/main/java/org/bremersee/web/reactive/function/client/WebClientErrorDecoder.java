@@ -16,7 +16,10 @@
 
 package org.bremersee.web.reactive.function.client;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.function.Function;
+import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import reactor.core.publisher.Mono;
 
@@ -38,4 +41,19 @@ public interface WebClientErrorDecoder<E extends Throwable>
    */
   E buildException(ClientResponse clientResponse, String response);
 
+  /**
+   * Build exception. The default implementation decodes the response with the charset of the
+   * content type (or UTF-8) and calls {@link #buildException(ClientResponse, String)}.
+   *
+   * @param clientResponse the client response
+   * @param response       the response body
+   * @return the exception
+   */
+  default E buildExceptionFromBytes(ClientResponse clientResponse, byte[] response) {
+    final Charset charset = clientResponse.headers().contentType()
+        .map(MediaType::getCharset)
+        .orElse(StandardCharsets.UTF_8);
+    return buildException(clientResponse, new String(response, charset));
+  }
+
 }
@@ -0,0 +1,65 @@
+package org.bremersee.security.access;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.bremersee.common.model.AccessControlEntry;
+import org.bremersee.common.model.AccessControlList;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/**
+ * The reactive acl filter test.
+ *
+ * @author Christian Bremer
+ */
+public class ReactiveAclFilterTest {
+
+  private static AccessControlList acl(String owner, String readingUser) {
+    return AccessControlList
+        .builder()
+        .owner(owner)
+        .entries(Collections.singletonList(AccessControlEntry
+            .builder()
+            .permission(PermissionConstants.READ)
+            .users(Collections.singletonList(readingUser))
+            .build()))
+        .build();
+  }
+
+  /**
+   * Filter by access control list.
+   */
+  @Test
+  public void filterByAccessControlList() {
+    AccessControlList acl0 = acl("anna", "bob");
+    AccessControlList acl1 = acl("bob", "anna");
+    AccessControlList acl2 = acl("charlie", "dave");
+    StepVerifier
+        .create(ReactiveAclFilter.filterByAccessControlList(
+            Flux.fromIterable(Arrays.asList(acl0, acl1, acl2)),
+            acl -> acl,
+            AccessPrincipal.of("bob", null, null),
+            PermissionConstants.READ))
+        .expectNext(acl0, acl1)
+        .verifyComplete();
+  }
+
+  /**
+   * Filter by acl.
+   */
+  @Test
+  public void filterByAcl() {
+    Acl<? extends Ace> acl0 = AclBuilder.builder().addRole("ROLE_USER", "read").buildAcl();
+    Acl<? extends Ace> acl1 = AclBuilder.builder().addRole("ROLE_ADMIN", "read").buildAcl();
+    StepVerifier
+        .create(ReactiveAclFilter.filterByAcl(
+            Flux.just(acl0, acl1),
+            acl -> acl,
+            AccessPrincipal.of("bob", Collections.singleton("ROLE_USER"), null),
+            PermissionConstants.READ))
+        .expectNext(acl0)
+        .verifyComplete();
+  }
+
+}
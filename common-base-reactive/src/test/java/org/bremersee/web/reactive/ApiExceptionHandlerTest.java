@@ -19,6 +19,7 @@ package org.bremersee.web.reactive;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -28,6 +29,7 @@ import java.util.Collections;
 import org.bremersee.exception.RestApiExceptionMapper;
 import org.bremersee.exception.RestApiExceptionMapperImpl;
 import org.bremersee.exception.RestApiExceptionMapperProperties;
+import org.bremersee.exception.RestApiExceptionTemplateCache;
 import org.bremersee.exception.RestApiExceptionUtils;
 import org.bremersee.exception.ServiceException;
 import org.bremersee.web.reactive.ApiExceptionHandler;
@@ -121,6 +123,77 @@ public class ApiExceptionHandlerTest {
     doTestingRenderErrorResponse(MediaType.IMAGE_JPEG);
   }
 
+  /**
+   * Test render error response with headers only.
+   */
+  @Test
+  public void testRenderErrorResponseWithHeadersOnly() {
+    final HttpHeaders httpHeaders = new HttpHeaders();
+    httpHeaders.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+    httpHeaders.add(
+        RestApiExceptionUtils.TRANSPORT_HEADER_NAME,
+        RestApiExceptionUtils.HEADERS_ONLY_VALUE);
+    ServerRequest.Headers headers = mock(ServerRequest.Headers.class);
+    when(headers.asHttpHeaders()).thenReturn(httpHeaders);
+    when(headers.accept()).thenReturn(httpHeaders.getAccept());
+    when(headers.header(RestApiExceptionUtils.TRANSPORT_HEADER_NAME))
+        .thenReturn(httpHeaders.get(RestApiExceptionUtils.TRANSPORT_HEADER_NAME));
+
+    ServerRequest serverRequest = mock(ServerRequest.class);
+    when(serverRequest.path()).thenReturn("/api/resource");
+    when(serverRequest.headers()).thenReturn(headers);
+
+    StepVerifier.create(exceptionHandler.renderErrorResponse(serverRequest))
+        .assertNext(response -> {
+          assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.statusCode());
+          assertNull(response.headers().getContentType());
+          assertEquals(
+              RestApiExceptionUtils.HEADERS_ONLY_VALUE,
+              response.headers().getFirst(RestApiExceptionUtils.TRANSPORT_HEADER_NAME));
+          assertEquals(
+              exception.getErrorCode(),
+              response.headers().getFirst(RestApiExceptionUtils.CODE_HEADER_NAME));
+        })
+        .expectNextCount(0)
+        .verifyComplete();
+  }
+
+  /**
+   * Test render error response with templates.
+   */
+  @Test
+  public void testRenderErrorResponseWithTemplates() {
+    exceptionHandler.setTemplatesEnabled(true);
+    try {
+      final RestApiExceptionTemplateCache templateCache = exceptionHandler.getTemplateCache();
+      assertNotNull(templateCache);
+      for (MediaType mediaType : new MediaType[]{
+          MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML}) {
+        final HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setAccept(Collections.singletonList(mediaType));
+        ServerRequest.Headers headers = mock(ServerRequest.Headers.class);
+        when(headers.asHttpHeaders()).thenReturn(httpHeaders);
+        when(headers.accept()).thenReturn(httpHeaders.getAccept());
+
+        ServerRequest serverRequest = mock(ServerRequest.class);
+        when(serverRequest.path()).thenReturn("/api/resource");
+        when(serverRequest.headers()).thenReturn(headers);
+
+        StepVerifier.create(exceptionHandler.renderErrorResponse(serverRequest))
+            .assertNext(response -> {
+              assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.statusCode());
+              assertEquals(mediaType, response.headers().getContentType());
+            })
+            .expectNextCount(0)
+            .verifyComplete();
+        // xml is written by the jaxb encoder and never rendered from a template
+        assertEquals(1, templateCache.size());
+      }
+    } finally {
+      exceptionHandler.setTemplatesEnabled(false);
+    }
+  }
+
   private void doTestingRenderErrorResponse(MediaType mediaType) {
     final HttpHeaders httpHeaders = new HttpHeaders();
     httpHeaders.put(HttpHeaders.ACCEPT, Collections.singletonList(String.valueOf(mediaType)));
@@ -4,17 +4,26 @@ import static org.bremersee.http.converter.ObjectMapperHelper.getJsonMapper;
 import static org.bremersee.http.converter.ObjectMapperHelper.getXmlMapper;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import org.bremersee.TestHelper;
+import org.bremersee.exception.RestApiExceptionUtils;
 import org.bremersee.exception.model.RestApiException;
 import org.bremersee.http.MediaTypeHelper;
 import org.junit.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -27,6 +36,15 @@ public class DefaultWebClientErrorDecoderTest {
 
   private static final DefaultWebClientErrorDecoder decoder = new DefaultWebClientErrorDecoder();
 
+  private static Flux<DataBuffer> body(String body) {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    DefaultDataBufferFactory factory = new DefaultDataBufferFactory();
+    int half = bytes.length / 2;
+    return Flux.just(
+        factory.wrap(Arrays.copyOfRange(bytes, 0, half)),
+        factory.wrap(Arrays.copyOfRange(bytes, half, bytes.length)));
+  }
+
   /**
    * Test decode json.
    *
@@ -64,12 +82,12 @@ public class DefaultWebClientErrorDecoderTest {
     when(clientResponse.headers()).thenReturn(internalHeaders);
     if (MediaTypeHelper.canContentTypeBeJson(contentType)) {
       when(
-          clientResponse.bodyToMono(String.class))
-          .thenReturn(Mono.just(getJsonMapper().writeValueAsString(expected)));
+          clientResponse.body(any()))
+          .thenReturn(body(getJsonMapper().writeValueAsString(expected)));
     } else if (MediaTypeHelper.canContentTypeBeXml(contentType)) {
       when(
-          clientResponse.bodyToMono(String.class))
-          .thenReturn(Mono.just(getXmlMapper().writeValueAsString(expected)));
+          clientResponse.body(any()))
+          .thenReturn(body(getXmlMapper().writeValueAsString(expected)));
     } else {
       throw new Exception("Content type is not supported in this test.");
     }
@@ -107,8 +125,8 @@ public class DefaultWebClientErrorDecoderTest {
     when(clientResponse.statusCode()).thenReturn(httpStatus);
     when(clientResponse.headers()).thenReturn(internalHeaders);
     when(
-        clientResponse.bodyToMono(String.class))
-        .thenReturn(Mono.just(expected));
+        clientResponse.body(any()))
+        .thenReturn(body(expected));
 
     StepVerifier
         .create(decoder.apply(clientResponse))
@@ -139,8 +157,8 @@ public class DefaultWebClientErrorDecoderTest {
     when(clientResponse.statusCode()).thenReturn(httpStatus);
     when(clientResponse.headers()).thenReturn(internalHeaders);
     when(
-        clientResponse.bodyToMono(String.class))
-        .thenReturn(Mono.empty());
+        clientResponse.body(any()))
+        .thenReturn(Flux.empty());
 
     StepVerifier
         .create(decoder.apply(clientResponse))
@@ -153,4 +171,143 @@ public class DefaultWebClientErrorDecoderTest {
         .verifyComplete();
   }
 
-}
\ No newline at end of file
+  /**
+   * Test that the response body is truncated.
+   */
+  @Test
+  public void testDecodeWithMaxBodySize() {
+    final HttpHeaders headers = new HttpHeaders();
+    headers.add(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_HTML_VALUE);
+
+    ClientResponse.Headers internalHeaders = mock(ClientResponse.Headers.class);
+    when(internalHeaders.asHttpHeaders()).thenReturn(headers);
+
+    ClientResponse clientResponse = mock(ClientResponse.class);
+    when(clientResponse.statusCode()).thenReturn(HttpStatus.BAD_GATEWAY);
+    when(clientResponse.headers()).thenReturn(internalHeaders);
+    when(
+        clientResponse.body(any()))
+        .thenReturn(body("<html><body>Bad Gateway</body></html>"));
+
+    final DefaultWebClientErrorDecoder truncatingDecoder = new DefaultWebClientErrorDecoder();
+    truncatingDecoder.setMaxBodySize(12);
+    StepVerifier
+        .create(truncatingDecoder.apply(clientResponse))
+        .assertNext(throwable -> assertEquals(
+            "<html><body>",
+            throwable.getRestApiException().getMessage()))
+        .expectNextCount(0)
+        .verifyComplete();
+  }
+
+  /**
+   * Test that a json response, that is larger than the maximum body size, is decoded
+   * completely.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testDecodeLargeJsonWithMaxBodySize() throws Exception {
+    final RestApiException expected = TestHelper.restApiException();
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append("Large message. ");
+    }
+    expected.setMessage(sb.toString());
+
+    final HttpHeaders headers = new HttpHeaders();
+    headers.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+
+    ClientResponse.Headers internalHeaders = mock(ClientResponse.Headers.class);
+    when(internalHeaders.asHttpHeaders()).thenReturn(headers);
+
+    ClientResponse clientResponse = mock(ClientResponse.class);
+    when(clientResponse.statusCode()).thenReturn(HttpStatus.BAD_REQUEST);
+    when(clientResponse.headers()).thenReturn(internalHeaders);
+    when(
+        clientResponse.body(any()))
+        .thenReturn(body(getJsonMapper().writeValueAsString(expected)));
+
+    final DefaultWebClientErrorDecoder limitedDecoder = new DefaultWebClientErrorDecoder();
+    limitedDecoder.setMaxBodySize(100);
+    StepVerifier
+        .create(limitedDecoder.apply(clientResponse))
+        .assertNext(throwable -> assertEquals(expected, throwable.getRestApiException()))
+        .expectNextCount(0)
+        .verifyComplete();
+  }
+
+  /**
+   * Test that a json response, that is larger than the maximum parsed body size, is decoded from
+   * the headers.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testDecodeTooLargeJson() throws Exception {
+    final RestApiException large = TestHelper.restApiException();
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append("Large message. ");
+    }
+    large.setMessage(sb.toString());
+
+    final HttpHeaders headers = new HttpHeaders();
+    headers.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+    headers.add(RestApiExceptionUtils.MESSAGE_HEADER_NAME, "Too large");
+
+    ClientResponse.Headers internalHeaders = mock(ClientResponse.Headers.class);
+    when(internalHeaders.asHttpHeaders()).thenReturn(headers);
+
+    ClientResponse clientResponse = mock(ClientResponse.class);
+    when(clientResponse.statusCode()).thenReturn(HttpStatus.BAD_REQUEST);
+    when(clientResponse.headers()).thenReturn(internalHeaders);
+    when(
+        clientResponse.body(any()))
+        .thenReturn(body(getJsonMapper().writeValueAsString(large)));
+
+    final DefaultWebClientErrorDecoder limitedDecoder = new DefaultWebClientErrorDecoder();
+    limitedDecoder.setMaxBodySize(100);
+    limitedDecoder.setMaxParsedBodySize(1000);
+    StepVerifier
+        .create(limitedDecoder.apply(clientResponse))
+        .assertNext(throwable -> assertEquals(
+            "Too large",
+            throwable.getRestApiException().getMessage()))
+        .expectNextCount(0)
+        .verifyComplete();
+  }
+
+  /**
+   * Test that the body of a headers only response is not collected.
+   */
+  @Test
+  public void testDecodeHeadersOnlyResponse() {
+    final HttpHeaders headers = new HttpHeaders();
+    headers.add(
+        RestApiExceptionUtils.TRANSPORT_HEADER_NAME,
+        RestApiExceptionUtils.HEADERS_ONLY_VALUE);
+    headers.add(RestApiExceptionUtils.MESSAGE_HEADER_NAME, "Not found.");
+    headers.add(RestApiExceptionUtils.CODE_HEADER_NAME, "TEST:404");
+
+    ClientResponse.Headers internalHeaders = mock(ClientResponse.Headers.class);
+    when(internalHeaders.asHttpHeaders()).thenReturn(headers);
+
+    ClientResponse clientResponse = mock(ClientResponse.class);
+    when(clientResponse.statusCode()).thenReturn(HttpStatus.NOT_FOUND);
+    when(clientResponse.headers()).thenReturn(internalHeaders);
+    when(clientResponse.bodyToMono(Void.class)).thenReturn(Mono.empty());
+
+    StepVerifier
+        .create(decoder.apply(clientResponse))
+        .assertNext(throwable -> {
+          assertEquals(HttpStatus.NOT_FOUND, throwable.getStatus());
+          assertEquals("Not found.", throwable.getRestApiException().getMessage());
+          assertEquals("TEST:404", throwable.getRestApiException().getErrorCode());
+        })
+        .expectNextCount(0)
+        .verifyComplete();
+    verify(clientResponse, never()).body(any());
+  }
+
+}
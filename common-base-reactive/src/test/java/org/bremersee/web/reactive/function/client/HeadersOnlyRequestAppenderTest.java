@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.bremersee.web.reactive.function.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.URI;
+import org.bremersee.exception.HeadersOnlyMode;
+import org.bremersee.exception.RestApiExceptionUtils;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * The headers only request appender test.
+ *
+ * @author Christian Bremer
+ */
+public class HeadersOnlyRequestAppenderTest {
+
+  private static final HeadersOnlyRequestAppender appender = new HeadersOnlyRequestAppender();
+
+  private static final DefaultWebClientErrorDecoder decoder = new DefaultWebClientErrorDecoder();
+
+  /**
+   * The server answers with headers only, if the request header is present (the default mode).
+   */
+  private static final ExchangeFunction server = request -> {
+    if (HeadersOnlyMode.ON_REQUEST.isHeadersOnly(
+        request.headers().getFirst(RestApiExceptionUtils.TRANSPORT_HEADER_NAME))) {
+      return Mono.just(ClientResponse
+          .create(HttpStatus.NOT_FOUND)
+          .header(
+              RestApiExceptionUtils.TRANSPORT_HEADER_NAME,
+              RestApiExceptionUtils.HEADERS_ONLY_VALUE)
+          .header(RestApiExceptionUtils.MESSAGE_HEADER_NAME, "Not found.")
+          .header(RestApiExceptionUtils.CODE_HEADER_NAME, "TEST:404")
+          .build());
+    }
+    return Mono.just(ClientResponse
+        .create(HttpStatus.NOT_FOUND)
+        .header("Content-Type", MediaType.TEXT_PLAIN_VALUE)
+        .body("Body")
+        .build());
+  };
+
+  /**
+   * Test that the request header causes a headers only response, that is decoded.
+   */
+  @Test
+  public void roundTrip() {
+    final ClientRequest request = ClientRequest
+        .create(HttpMethod.GET, URI.create("http://localhost/resource"))
+        .build();
+    final Mono<WebClientException> exceptionMono = appender
+        .filter(request, server)
+        .flatMap(decoder::apply);
+    StepVerifier
+        .create(exceptionMono)
+        .assertNext(exception -> {
+          assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+          assertEquals("Not found.", exception.getRestApiException().getMessage());
+          assertEquals("TEST:404", exception.getRestApiException().getErrorCode());
+        })
+        .expectNextCount(0)
+        .verifyComplete();
+  }
+
+  /**
+   * Test that a transport header, that is already set, is not changed.
+   */
+  @Test
+  public void keepTransportHeader() {
+    final ClientRequest request = ClientRequest
+        .create(HttpMethod.GET, URI.create("http://localhost/resource"))
+        .header(RestApiExceptionUtils.TRANSPORT_HEADER_NAME, "body")
+        .build();
+    final Mono<WebClientException> exceptionMono = appender
+        .filter(request, server)
+        .flatMap(decoder::apply);
+    StepVerifier
+        .create(exceptionMono)
+        .assertNext(exception -> assertEquals(
+            "Body",
+            exception.getRestApiException().getMessage()))
+        .expectNextCount(0)
+        .verifyComplete();
+  }
+
+}
@@ -16,10 +16,13 @@
 
 package org.bremersee.web.servlet;
 
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import java.io.IOException;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.NotNull;
@@ -27,14 +30,16 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.bremersee.exception.ExceptionAnalysis;
+import org.bremersee.exception.HeadersOnlyMode;
 import org.bremersee.exception.RestApiExceptionMapper;
+import org.bremersee.exception.RestApiExceptionTemplateCache;
 import org.bremersee.exception.RestApiExceptionUtils;
 import org.bremersee.exception.model.RestApiException;
 import org.bremersee.http.MediaTypeHelper;
 import org.bremersee.http.converter.ObjectMapperHelper;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.lang.Nullable;
@@ -54,6 +59,14 @@ import org.springframework.web.util.WebUtils;
 /**
  * The api exception resolver.
  *
+ * <p>The rest api exception is written into the body as json or xml, if the client accepts it.
+ * Otherwise or if the response should contain only headers (see {@link HeadersOnlyMode}), the
+ * attributes of the rest api exception are sent as headers and the body is empty.
+ *
+ * <p>The json and xml views (and their object mappers) are created only once and are used for
+ * all responses; they are created again, if the object mapper builder or the pretty print flag is
+ * changed. The response format, that is chosen for an accept header, is cached, too.
+ *
  * @author Christian Bremer
  */
 @Validated
@@ -66,6 +79,11 @@ public class ApiExceptionResolver implements HandlerExceptionResolver {
   @SuppressWarnings("WeakerAccess")
   protected static final String MODEL_KEY = "error";
 
+  /**
+   * The maximum number of cached accept headers.
+   */
+  private static final int MAX_RESPONSE_FORMATS = 256;
+
   @Getter(AccessLevel.PROTECTED)
   @Setter
   private PathMatcher pathMatcher = new AntPathMatcher();
@@ -74,9 +92,40 @@ public class ApiExceptionResolver implements HandlerExceptionResolver {
   private final RestApiExceptionMapper exceptionMapper;
 
   @Getter(AccessLevel.PROTECTED)
-  @Setter
   private Jackson2ObjectMapperBuilder objectMapperBuilder;
 
+  /**
+   * Specifies whether the json and xml output is pretty printed. Default is {@code true}.
+   */
+  @Getter(AccessLevel.PROTECTED)
+  private boolean prettyPrint = true;
+
+  /**
+   * Determines, when the error response contains only headers. Default is {@link
+   * HeadersOnlyMode#ON_REQUEST}.
+   */
+  @Getter(AccessLevel.PROTECTED)
+  @Setter
+  @NotNull
+  private HeadersOnlyMode headersOnlyMode = HeadersOnlyMode.ON_REQUEST;
+
+  /**
+   * Specifies whether the json and xml responses are rendered from pre-serialized templates,
+   * whenever it is possible. The templates are written with the object mappers of the views.
+   * Default is {@code false}.
+   */
+  @Getter(AccessLevel.PROTECTED)
+  private boolean templatesEnabled;
+
+  private final Map<String, ResponseFormatAndContentType> responseFormats
+      = new ConcurrentHashMap<>();
+
+  private volatile MappingJackson2JsonView jsonView;
+
+  private volatile MappingJackson2XmlView xmlView;
+
+  private volatile RestApiExceptionTemplateCache templateCache;
+
   /**
    * Instantiates a new Api exception resolver.
    *
@@ -88,6 +137,44 @@ public class ApiExceptionResolver implements HandlerExceptionResolver {
     this.exceptionMapper = exceptionMapper;
   }
 
+  /**
+   * Sets the object mapper builder, that is used to build the object mappers of the json and xml
+   * views. If it is not present, the object mappers are created by the {@link
+   * ObjectMapperHelper}.
+   *
+   * @param objectMapperBuilder the object mapper builder
+   */
+  public void setObjectMapperBuilder(
+      @Nullable final Jackson2ObjectMapperBuilder objectMapperBuilder) {
+    this.objectMapperBuilder = objectMapperBuilder;
+    this.jsonView = null;
+    this.xmlView = null;
+    this.templateCache = null;
+  }
+
+  /**
+   * Specifies whether the json and xml output is pretty printed.
+   *
+   * @param prettyPrint {@code true} if the output should be pretty printed, otherwise {@code false}
+   */
+  public void setPrettyPrint(final boolean prettyPrint) {
+    this.prettyPrint = prettyPrint;
+    this.jsonView = null;
+    this.xmlView = null;
+    this.templateCache = null;
+  }
+
+  /**
+   * Specifies whether the json and xml responses are rendered from pre-serialized templates,
+   * whenever it is possible.
+   *
+   * @param templatesEnabled {@code true} if templates should be used, otherwise {@code false}
+   */
+  public void setTemplatesEnabled(final boolean templatesEnabled) {
+    this.templatesEnabled = templatesEnabled;
+    this.templateCache = null;
+  }
+
   @Override
   public ModelAndView resolveException(
       final HttpServletRequest request,
@@ -99,41 +186,139 @@ public class ApiExceptionResolver implements HandlerExceptionResolver {
       return null;
     }
 
-    final RestApiException payload = exceptionMapper.build(ex, request.getRequestURI(), handler);
+    final ExceptionAnalysis analysis = exceptionMapper.analyze(ex, handler);
+    final RestApiException payload = exceptionMapper.build(analysis, request.getRequestURI());
 
-    ModelAndView modelAndView;
-    final ResponseFormatAndContentType chooser = new ResponseFormatAndContentType(request);
-    switch (chooser.getResponseFormat()) {
-      case JSON:
-        final MappingJackson2JsonView mjv = objectMapperBuilder == null
-            ? new MappingJackson2JsonView(ObjectMapperHelper.getJsonMapper())
-            : new MappingJackson2JsonView(objectMapperBuilder.build());
-        mjv.setContentType(chooser.getContentType());
-        mjv.setPrettyPrint(true);
-        mjv.setModelKey(MODEL_KEY);
-        mjv.setExtractValueFromSingleKeyModel(true); // removes the MODEL_KEY from the output
-        modelAndView = new ModelAndView(mjv, MODEL_KEY, payload);
-        break;
+    final ResponseFormatAndContentType chooser = chooseResponseFormat(request);
+    final byte[] body = renderFromTemplate(payload, chooser.getResponseFormat());
+    final ModelAndView modelAndView = body != null
+        ? new ModelAndView(new TemplateView(body, chooser.getContentType()), MODEL_KEY, payload)
+        : buildModelAndView(payload, chooser);
+
+    if (chooser.getContentType() != null) {
+      response.setContentType(chooser.getContentType());
+    }
+    final int statusCode = analysis.getHttpStatus().value();
+    modelAndView.setStatus(analysis.getHttpStatus());
+    applyStatusCodeIfPossible(request, response, statusCode);
+    return modelAndView;
+  }
 
+  @Nullable
+  private byte[] renderFromTemplate(
+      final RestApiException payload,
+      final ResponseFormat responseFormat) {
+
+    if (!templatesEnabled) {
+      return null;
+    }
+    switch (responseFormat) {
+      case JSON:
+        return getTemplateCache().renderJson(payload);
       case XML:
-        final MappingJackson2XmlView mxv = objectMapperBuilder == null
-            ? new MappingJackson2XmlView(ObjectMapperHelper.getXmlMapper())
-            : new MappingJackson2XmlView(objectMapperBuilder.createXmlMapper(true).build());
-        mxv.setContentType(chooser.getContentType());
-        mxv.setPrettyPrint(true);
-        mxv.setModelKey(MODEL_KEY);
-        modelAndView = new ModelAndView(mxv, MODEL_KEY, payload);
-        break;
+        return getTemplateCache().renderXml(payload);
+      default:
+        return null;
+    }
+  }
 
+  private ModelAndView buildModelAndView(
+      final RestApiException payload,
+      final ResponseFormatAndContentType chooser) {
+
+    switch (chooser.getResponseFormat()) {
+      case JSON:
+        return new ModelAndView(getJsonView(), MODEL_KEY, payload);
+      case XML:
+        return new ModelAndView(getXmlView(), MODEL_KEY, payload);
       default:
-        modelAndView = new ModelAndView(new EmptyView(payload, chooser.getContentType()));
+        return new ModelAndView(new EmptyView(payload, chooser.getContentType()));
     }
+  }
 
-    response.setContentType(chooser.getContentType());
-    final int statusCode = exceptionMapper.detectHttpStatus(ex, handler).value();
-    modelAndView.setStatus(HttpStatus.resolve(statusCode));
-    applyStatusCodeIfPossible(request, response, statusCode);
-    return modelAndView;
+  /**
+   * Chooses the response format and the content type. The result of the accept header is cached,
+   * if the response does not contain only headers.
+   *
+   * @param request the request
+   * @return the response format and content type
+   */
+  private ResponseFormatAndContentType chooseResponseFormat(final HttpServletRequest request) {
+    if (headersOnlyMode != null && headersOnlyMode.isHeadersOnly(
+        request.getHeader(RestApiExceptionUtils.TRANSPORT_HEADER_NAME))) {
+      return ResponseFormatAndContentType.HEADERS_ONLY;
+    }
+    final String acceptHeader = request.getHeader(HttpHeaders.ACCEPT);
+    final String key = acceptHeader != null ? acceptHeader : "";
+    ResponseFormatAndContentType chooser = responseFormats.get(key);
+    if (chooser == null) {
+      chooser = new ResponseFormatAndContentType(acceptHeader);
+      if (responseFormats.size() >= MAX_RESPONSE_FORMATS) {
+        responseFormats.clear();
+      }
+      responseFormats.put(key, chooser);
+    }
+    return chooser;
+  }
+
+  /**
+   * Gets the json view. The view is thread-safe and is used for all json responses. It has its
+   * own object mapper, because the view configures the pretty printing of the object mapper.
+   *
+   * @return the json view
+   */
+  private MappingJackson2JsonView getJsonView() {
+    MappingJackson2JsonView view = jsonView;
+    if (view == null) {
+      view = new MappingJackson2JsonView(objectMapperBuilder == null
+          ? ObjectMapperHelper.getJsonMapper()
+          : objectMapperBuilder.build());
+      view.setContentType(MediaType.APPLICATION_JSON_VALUE);
+      view.setPrettyPrint(prettyPrint);
+      view.setModelKey(MODEL_KEY);
+      view.setExtractValueFromSingleKeyModel(true); // removes the MODEL_KEY from the output
+      jsonView = view;
+    }
+    return view;
+  }
+
+  /**
+   * Gets the xml view. The view is thread-safe and is used for all xml responses. It has its own
+   * object mapper, because the view configures the pretty printing of the object mapper.
+   *
+   * @return the xml view
+   */
+  private MappingJackson2XmlView getXmlView() {
+    MappingJackson2XmlView view = xmlView;
+    if (view == null) {
+      view = new MappingJackson2XmlView(objectMapperBuilder == null
+          ? ObjectMapperHelper.getXmlMapper()
+          : objectMapperBuilder.createXmlMapper(true).build());
+      view.setContentType(MediaType.APPLICATION_XML_VALUE);
+      view.setPrettyPrint(prettyPrint);
+      view.setModelKey(MODEL_KEY);
+      xmlView = view;
+    }
+    return view;
+  }
+
+  /**
+   * Gets the template cache. The templates are written with the object mappers of the json and
+   * xml views, so that they are equal to the responses of the views.
+   *
+   * @return the template cache
+   */
+  private RestApiExceptionTemplateCache getTemplateCache() {
+    RestApiExceptionTemplateCache cache = templateCache;
+    if (cache == null) {
+      cache = new RestApiExceptionTemplateCache(
+          getJsonView().getObjectMapper(),
+          (XmlMapper) getXmlView().getObjectMapper(),
+          prettyPrint,
+          RestApiExceptionTemplateCache.DEFAULT_MAXIMUM_SIZE);
+      templateCache = cache;
+    }
+    return cache;
   }
 
   /**
@@ -214,11 +399,17 @@ public class ApiExceptionResolver implements HandlerExceptionResolver {
    */
   static class ResponseFormatAndContentType {
 
+    /**
+     * The response format and content type of a response, that contains only headers.
+     */
+    static final ResponseFormatAndContentType HEADERS_ONLY = new ResponseFormatAndContentType(
+        ResponseFormat.EMPTY, null);
+
     @Getter(AccessLevel.PROTECTED)
-    private ResponseFormat responseFormat;
+    private final ResponseFormat responseFormat;
 
     @Getter(AccessLevel.PROTECTED)
-    private String contentType;
+    private final String contentType;
 
     /**
      * Instantiates a new response format and content type.
@@ -226,7 +417,15 @@ public class ApiExceptionResolver implements HandlerExceptionResolver {
      * @param request the request
      */
     ResponseFormatAndContentType(final @NotNull HttpServletRequest request) {
-      final String acceptHeader = request.getHeader(HttpHeaders.ACCEPT);
+      this(request.getHeader(HttpHeaders.ACCEPT));
+    }
+
+    /**
+     * Instantiates a new response format and content type.
+     *
+     * @param acceptHeader the accept header
+     */
+    ResponseFormatAndContentType(final @Nullable String acceptHeader) {
       if (MediaTypeHelper.canContentTypeBeJson(acceptHeader)) {
         responseFormat = ResponseFormat.JSON;
         contentType = MediaType.APPLICATION_JSON_VALUE;
@@ -244,6 +443,13 @@ public class ApiExceptionResolver implements HandlerExceptionResolver {
         }
       }
     }
+
+    private ResponseFormatAndContentType(
+        final ResponseFormat responseFormat,
+        final @Nullable String contentType) {
+      this.responseFormat = responseFormat;
+      this.contentType = contentType;
+    }
   }
 
   /**
@@ -262,7 +468,7 @@ public class ApiExceptionResolver implements HandlerExceptionResolver {
      * @param payload     the payload
      * @param contentType the content type
      */
-    EmptyView(final @NotNull RestApiException payload, final String contentType) {
+    EmptyView(final @NotNull RestApiException payload, final @Nullable String contentType) {
       this.restApiException = payload;
       setContentType(contentType);
     }
@@ -273,6 +479,9 @@ public class ApiExceptionResolver implements HandlerExceptionResolver {
         final HttpServletRequest httpServletRequest,
         final HttpServletResponse httpServletResponse) {
 
+      httpServletResponse.addHeader(RestApiExceptionUtils.TRANSPORT_HEADER_NAME,
+          RestApiExceptionUtils.HEADERS_ONLY_VALUE);
+
       httpServletResponse.addHeader(RestApiExceptionUtils.ID_HEADER_NAME,
           StringUtils.hasText(restApiException.getId())
               ? restApiException.getId()
@@ -302,4 +511,38 @@ public class ApiExceptionResolver implements HandlerExceptionResolver {
 
   }
 
+  /**
+   * The view, that writes a rest api exception, that was rendered from a template.
+   */
+  static class TemplateView extends AbstractView {
+
+    /**
+     * The rendered rest api exception.
+     */
+    final byte[] body;
+
+    /**
+     * Instantiates a new template view.
+     *
+     * @param body        the rendered rest api exception
+     * @param contentType the content type
+     */
+    TemplateView(final @NotNull byte[] body, final String contentType) {
+      this.body = body;
+      setContentType(contentType);
+    }
+
+    @Override
+    protected void renderMergedOutputModel(
+        @Nullable final Map<String, Object> map,
+        final HttpServletRequest httpServletRequest,
+        final HttpServletResponse httpServletResponse) throws IOException {
+
+      httpServletResponse.setContentType(getContentType());
+      httpServletResponse.setContentLength(body.length);
+      httpServletResponse.getOutputStream().write(body);
+      httpServletResponse.getOutputStream().flush();
+    }
+  }
+
 }
@@ -17,12 +17,19 @@
 package org.bremersee.web.servlet;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.databind.SerializationFeature;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -32,16 +39,21 @@ import javax.servlet.http.HttpServletResponse;
 import org.bremersee.exception.RestApiExceptionMapper;
 import org.bremersee.exception.RestApiExceptionMapperImpl;
 import org.bremersee.exception.RestApiExceptionMapperProperties;
+import org.bremersee.exception.RestApiExceptionUtils;
 import org.bremersee.exception.ServiceException;
 import org.bremersee.exception.model.RestApiException;
+import org.bremersee.http.converter.ObjectMapperHelper;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.View;
 import org.springframework.web.servlet.view.json.MappingJackson2JsonView;
+import org.springframework.web.servlet.view.xml.MappingJackson2XmlView;
 import org.springframework.web.util.WebUtils;
 
 /**
@@ -136,6 +148,176 @@ public class ApiExceptionResolverTest {
     System.out.println(actual);
   }
 
+  /**
+   * Test resolve exception with headers only.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testResolveExceptionWithHeadersOnly() throws Exception {
+
+    ServiceException exception = new ServiceException(
+        HttpStatus.NOT_FOUND.value(),
+        "Resource not found.",
+        "TEST:404");
+
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getRequestURI()).thenReturn("/api/resource");
+    when(request.getServletPath()).thenReturn("/api/resource");
+    when(request.getHeader(eq(HttpHeaders.ACCEPT)))
+        .thenReturn(MediaType.APPLICATION_JSON_VALUE);
+    when(request.getHeader(eq(RestApiExceptionUtils.TRANSPORT_HEADER_NAME)))
+        .thenReturn(RestApiExceptionUtils.HEADERS_ONLY_VALUE);
+
+    HttpServletResponse response = mock(HttpServletResponse.class);
+
+    ModelAndView mv = exceptionResolver.resolveException(request, response, null, exception);
+
+    assertNotNull(mv);
+    assertEquals(HttpStatus.NOT_FOUND, mv.getStatus());
+    assertTrue(mv.getView() instanceof ApiExceptionResolver.EmptyView);
+    verify(response, never()).setContentType(anyString());
+
+    mv.getView().render(null, request, response);
+    verify(response).addHeader(
+        RestApiExceptionUtils.TRANSPORT_HEADER_NAME,
+        RestApiExceptionUtils.HEADERS_ONLY_VALUE);
+    verify(response).addHeader(RestApiExceptionUtils.CODE_HEADER_NAME, "TEST:404");
+    verify(response).addHeader(RestApiExceptionUtils.MESSAGE_HEADER_NAME, "Resource not found.");
+  }
+
+  /**
+   * Test resolve exception with templates.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testResolveExceptionWithTemplates() throws Exception {
+
+    final RestApiExceptionMapperProperties properties = new RestApiExceptionMapperProperties();
+    properties.setApiPaths(Collections.singletonList("/api/**"));
+    properties.getDefaultExceptionMappingConfig().setIncludeStackTrace(false);
+    final ApiExceptionResolver resolver = new ApiExceptionResolver(
+        new RestApiExceptionMapperImpl(properties, "testapp"));
+    resolver.setTemplatesEnabled(true);
+
+    ServiceException exception = new ServiceException(
+        HttpStatus.NOT_FOUND.value(),
+        "Resource not found.",
+        "TEST:404");
+
+    for (String path : new String[]{"/api/resource/1", "/api/resource/2"}) {
+      HttpServletRequest request = mock(HttpServletRequest.class);
+      when(request.getRequestURI()).thenReturn(path);
+      when(request.getServletPath()).thenReturn(path);
+      when(request.getHeader(eq(HttpHeaders.ACCEPT)))
+          .thenReturn(MediaType.APPLICATION_JSON_VALUE);
+      MockHttpServletResponse response = new MockHttpServletResponse();
+
+      ModelAndView mv = resolver.resolveException(request, response, null, exception);
+      assertNotNull(mv);
+      assertEquals(HttpStatus.NOT_FOUND, mv.getStatus());
+      assertTrue(mv.getView() instanceof ApiExceptionResolver.TemplateView);
+      RestApiException expected = (RestApiException) mv.getModel()
+          .get(ApiExceptionResolver.MODEL_KEY);
+
+      mv.getView().render(mv.getModel(), request, response);
+      assertEquals(MediaType.APPLICATION_JSON_VALUE, response.getContentType());
+      RestApiException actual = ObjectMapperHelper.getJsonMapper()
+          .readValue(response.getContentAsByteArray(), RestApiException.class);
+      assertEquals(expected, actual);
+      assertEquals(path, actual.getPath());
+
+      // the template is written like the view writes the response (pretty printed)
+      MockHttpServletResponse viewResponse = new MockHttpServletResponse();
+      resolver.setTemplatesEnabled(false);
+      ModelAndView viewMv = resolver.resolveException(request, viewResponse, null, exception);
+      resolver.setTemplatesEnabled(true);
+      assertNotNull(viewMv);
+      assertFalse(viewMv.getView() instanceof ApiExceptionResolver.TemplateView);
+      viewMv.getView().render(viewMv.getModel(), request, viewResponse);
+      String expectedBody = viewResponse.getContentAsString().replaceAll(
+          "\"timestamp\" : \"[^\"]*\"", "");
+      assertEquals(
+          expectedBody,
+          response.getContentAsString().replaceAll("\"timestamp\" : \"[^\"]*\"", ""));
+    }
+  }
+
+  /**
+   * Test that the views are reused.
+   */
+  @Test
+  public void testViewsAreReused() {
+    final ApiExceptionResolver resolver = new ApiExceptionResolver(
+        exceptionResolver.getExceptionMapper());
+    final ServiceException exception = new ServiceException(
+        HttpStatus.NOT_FOUND.value(),
+        "Resource not found.",
+        "TEST:404");
+
+    final View jsonView = resolveView(resolver, exception, MediaType.APPLICATION_JSON_VALUE);
+    assertTrue(jsonView instanceof MappingJackson2JsonView);
+    assertSame(jsonView, resolveView(resolver, exception, MediaType.APPLICATION_JSON_VALUE));
+
+    final View xmlView = resolveView(resolver, exception, MediaType.APPLICATION_XML_VALUE);
+    assertTrue(xmlView instanceof MappingJackson2XmlView);
+    assertSame(xmlView, resolveView(resolver, exception, MediaType.APPLICATION_XML_VALUE));
+
+    resolver.setPrettyPrint(false);
+    assertNotSame(jsonView, resolveView(resolver, exception, MediaType.APPLICATION_JSON_VALUE));
+    assertNotSame(xmlView, resolveView(resolver, exception, MediaType.APPLICATION_XML_VALUE));
+
+    assertTrue(resolveView(resolver, exception, MediaType.IMAGE_PNG_VALUE)
+        instanceof ApiExceptionResolver.EmptyView);
+  }
+
+  /**
+   * Test that the shared object mappers are not reconfigured by the views.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testSharedObjectMappersAreNotReconfigured() throws Exception {
+    final ApiExceptionResolver resolver = new ApiExceptionResolver(
+        exceptionResolver.getExceptionMapper());
+    resolver.setPrettyPrint(true);
+    final ServiceException exception = new ServiceException(
+        HttpStatus.NOT_FOUND.value(),
+        "Resource not found.",
+        "TEST:404");
+    for (String accept : new String[]{
+        MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_XML_VALUE}) {
+      HttpServletRequest request = mock(HttpServletRequest.class);
+      when(request.getRequestURI()).thenReturn("/api/resource");
+      when(request.getServletPath()).thenReturn("/api/resource");
+      when(request.getHeader(eq(HttpHeaders.ACCEPT))).thenReturn(accept);
+      MockHttpServletResponse response = new MockHttpServletResponse();
+      ModelAndView mv = resolver.resolveException(request, response, null, exception);
+      assertNotNull(mv);
+      mv.getView().render(mv.getModel(), request, response);
+      assertTrue(response.getContentAsString().contains("\n"));
+    }
+    assertFalse(ObjectMapperHelper.getSharedJsonMapper()
+        .isEnabled(SerializationFeature.INDENT_OUTPUT));
+    assertFalse(ObjectMapperHelper.getSharedXmlMapper()
+        .isEnabled(SerializationFeature.INDENT_OUTPUT));
+  }
+
+  private static View resolveView(
+      ApiExceptionResolver resolver,
+      Exception exception,
+      String accept) {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getRequestURI()).thenReturn("/api/resource");
+    when(request.getServletPath()).thenReturn("/api/resource");
+    when(request.getHeader(eq(HttpHeaders.ACCEPT))).thenReturn(accept);
+    ModelAndView mv = resolver.resolveException(
+        request, mock(HttpServletResponse.class), null, exception);
+    assertNotNull(mv);
+    return mv.getView();
+  }
+
   private static class TestHandler {
 
     /**
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.exception;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Detects the format of a response body by its first bytes (or characters), before any parser is
+ * invoked, and checks cheaply, whether the body has the structure of a serialized {@link
+ * org.bremersee.exception.model.RestApiException}.
+ *
+ * @author Christian Bremer
+ */
+abstract class ContentSniffer {
+
+  /**
+   * The sniffed format.
+   */
+  enum Format {
+
+    /**
+     * Json.
+     */
+    JSON,
+
+    /**
+     * Xml.
+     */
+    XML,
+
+    /**
+     * Anything else (plain text, html or empty).
+     */
+    TEXT
+  }
+
+  private static final String HTML = "<html";
+
+  private static final String DOCTYPE_HTML = "<!doctype html";
+
+  private static final String TYPE_PROPERTY = "_type";
+
+  private static final String TYPE_ID = "RestApiException";
+
+  private ContentSniffer() {
+  }
+
+  /**
+   * Sniffs the format of the given bytes. A leading UTF-8 byte order mark and white spaces are
+   * skipped. An object (<code>{</code>) is json, a tag ({@code <}) is xml, unless it is html.
+   *
+   * @param bytes  the bytes
+   * @param length the number of bytes, that can be read
+   * @return the format
+   */
+  static Format sniff(@Nullable final byte[] bytes, final int length) {
+    return bytes != null ? sniff(new Bytes(bytes, length)) : Format.TEXT;
+  }
+
+  /**
+   * Sniffs the format of the given content. A leading byte order mark and white spaces are
+   * skipped. An object (<code>{</code>) is json, a tag ({@code <}) is xml, unless it is html.
+   *
+   * @param content the content
+   * @return the format
+   */
+  static Format sniff(@Nullable final CharSequence content) {
+    if (content == null) {
+      return Format.TEXT;
+    }
+    final int i = skipWhitespaces(content, start(content));
+    if (i == content.length()) {
+      return Format.TEXT;
+    }
+    if (content.charAt(i) == '{') {
+      return Format.JSON;
+    }
+    if (content.charAt(i) == '<') {
+      return startsWithIgnoreCase(content, i, HTML)
+          || startsWithIgnoreCase(content, i, DOCTYPE_HTML)
+          ? Format.TEXT
+          : Format.XML;
+    }
+    return Format.TEXT;
+  }
+
+  /**
+   * Determines whether the given bytes have the structure of a serialized rest api exception in
+   * the given format.
+   *
+   * @param bytes  the bytes
+   * @param length the number of bytes, that can be read
+   * @param format the sniffed format
+   * @return {@code true} if the bytes can be a rest api exception, otherwise {@code false}
+   * @see #isRestApiException(CharSequence, Format)
+   */
+  static boolean isRestApiException(
+      @Nullable final byte[] bytes,
+      final int length,
+      @Nullable final Format format) {
+    return bytes != null && isRestApiException(new Bytes(bytes, length), format);
+  }
+
+  /**
+   * Determines whether the given content has the structure of a serialized rest api exception in
+   * the given format. This is not a validation: the content must be complete (a json object ends
+   * with <code>}</code>, a xml document with {@code >}) and it must contain the type id of the
+   * rest api exception ({@code "_type":"RestApiException"} or {@code _type="RestApiException"}),
+   * without that the parser fails anyway.
+   *
+   * @param content the content
+   * @param format  the sniffed format
+   * @return {@code true} if the content can be a rest api exception, otherwise {@code false}
+   */
+  static boolean isRestApiException(
+      @Nullable final CharSequence content,
+      @Nullable final Format format) {
+
+    if (content == null || format == null || format == Format.TEXT) {
+      return false;
+    }
+    final int begin = skipWhitespaces(content, start(content));
+    final int end = lastNonWhitespace(content);
+    if (end <= begin) {
+      return false;
+    }
+    if (format == Format.JSON) {
+      return content.charAt(begin) == '{'
+          && content.charAt(end) == '}'
+          && hasTypeId(content, begin + 1, end, "\"" + TYPE_PROPERTY + "\"", ':');
+    }
+    return content.charAt(begin) == '<'
+        && content.charAt(end) == '>'
+        && (hasTypeId(content, begin + 1, end, TYPE_PROPERTY, '=')
+        || hasTypeId(content, begin + 1, end, "<" + TYPE_PROPERTY, '>'));
+  }
+
+  private static boolean hasTypeId(
+      final CharSequence content,
+      final int from,
+      final int to,
+      final String property,
+      final char separator) {
+
+    int index = indexOf(content, property, from, to);
+    while (index >= 0) {
+      int i = skipWhitespaces(content, index + property.length());
+      if (i < to && content.charAt(i) == separator) {
+        i = skipWhitespaces(content, i + 1);
+        if (i < to && (content.charAt(i) == '"' || content.charAt(i) == '\'')) {
+          i++;
+        }
+        if (startsWith(content, i, TYPE_ID)) {
+          return true;
+        }
+      }
+      index = indexOf(content, property, index + 1, to);
+    }
+    return false;
+  }
+
+  private static int start(final CharSequence content) {
+    return content.length() > 0 && content.charAt(0) == '\uFEFF' ? 1 : 0;
+  }
+
+  private static boolean isWhitespace(final char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+  }
+
+  private static int skipWhitespaces(final CharSequence content, final int offset) {
+    int i = offset;
+    while (i < content.length() && isWhitespace(content.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int lastNonWhitespace(final CharSequence content) {
+    int i = content.length() - 1;
+    while (i >= 0 && isWhitespace(content.charAt(i))) {
+      i--;
+    }
+    return i;
+  }
+
+  private static int indexOf(
+      final CharSequence content,
+      final String value,
+      final int from,
+      final int to) {
+
+    final int last = Math.min(to, content.length()) - value.length();
+    for (int i = from; i <= last; i++) {
+      if (startsWith(content, i, value)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean startsWith(
+      final CharSequence content,
+      final int offset,
+      final String prefix) {
+
+    if (content.length() - offset < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (content.charAt(offset + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean startsWithIgnoreCase(
+      final CharSequence content,
+      final int offset,
+      final String prefix) {
+
+    if (content.length() - offset < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (Character.toLowerCase(content.charAt(offset + i)) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A view of bytes as characters. Every byte is one character, so that the structure of an
+   * ascii compatible encoding (like UTF-8) can be checked without decoding. A leading UTF-8 byte
+   * order mark becomes one character.
+   */
+  private static final class Bytes implements CharSequence {
+
+    private final byte[] bytes;
+
+    private final int length;
+
+    private final int shift;
+
+    private Bytes(final byte[] bytes, final int length) {
+      this.bytes = bytes;
+      final int size = Math.max(0, Math.min(length, bytes.length));
+      // the three bytes of the byte order mark become one character
+      this.shift = size >= 3
+          && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF ? 2 : 0;
+      this.length = size - shift;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+      if (shift > 0 && index == 0) {
+        return '\uFEFF';
+      }
+      return (char) (bytes[index + shift] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+      return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+      final StringBuilder sb = new StringBuilder(length);
+      for (int i = 0; i < length; i++) {
+        sb.append(charAt(i));
+      }
+      return sb.toString();
+    }
+  }
+
+}
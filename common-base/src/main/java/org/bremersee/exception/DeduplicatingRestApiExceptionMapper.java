@@ -0,0 +1,335 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.exception;
+
+import static org.springframework.util.Assert.isTrue;
+import static org.springframework.util.Assert.notNull;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import javax.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.bremersee.exception.model.RestApiException;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * A rest api exception mapper that protects against error storms.
+ *
+ * <p>Identical exceptions are detected by a fingerprint of the exception class, the message, the
+ * error code, the http status, the handler method, the classes and messages of the causes and the
+ * top frames of the stack trace. Because two different exceptions may have the same fingerprint,
+ * the exception class, the message and the error code are compared, too. The first exception of a
+ * fingerprint is built by the delegate, all identical exceptions within the window get a copy of
+ * this payload, that differs only in
+ * the timestamp and the request path. So the id of a server error is the same for all identical
+ * exceptions of the window. The nested objects of the payload (cause, stack trace and handler)
+ * are shared and must not be modified.
+ *
+ * <p>The number of the identical exceptions of a window is logged, when the window is over. The
+ * windows are checked for expiration by the exceptions that are built, at most once per window
+ * length, or when the mapper is {@link #flush() flushed}. If the maximum size is reached, the
+ * oldest window is closed.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class DeduplicatingRestApiExceptionMapper implements RestApiExceptionMapper {
+
+  /**
+   * The default number of the stack trace frames, that are part of the fingerprint.
+   */
+  public static final int DEFAULT_FINGERPRINT_FRAMES = 5;
+
+  @Getter
+  private final RestApiExceptionMapper delegate;
+
+  private final long windowNanos;
+
+  @Getter
+  private final int maximumSize;
+
+  private final int fingerprintFrames;
+
+  private final LongSupplier nanoClock;
+
+  private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+  private final AtomicLong nextExpiration;
+
+  /**
+   * Instantiates a new deduplicating rest api exception mapper.
+   *
+   * @param delegate    the rest api exception mapper that builds the payloads
+   * @param window      the window, in which identical exceptions get the same payload
+   * @param maximumSize the maximum number of fingerprints
+   */
+  public DeduplicatingRestApiExceptionMapper(
+      @NotNull RestApiExceptionMapper delegate,
+      @NotNull Duration window,
+      int maximumSize) {
+    this(delegate, window, maximumSize, DEFAULT_FINGERPRINT_FRAMES, System::nanoTime);
+  }
+
+  /**
+   * Instantiates a new deduplicating rest api exception mapper.
+   *
+   * @param delegate          the rest api exception mapper that builds the payloads
+   * @param window            the window, in which identical exceptions get the same payload
+   * @param maximumSize       the maximum number of fingerprints
+   * @param fingerprintFrames the number of the stack trace frames of the fingerprint
+   */
+  public DeduplicatingRestApiExceptionMapper(
+      @NotNull RestApiExceptionMapper delegate,
+      @NotNull Duration window,
+      int maximumSize,
+      int fingerprintFrames) {
+    this(delegate, window, maximumSize, fingerprintFrames, System::nanoTime);
+  }
+
+  /**
+   * Instantiates a new deduplicating rest api exception mapper.
+   *
+   * @param delegate          the rest api exception mapper that builds the payloads
+   * @param window            the window, in which identical exceptions get the same payload
+   * @param maximumSize       the maximum number of fingerprints
+   * @param fingerprintFrames the number of the stack trace frames of the fingerprint
+   * @param nanoClock         the clock that returns the nano time
+   */
+  DeduplicatingRestApiExceptionMapper(
+      RestApiExceptionMapper delegate,
+      Duration window,
+      int maximumSize,
+      int fingerprintFrames,
+      LongSupplier nanoClock) {
+    notNull(delegate, "Delegate must not be null.");
+    notNull(window, "Window must not be null.");
+    isTrue(!window.isNegative() && !window.isZero(), "Window must be positive.");
+    isTrue(maximumSize > 0, "Maximum size must be greater than zero.");
+    isTrue(fingerprintFrames >= 0, "Fingerprint frames must not be negative.");
+    notNull(nanoClock, "Nano clock must not be null.");
+    this.delegate = delegate;
+    this.windowNanos = window.toNanos();
+    this.maximumSize = maximumSize;
+    this.fingerprintFrames = fingerprintFrames;
+    this.nanoClock = nanoClock;
+    this.nextExpiration = new AtomicLong(nanoClock.getAsLong() + windowNanos);
+  }
+
+  @Override
+  public List<String> getApiPaths() {
+    return delegate.getApiPaths();
+  }
+
+  @Override
+  public HttpStatus detectHttpStatus(@NotNull Throwable exception, @Nullable Object handler) {
+    return delegate.detectHttpStatus(exception, handler);
+  }
+
+  @Override
+  public ExceptionAnalysis analyze(@NotNull Throwable exception, @Nullable Object handler) {
+    return delegate.analyze(exception, handler);
+  }
+
+  @Override
+  public RestApiException build(
+      @NotNull Throwable exception,
+      @Nullable String requestPath,
+      @Nullable Object handler) {
+    return build(analyze(exception, handler), requestPath);
+  }
+
+  @Override
+  public RestApiException build(
+      @NotNull ExceptionAnalysis analysis,
+      @Nullable String requestPath) {
+
+    final Long fingerprint = fingerprint(analysis);
+    final long now = nanoClock.getAsLong();
+    expire(now);
+    final Entry entry = entries.get(fingerprint);
+    if (entry != null && now - entry.created < windowNanos && entry.matches(analysis)) {
+      entry.count.incrementAndGet();
+      return copy(entry.template, requestPath);
+    }
+    final RestApiException payload = delegate.build(analysis, requestPath);
+    if (entry == null && entries.size() >= maximumSize) {
+      evictOldest();
+    }
+    final Entry old = entries.put(fingerprint, new Entry(analysis, payload, now));
+    if (old != null) {
+      logRepetitions(fingerprint, old);
+    }
+    return payload;
+  }
+
+  /**
+   * Returns the number of fingerprints of the current windows.
+   *
+   * @return the size
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Logs the number of the identical exceptions of all windows and removes all fingerprints.
+   */
+  public void flush() {
+    for (final Long fingerprint : entries.keySet()) {
+      final Entry entry = entries.remove(fingerprint);
+      if (entry != null) {
+        logRepetitions(fingerprint, entry);
+      }
+    }
+  }
+
+  private void expire(final long now) {
+    final long next = nextExpiration.get();
+    if (now - next >= 0L && nextExpiration.compareAndSet(next, now + windowNanos)) {
+      entries.forEach((fingerprint, entry) -> {
+        if (now - entry.created >= windowNanos && entries.remove(fingerprint, entry)) {
+          logRepetitions(fingerprint, entry);
+        }
+      });
+    }
+  }
+
+  private void evictOldest() {
+    Long oldestFingerprint = null;
+    Entry oldest = null;
+    for (final Map.Entry<Long, Entry> mapEntry : entries.entrySet()) {
+      if (oldest == null || mapEntry.getValue().created - oldest.created < 0L) {
+        oldestFingerprint = mapEntry.getKey();
+        oldest = mapEntry.getValue();
+      }
+    }
+    if (oldest != null && entries.remove(oldestFingerprint, oldest)) {
+      logRepetitions(oldestFingerprint, oldest);
+    }
+  }
+
+  private static void logRepetitions(final Long fingerprint, final Entry entry) {
+    final long count = entry.count.get();
+    if (count > 0L) {
+      final RestApiException template = entry.template;
+      log.warn("msg=[Identical exceptions were suppressed.] fingerprint=[{}] count=[{}] id=[{}] "
+              + "className=[{}] errorCode=[{}] message=[{}]",
+          StackTraceConverter.toHex(fingerprint), count, template.getId(),
+          template.getClassName(), template.getErrorCode(), template.getMessage());
+    }
+  }
+
+  /**
+   * Calculates the fingerprint of the given analysis.
+   *
+   * @param analysis the analysis
+   * @return the fingerprint
+   */
+  long fingerprint(final ExceptionAnalysis analysis) {
+    final Throwable exception = analysis.getException();
+    long hash = StackTraceConverter.FNV_OFFSET_BASIS;
+    hash = StackTraceConverter.hash(hash, exception.getClass().getName());
+    hash = StackTraceConverter.hash(hash, analysis.getMessage());
+    hash = StackTraceConverter.hash(hash, analysis.getErrorCode());
+    hash = StackTraceConverter.hash(hash, analysis.getHttpStatus().value());
+    if (analysis.getHandler() instanceof HandlerMethod) {
+      final Method method = ((HandlerMethod) analysis.getHandler()).getMethod();
+      hash = StackTraceConverter.hash(hash, method.getDeclaringClass().getName());
+      hash = StackTraceConverter.hash(hash, method.getName());
+    } else if (analysis.getHandler() != null) {
+      hash = StackTraceConverter.hash(hash, analysis.getHandler().getClass().getName());
+    }
+    if (fingerprintFrames > 0) {
+      hash = StackTraceConverter.fingerprint(
+          hash, Arrays.asList(exception.getStackTrace()), fingerprintFrames);
+    }
+    Throwable cause = exception.getCause();
+    for (int depth = 0; cause != null && cause != exception && depth < 16; depth++) {
+      hash = StackTraceConverter.hash(hash, cause.getClass().getName());
+      hash = StackTraceConverter.hash(hash, cause.getMessage());
+      cause = cause.getCause();
+    }
+    return hash;
+  }
+
+  private static RestApiException copy(
+      final RestApiException template,
+      @Nullable final String requestPath) {
+
+    final RestApiException payload = new RestApiException();
+    payload.setId(template.getId());
+    payload.setTimestamp(OffsetDateTime.now(ZoneId.of("UTC")));
+    payload.setMessage(template.getMessage());
+    payload.setErrorCode(template.getErrorCode());
+    payload.setErrorCodeInherited(template.getErrorCodeInherited());
+    payload.setClassName(template.getClassName());
+    payload.setApplication(template.getApplication());
+    payload.setPath(template.getPath() != null ? requestPath : null);
+    payload.setHandler(template.getHandler());
+    payload.setStackTrace(template.getStackTrace());
+    payload.setCause(template.getCause());
+    return payload;
+  }
+
+  /**
+   * The payload template of a fingerprint and the number of its repetitions.
+   */
+  private static final class Entry {
+
+    private final String exceptionClass;
+
+    private final String message;
+
+    private final String errorCode;
+
+    private final RestApiException template;
+
+    private final long created;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private Entry(
+        final ExceptionAnalysis analysis,
+        final RestApiException template,
+        final long created) {
+      this.exceptionClass = analysis.getException().getClass().getName();
+      this.message = analysis.getMessage();
+      this.errorCode = analysis.getErrorCode();
+      this.template = template;
+      this.created = created;
+    }
+
+    private boolean matches(final ExceptionAnalysis analysis) {
+      return exceptionClass.equals(analysis.getException().getClass().getName())
+          && Objects.equals(message, analysis.getMessage())
+          && Objects.equals(errorCode, analysis.getErrorCode());
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.exception;
+
+import static org.springframework.util.Assert.notNull;
+
+import javax.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.ToString;
+import org.bremersee.exception.RestApiExceptionMapperProperties.ExceptionMappingConfig;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+
+/**
+ * The result of the analysis of an exception by a {@link RestApiExceptionMapper}: the http
+ * status, the message, the error code and the mapping config of the exception.
+ *
+ * <p>An exception handler should analyse an exception only once and use the result for the
+ * building of the rest api exception ({@link RestApiExceptionMapper#build(ExceptionAnalysis,
+ * String)}) and the http status of the response.
+ *
+ * @author Christian Bremer
+ */
+@Getter
+@ToString
+public class ExceptionAnalysis {
+
+  private final Throwable exception;
+
+  @Nullable
+  private final Object handler;
+
+  @Nullable
+  private final ExceptionMappingConfig config;
+
+  private final HttpStatus httpStatus;
+
+  @Nullable
+  private final String message;
+
+  @Nullable
+  private final String errorCode;
+
+  /**
+   * Instantiates a new exception analysis.
+   *
+   * @param exception  the exception
+   * @param handler    the handler
+   * @param config     the exception mapping config
+   * @param httpStatus the http status
+   * @param message    the message
+   * @param errorCode  the error code
+   */
+  public ExceptionAnalysis(
+      @NotNull Throwable exception,
+      @Nullable Object handler,
+      @Nullable ExceptionMappingConfig config,
+      @NotNull HttpStatus httpStatus,
+      @Nullable String message,
+      @Nullable String errorCode) {
+    notNull(exception, "Exception must not be null.");
+    notNull(httpStatus, "Http status must not be null.");
+    this.exception = exception;
+    this.handler = handler;
+    this.config = config;
+    this.httpStatus = httpStatus;
+    this.message = message;
+    this.errorCode = errorCode;
+  }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.exception;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.springframework.lang.Nullable;
+
+/**
+ * A compiled list of exception mappings (or exception mapping configs) that memoizes the
+ * resolved element per exception class and the classes of its causes.
+ *
+ * <p>The element of an exception without cause is memoized in a {@link ClassValue}, so the
+ * exception class can still be unloaded. The elements of exceptions with causes are memoized per
+ * chain of classes in a bounded cache; if it is full, single chains are evicted.
+ *
+ * <p>An element matches, if its exception class name is the name of the exception class, of one
+ * of its super classes or of the class of a cause (or of one of their super classes). A name that
+ * ends with {@code .*} is a package prefix. The first matching element of the list wins.
+ *
+ * <p>The resolver is compiled from a snapshot of the list. With {@link #isCompiledFrom(List)} it
+ * can be checked cheaply, whether the list was replaced or changed in the meantime (e. g. because
+ * the configuration properties were rebound).
+ *
+ * @param <T> the type of the elements
+ * @author Christian Bremer
+ */
+final class ExceptionMappingResolver<T> {
+
+  /**
+   * The maximum number of memoized exception class chains.
+   */
+  static final int MAX_CACHE_SIZE = 1024;
+
+  private static final Integer NOT_FOUND = -1;
+
+  private final List<T> source;
+
+  private final Function<T, String> classNameFn;
+
+  private final Object[] elements;
+
+  private final String[] classNames;
+
+  private final ClassValue<Integer> classCache = new ClassValue<Integer>() {
+    @Override
+    protected Integer computeValue(final Class<?> type) {
+      return indexOf(new Class<?>[]{type});
+    }
+  };
+
+  private final Map<Chain, Integer> chainCache = new ConcurrentHashMap<>();
+
+  private ExceptionMappingResolver(
+      @Nullable final List<T> source,
+      final Function<T, String> classNameFn) {
+
+    this.source = source;
+    this.classNameFn = classNameFn;
+    final List<T> list = source != null ? source : Collections.emptyList();
+    this.elements = list.toArray();
+    this.classNames = new String[elements.length];
+    for (int i = 0; i < elements.length; i++) {
+      //noinspection unchecked
+      classNames[i] = elements[i] != null ? classNameFn.apply((T) elements[i]) : null;
+    }
+  }
+
+  /**
+   * Compiles the given list.
+   *
+   * @param <T>         the type of the elements
+   * @param source      the list
+   * @param classNameFn the function that returns the exception class name of an element
+   * @return the resolver
+   */
+  static <T> ExceptionMappingResolver<T> compile(
+      @Nullable final List<T> source,
+      final Function<T, String> classNameFn) {
+    return new ExceptionMappingResolver<>(source, classNameFn);
+  }
+
+  /**
+   * Determines whether this resolver was compiled from the given list and the list was not
+   * changed since then. This costs only a comparison of references per element.
+   *
+   * @param list the list
+   * @return {@code true} if the resolver can be used for the given list, otherwise {@code false}
+   */
+  boolean isCompiledFrom(@Nullable final List<T> list) {
+    if (list != source) {
+      return false;
+    }
+    if (list == null) {
+      return true;
+    }
+    if (list.size() != elements.length) {
+      return false;
+    }
+    for (int i = 0; i < elements.length; i++) {
+      final T element = list.get(i);
+      if (element != elements[i]
+          || (element != null && !Objects.equals(classNameFn.apply(element), classNames[i]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of memoized exception class chains (exceptions with causes).
+   *
+   * @return the size
+   */
+  int size() {
+    return chainCache.size();
+  }
+
+  /**
+   * Resolves the first element, that matches the given throwable.
+   *
+   * @param throwable the throwable
+   * @return the element or {@code null}, if no element matches
+   */
+  @Nullable
+  T resolve(@Nullable final Throwable throwable) {
+    if (throwable == null || elements.length == 0) {
+      return null;
+    }
+    final Integer index;
+    if (throwable.getCause() == null || throwable.getCause() == throwable) {
+      index = classCache.get(throwable.getClass());
+    } else {
+      index = resolveChain(chain(throwable));
+    }
+    //noinspection unchecked
+    return index.equals(NOT_FOUND) ? null : (T) elements[index];
+  }
+
+  private Integer resolveChain(final Chain chain) {
+    Integer index = chainCache.get(chain);
+    if (index == null) {
+      index = indexOf(chain.classes);
+      while (chainCache.size() >= MAX_CACHE_SIZE) {
+        // evict a single chain instead of clearing the whole cache
+        final Iterator<Chain> iterator = chainCache.keySet().iterator();
+        if (!iterator.hasNext()) {
+          break;
+        }
+        chainCache.remove(iterator.next());
+      }
+      chainCache.put(chain, index);
+    }
+    return index;
+  }
+
+  /**
+   * Returns the chain of the classes of the throwable and its causes.
+   */
+  private static Chain chain(final Throwable throwable) {
+    final List<Throwable> throwables = new ArrayList<>();
+    Throwable current = throwable;
+    while (current != null && !containsInstance(throwables, current)) {
+      throwables.add(current);
+      current = current.getCause();
+    }
+    final Class<?>[] classes = new Class<?>[throwables.size()];
+    for (int i = 0; i < classes.length; i++) {
+      classes[i] = throwables.get(i).getClass();
+    }
+    return new Chain(classes);
+  }
+
+  private static boolean containsInstance(final List<Throwable> throwables, final Throwable t) {
+    for (final Throwable throwable : throwables) {
+      if (throwable == t) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Integer indexOf(final Class<?>[] classes) {
+    for (int i = 0; i < classNames.length; i++) {
+      final String className = classNames[i];
+      if (className != null) {
+        final String packagePrefix = className.endsWith(".*")
+            ? className.substring(0, className.length() - 1)
+            : null;
+        for (final Class<?> exceptionClass : classes) {
+          if (matches(exceptionClass, className, packagePrefix)) {
+            return i;
+          }
+        }
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  private static boolean matches(
+      final Class<?> exceptionClass,
+      final String className,
+      @Nullable final String packagePrefix) {
+
+    Class<?> current = exceptionClass;
+    while (current != null) {
+      final String name = current.getName();
+      if (name.equals(className) || (packagePrefix != null && name.startsWith(packagePrefix))) {
+        return true;
+      }
+      current = current.getSuperclass();
+    }
+    return false;
+  }
+
+  /**
+   * The classes of a throwable and its causes.
+   */
+  private static final class Chain {
+
+    private final Class<?>[] classes;
+
+    private final int hash;
+
+    private Chain(final Class<?>[] classes) {
+      this.classes = classes;
+      this.hash = Arrays.hashCode(classes);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      return this == o || (o instanceof Chain && Arrays.equals(classes, ((Chain) o).classes));
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+}
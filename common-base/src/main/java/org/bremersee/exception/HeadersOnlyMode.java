@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.exception;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Determines, when an error response is sent with headers only (see {@link
+ * RestApiExceptionUtils#TRANSPORT_HEADER_NAME}). Such a response has no body, so the rest api
+ * exception is not serialized at all; it is meant for internal service to service calls, where
+ * the client parses the exception from the headers anyway.
+ *
+ * @author Christian Bremer
+ */
+public enum HeadersOnlyMode {
+
+  /**
+   * The rest api exception is always written into the body (if the client accepts json or xml).
+   */
+  NEVER,
+
+  /**
+   * The error response contains only headers, if the client requests it by sending the header
+   * {@link RestApiExceptionUtils#TRANSPORT_HEADER_NAME} with the value {@link
+   * RestApiExceptionUtils#HEADERS_ONLY_VALUE}.
+   */
+  ON_REQUEST,
+
+  /**
+   * The error response always contains only headers.
+   */
+  ALWAYS;
+
+  /**
+   * Determines whether the error response should contain only headers.
+   *
+   * @param requestedTransport the value of the transport header of the request
+   * @return {@code true} if the error response should contain only headers, otherwise {@code
+   *     false}
+   */
+  public boolean isHeadersOnly(@Nullable final String requestedTransport) {
+    switch (this) {
+      case ALWAYS:
+        return true;
+      case ON_REQUEST:
+        return RestApiExceptionUtils.HEADERS_ONLY_VALUE.equalsIgnoreCase(requestedTransport);
+      default:
+        return false;
+    }
+  }
+
+}
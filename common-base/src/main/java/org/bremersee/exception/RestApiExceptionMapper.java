@@ -61,4 +61,38 @@ public interface RestApiExceptionMapper {
    */
   @NotNull
   HttpStatus detectHttpStatus(@NotNull Throwable exception, @Nullable Object handler);
+
+  /**
+   * Analyses the exception. The default implementation detects the http status with {@link
+   * #detectHttpStatus(Throwable, Object)} and takes the message and the error code from the
+   * exception.
+   *
+   * @param exception the exception (required)
+   * @param handler   the handler (optional)
+   * @return the exception analysis
+   */
+  @NotNull
+  default ExceptionAnalysis analyze(@NotNull Throwable exception, @Nullable Object handler) {
+    return new ExceptionAnalysis(
+        exception,
+        handler,
+        null,
+        detectHttpStatus(exception, handler),
+        exception.getMessage(),
+        exception instanceof ErrorCodeAware ? ((ErrorCodeAware) exception).getErrorCode() : null);
+  }
+
+  /**
+   * Build the exception model from an analysed exception and the requested path.
+   *
+   * @param analysis    the exception analysis (required)
+   * @param requestPath the requested path (optional)
+   * @return the rest api exception
+   */
+  @NotNull
+  default RestApiException build(
+      @NotNull ExceptionAnalysis analysis,
+      @Nullable String requestPath) {
+    return build(analysis.getException(), requestPath, analysis.getHandler());
+  }
 }
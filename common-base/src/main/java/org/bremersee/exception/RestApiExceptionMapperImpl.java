@@ -16,18 +16,26 @@
 
 package org.bremersee.exception;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.bremersee.exception.RestApiExceptionMapperProperties.ExceptionMapping;
 import org.bremersee.exception.RestApiExceptionMapperProperties.ExceptionMappingConfig;
+import org.bremersee.exception.RestApiExceptionMapperProperties.StackTraceMode;
 import org.bremersee.exception.annotation.ErrorCode;
 import org.bremersee.exception.model.Handler;
 import org.bremersee.exception.model.RestApiException;
@@ -46,6 +54,12 @@ import org.springframework.web.server.ResponseStatusException;
 /**
  * The default implementation of a rest api exception mapper.
  *
+ * <p>The annotations ({@link ResponseStatus} and {@link ErrorCode}) of the exception classes and
+ * handler methods and the {@code status()} method of the exception classes are looked up only
+ * once per class and method. The http status, the message and the error code of an exception are
+ * detected once by {@link #analyze(Throwable, Object)} with one lookup of the exception mapping;
+ * the detect methods are called instead, if a sub class overrides them.
+ *
  * @author Christian Bremer
  */
 @Validated
@@ -58,6 +72,24 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
   @Getter(AccessLevel.PROTECTED)
   private String applicationName;
 
+  private final ClassValue<Metadata> classMetadata = new ClassValue<Metadata>() {
+    @Override
+    protected Metadata computeValue(final Class<?> type) {
+      return Metadata.of(type);
+    }
+  };
+
+  private final Map<Method, Metadata> methodMetadata = new ConcurrentHashMap<>();
+
+  private final boolean detectHttpStatusOverridden = isOverridden(
+      "detectHttpStatus", Throwable.class, Object.class);
+
+  private final boolean detectMessageOverridden = isOverridden(
+      "detectMessage", Throwable.class, Object.class, ExceptionMappingConfig.class);
+
+  private final boolean detectErrorCodeOverridden = isOverridden(
+      "detectErrorCode", Throwable.class, Object.class, ExceptionMappingConfig.class);
+
   /**
    * Instantiates a new rest api exception mapper.
    *
@@ -78,6 +110,62 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
 
   @Override
   public HttpStatus detectHttpStatus(@NotNull Throwable exception, @Nullable Object handler) {
+    return detectHttpStatus(
+        exception,
+        classMetadata.get(exception.getClass()),
+        findHandlerMethodMetadata(handler),
+        properties.findExceptionMapping(exception));
+  }
+
+  /**
+   * Analyzes the exception. The exception mapping, the exception mapping config and the metadata
+   * of the exception class and of the handler method are looked up only once. The detect methods
+   * are called only, if they are overridden.
+   *
+   * @param exception the exception
+   * @param handler   the handler
+   * @return the analysis
+   */
+  @Override
+  public ExceptionAnalysis analyze(@NotNull Throwable exception, @Nullable Object handler) {
+    final ExceptionMappingConfig config = properties.findExceptionMappingConfig(exception);
+    final ExceptionMapping mapping = properties.findExceptionMapping(exception);
+    final Metadata exceptionMetadata = classMetadata.get(exception.getClass());
+    final Metadata handlerMetadata = findHandlerMethodMetadata(handler);
+    return new ExceptionAnalysis(
+        exception,
+        handler,
+        config,
+        detectHttpStatusOverridden
+            ? detectHttpStatus(exception, handler)
+            : detectHttpStatus(exception, exceptionMetadata, handlerMetadata, mapping),
+        detectMessageOverridden
+            ? detectMessage(exception, handler, config)
+            : detectMessage(exception, config, exceptionMetadata, handlerMetadata, mapping),
+        detectErrorCodeOverridden
+            ? detectErrorCode(exception, handler, config)
+            : detectErrorCode(exception, config, exceptionMetadata, handlerMetadata, mapping));
+  }
+
+  private boolean isOverridden(final String methodName, final Class<?>... parameterTypes) {
+    for (Class<?> type = getClass();
+        type != null && type != RestApiExceptionMapperImpl.class;
+        type = type.getSuperclass()) {
+      try {
+        type.getDeclaredMethod(methodName, parameterTypes);
+        return true;
+      } catch (NoSuchMethodException e) {
+        // continue with the super class
+      }
+    }
+    return false;
+  }
+
+  private HttpStatus detectHttpStatus(
+      final Throwable exception,
+      final Metadata exceptionMetadata,
+      @Nullable final Metadata handlerMetadata,
+      final ExceptionMapping mapping) {
 
     HttpStatus httpStatus = null;
     if (exception instanceof HttpStatusAware) {
@@ -86,31 +174,20 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
     if (httpStatus == null && (exception instanceof ResponseStatusException)) {
       httpStatus = ((ResponseStatusException) exception).getStatus();
     }
-    if (httpStatus == null) {
-      final ResponseStatus ann = AnnotatedElementUtils
-          .findMergedAnnotation(exception.getClass(), ResponseStatus.class);
-      if (ann != null) {
-        httpStatus = ann.code();
-      }
+    if (httpStatus == null && exceptionMetadata.responseStatus != null) {
+      httpStatus = exceptionMetadata.responseStatus.code();
     }
-    if (httpStatus == null) {
-      final Method method = findHandlerMethod(handler);
-      if (method != null) {
-        final ResponseStatus ann = AnnotatedElementUtils
-            .findMergedAnnotation(method, ResponseStatus.class);
-        if (ann != null) {
-          httpStatus = ann.code();
-        }
-      }
+    if (httpStatus == null && handlerMetadata != null && handlerMetadata.responseStatus != null) {
+      httpStatus = handlerMetadata.responseStatus.code();
     }
     if (httpStatus == null) {
-      final Object result = getMethodValue(exception, "status");
+      final Object result = getStatusValue(exception, exceptionMetadata);
       if (result instanceof Integer) {
         httpStatus = fromStatus((Integer) result);
       }
     }
     if (httpStatus == null) {
-      httpStatus = fromStatus(properties.findExceptionMapping(exception).getStatus());
+      httpStatus = fromStatus(mapping.getStatus());
     }
     if (httpStatus == null) {
       httpStatus = HttpStatus.INTERNAL_SERVER_ERROR;
@@ -118,28 +195,31 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
     return httpStatus;
   }
 
-  @SuppressWarnings("SameParameterValue")
-  private <T> T getMethodValue(
+  @Nullable
+  private Object getStatusValue(
       @NotNull final Throwable throwable,
-      @NotNull final String methodName) {
+      @NotNull final Metadata metadata) {
 
+    if (metadata.statusMethod == null) {
+      return null;
+    }
     try {
-      final Method method = ReflectionUtils.findMethod(
-          throwable.getClass(), methodName);
-      if (method != null) {
-        //noinspection unchecked
-        return (T) ReflectionUtils.invokeMethod(method, throwable);
-      } else {
-        log.debug("Method " + methodName + " not found in " + throwable.getClass().getName());
-        return null;
-      }
-    } catch (Exception e) {
-      log.warn("Calling " + methodName + " from " + throwable.getClass().getName() + " failed. "
-          + "Returning null.", e);
+      return metadata.statusMethod.invokeExact(throwable);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable t) {
+      log.warn("Calling status from " + throwable.getClass().getName() + " failed. "
+          + "Returning null.", t);
       return null;
     }
   }
 
+  @Nullable
+  private Metadata findHandlerMethodMetadata(@Nullable final Object handler) {
+    final Method method = findHandlerMethod(handler);
+    return method != null ? methodMetadata.computeIfAbsent(method, Metadata::of) : null;
+  }
+
   @Nullable
   private HttpStatus fromStatus(@Nullable final Integer status) {
     if (status == null) {
@@ -154,15 +234,27 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
       @Nullable final String requestPath,
       @Nullable final Object handler) {
 
-    final ExceptionMappingConfig config = getProperties().findExceptionMappingConfig(exception);
-    final HttpStatus httpStatus = detectHttpStatus(exception, handler);
+    return build(analyze(exception, handler), requestPath);
+  }
+
+  @Override
+  public RestApiException build(
+      @NotNull final ExceptionAnalysis analysis,
+      @Nullable final String requestPath) {
+
+    final Throwable exception = analysis.getException();
+    final Object handler = analysis.getHandler();
+    final ExceptionMappingConfig config = analysis.getConfig() != null
+        ? analysis.getConfig()
+        : getProperties().findExceptionMappingConfig(exception);
+    final HttpStatus httpStatus = analysis.getHttpStatus();
 
     final RestApiException restApiException = new RestApiException();
     if (httpStatus.series() == HttpStatus.Series.SERVER_ERROR) {
       restApiException.setId(UUID.randomUUID().toString());
     }
     restApiException.setTimestamp(OffsetDateTime.now(ZoneId.of("UTC")));
-    restApiException.setMessage(detectMessage(exception, handler, config));
+    restApiException.setMessage(analysis.getMessage());
     if (config.isIncludeExceptionClassName()) {
       restApiException.setClassName(exception.getClass().getName());
     }
@@ -175,8 +267,9 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
     if (config.isIncludeHandler()) {
       restApiException.setHandler(buildHandler(handler));
     }
+    final StackTraceElement[] stackTrace = exception.getStackTrace();
     if (config.isIncludeStackTrace()) {
-      addStackTraceItems(restApiException, exception.getStackTrace());
+      addStackTraceItems(restApiException, stackTrace, null, config);
     }
 
     final RestApiException cause;
@@ -185,14 +278,14 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
       final RestApiException source = ((RestApiExceptionAware) exception).getRestApiException();
       cause = cloneRestApiException(source, config);
     } else {
-      cause = buildRestApiExceptionCause(exception.getCause(), config);
+      cause = buildCause(exception.getCause(), stackTrace, config);
     }
     if (cause != null && StringUtils.hasText(cause.getErrorCode())
         && !RestApiExceptionUtils.NO_ERROR_CODE_VALUE.equals(cause.getErrorCode())) {
       restApiException.setErrorCode(cause.getErrorCode());
       restApiException.setErrorCodeInherited(true);
     } else {
-      restApiException.setErrorCode(detectErrorCode(exception, handler, config));
+      restApiException.setErrorCode(analysis.getErrorCode());
       restApiException.setErrorCodeInherited(false);
     }
 
@@ -252,25 +345,34 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
       final @Nullable Object handler,
       final @NotNull ExceptionMappingConfig config) {
 
+    return detectMessage(
+        exception,
+        config,
+        classMetadata.get(exception.getClass()),
+        findHandlerMethodMetadata(handler),
+        getProperties().findExceptionMapping(exception));
+  }
+
+  private String detectMessage(
+      final Throwable exception,
+      final ExceptionMappingConfig config,
+      final Metadata exceptionMetadata,
+      @Nullable final Metadata handlerMetadata,
+      final ExceptionMapping mapping) {
+
     String message = exception.getMessage();
     if (StringUtils.hasText(message) && !config.isEvaluateAnnotationFirst()) {
       return message;
     }
 
-    ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(
-        exception.getClass(), ResponseStatus.class);
-    if (responseStatus == null) {
-      Method method = findHandlerMethod(handler);
-      if (method != null) {
-        responseStatus = AnnotatedElementUtils.findMergedAnnotation(method, ResponseStatus.class);
-      }
+    ResponseStatus responseStatus = exceptionMetadata.responseStatus;
+    if (responseStatus == null && handlerMetadata != null) {
+      responseStatus = handlerMetadata.responseStatus;
     }
     if (responseStatus != null && StringUtils.hasText(responseStatus.reason())) {
       message = responseStatus.reason();
     }
-    return StringUtils.hasText(message)
-        ? message
-        : getProperties().findExceptionMapping(exception).getMessage();
+    return StringUtils.hasText(message) ? message : mapping.getMessage();
   }
 
   /**
@@ -288,6 +390,22 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
       final @Nullable Object handler,
       final @NotNull ExceptionMappingConfig config) {
 
+    return detectErrorCode(
+        exception,
+        config,
+        classMetadata.get(exception.getClass()),
+        findHandlerMethodMetadata(handler),
+        getProperties().findExceptionMapping(exception));
+  }
+
+  @Nullable
+  private String detectErrorCode(
+      final Throwable exception,
+      final ExceptionMappingConfig config,
+      final Metadata exceptionMetadata,
+      @Nullable final Metadata handlerMetadata,
+      final ExceptionMapping mapping) {
+
     String code = (exception instanceof ErrorCodeAware)
         ? ((ErrorCodeAware) exception).getErrorCode()
         : null;
@@ -295,19 +413,14 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
       return code;
     }
 
-    ErrorCode errorCode = AnnotationUtils.findAnnotation(exception.getClass(), ErrorCode.class);
-    if (errorCode == null) {
-      Method method = findHandlerMethod(handler);
-      if (method != null) {
-        errorCode = AnnotationUtils.findAnnotation(method, ErrorCode.class);
-      }
+    ErrorCode errorCode = exceptionMetadata.errorCode;
+    if (errorCode == null && handlerMetadata != null) {
+      errorCode = handlerMetadata.errorCode;
     }
     if (errorCode != null && StringUtils.hasText(errorCode.value())) {
       code = errorCode.value();
     }
-    return StringUtils.hasText(code)
-        ? code
-        : getProperties().findExceptionMapping(exception).getCode();
+    return StringUtils.hasText(code) ? code : mapping.getCode();
   }
 
   /**
@@ -363,7 +476,37 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
   }
 
   /**
-   * Build the cause of a rest api exception.
+   * Add stack trace items according to the stack trace policies of the config. The frames are
+   * selected by the policies and then added with {@link #addStackTraceItems(RestApiException,
+   * StackTraceElement[])}, unless only the fingerprint of the frames is sent.
+   *
+   * @param restApiException    the rest api exception
+   * @param stackTrace          the stack trace
+   * @param enclosingStackTrace the stack trace of the enclosing exception (optional)
+   * @param config              the config
+   */
+  @SuppressWarnings("WeakerAccess")
+  protected void addStackTraceItems(
+      final @NotNull RestApiException restApiException,
+      final @Nullable StackTraceElement[] stackTrace,
+      final @Nullable StackTraceElement[] enclosingStackTrace,
+      final @NotNull ExceptionMappingConfig config) {
+
+    if (stackTrace == null) {
+      return;
+    }
+    final StackTraceElement[] frames = StackTraceConverter
+        .select(stackTrace, enclosingStackTrace, config);
+    if (config.getStackTraceMode() == StackTraceMode.FINGERPRINT) {
+      restApiException.setStackTrace(StackTraceConverter.toFingerprintItems(frames));
+    } else {
+      addStackTraceItems(restApiException, frames);
+    }
+  }
+
+  /**
+   * Build the cause of a rest api exception. This method is used, if the stack trace of the cause
+   * must not be collapsed.
    *
    * @param cause  the cause
    * @param config the config
@@ -374,13 +517,31 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
   protected RestApiException buildRestApiExceptionCause(
       final @Nullable Throwable cause,
       final @NotNull ExceptionMappingConfig config) {
+    return buildRestApiExceptionCause(cause, null, config);
+  }
+
+  /**
+   * Build the cause of a rest api exception. This method is used, if the stack trace of the cause
+   * is collapsed and the frames in common with the enclosing exception are omitted.
+   *
+   * @param cause               the cause
+   * @param enclosingStackTrace the stack trace of the enclosing exception (optional)
+   * @param config              the config
+   * @return the rest api exception
+   */
+  @SuppressWarnings("WeakerAccess")
+  @Nullable
+  protected RestApiException buildRestApiExceptionCause(
+      final @Nullable Throwable cause,
+      final @Nullable StackTraceElement[] enclosingStackTrace,
+      final @NotNull ExceptionMappingConfig config) {
 
     if (cause == null) {
       return null;
     }
 
     if (cause instanceof RestApiExceptionAware
-        && ((RestApiExceptionAware) config).getRestApiException() != null) {
+        && ((RestApiExceptionAware) cause).getRestApiException() != null) {
       final RestApiException source = ((RestApiExceptionAware) cause).getRestApiException();
       return cloneRestApiException(source, config);
     }
@@ -391,13 +552,26 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
     if (config.isIncludeExceptionClassName()) {
       restApiException.setClassName(cause.getClass().getName());
     }
+    final StackTraceElement[] stackTrace = cause.getStackTrace();
     if (config.isIncludeStackTrace()) {
-      addStackTraceItems(restApiException, cause.getStackTrace());
+      addStackTraceItems(restApiException, stackTrace, enclosingStackTrace, config);
     }
-    restApiException.setCause(buildRestApiExceptionCause(cause.getCause(), config));
+    restApiException.setCause(buildCause(cause.getCause(), stackTrace, config));
     return restApiException;
   }
 
+  @Nullable
+  private RestApiException buildCause(
+      final @Nullable Throwable cause,
+      final @Nullable StackTraceElement[] enclosingStackTrace,
+      final @NotNull ExceptionMappingConfig config) {
+
+    if (config.isIncludeStackTrace() && config.isCollapseStackTrace()) {
+      return buildRestApiExceptionCause(cause, enclosingStackTrace, config);
+    }
+    return buildRestApiExceptionCause(cause, config);
+  }
+
   @Nullable
   private RestApiException cloneRestApiException(
       final @Nullable RestApiException source,
@@ -446,4 +620,65 @@ public class RestApiExceptionMapperImpl implements RestApiExceptionMapper {
     return destination;
   }
 
+  /**
+   * The annotations of an exception class or handler method and the {@code status()} method of
+   * an exception class.
+   */
+  private static final class Metadata {
+
+    private static final MethodType STATUS_METHOD_TYPE = MethodType
+        .methodType(Object.class, Throwable.class);
+
+    @Nullable
+    private final ResponseStatus responseStatus;
+
+    @Nullable
+    private final ErrorCode errorCode;
+
+    @Nullable
+    private final MethodHandle statusMethod;
+
+    private Metadata(
+        @Nullable final ResponseStatus responseStatus,
+        @Nullable final ErrorCode errorCode,
+        @Nullable final MethodHandle statusMethod) {
+      this.responseStatus = responseStatus;
+      this.errorCode = errorCode;
+      this.statusMethod = statusMethod;
+    }
+
+    private static Metadata of(final Class<?> exceptionClass) {
+      return new Metadata(
+          AnnotatedElementUtils.findMergedAnnotation(exceptionClass, ResponseStatus.class),
+          AnnotationUtils.findAnnotation(exceptionClass, ErrorCode.class),
+          findStatusMethod(exceptionClass));
+    }
+
+    private static Metadata of(final Method handlerMethod) {
+      return new Metadata(
+          AnnotatedElementUtils.findMergedAnnotation(handlerMethod, ResponseStatus.class),
+          AnnotationUtils.findAnnotation(handlerMethod, ErrorCode.class),
+          null);
+    }
+
+    @Nullable
+    private static MethodHandle findStatusMethod(final Class<?> exceptionClass) {
+      final Method method = ReflectionUtils.findMethod(exceptionClass, "status");
+      if (method == null) {
+        log.debug("Method status not found in " + exceptionClass.getName());
+        return null;
+      }
+      try {
+        MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+        if (Modifier.isStatic(method.getModifiers())) {
+          handle = MethodHandles.dropArguments(handle, 0, Throwable.class);
+        }
+        return handle.asType(STATUS_METHOD_TYPE);
+      } catch (IllegalAccessException | RuntimeException e) {
+        log.warn("Method status of " + exceptionClass.getName() + " is not accessible.", e);
+        return null;
+      }
+    }
+  }
+
 }
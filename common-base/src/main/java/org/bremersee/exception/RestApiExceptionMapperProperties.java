@@ -18,6 +18,7 @@ package org.bremersee.exception;
 
 import java.util.ArrayList;
 import java.util.List;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -161,6 +162,18 @@ public class RestApiExceptionMapperProperties {
    */
   private List<ExceptionMappingConfig> exceptionMappingConfigs = new ArrayList<>();
 
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  private transient volatile ExceptionMappingResolver<ExceptionMapping> mappingResolver;
+
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  private transient volatile ExceptionMappingResolver<ExceptionMappingConfig> configResolver;
+
   /**
    * Instantiates rest api exception mapper properties.
    */
@@ -191,23 +204,30 @@ public class RestApiExceptionMapperProperties {
   }
 
   /**
-   * Find exception mapping.
+   * Find exception mapping. The result is memoized per exception class and the classes of its
+   * causes. The memoized results are discarded, if the exception mappings are replaced or changed
+   * (e. g. when the properties are rebound).
    *
    * @param throwable the throwable
    * @return the exception mapping
    */
   @SuppressWarnings("WeakerAccess")
   public ExceptionMapping findExceptionMapping(Throwable throwable) {
-    return getExceptionMappings()
-        .stream()
-        .filter(exceptionMapping -> matches(
-            throwable, exceptionMapping.getExceptionClassName()))
-        .findFirst()
-        .orElseGet(this::getDefaultExceptionMapping);
+    final List<ExceptionMapping> mappings = getExceptionMappings();
+    ExceptionMappingResolver<ExceptionMapping> resolver = mappingResolver;
+    if (resolver == null || !resolver.isCompiledFrom(mappings)) {
+      resolver = ExceptionMappingResolver.compile(
+          mappings, ExceptionMapping::getExceptionClassName);
+      mappingResolver = resolver;
+    }
+    final ExceptionMapping exceptionMapping = resolver.resolve(throwable);
+    return exceptionMapping != null ? exceptionMapping : getDefaultExceptionMapping();
   }
 
   /**
-   * Find exception mapping config.
+   * Find exception mapping config. The result is memoized per exception class and the classes of
+   * its causes. The memoized results are discarded, if the exception mapping configs are replaced
+   * or changed (e. g. when the properties are rebound).
    *
    * @param throwable the throwable
    * @return the exception mapping config
@@ -216,47 +236,17 @@ public class RestApiExceptionMapperProperties {
   public ExceptionMappingConfig findExceptionMappingConfig(
       final Throwable throwable) {
 
-    return getExceptionMappingConfigs()
-        .stream()
-        .filter(exceptionMappingConfig -> matches(
-            throwable, exceptionMappingConfig.getExceptionClassName()))
-        .findFirst()
-        .orElseGet(this::getDefaultExceptionMappingConfig);
-  }
-
-  private boolean matches(final Throwable throwable, final String exceptionClassName) {
-    if (throwable == null || exceptionClassName == null) {
-      return false;
-    }
-    if (throwable.getClass().getName().equals(exceptionClassName)) {
-      return true;
-    }
-    if (exceptionClassName.endsWith(".*")) {
-      final String packagePrefix = exceptionClassName.substring(0, exceptionClassName.length() - 1);
-      if (throwable.getClass().getName().startsWith(packagePrefix)) {
-        return true;
-      }
-    }
-    if (matches(throwable.getCause(), exceptionClassName)) {
-      return true;
-    }
-    return matches(throwable.getClass().getSuperclass(), exceptionClassName);
-  }
-
-  private boolean matches(final Class<?> exceptionClass, final String exceptionClassName) {
-    if (exceptionClass == null || exceptionClassName == null) {
-      return false;
+    final List<ExceptionMappingConfig> configs = getExceptionMappingConfigs();
+    ExceptionMappingResolver<ExceptionMappingConfig> resolver = configResolver;
+    if (resolver == null || !resolver.isCompiledFrom(configs)) {
+      resolver = ExceptionMappingResolver.compile(
+          configs, ExceptionMappingConfig::getExceptionClassName);
+      configResolver = resolver;
     }
-    if (exceptionClass.getName().equals(exceptionClassName)) {
-      return true;
-    }
-    if (exceptionClassName.endsWith(".*")) {
-      final String packagePrefix = exceptionClassName.substring(0, exceptionClassName.length() - 1);
-      if (exceptionClass.getName().startsWith(packagePrefix)) {
-        return true;
-      }
-    }
-    return matches(exceptionClass.getSuperclass(), exceptionClassName);
+    final ExceptionMappingConfig exceptionMappingConfig = resolver.resolve(throwable);
+    return exceptionMappingConfig != null
+        ? exceptionMappingConfig
+        : getDefaultExceptionMappingConfig();
   }
 
   /**
@@ -316,14 +306,65 @@ public class RestApiExceptionMapperProperties {
 
   /**
    * The exception mapping config.
+   *
+   * <p>If the stack trace is included, the frames can be limited per exception and cause with
+   * {@code stackTraceMaxDepth}, filtered by package prefix with {@code stackTraceIncludePackages}
+   * and {@code stackTraceExcludePackages} and shortened with {@code collapseStackTrace}: repeated
+   * frames and repeated sequences of up to 16 frames (e. g. of a recursion) are sent only once
+   * and the frames of a cause, that are in common with the enclosing exception, are omitted. With
+   * the stack trace mode {@link StackTraceMode#FINGERPRINT} only a fingerprint of the frames is
+   * sent.
+   *
+   * <p>Examples application.yml:
+   * <pre>
+   * bremersee:
+   *   exception-mapping:
+   *     default-exception-mapping-config:
+   *       include-stack-trace: true
+   *       stack-trace-max-depth: 20
+   *       stack-trace-exclude-packages:
+   *       - reactor.core.
+   *       - sun.reflect.
+   *       collapse-stack-trace: true
+   * </pre>
    */
   @SuppressWarnings("WeakerAccess")
   @ToString
   @EqualsAndHashCode
   @NoArgsConstructor
-  @AllArgsConstructor
   public static class ExceptionMappingConfig {
 
+    /**
+     * Instantiates a new exception mapping config.
+     *
+     * @param exceptionClassName        the exception class name
+     * @param includeExceptionClassName the include exception class name flag
+     * @param includeApplicationName    the include application name flag
+     * @param includePath               the include path flag
+     * @param includeHandler            the include handler flag
+     * @param includeStackTrace         the include stack trace flag
+     * @param includeCause              the include cause flag
+     * @param evaluateAnnotationFirst   the evaluate annotation first flag
+     */
+    public ExceptionMappingConfig(
+        String exceptionClassName,
+        boolean includeExceptionClassName,
+        boolean includeApplicationName,
+        boolean includePath,
+        boolean includeHandler,
+        boolean includeStackTrace,
+        boolean includeCause,
+        boolean evaluateAnnotationFirst) {
+      this.exceptionClassName = exceptionClassName;
+      this.includeExceptionClassName = includeExceptionClassName;
+      this.includeApplicationName = includeApplicationName;
+      this.includePath = includePath;
+      this.includeHandler = includeHandler;
+      this.includeStackTrace = includeStackTrace;
+      this.includeCause = includeCause;
+      this.evaluateAnnotationFirst = evaluateAnnotationFirst;
+    }
+
     @Getter
     @Setter
     private String exceptionClassName;
@@ -356,6 +397,60 @@ public class RestApiExceptionMapperProperties {
     @Setter
     private boolean evaluateAnnotationFirst = false;
 
+    /**
+     * The stack trace mode.
+     */
+    @Getter
+    @Setter
+    private StackTraceMode stackTraceMode = StackTraceMode.FRAMES;
+
+    /**
+     * The maximum number of frames per exception and cause; {@code 0} means no limit.
+     */
+    @Getter
+    @Setter
+    private int stackTraceMaxDepth = 0;
+
+    /**
+     * The package prefixes of the frames, that are included. If it is empty, all frames are
+     * included, that are not excluded.
+     */
+    @Getter
+    @Setter
+    private List<String> stackTraceIncludePackages = new ArrayList<>();
+
+    /**
+     * The package prefixes of the frames, that are excluded.
+     */
+    @Getter
+    @Setter
+    private List<String> stackTraceExcludePackages = new ArrayList<>();
+
+    /**
+     * Collapse repeated frames and recursions and omit the frames of a cause, that are in common
+     * with the enclosing exception.
+     */
+    @Getter
+    @Setter
+    private boolean collapseStackTrace = false;
+
+  }
+
+  /**
+   * The stack trace mode.
+   */
+  public enum StackTraceMode {
+
+    /**
+     * The frames of the stack trace are included.
+     */
+    FRAMES,
+
+    /**
+     * Only a fingerprint of the frames is included. The fingerprint is stable as long as the
+     * code is not changed.
+     */
+    FINGERPRINT
   }
 
 }
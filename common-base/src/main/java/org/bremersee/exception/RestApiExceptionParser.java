@@ -16,15 +16,100 @@
 
 package org.bremersee.exception;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
 import org.bremersee.exception.model.RestApiException;
+import org.bremersee.http.HttpHeadersHelper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
 import org.springframework.validation.annotation.Validated;
 
 /**
  * A http response parser that creates a {@link RestApiException}.
  *
+ * <p>The default implementations of the methods, that parse bytes, decode the bytes with the
+ * charset of the content type (or UTF-8) and call {@link #parseException(String, Map)}.
+ * Implementations should parse the bytes directly and limit the number of bytes, that are read.
+ * The default implementations read at most {@link
+ * RestApiExceptionParserImpl#DEFAULT_MAX_PARSED_BODY_SIZE} bytes of an input stream or a data
+ * buffer.
+ *
  * @author Christian Bremer
  */
 @Validated
 public interface RestApiExceptionParser extends ExceptionParser<RestApiException> {
 
+  /**
+   * Parse exception.
+   *
+   * @param response the response body
+   * @param headers  the headers
+   * @return the parsed exception
+   */
+  default RestApiException parseExceptionFromBytes(
+      @Nullable byte[] response,
+      @Nullable Map<String, ? extends Collection<String>> headers) {
+
+    if (response == null) {
+      return parseException((String) null, headers);
+    }
+    final MediaType contentType = HttpHeadersHelper.buildHttpHeaders(headers).getContentType();
+    final Charset charset = contentType != null && contentType.getCharset() != null
+        ? contentType.getCharset()
+        : StandardCharsets.UTF_8;
+    return parseException(new String(response, charset), headers);
+  }
+
+  /**
+   * Parse exception. The input stream is not closed. At most {@link
+   * RestApiExceptionParserImpl#DEFAULT_MAX_PARSED_BODY_SIZE} bytes are read.
+   *
+   * @param response the response body
+   * @param headers  the headers
+   * @return the parsed exception
+   */
+  default RestApiException parseExceptionFromStream(
+      @Nullable InputStream response,
+      @Nullable Map<String, ? extends Collection<String>> headers) {
+
+    byte[] bytes = null;
+    if (response != null) {
+      final int max = RestApiExceptionParserImpl.DEFAULT_MAX_PARSED_BODY_SIZE;
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      try {
+        int n;
+        while (out.size() < max
+            && (n = response.read(buffer, 0, Math.min(buffer.length, max - out.size()))) >= 0) {
+          out.write(buffer, 0, n);
+        }
+        bytes = out.toByteArray();
+      } catch (IOException ignored) {
+        // the response is handled like an empty response
+      }
+    }
+    return parseExceptionFromBytes(bytes, headers);
+  }
+
+  /**
+   * Parse exception. The data buffer is read, but not released. At most {@link
+   * RestApiExceptionParserImpl#DEFAULT_MAX_PARSED_BODY_SIZE} bytes are read.
+   *
+   * @param response the response body
+   * @param headers  the headers
+   * @return the parsed exception
+   */
+  default RestApiException parseExceptionFromDataBuffer(
+      @Nullable DataBuffer response,
+      @Nullable Map<String, ? extends Collection<String>> headers) {
+
+    return parseExceptionFromStream(response != null ? response.asInputStream() : null, headers);
+  }
+
 }
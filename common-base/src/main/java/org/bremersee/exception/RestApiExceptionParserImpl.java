@@ -16,16 +16,25 @@
 
 package org.bremersee.exception;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.bremersee.exception.ContentSniffer.Format;
 import org.bremersee.exception.model.RestApiException;
 import org.bremersee.http.HttpHeadersHelper;
 import org.bremersee.http.MediaTypeHelper;
 import org.bremersee.http.converter.ObjectMapperHelper;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.lang.Nullable;
 import org.springframework.util.StringUtils;
@@ -33,13 +42,59 @@ import org.springframework.util.StringUtils;
 /**
  * The default implementation of a http response parser that creates a {@link RestApiException}.
  *
+ * <p>The object mappers are built only once, when they are used for the first time.
+ *
+ * <p>The format of a response body, that is given as bytes, input stream or data buffer, is
+ * sniffed from the first bytes. A body, that looks like json or xml and whose content type allows
+ * it, is read up to the maximum parsed body size ({@code maxParsedBodySize}) and parsed directly
+ * from the bytes; if it is larger, the rest api exception is built from the headers only. Other
+ * bodies (like html error pages of a proxy) are read only up to the maximum body size ({@code
+ * maxBodySize}) and decoded only for the message of the fallback.
+ *
+ * <p>A body is only given to a parser, if its format (json or xml) is sniffed from its first
+ * characters, the content type allows the format and the body has the structure of a rest api
+ * exception. So a plain text or html body is never parsed twice (as json and as xml) and no
+ * parser exception is thrown for it. Such bodies become the message of a rest api exception, that
+ * is built from the response headers.
+ *
  * @author Christian Bremer
  */
 @Slf4j
 public class RestApiExceptionParserImpl implements RestApiExceptionParser {
 
+  /**
+   * The default maximum number of bytes, that are read from a response body.
+   */
+  public static final int DEFAULT_MAX_BODY_SIZE = 64 * 1024;
+
+  /**
+   * The default maximum number of bytes of a response body, that is parsed as json or xml.
+   */
+  public static final int DEFAULT_MAX_PARSED_BODY_SIZE = 4 * 1024 * 1024;
+
   private final Jackson2ObjectMapperBuilder objectMapperBuilder;
 
+  /**
+   * The maximum number of bytes, that are read from a response body, that is not parsed as json
+   * or xml (the default is {@value #DEFAULT_MAX_BODY_SIZE}).
+   */
+  @Getter
+  @Setter
+  private int maxBodySize = DEFAULT_MAX_BODY_SIZE;
+
+  /**
+   * The maximum number of bytes of a response body, that is parsed as json or xml (the default is
+   * {@value #DEFAULT_MAX_PARSED_BODY_SIZE}). A larger body is not parsed, the rest api exception
+   * is built from the headers.
+   */
+  @Getter
+  @Setter
+  private int maxParsedBodySize = DEFAULT_MAX_PARSED_BODY_SIZE;
+
+  private volatile ObjectReader jsonReader;
+
+  private volatile ObjectReader xmlReader;
+
   /**
    * Instantiates a new rest api exception parser.
    */
@@ -58,20 +113,29 @@ public class RestApiExceptionParserImpl implements RestApiExceptionParser {
     this.objectMapperBuilder = objectMapperBuilder;
   }
 
-  private ObjectMapper getJsonMapper() {
-    if (objectMapperBuilder != null) {
-      return objectMapperBuilder.build();
-    } else {
-      return ObjectMapperHelper.getJsonMapper();
+  private ObjectReader getJsonReader() {
+    ObjectReader reader = jsonReader;
+    if (reader == null) {
+      // building it twice by concurrent threads is harmless
+      reader = (objectMapperBuilder != null
+          ? objectMapperBuilder.build()
+          : ObjectMapperHelper.getSharedJsonMapper())
+          .readerFor(RestApiException.class);
+      jsonReader = reader;
     }
+    return reader;
   }
 
-  private XmlMapper getXmlMapper() {
-    if (objectMapperBuilder != null) {
-      return objectMapperBuilder.createXmlMapper(true).build();
-    } else {
-      return ObjectMapperHelper.getXmlMapper();
+  private ObjectReader getXmlReader() {
+    ObjectReader reader = xmlReader;
+    if (reader == null) {
+      reader = (objectMapperBuilder != null
+          ? objectMapperBuilder.createXmlMapper(true).build()
+          : ObjectMapperHelper.getSharedXmlMapper())
+          .readerFor(RestApiException.class);
+      xmlReader = reader;
     }
+    return reader;
   }
 
   @Override
@@ -83,51 +147,209 @@ public class RestApiExceptionParserImpl implements RestApiExceptionParser {
     final String contentType = String.valueOf(httpHeaders.getContentType());
 
     RestApiException restApiException = null;
+    final Format format = ContentSniffer.sniff(response);
     try {
-      if (StringUtils.hasText(response) && MediaTypeHelper.canContentTypeBeJson(contentType)) {
-        restApiException = getJsonMapper().readValue(response, RestApiException.class);
+      if (isJson(format, contentType) && ContentSniffer.isRestApiException(response, format)) {
+        restApiException = getJsonReader().readValue(response);
+      } else if (isXml(format, contentType)
+          && ContentSniffer.isRestApiException(response, format)) {
+        restApiException = getXmlReader().readValue(response);
       }
-    } catch (Exception ignored) {
-      log.info("msg=[Response is not a 'RestApiException' as JSON.]");
+    } catch (Exception e) {
+      log.debug("msg=[Response is not a 'RestApiException' as {}.]", format);
+    }
+    if (restApiException == null) {
+      restApiException = fromHeaders(response, httpHeaders);
     }
+    return restApiException;
+  }
+
+  @Override
+  public RestApiException parseExceptionFromBytes(
+      @Nullable final byte[] response,
+      @Nullable final Map<String, ? extends Collection<String>> headers) {
+
+    return parseException(response, response != null ? response.length : 0, headers);
+  }
+
+  @Override
+  public RestApiException parseExceptionFromStream(
+      @Nullable final InputStream response,
+      @Nullable final Map<String, ? extends Collection<String>> headers) {
+
+    if (response == null) {
+      return parseExceptionFromBytes(null, headers);
+    }
+    final int maxParsed = Math.max(0, maxParsedBodySize);
+    int limit = Math.max(0, maxBodySize);
+    boolean parsed = false;
+    byte[] buffer = new byte[Math.min(limit, 4096)];
+    int length = 0;
     try {
-      if (restApiException == null
-          && StringUtils.hasText(response)
-          && MediaTypeHelper.canContentTypeBeXml(contentType)) {
-        restApiException = getXmlMapper().readValue(response, RestApiException.class);
+      while (true) {
+        if (length == limit) {
+          if (parsed || !isParsedBody(buffer, length, headers)) {
+            break;
+          }
+          // json and xml are read up to the maximum parsed body size plus one byte to detect,
+          // whether the body is too large
+          parsed = true;
+          limit = (int) Math.max(length, Math.min(Integer.MAX_VALUE - 8L, maxParsed + 1L));
+          if (length == limit) {
+            break;
+          }
+        }
+        if (length == buffer.length) {
+          buffer = Arrays.copyOf(
+              buffer, (int) Math.min(limit, Math.max(4096L, buffer.length * 2L)));
+        }
+        final int n = response.read(buffer, length, buffer.length - length);
+        if (n < 0) {
+          break;
+        }
+        length += n;
       }
-    } catch (Exception ignored) {
-      log.debug("msg=[Response is not a 'RestApiException' as XML.]");
+    } catch (IOException e) {
+      log.debug("msg=[Reading response failed.]", e);
+      return parseExceptionFromBytes(null, headers);
     }
-    if (restApiException == null) {
-      restApiException = new RestApiException();
+    if (parsed && length > maxParsed) {
+      return parseTooLargeException(headers);
+    }
+    return parseException(buffer, length, headers);
+  }
+
+  @Override
+  public RestApiException parseExceptionFromDataBuffer(
+      @Nullable final DataBuffer response,
+      @Nullable final Map<String, ? extends Collection<String>> headers) {
 
-      final String id = httpHeaders.getFirst(RestApiExceptionUtils.ID_HEADER_NAME);
-      if (StringUtils.hasText(id) && !RestApiExceptionUtils.NO_ID_VALUE.equals(id)) {
-        restApiException.setId(id);
+    if (response == null) {
+      return parseExceptionFromBytes(null, headers);
+    }
+    final int readable = response.readableByteCount();
+    final int prefix = Math.max(0, Math.min(maxBodySize, readable));
+    byte[] bytes = new byte[prefix];
+    response.read(bytes);
+    if (prefix < readable && isParsedBody(bytes, prefix, headers)) {
+      if (readable > Math.max(0, maxParsedBodySize)) {
+        return parseTooLargeException(headers);
       }
+      bytes = Arrays.copyOf(bytes, readable);
+      response.read(bytes, prefix, readable - prefix);
+    }
+    return parseException(bytes, bytes.length, headers);
+  }
 
-      final String timestamp = httpHeaders.getFirst(RestApiExceptionUtils.TIMESTAMP_HEADER_NAME);
-      restApiException.setTimestamp(RestApiExceptionUtils.parseHeaderValue(timestamp));
+  /**
+   * Determines whether a response body, that starts with the given bytes, is parsed as json or
+   * xml. Such a body is read up to the maximum parsed body size, the maximum body size applies
+   * only to other bodies.
+   *
+   * @param body    the first bytes of the body
+   * @param length  the number of the first bytes
+   * @param headers the headers
+   * @return {@code true} if the body is parsed as json or xml, otherwise {@code false}
+   */
+  public static boolean isParsedBody(
+      @Nullable final byte[] body,
+      final int length,
+      @Nullable final Map<String, ? extends Collection<String>> headers) {
 
-      if (StringUtils.hasText(response)) {
-        restApiException.setMessage(response);
-      } else {
-        final String message = httpHeaders.getFirst(RestApiExceptionUtils.MESSAGE_HEADER_NAME);
-        restApiException.setMessage(
-            StringUtils.hasText(message) ? message : RestApiExceptionUtils.NO_MESSAGE_VALUE);
-      }
+    if (body == null) {
+      return false;
+    }
+    final HttpHeaders httpHeaders = HttpHeadersHelper.buildHttpHeaders(headers);
+    final String contentType = String.valueOf(httpHeaders.getContentType());
+    final Format format = ContentSniffer.sniff(body, Math.min(length, body.length));
+    return isJson(format, contentType) || isXml(format, contentType);
+  }
 
-      final String errorCode = httpHeaders.getFirst(RestApiExceptionUtils.CODE_HEADER_NAME);
-      if (StringUtils.hasText(errorCode)
-          && !RestApiExceptionUtils.NO_ERROR_CODE_VALUE.equals(errorCode)) {
-        restApiException.setErrorCode(errorCode);
-      }
+  private RestApiException parseTooLargeException(
+      @Nullable final Map<String, ? extends Collection<String>> headers) {
+    log.debug("msg=[Response is larger than the maximum parsed body size ({} bytes).]",
+        maxParsedBodySize);
+    return parseExceptionFromBytes(null, headers);
+  }
+
+  private RestApiException parseException(
+      @Nullable final byte[] response,
+      final int size,
+      @Nullable final Map<String, ? extends Collection<String>> headers) {
+
+    final HttpHeaders httpHeaders = HttpHeadersHelper.buildHttpHeaders(headers);
+    final String contentType = String.valueOf(httpHeaders.getContentType());
+    final int length = response != null ? Math.max(0, Math.min(size, response.length)) : 0;
 
-      final String cls = httpHeaders.getFirst(RestApiExceptionUtils.CLASS_HEADER_NAME);
-      if (StringUtils.hasText(cls) && !RestApiExceptionUtils.NO_CLASS_VALUE.equals(cls)) {
-        restApiException.setClassName(cls);
+    RestApiException restApiException = null;
+    final Format format = ContentSniffer.sniff(response, length);
+    try {
+      if (isJson(format, contentType)
+          && ContentSniffer.isRestApiException(response, length, format)) {
+        restApiException = getJsonReader().readValue(response, 0, length);
+      } else if (isXml(format, contentType)
+          && ContentSniffer.isRestApiException(response, length, format)) {
+        restApiException = getXmlReader().readValue(response, 0, length);
       }
+    } catch (Exception e) {
+      log.debug("msg=[Response is not a 'RestApiException' as {}.]", format);
+    }
+    if (restApiException == null) {
+      // only the first bytes of other bodies are used as message
+      final int messageLength = Math.min(length, Math.max(0, maxBodySize));
+      restApiException = fromHeaders(
+          response != null ? new String(response, 0, messageLength, charset(httpHeaders)) : null,
+          httpHeaders);
+    }
+    return restApiException;
+  }
+
+  private static boolean isJson(final Format format, final String contentType) {
+    return format == Format.JSON && MediaTypeHelper.canContentTypeBeJson(contentType);
+  }
+
+  private static boolean isXml(final Format format, final String contentType) {
+    return format == Format.XML && MediaTypeHelper.canContentTypeBeXml(contentType);
+  }
+
+  private static Charset charset(final HttpHeaders httpHeaders) {
+    final MediaType contentType = httpHeaders.getContentType();
+    return contentType != null && contentType.getCharset() != null
+        ? contentType.getCharset()
+        : StandardCharsets.UTF_8;
+  }
+
+  private static RestApiException fromHeaders(
+      @Nullable final String response,
+      final HttpHeaders httpHeaders) {
+
+    final RestApiException restApiException = new RestApiException();
+
+    final String id = httpHeaders.getFirst(RestApiExceptionUtils.ID_HEADER_NAME);
+    if (StringUtils.hasText(id) && !RestApiExceptionUtils.NO_ID_VALUE.equals(id)) {
+      restApiException.setId(id);
+    }
+
+    final String timestamp = httpHeaders.getFirst(RestApiExceptionUtils.TIMESTAMP_HEADER_NAME);
+    restApiException.setTimestamp(RestApiExceptionUtils.parseHeaderValue(timestamp));
+
+    if (StringUtils.hasText(response)) {
+      restApiException.setMessage(response);
+    } else {
+      final String message = httpHeaders.getFirst(RestApiExceptionUtils.MESSAGE_HEADER_NAME);
+      restApiException.setMessage(
+          StringUtils.hasText(message) ? message : RestApiExceptionUtils.NO_MESSAGE_VALUE);
+    }
+
+    final String errorCode = httpHeaders.getFirst(RestApiExceptionUtils.CODE_HEADER_NAME);
+    if (StringUtils.hasText(errorCode)
+        && !RestApiExceptionUtils.NO_ERROR_CODE_VALUE.equals(errorCode)) {
+      restApiException.setErrorCode(errorCode);
+    }
+
+    final String cls = httpHeaders.getFirst(RestApiExceptionUtils.CLASS_HEADER_NAME);
+    if (StringUtils.hasText(cls) && !RestApiExceptionUtils.NO_CLASS_VALUE.equals(cls)) {
+      restApiException.setClassName(cls);
     }
     return restApiException;
   }
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.exception;
+
+import static org.springframework.util.Assert.isTrue;
+import static org.springframework.util.Assert.notNull;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.bremersee.exception.model.RestApiException;
+import org.bremersee.http.converter.ObjectMapperHelper;
+import org.springframework.lang.Nullable;
+
+/**
+ * Renders rest api exceptions from pre-serialized json and xml templates.
+ *
+ * <p>The rest api exceptions of a mapped exception (e. g. a 404 with a fixed code) differ only in
+ * the id, the timestamp, the message and the request path. So the rest api exception is
+ * serialized once with placeholders for these values and the serialized bytes are kept as
+ * template. The following rest api exceptions, that are equal apart from these values, are
+ * rendered by copying the template and patching in the values; the object graph is not
+ * serialized again. The key of a template contains only the static values of the mapping (the
+ * error code, the class name, the application and the handler).
+ *
+ * <p>Only rest api exceptions without stack trace and without cause are rendered from templates.
+ * If the cache reaches its maximum size, no more templates are created, the other rest api
+ * exceptions must be serialized as usual.
+ *
+ * <p>The object mappers must be the ones, that are used to write the responses, that are not
+ * rendered from templates, so that both are written in the same way.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+@SuppressWarnings("WeakerAccess")
+public class RestApiExceptionTemplateCache {
+
+  /**
+   * The default maximum number of templates per format.
+   */
+  public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+  private static final String ID_PLACEHOLDER = "REST-API-EXCEPTION-ID-PLACEHOLDER";
+
+  private static final String PATH_PLACEHOLDER = "REST-API-EXCEPTION-PATH-PLACEHOLDER";
+
+  private static final String MESSAGE_PLACEHOLDER = "REST-API-EXCEPTION-MESSAGE-PLACEHOLDER";
+
+  private static final OffsetDateTime TIMESTAMP_PLACEHOLDER = OffsetDateTime
+      .of(1999, 12, 31, 23, 59, 58, 987000000, ZoneOffset.UTC);
+
+  /**
+   * The template of a rest api exception, that cannot be rendered from a template.
+   */
+  private static final Template NO_TEMPLATE = new Template(new Object[0], 0);
+
+  private final ObjectMapper jsonMapper;
+
+  private final ObjectWriter jsonWriter;
+
+  @Nullable
+  private final ObjectWriter xmlWriter;
+
+  private final int maximumSize;
+
+  private final Map<RestApiException, Template> jsonTemplates = new ConcurrentHashMap<>();
+
+  private final Map<RestApiException, Template> xmlTemplates = new ConcurrentHashMap<>();
+
+  /**
+   * Instantiates a new rest api exception template cache with the shared object mappers of the
+   * {@link ObjectMapperHelper}, that doesn't pretty print.
+   */
+  public RestApiExceptionTemplateCache() {
+    this(
+        ObjectMapperHelper.getSharedJsonMapper(),
+        ObjectMapperHelper.getSharedXmlMapper(),
+        false,
+        DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Instantiates a new rest api exception template cache.
+   *
+   * @param jsonMapper  the json mapper (must be configured like the xml mapper, especially the
+   *                    serialization of dates)
+   * @param xmlMapper   the xml mapper (if it is {@code null}, nothing is rendered as xml)
+   * @param prettyPrint specifies whether the output should be pretty printed (if the mappers are
+   *                    configured to indent the output, it is pretty printed anyway)
+   * @param maximumSize the maximum number of templates per format
+   */
+  public RestApiExceptionTemplateCache(
+      @NotNull ObjectMapper jsonMapper,
+      @Nullable XmlMapper xmlMapper,
+      boolean prettyPrint,
+      int maximumSize) {
+    notNull(jsonMapper, "Json mapper must not be null.");
+    isTrue(maximumSize > 0, "Maximum size must be greater than zero.");
+    this.jsonMapper = jsonMapper;
+    this.jsonWriter = prettyPrint
+        ? jsonMapper.writerWithDefaultPrettyPrinter()
+        : jsonMapper.writer();
+    if (xmlMapper == null) {
+      this.xmlWriter = null;
+    } else {
+      this.xmlWriter = prettyPrint
+          ? xmlMapper.writerWithDefaultPrettyPrinter()
+          : xmlMapper.writer();
+    }
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * Returns the number of templates.
+   *
+   * @return the size
+   */
+  public int size() {
+    return jsonTemplates.size() + xmlTemplates.size();
+  }
+
+  /**
+   * Removes all templates.
+   */
+  public void clear() {
+    jsonTemplates.clear();
+    xmlTemplates.clear();
+  }
+
+  /**
+   * Renders the given rest api exception as json.
+   *
+   * @param restApiException the rest api exception
+   * @return the json or {@code null}, if the rest api exception cannot be rendered from a
+   *     template (then it must be serialized as usual)
+   */
+  @Nullable
+  public byte[] renderJson(@Nullable final RestApiException restApiException) {
+    return render(restApiException, jsonTemplates, false);
+  }
+
+  /**
+   * Renders the given rest api exception as xml.
+   *
+   * @param restApiException the rest api exception
+   * @return the xml or {@code null}, if the rest api exception cannot be rendered from a template
+   *     (then it must be serialized as usual)
+   */
+  @Nullable
+  public byte[] renderXml(@Nullable final RestApiException restApiException) {
+    if (xmlWriter == null) {
+      return null;
+    }
+    return render(restApiException, xmlTemplates, true);
+  }
+
+  @Nullable
+  private byte[] render(
+      @Nullable final RestApiException restApiException,
+      final Map<RestApiException, Template> templates,
+      final boolean xml) {
+
+    if (restApiException == null
+        || restApiException.getCause() != null
+        || (restApiException.getStackTrace() != null
+        && !restApiException.getStackTrace().isEmpty())) {
+      return null;
+    }
+    if (xml && (!isXmlText(restApiException.getMessage())
+        || !isXmlText(restApiException.getPath()))) {
+      return null;
+    }
+    final RestApiException key = toKey(restApiException);
+    Template template = templates.get(key);
+    if (template == null) {
+      if (templates.size() >= maximumSize) {
+        return null;
+      }
+      template = createTemplate(key, xml ? xmlWriter : jsonWriter, xml);
+      templates.putIfAbsent(key, template);
+    }
+    if (template == NO_TEMPLATE) {
+      return null;
+    }
+    try {
+      return template.render(
+          encode(restApiException.getId(), xml),
+          encode(restApiException.getTimestamp(), xml),
+          encode(restApiException.getPath(), xml),
+          encode(restApiException.getMessage(), xml));
+    } catch (JsonProcessingException e) {
+      log.warn("msg=[Rendering rest api exception from template failed.]", e);
+      return null;
+    }
+  }
+
+  /**
+   * Determines whether the value can be patched into xml. Control characters may be written as
+   * character references by the xml mapper, so such values are not rendered from templates.
+   */
+  private static boolean isXmlText(@Nullable final String value) {
+    if (value != null) {
+      for (int i = 0; i < value.length(); i++) {
+        if (value.charAt(i) < 0x20) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Creates the key of the template: the volatile values are replaced by placeholders, so that
+   * the key also records, which of them are present. The stack trace and the cause are always
+   * empty.
+   */
+  private static RestApiException toKey(final RestApiException restApiException) {
+    return RestApiException.builder()
+        .id(restApiException.getId() != null ? ID_PLACEHOLDER : null)
+        .timestamp(restApiException.getTimestamp() != null ? TIMESTAMP_PLACEHOLDER : null)
+        .message(restApiException.getMessage() != null ? MESSAGE_PLACEHOLDER : null)
+        .errorCode(restApiException.getErrorCode())
+        .errorCodeInherited(restApiException.getErrorCodeInherited())
+        .className(restApiException.getClassName())
+        .application(restApiException.getApplication())
+        .path(restApiException.getPath() != null ? PATH_PLACEHOLDER : null)
+        .handler(restApiException.getHandler())
+        .stackTrace(restApiException.getStackTrace())
+        .build();
+  }
+
+  private Template createTemplate(
+      final RestApiException key,
+      final ObjectWriter writer,
+      final boolean xml) {
+
+    try {
+      final byte[] bytes = writer.writeValueAsBytes(key);
+      final byte[][] placeholders = new byte[][]{
+          key.getId() != null ? encode(ID_PLACEHOLDER, xml) : null,
+          key.getTimestamp() != null ? encode(TIMESTAMP_PLACEHOLDER, xml) : null,
+          key.getPath() != null ? encode(PATH_PLACEHOLDER, xml) : null,
+          key.getMessage() != null ? encode(MESSAGE_PLACEHOLDER, xml) : null
+      };
+      final int[] positions = new int[placeholders.length];
+      for (int i = 0; i < placeholders.length; i++) {
+        positions[i] = -1;
+        if (placeholders[i] != null) {
+          positions[i] = indexOf(bytes, placeholders[i], 0);
+          if (positions[i] < 0 || indexOf(bytes, placeholders[i], positions[i] + 1) >= 0) {
+            log.debug("msg=[Placeholder is not unique, rendering without template.] xml=[{}]",
+                xml);
+            return NO_TEMPLATE;
+          }
+        }
+      }
+      final List<Object> parts = new ArrayList<>();
+      int offset = 0;
+      for (int n = 0; n < placeholders.length; n++) {
+        int field = -1;
+        for (int i = 0; i < placeholders.length; i++) {
+          if (positions[i] >= offset && (field < 0 || positions[i] < positions[field])) {
+            field = i;
+          }
+        }
+        if (field < 0) {
+          break;
+        }
+        parts.add(Arrays.copyOfRange(bytes, offset, positions[field]));
+        parts.add(field);
+        offset = positions[field] + placeholders[field].length;
+      }
+      parts.add(Arrays.copyOfRange(bytes, offset, bytes.length));
+      return new Template(parts.toArray(), bytes.length);
+
+    } catch (JsonProcessingException e) {
+      log.warn("msg=[Creating template of rest api exception failed.]", e);
+      return NO_TEMPLATE;
+    }
+  }
+
+  /**
+   * Encodes the value as it is written by the json mapper. In xml the value is the text of an
+   * element, so the quotes of a json string are removed and the xml characters are escaped.
+   */
+  @Nullable
+  private byte[] encode(@Nullable final Object value, final boolean xml)
+      throws JsonProcessingException {
+
+    if (value == null) {
+      return null;
+    }
+    final byte[] json = jsonMapper.writeValueAsBytes(value);
+    if (!xml) {
+      return json;
+    }
+    final int from = json.length > 1 && json[0] == '"' ? 1 : 0;
+    final int to = from == 1 ? json.length - 1 : json.length;
+    final String text = value instanceof String
+        ? (String) value
+        : new String(json, from, to - from, StandardCharsets.UTF_8);
+    return escapeXml(text).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String escapeXml(final String text) {
+    final StringBuilder sb = new StringBuilder(text.length() + 16);
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      switch (c) {
+        case '&':
+          sb.append("&amp;");
+          break;
+        case '<':
+          sb.append("&lt;");
+          break;
+        case '>':
+          sb.append("&gt;");
+          break;
+        case '"':
+          sb.append("&quot;");
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static int indexOf(final byte[] bytes, final byte[] value, final int from) {
+    final int last = bytes.length - value.length;
+    outer:
+    for (int i = from; i <= last; i++) {
+      for (int j = 0; j < value.length; j++) {
+        if (bytes[i + j] != value[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  /**
+   * The serialized bytes of a rest api exception, that are split at the placeholders. A part is
+   * either a byte array or the index of the value (0 = id, 1 = timestamp, 2 = path, 3 =
+   * message).
+   */
+  private static final class Template {
+
+    private final Object[] parts;
+
+    private final int length;
+
+    private Template(final Object[] parts, final int length) {
+      this.parts = parts;
+      this.length = length;
+    }
+
+    private byte[] render(final byte[]... values) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(length + 64);
+      for (final Object part : parts) {
+        final byte[] bytes = part instanceof Integer ? values[(Integer) part] : (byte[]) part;
+        if (bytes != null) {
+          out.write(bytes, 0, bytes.length);
+        }
+      }
+      return out.toByteArray();
+    }
+  }
+
+}
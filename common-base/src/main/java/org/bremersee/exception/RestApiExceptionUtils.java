@@ -18,7 +18,10 @@ package org.bremersee.exception;
 
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
+import org.bremersee.http.HttpHeadersHelper;
 import org.springframework.lang.Nullable;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
@@ -62,6 +65,19 @@ public abstract class RestApiExceptionUtils {
    */
   public static final String CLASS_HEADER_NAME = "X-ERROR-CLASS-NAME";
 
+  /**
+   * The header name for the transport of the rest api exception. A client sends it with the value
+   * {@link #HEADERS_ONLY_VALUE} to request error responses without body (see {@link
+   * HeadersOnlyMode#ON_REQUEST}); a server marks such responses with it, so that the client can
+   * skip reading the body.
+   */
+  public static final String TRANSPORT_HEADER_NAME = "X-ERROR-TRANSPORT";
+
+  /**
+   * The value of the transport header for error responses without body.
+   */
+  public static final String HEADERS_ONLY_VALUE = "headers-only";
+
   /**
    * The default value of the 'id' attribute.
    */
@@ -82,9 +98,30 @@ public abstract class RestApiExceptionUtils {
    */
   public static final String NO_CLASS_VALUE = "UNSPECIFIED";
 
+  /**
+   * The declaring class of the stack trace item, that contains the fingerprint of a stack trace
+   * as method name, if only the fingerprint is included (see {@link
+   * RestApiExceptionMapperProperties.StackTraceMode#FINGERPRINT}).
+   */
+  public static final String STACK_TRACE_FINGERPRINT_CLASS = "STACK-TRACE-FINGERPRINT";
+
   private RestApiExceptionUtils() {
   }
 
+  /**
+   * Determines whether the given response headers mark an error response without body (see
+   * {@link #TRANSPORT_HEADER_NAME}).
+   *
+   * @param headers the response headers
+   * @return {@code true} if the rest api exception is transported only by the headers, otherwise
+   *     {@code false}
+   */
+  public static boolean isHeadersOnly(
+      @Nullable final Map<String, ? extends Collection<String>> headers) {
+    return headers != null && !headers.isEmpty() && HEADERS_ONLY_VALUE.equalsIgnoreCase(
+        HttpHeadersHelper.buildHttpHeaders(headers).getFirst(TRANSPORT_HEADER_NAME));
+  }
+
   /**
    * Parse the 'timestamp' header value.
    *
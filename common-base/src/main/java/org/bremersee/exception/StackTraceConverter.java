@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.exception;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.bremersee.exception.RestApiExceptionMapperProperties.ExceptionMappingConfig;
+import org.bremersee.exception.model.StackTraceItem;
+import org.springframework.lang.Nullable;
+
+/**
+ * Selects the frames of a stack trace according to the stack trace policies of an exception
+ * mapping config and converts them into a fingerprint.
+ *
+ * @author Christian Bremer
+ */
+abstract class StackTraceConverter {
+
+  /**
+   * The initial value of a 64-bit FNV-1a hash.
+   */
+  static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /**
+   * The maximum number of frames of a recursion, that is collapsed.
+   */
+  private static final int MAX_RECURSION_PERIOD = 16;
+
+  private StackTraceConverter() {
+  }
+
+  /**
+   * Creates the stack trace items, that carry only the fingerprint of the frames.
+   *
+   * @param frames the selected frames
+   * @return the stack trace items
+   */
+  static List<StackTraceItem> toFingerprintItems(final StackTraceElement[] frames) {
+    final List<StackTraceItem> items = new ArrayList<>(1);
+    items.add(new StackTraceItem(
+        RestApiExceptionUtils.STACK_TRACE_FINGERPRINT_CLASS,
+        toHex(fingerprint(FNV_OFFSET_BASIS, Arrays.asList(frames), frames.length)),
+        null,
+        frames.length));
+    return items;
+  }
+
+  /**
+   * Selects the frames of the stack trace, that are sent: the frames in common with the enclosing
+   * stack trace and repetitions of frames or of sequences of frames (a recursion) are omitted, if
+   * the stack trace should be collapsed, the frames are filtered by package and limited to the
+   * maximum depth.
+   *
+   * @param stackTrace          the stack trace
+   * @param enclosingStackTrace the stack trace of the enclosing exception, if the stack trace
+   *                            belongs to a cause
+   * @param config              the exception mapping config
+   * @return the selected frames
+   */
+  static StackTraceElement[] select(
+      final StackTraceElement[] stackTrace,
+      @Nullable final StackTraceElement[] enclosingStackTrace,
+      final ExceptionMappingConfig config) {
+
+    final boolean collapse = config.isCollapseStackTrace();
+    int end = stackTrace.length;
+    if (collapse && enclosingStackTrace != null) {
+      // frames in common with the enclosing trace (like '... n more' of printStackTrace)
+      int n = enclosingStackTrace.length - 1;
+      while (end > 0 && n >= 0 && Objects.equals(stackTrace[end - 1], enclosingStackTrace[n])) {
+        end--;
+        n--;
+      }
+    }
+    final int maxDepth = config.getStackTraceMaxDepth() > 0
+        ? config.getStackTraceMaxDepth()
+        : Integer.MAX_VALUE;
+    final List<String> includes = nonNull(config.getStackTraceIncludePackages());
+    final List<String> excludes = nonNull(config.getStackTraceExcludePackages());
+    final List<StackTraceElement> frames = new ArrayList<>(Math.min(end, maxDepth));
+    int i = 0;
+    while (i < end && frames.size() < maxDepth) {
+      final int period = collapse ? findRecursionPeriod(stackTrace, i, end) : 0;
+      final int length = period > 0 ? period : 1;
+      for (int k = i; k < i + length && frames.size() < maxDepth; k++) {
+        final StackTraceElement frame = stackTrace[k];
+        if (frame != null && isIncluded(frame.getClassName(), includes, excludes)) {
+          frames.add(frame);
+        }
+      }
+      i = period > 0 ? skipRepetitions(stackTrace, i, period, end) : i + 1;
+    }
+    return frames.toArray(new StackTraceElement[0]);
+  }
+
+  /**
+   * Finds the shortest sequence of frames starting at the given index, that is repeated
+   * immediately.
+   *
+   * @param stackTrace the stack trace
+   * @param start      the start index
+   * @param end        the end index (exclusive)
+   * @return the length of the repeated sequence or {@code 0}, if there is none
+   */
+  private static int findRecursionPeriod(
+      final StackTraceElement[] stackTrace,
+      final int start,
+      final int end) {
+
+    for (int period = 1; period <= MAX_RECURSION_PERIOD && start + 2 * period <= end; period++) {
+      if (regionMatches(stackTrace, start, start + period, period)) {
+        return period;
+      }
+    }
+    return 0;
+  }
+
+  private static int skipRepetitions(
+      final StackTraceElement[] stackTrace,
+      final int start,
+      final int period,
+      final int end) {
+
+    int next = start + period;
+    while (next + period <= end && regionMatches(stackTrace, start, next, period)) {
+      next += period;
+    }
+    return next;
+  }
+
+  private static boolean regionMatches(
+      final StackTraceElement[] stackTrace,
+      final int first,
+      final int second,
+      final int length) {
+
+    for (int i = 0; i < length; i++) {
+      if (!Objects.equals(stackTrace[first + i], stackTrace[second + i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static List<String> nonNull(@Nullable final List<String> packages) {
+    return packages != null ? packages : Collections.emptyList();
+  }
+
+  private static boolean isIncluded(
+      final String className,
+      final List<String> includes,
+      final List<String> excludes) {
+
+    if (!includes.isEmpty() && !startsWithAny(className, includes)) {
+      return false;
+    }
+    return excludes.isEmpty() || !startsWithAny(className, excludes);
+  }
+
+  private static boolean startsWithAny(final String className, final List<String> prefixes) {
+    for (final String prefix : prefixes) {
+      if (prefix != null && className.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Calculates a 64-bit FNV-1a hash of the class names, method names and line numbers of the
+   * first frames. The hash is stable across virtual machines.
+   *
+   * @param hash   the initial hash
+   * @param frames the frames
+   * @param limit  the maximum number of frames
+   * @return the hash
+   */
+  static long fingerprint(
+      final long hash,
+      @Nullable final List<StackTraceElement> frames,
+      final int limit) {
+
+    long h = hash;
+    if (frames != null) {
+      final int size = Math.min(limit, frames.size());
+      for (int i = 0; i < size; i++) {
+        final StackTraceElement frame = frames.get(i);
+        h = hash(h, frame.getClassName());
+        h = hash(h, frame.getMethodName());
+        h = hash(h, frame.getLineNumber());
+      }
+    }
+    return h;
+  }
+
+  /**
+   * Adds the given string to a 64-bit FNV-1a hash.
+   *
+   * @param hash  the hash
+   * @param value the string
+   * @return the new hash
+   */
+  static long hash(final long hash, @Nullable final String value) {
+    long h = hash;
+    if (value != null) {
+      for (int i = 0; i < value.length(); i++) {
+        h = (h ^ value.charAt(i)) * FNV_PRIME;
+      }
+    }
+    // separator, so that ("ab", "c") and ("a", "bc") differ
+    return (h ^ 0xFFFF) * FNV_PRIME;
+  }
+
+  /**
+   * Adds the given int to a 64-bit FNV-1a hash.
+   *
+   * @param hash  the hash
+   * @param value the int
+   * @return the new hash
+   */
+  static long hash(final long hash, final int value) {
+    long h = hash;
+    for (int shift = 0; shift < 32; shift += 8) {
+      h = (h ^ ((value >>> shift) & 0xFF)) * FNV_PRIME;
+    }
+    return h;
+  }
+
+  /**
+   * Formats the hash as hex string with 16 digits.
+   *
+   * @param hash the hash
+   * @return the hex string
+   */
+  static String toHex(final long hash) {
+    final String hex = Long.toHexString(hash);
+    return hex.length() < 16 ? "0000000000000000".substring(hex.length()) + hex : hex;
+  }
+
+}
@@ -23,8 +23,8 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import feign.Request.HttpMethod;
 import feign.Response;
 import feign.RetryableException;
-import feign.Util;
 import feign.codec.ErrorDecoder;
+import java.io.InputStream;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
@@ -32,6 +32,7 @@ import java.util.Date;
 import lombok.extern.slf4j.Slf4j;
 import org.bremersee.exception.RestApiExceptionParser;
 import org.bremersee.exception.RestApiExceptionParserImpl;
+import org.bremersee.exception.RestApiExceptionUtils;
 import org.bremersee.exception.model.RestApiException;
 import org.bremersee.http.HttpHeadersHelper;
 import org.springframework.http.HttpHeaders;
@@ -40,6 +41,12 @@ import org.springframework.http.HttpHeaders;
  * This error decoder produces either a {@link FeignClientException} or a {@link
  * feign.RetryableException}.
  *
+ * <p>The response body is passed as input stream to the parser, so that it is not materialized as
+ * string (see {@link RestApiExceptionParser#parseExceptionFromStream(InputStream, java.util.Map)}).
+ * If the response is marked as headers only response (see {@link
+ * RestApiExceptionUtils#isHeadersOnly(java.util.Map)}), the body is not read at all.
+ * Such responses can be requested with the {@link HeadersOnlyRequestInterceptor}.
+ *
  * @author Christian Bremer
  */
 @Slf4j
@@ -82,13 +89,10 @@ public class FeignClientExceptionErrorDecoder implements ErrorDecoder {
     if (log.isDebugEnabled()) {
       log.debug("msg=[Decoding error at {}]", methodKey);
     }
-    final String body = readBody(response);
     final String message = format("status %s reading %s", response.status(), methodKey);
-    final RestApiException restApiException = parser.parseException(
-        body, response.headers());
-    if (log.isDebugEnabled() && body != null) {
-      log.debug("msg=[Is error formatted as rest api exception? {}]",
-          restApiException != null && !body.equals(restApiException.getMessage()));
+    final RestApiException restApiException = parseBody(response);
+    if (log.isDebugEnabled()) {
+      log.debug("msg=[Decoded error.] restApiException=[{}]", restApiException);
     }
     final FeignClientException feignClientException = new FeignClientException(
         response.request(),
@@ -110,14 +114,14 @@ public class FeignClientExceptionErrorDecoder implements ErrorDecoder {
     return feignClientException;
   }
 
-  private String readBody(final Response response) {
-    if (response.body() == null) {
-      return null;
+  private RestApiException parseBody(final Response response) {
+    if (response.body() == null || RestApiExceptionUtils.isHeadersOnly(response.headers())) {
+      return parser.parseExceptionFromStream(null, response.headers());
     }
-    try {
-      return Util.toString(response.body().asReader());
+    try (InputStream body = response.body().asInputStream()) {
+      return parser.parseExceptionFromStream(body, response.headers());
     } catch (Exception ignored) {
-      return null;
+      return parser.parseExceptionFromStream(null, response.headers());
     }
   }
 
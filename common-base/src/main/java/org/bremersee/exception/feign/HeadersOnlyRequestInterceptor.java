@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.bremersee.exception.feign;
+
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import org.bremersee.exception.HeadersOnlyMode;
+import org.bremersee.exception.RestApiExceptionUtils;
+
+/**
+ * This request interceptor requests error responses without body by adding the header {@link
+ * RestApiExceptionUtils#TRANSPORT_HEADER_NAME} with the value {@link
+ * RestApiExceptionUtils#HEADERS_ONLY_VALUE} to every request (see {@link
+ * HeadersOnlyMode#ON_REQUEST}). The {@link FeignClientExceptionErrorDecoder} builds the exception
+ * of such a response from the headers. A transport header, that is already set, is not changed.
+ *
+ * @author Christian Bremer
+ */
+@SuppressWarnings("unused")
+public class HeadersOnlyRequestInterceptor implements RequestInterceptor {
+
+  @Override
+  public void apply(RequestTemplate template) {
+    if (!template.headers().containsKey(RestApiExceptionUtils.TRANSPORT_HEADER_NAME)) {
+      template.header(
+          RestApiExceptionUtils.TRANSPORT_HEADER_NAME,
+          RestApiExceptionUtils.HEADERS_ONLY_VALUE);
+    }
+  }
+
+}
@@ -24,6 +24,12 @@ import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 /**
  * Helper to create an {@link ObjectMapper} for JSON and XML.
  *
+ * <p>{@link #getJsonMapper()} and {@link #getXmlMapper()} create a new object mapper on each
+ * call, that can be configured by the caller. Building an object mapper is expensive, so callers,
+ * that don't change the configuration, should use the shared instances of {@link
+ * #getSharedJsonMapper()} and {@link #getSharedXmlMapper()}. They are thread-safe as long as they
+ * are not reconfigured.
+ *
  * @author Christian Bremer
  */
 public abstract class ObjectMapperHelper {
@@ -32,7 +38,25 @@ public abstract class ObjectMapperHelper {
   }
 
   /**
-   * Gets an object mapper for JSON.
+   * Gets the shared object mapper for JSON. It must not be reconfigured.
+   *
+   * @return the shared object mapper for JSON
+   */
+  public static ObjectMapper getSharedJsonMapper() {
+    return JsonMapperHolder.INSTANCE;
+  }
+
+  /**
+   * Gets the shared object mapper for XML. It must not be reconfigured.
+   *
+   * @return the shared object mapper for XML
+   */
+  public static XmlMapper getSharedXmlMapper() {
+    return XmlMapperHolder.INSTANCE;
+  }
+
+  /**
+   * Gets a new object mapper for JSON.
    *
    * @return an object mapper for JSON
    */
@@ -45,7 +69,7 @@ public abstract class ObjectMapperHelper {
   }
 
   /**
-   * Gets an object mapper for XML.
+   * Gets a new object mapper for XML.
    *
    * @return an object mapper for XML
    */
@@ -57,4 +81,21 @@ public abstract class ObjectMapperHelper {
         .build();
   }
 
+  /**
+   * Creates the shared json mapper, when it is used for the first time.
+   */
+  private static final class JsonMapperHolder {
+
+    private static final ObjectMapper INSTANCE = getJsonMapper();
+  }
+
+  /**
+   * Creates the shared xml mapper, when it is used for the first time (so that jackson xml is
+   * only required, if it is used).
+   */
+  private static final class XmlMapperHolder {
+
+    private static final XmlMapper INSTANCE = getXmlMapper();
+  }
+
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import java.util.Collection;
+import lombok.ToString;
+import org.bremersee.common.model.AccessControlEntry;
+import org.bremersee.common.model.AccessControlList;
+import org.springframework.lang.Nullable;
+
+/**
+ * An access controller that evaluates an access control list (dto) directly, without copying
+ * it. The permissions of the entries are compared case insensitive. Changes of the access control
+ * list are visible immediately.
+ *
+ * @author Christian Bremer
+ */
+@ToString
+final class AccessControlListView implements AccessController {
+
+  private final AccessControlList acl;
+
+  /**
+   * Instantiates a new access control list view.
+   *
+   * @param acl the access control list
+   */
+  AccessControlListView(@Nullable final AccessControlList acl) {
+    this.acl = acl;
+  }
+
+  @Override
+  public boolean hasPermission(
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups,
+      @Nullable final String permission) {
+    return hasPermission(acl, user, roles, groups, permission);
+  }
+
+  @Override
+  public boolean hasPermission(
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission) {
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return hasPermission(acl, p.getUser(), p.getRoles(), p.getGroups(), permission);
+  }
+
+  /**
+   * Determines whether the given user with the given roles and groups has the specified
+   * permission.
+   *
+   * @param acl        the access control list
+   * @param user       the user
+   * @param roles      the roles
+   * @param groups     the groups
+   * @param permission the permission
+   * @return {@code true} if the user has the permission, otherwise {@code false}
+   */
+  static boolean hasPermission(
+      @Nullable final AccessControlList acl,
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups,
+      @Nullable final String permission) {
+
+    if (acl == null || permission == null) {
+      return false;
+    }
+    if (user != null && user.equals(acl.getOwner())) {
+      return true;
+    }
+    if (acl.getEntries() == null) {
+      return false;
+    }
+    for (final AccessControlEntry entry : acl.getEntries()) {
+      if (entry != null
+          && permission.equalsIgnoreCase(entry.getPermission())
+          && grants(entry, user, roles, groups)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean grants(
+      final AccessControlEntry entry,
+      final String user,
+      final Collection<String> roles,
+      final Collection<String> groups) {
+
+    if (Boolean.TRUE.equals(entry.getGuest())) {
+      return true;
+    }
+    return (user != null && entry.getUsers() != null && entry.getUsers().contains(user))
+        || containsAny(roles, entry.getRoles())
+        || containsAny(groups, entry.getGroups());
+  }
+
+  private static boolean containsAny(
+      final Collection<String> names,
+      final Collection<String> granted) {
+
+    if (names == null || names.isEmpty() || granted == null || granted.isEmpty()) {
+      return false;
+    }
+    // the granted names are a list, so the names of the caller are looked up
+    for (final String name : granted) {
+      if (name != null && names.contains(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
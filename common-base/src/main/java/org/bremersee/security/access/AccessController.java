@@ -50,6 +50,134 @@ public interface AccessController {
     return acl == null ? new Impl() : new Impl(AclBuilder.builder().from(acl).buildAcl());
   }
 
+  /**
+   * Creates an access controller that evaluates the given access control list directly, without
+   * copying it. It should be used, if the access control list is checked only a few times.
+   *
+   * @param acl the access control list
+   * @return the access controller
+   */
+  static AccessController view(@Nullable AccessControlList acl) {
+    return new AccessControlListView(acl);
+  }
+
+  /**
+   * Creates an access controller that evaluates the given access control list directly, without
+   * copying it. It should be used, if the access control list is checked only a few times.
+   *
+   * @param acl the access control list
+   * @return the access controller
+   */
+  static AccessController view(@Nullable Acl<? extends Ace> acl) {
+    return new AclView(acl);
+  }
+
+  /**
+   * Creates an access controller from the given access control list, that applies the given
+   * permission implications.
+   *
+   * @param acl          the access control list
+   * @param implications the permission implications
+   * @return the access controller
+   */
+  static AccessController from(
+      @Nullable AccessControlList acl,
+      @Nullable PermissionImplications implications) {
+    return ImplyingAccessController.of(from(acl), implications);
+  }
+
+  /**
+   * Creates an access controller from the given access control list, that applies the given
+   * permission implications.
+   *
+   * @param acl          the access control list
+   * @param implications the permission implications
+   * @return the access controller
+   */
+  static AccessController from(
+      @Nullable Acl acl,
+      @Nullable PermissionImplications implications) {
+    return ImplyingAccessController.of(from(acl), implications);
+  }
+
+  /**
+   * Creates an access controller that evaluates the given access control list directly with the
+   * given permission implications.
+   *
+   * @param acl          the access control list
+   * @param implications the permission implications
+   * @return the access controller
+   */
+  static AccessController view(
+      @Nullable AccessControlList acl,
+      @Nullable PermissionImplications implications) {
+    return ImplyingAccessController.of(view(acl), implications);
+  }
+
+  /**
+   * Creates an access controller that evaluates the given access control list directly with the
+   * given permission implications.
+   *
+   * @param acl          the access control list
+   * @param implications the permission implications
+   * @return the access controller
+   */
+  static AccessController view(
+      @Nullable Acl<? extends Ace> acl,
+      @Nullable PermissionImplications implications) {
+    return ImplyingAccessController.of(view(acl), implications);
+  }
+
+  /**
+   * Compiles the given access control list into an immutable access controller, that should be
+   * used, if the access control list is checked many times.
+   *
+   * @param acl the access control list
+   * @return the compiled access controller
+   */
+  static CompiledAccessController compile(@Nullable AccessControlList acl) {
+    return CompiledAccessController.compile(acl);
+  }
+
+  /**
+   * Compiles the given access control list into an immutable access controller, that should be
+   * used, if the access control list is checked many times.
+   *
+   * @param acl the access control list
+   * @return the compiled access controller
+   */
+  static CompiledAccessController compile(@Nullable Acl<? extends Ace> acl) {
+    return CompiledAccessController.compile(acl);
+  }
+
+  /**
+   * Compiles the given access control list with the given permission implications into an
+   * immutable access controller.
+   *
+   * @param acl          the access control list
+   * @param implications the permission implications
+   * @return the compiled access controller
+   */
+  static CompiledAccessController compile(
+      @Nullable AccessControlList acl,
+      @Nullable PermissionImplications implications) {
+    return CompiledAccessController.compile(acl, implications);
+  }
+
+  /**
+   * Compiles the given access control list with the given permission implications into an
+   * immutable access controller.
+   *
+   * @param acl          the access control list
+   * @param implications the permission implications
+   * @return the compiled access controller
+   */
+  static CompiledAccessController compile(
+      @Nullable Acl<? extends Ace> acl,
+      @Nullable PermissionImplications implications) {
+    return CompiledAccessController.compile(acl, implications);
+  }
+
   /**
    * Determines whether the given user with the given roles and groups has the specified
    * permission.
@@ -158,6 +286,125 @@ public interface AccessController {
         .allMatch(permission -> hasPermission(user, roles, groups, permission));
   }
 
+  /**
+   * Returns the effective permissions of the given user with the given roles and groups as a bit
+   * mask over the known permissions (see {@link PermissionMask}). Permissions that are not known
+   * are not included.
+   *
+   * @param user   the user
+   * @param roles  the roles
+   * @param groups the groups
+   * @return the mask of the effective permissions
+   */
+  default long effectivePermissions(
+      @Nullable String user,
+      @Nullable Collection<String> roles,
+      @Nullable Collection<String> groups) {
+
+    long mask = PermissionMask.NONE;
+    for (int i = 0; i < PermissionConstants.ALL.length; i++) {
+      if (hasPermission(user, roles, groups, PermissionConstants.ALL[i])) {
+        mask |= 1L << i;
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Determines whether the given principal has the specified permission.
+   *
+   * @param principal  the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permission the permission
+   * @return {@code true} if the principal has the permission, otherwise {@code false}
+   */
+  default boolean hasPermission(
+      @Nullable AccessPrincipal principal,
+      @Nullable String permission) {
+
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return hasPermission(p.getUser(), p.getRoles(), p.getGroups(), permission);
+  }
+
+  /**
+   * Determines whether the given principal has at least one of the specified permissions.
+   *
+   * @param principal   the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permissions the permissions
+   * @return {@code true} if the principal has at least one permission, otherwise {@code false}
+   */
+  default boolean hasAnyPermission(
+      @Nullable AccessPrincipal principal,
+      @Nullable String... permissions) {
+
+    return hasAnyPermission(
+        principal,
+        permissions == null ? Collections.emptyList() : Arrays.asList(permissions));
+  }
+
+  /**
+   * Determines whether the given principal has at least one of the specified permissions.
+   *
+   * @param principal   the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permissions the permissions
+   * @return {@code true} if the principal has at least one permission, otherwise {@code false}
+   */
+  default boolean hasAnyPermission(
+      @Nullable AccessPrincipal principal,
+      @Nullable Collection<String> permissions) {
+
+    return permissions != null
+        && !permissions.isEmpty()
+        && permissions
+        .stream()
+        .anyMatch(permission -> hasPermission(principal, permission));
+  }
+
+  /**
+   * Determines whether the given principal has all specified permissions.
+   *
+   * @param principal   the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permissions the permissions
+   * @return {@code true} if the principal has all permissions, otherwise {@code false}
+   */
+  default boolean hasAllPermissions(
+      @Nullable AccessPrincipal principal,
+      @Nullable String... permissions) {
+
+    return hasAllPermissions(
+        principal,
+        permissions == null ? Collections.emptyList() : Arrays.asList(permissions));
+  }
+
+  /**
+   * Determines whether the given principal has all specified permissions.
+   *
+   * @param principal   the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permissions the permissions
+   * @return {@code true} if the principal has all permissions, otherwise {@code false}
+   */
+  default boolean hasAllPermissions(
+      @Nullable AccessPrincipal principal,
+      @Nullable Collection<String> permissions) {
+
+    return permissions != null
+        && !permissions.isEmpty()
+        && permissions
+        .stream()
+        .allMatch(permission -> hasPermission(principal, permission));
+  }
+
+  /**
+   * Returns the effective permissions of the given principal as a bit mask over the known
+   * permissions (see {@link PermissionMask}).
+   *
+   * @param principal the principal (if it is {@code null}, the anonymous principal is used)
+   * @return the mask of the effective permissions
+   */
+  default long effectivePermissions(@Nullable AccessPrincipal principal) {
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return effectivePermissions(p.getUser(), p.getRoles(), p.getGroups());
+  }
+
   /**
    * The default access controller implementation.
    */
@@ -197,18 +444,14 @@ public interface AccessController {
       if (user != null && user.equals(acl.getOwner())) {
         return true;
       }
-      final Map<String, ? extends Ace> map = acl.entryMap();
-      if (map == null) {
-        return false;
-      }
-      final Ace ace = map.get(permission.toLowerCase());
+      final Ace ace = findAce(permission);
       if (ace == null) {
         return false;
       }
       if (ace.isGuest()) {
         return true;
       }
-      if (ace.getUsers().contains(user)) {
+      if (user != null && ace.getUsers().contains(user)) {
         return true;
       }
       if (roles != null && roles.stream().anyMatch(role -> ace.getRoles().contains(role))) {
@@ -216,6 +459,50 @@ public interface AccessController {
       }
       return groups != null && groups.stream().anyMatch(group -> ace.getGroups().contains(group));
     }
+
+    /**
+     * Determines whether the given principal has the specified permission. The roles and groups
+     * of the entry are looked up in the hash based sets of the principal.
+     *
+     * @param principal  the principal
+     * @param permission the permission
+     * @return {@code true} if the principal has the permission, otherwise {@code false}
+     */
+    @Override
+    public boolean hasPermission(
+        final AccessPrincipal principal,
+        final String permission) {
+
+      if (acl == null) {
+        return false;
+      }
+      if (permission == null) {
+        return false;
+      }
+      final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+      if (p.getUser() != null && p.getUser().equals(acl.getOwner())) {
+        return true;
+      }
+      final Ace ace = findAce(permission);
+      if (ace == null) {
+        return false;
+      }
+      if (ace.isGuest()) {
+        return true;
+      }
+      if (p.getUser() != null && ace.getUsers().contains(p.getUser())) {
+        return true;
+      }
+      if (ace.getRoles().stream().anyMatch(role -> p.getRoles().contains(role))) {
+        return true;
+      }
+      return ace.getGroups().stream().anyMatch(group -> p.getGroups().contains(group));
+    }
+
+    private Ace findAce(final String permission) {
+      final Map<String, ? extends Ace> map = acl.entryMap();
+      return map != null ? map.get(permission.toLowerCase()) : null;
+    }
   }
 
 }
@@ -0,0 +1,396 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import static org.springframework.util.Assert.isTrue;
+import static org.springframework.util.Assert.notNull;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.bremersee.common.model.AccessControlList;
+import org.springframework.lang.Nullable;
+
+/**
+ * A size bounded cache of access controllers (normally compiled access controllers) with least
+ * recently used eviction and an optional time to live.
+ *
+ * <p>The cache key is the id of the resource (e. g. the id of a document). Together with the
+ * access controller the caller supplied version (or hash) of the access control list is stored.
+ * If the version changes, the cached access controller is replaced.
+ *
+ * <p>The cache is divided into segments, the maximum size is distributed over them. A lookup
+ * doesn't lock, only a modification of a segment does. The recency of a hit is recorded only,
+ * if the lock of the segment is free, so under contention the eviction order is approximately
+ * least recently used.
+ *
+ * @author Christian Bremer
+ */
+@SuppressWarnings("WeakerAccess")
+public class AccessControllerCache {
+
+  private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+  private final Segment[] segments;
+
+  private final long timeToLiveNanos;
+
+  private final LongSupplier nanoClock;
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  @Getter
+  private final int maximumSize;
+
+  /**
+   * Instantiates a new access controller cache without a time to live.
+   *
+   * @param maximumSize the maximum size
+   */
+  public AccessControllerCache(int maximumSize) {
+    this(maximumSize, null);
+  }
+
+  /**
+   * Instantiates a new access controller cache.
+   *
+   * @param maximumSize the maximum size
+   * @param timeToLive  the time to live of an entry (can be {@code null})
+   */
+  public AccessControllerCache(int maximumSize, @Nullable Duration timeToLive) {
+    this(maximumSize, timeToLive, DEFAULT_CONCURRENCY_LEVEL, System::nanoTime);
+  }
+
+  /**
+   * Instantiates a new access controller cache.
+   *
+   * @param maximumSize      the maximum size
+   * @param timeToLive       the time to live of an entry (can be {@code null})
+   * @param concurrencyLevel the number of segments
+   * @param nanoClock        the clock that returns the nano time
+   */
+  AccessControllerCache(
+      final int maximumSize,
+      @Nullable final Duration timeToLive,
+      final int concurrencyLevel,
+      @NotNull final LongSupplier nanoClock) {
+
+    isTrue(maximumSize > 0, "Maximum size must be greater than zero.");
+    isTrue(concurrencyLevel > 0, "Concurrency level must be greater than zero.");
+    notNull(nanoClock, "Nano clock must not be null.");
+    this.maximumSize = maximumSize;
+    this.timeToLiveNanos = timeToLive == null || timeToLive.isNegative() || timeToLive.isZero()
+        ? Long.MAX_VALUE
+        : timeToLive.toNanos();
+    this.nanoClock = nanoClock;
+    int segmentCount = 1;
+    while (segmentCount < concurrencyLevel && (segmentCount << 1) <= maximumSize) {
+      segmentCount <<= 1;
+    }
+    final int segmentCapacity = maximumSize / segmentCount;
+    final int remainder = maximumSize % segmentCount;
+    this.segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment(i < remainder ? segmentCapacity + 1 : segmentCapacity);
+    }
+  }
+
+  private Segment segmentFor(final String resourceId) {
+    final int h = resourceId.hashCode();
+    return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+  }
+
+  private boolean isExpired(final CacheEntry entry, final long now) {
+    return timeToLiveNanos != Long.MAX_VALUE && now - entry.createdAt >= timeToLiveNanos;
+  }
+
+  /**
+   * Returns the cached access controller of the given resource, if it exists and has the given
+   * version.
+   *
+   * @param resourceId the resource id
+   * @param version    the version (or hash) of the access control list
+   * @return the access controller or {@code null}
+   */
+  @Nullable
+  public AccessController getIfPresent(@NotNull final String resourceId, final long version) {
+    notNull(resourceId, "Resource id must not be null.");
+    final Segment segment = segmentFor(resourceId);
+    final long now = nanoClock.getAsLong();
+    final CacheEntry entry = segment.entries.get(resourceId);
+    if (entry != null && entry.version == version) {
+      if (!isExpired(entry, now)) {
+        hits.increment();
+        segment.recordAccess(resourceId);
+        return entry.accessController;
+      }
+      segment.lock.lock();
+      try {
+        if (segment.entries.remove(resourceId, entry)) {
+          segment.order.remove(resourceId);
+          evictions.increment();
+        }
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    misses.increment();
+    return null;
+  }
+
+  /**
+   * Returns the cached access controller of the given resource. If it doesn't exist or if it has
+   * another version, the access controller is created with the given factory and cached.
+   *
+   * @param resourceId the resource id
+   * @param version    the version (or hash) of the access control list
+   * @param factory    the factory that creates the access controller
+   * @return the access controller
+   */
+  public AccessController get(
+      @NotNull final String resourceId,
+      final long version,
+      @NotNull final Supplier<? extends AccessController> factory) {
+
+    final AccessController cached = getIfPresent(resourceId, version);
+    if (cached != null) {
+      return cached;
+    }
+    notNull(factory, "Factory must not be null.");
+    final AccessController accessController = factory.get();
+    notNull(accessController, "Factory must not return null.");
+    final Segment segment = segmentFor(resourceId);
+    final long now = nanoClock.getAsLong();
+    segment.lock.lock();
+    try {
+      final CacheEntry entry = segment.entries.get(resourceId);
+      if (entry != null && entry.version == version && !isExpired(entry, now)) {
+        return entry.accessController; // created concurrently by another thread
+      }
+      final CacheEntry newEntry = new CacheEntry(version, accessController, now);
+      segment.entries.put(resourceId, newEntry);
+      segment.order.put(resourceId, newEntry);
+    } finally {
+      segment.lock.unlock();
+    }
+    return accessController;
+  }
+
+  /**
+   * Returns the cached access controller of the given resource. If it doesn't exist or if it has
+   * another version, the given access control list is compiled and cached.
+   *
+   * @param resourceId the resource id
+   * @param version    the version (or hash) of the access control list
+   * @param acl        the access control list
+   * @return the access controller
+   */
+  public AccessController get(
+      @NotNull final String resourceId,
+      final long version,
+      @Nullable final Acl<? extends Ace> acl) {
+    return get(resourceId, version, () -> CompiledAccessController.compile(acl));
+  }
+
+  /**
+   * Returns the cached access controller of the given resource. If it doesn't exist or if it has
+   * another version, the given access control list is compiled and cached.
+   *
+   * @param resourceId the resource id
+   * @param version    the version (or hash) of the access control list
+   * @param acl        the access control list
+   * @return the access controller
+   */
+  public AccessController get(
+      @NotNull final String resourceId,
+      final long version,
+      @Nullable final AccessControlList acl) {
+    return get(resourceId, version, () -> CompiledAccessController.compile(acl));
+  }
+
+  /**
+   * Removes the access controller of the given resource.
+   *
+   * @param resourceId the resource id
+   */
+  public void invalidate(@Nullable final String resourceId) {
+    if (resourceId != null) {
+      final Segment segment = segmentFor(resourceId);
+      segment.lock.lock();
+      try {
+        segment.entries.remove(resourceId);
+        segment.order.remove(resourceId);
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Removes all access controllers.
+   */
+  public void invalidateAll() {
+    for (final Segment segment : segments) {
+      segment.lock.lock();
+      try {
+        segment.entries.clear();
+        segment.order.clear();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of cached access controllers (including expired ones that are not removed
+   * yet).
+   *
+   * @return the size
+   */
+  public int size() {
+    int size = 0;
+    for (final Segment segment : segments) {
+      size += segment.entries.size();
+    }
+    return size;
+  }
+
+  /**
+   * Returns the statistics of this cache.
+   *
+   * @return the statistics
+   */
+  public Stats getStats() {
+    return new Stats(hits.sum(), misses.sum(), evictions.sum(), size());
+  }
+
+  /**
+   * A segment of the cache.
+   */
+  private final class Segment {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    private final LinkedHashMap<String, CacheEntry> order;
+
+    private Segment(final int capacity) {
+      this.order = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, CacheEntry> eldest) {
+          if (size() > capacity) {
+            entries.remove(eldest.getKey());
+            evictions.increment();
+            return true;
+          }
+          return false;
+        }
+      };
+    }
+
+    private void recordAccess(final String resourceId) {
+      if (lock.tryLock()) {
+        try {
+          order.get(resourceId);
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
+  /**
+   * A cache entry.
+   */
+  private static final class CacheEntry {
+
+    private final long version;
+
+    private final AccessController accessController;
+
+    private final long createdAt;
+
+    private CacheEntry(
+        final long version,
+        final AccessController accessController,
+        final long createdAt) {
+      this.version = version;
+      this.accessController = accessController;
+      this.createdAt = createdAt;
+    }
+  }
+
+  /**
+   * The statistics of the cache.
+   */
+  @Getter
+  @ToString
+  @EqualsAndHashCode
+  public static class Stats {
+
+    private final long hitCount;
+
+    private final long missCount;
+
+    private final long evictionCount;
+
+    private final int size;
+
+    /**
+     * Instantiates new statistics.
+     *
+     * @param hitCount      the hit count
+     * @param missCount     the miss count
+     * @param evictionCount the eviction count (including expired entries)
+     * @param size          the size
+     */
+    public Stats(long hitCount, long missCount, long evictionCount, int size) {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+      this.size = size;
+    }
+
+    /**
+     * Gets hit rate.
+     *
+     * @return the hit rate
+     */
+    public double getHitRate() {
+      final long requests = hitCount + missCount;
+      return requests == 0L ? 1.0 : (double) hitCount / (double) requests;
+    }
+  }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import lombok.ToString;
+import org.springframework.lang.Nullable;
+
+/**
+ * The subject of an access control check: a user with roles and groups.
+ *
+ * <p>The roles and groups are kept in hash based sets. A principal is immutable and should be
+ * created once per request and reused for all access control checks of that request.
+ *
+ * @author Christian Bremer
+ */
+@ToString
+public final class AccessPrincipal {
+
+  private static final AccessPrincipal ANONYMOUS = new AccessPrincipal(
+      null, Collections.emptySet(), Collections.emptySet());
+
+  private final String user;
+
+  private final Set<String> roles;
+
+  private final Set<String> groups;
+
+  @ToString.Exclude
+  private final int hash;
+
+  @ToString.Exclude
+  private volatile long fingerprint;
+
+  private AccessPrincipal(
+      final String user,
+      final Set<String> roles,
+      final Set<String> groups) {
+    this.user = user;
+    this.roles = roles;
+    this.groups = groups;
+    this.hash = Objects.hash(user, roles, groups);
+  }
+
+  /**
+   * Returns the anonymous principal, that has no name, no roles and no groups.
+   *
+   * @return the anonymous principal
+   */
+  public static AccessPrincipal anonymous() {
+    return ANONYMOUS;
+  }
+
+  /**
+   * Creates a new principal.
+   *
+   * @param user   the user
+   * @param roles  the roles
+   * @param groups the groups
+   * @return the principal
+   */
+  public static AccessPrincipal of(
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups) {
+    return new AccessPrincipal(user, toSet(roles), toSet(groups));
+  }
+
+  private static Set<String> toSet(final Collection<String> names) {
+    if (names == null || names.isEmpty()) {
+      return Collections.emptySet();
+    }
+    final Set<String> set = new HashSet<>(names.size() * 2);
+    for (final String name : names) {
+      if (name != null) {
+        set.add(name);
+      }
+    }
+    return set.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(set);
+  }
+
+  /**
+   * Gets user.
+   *
+   * @return the user
+   */
+  @Nullable
+  public String getUser() {
+    return user;
+  }
+
+  /**
+   * Gets roles.
+   *
+   * @return the unmodifiable roles
+   */
+  public Set<String> getRoles() {
+    return roles;
+  }
+
+  /**
+   * Gets groups.
+   *
+   * @return the unmodifiable groups
+   */
+  public Set<String> getGroups() {
+    return groups;
+  }
+
+  /**
+   * Returns a 64 bit fingerprint of this principal. It is derived from a SHA-256 digest of the
+   * user, the roles and the groups, so it is practically impossible to create a principal with
+   * the fingerprint of another one. The fingerprint is never {@code 0}.
+   *
+   * @return the fingerprint
+   */
+  public long fingerprint() {
+    long fp = fingerprint;
+    if (fp == 0L) {
+      fp = computeFingerprint();
+      fingerprint = fp;
+    }
+    return fp;
+  }
+
+  private long computeFingerprint() {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available.", e);
+    }
+    update(digest, user);
+    update(digest, roles);
+    update(digest, groups);
+    final byte[] bytes = digest.digest();
+    long fp = 0L;
+    for (int i = 0; i < 8; i++) {
+      fp = (fp << 8) | (bytes[i] & 0xFFL);
+    }
+    return fp == 0L ? 1L : fp;
+  }
+
+  private static void update(final MessageDigest digest, final Set<String> names) {
+    final List<String> sorted = new ArrayList<>(names);
+    Collections.sort(sorted);
+    update(digest, String.valueOf(sorted.size()));
+    for (final String name : sorted) {
+      update(digest, name);
+    }
+  }
+
+  private static void update(final MessageDigest digest, final String value) {
+    if (value == null) {
+      digest.update((byte) 0);
+    } else {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      digest.update((byte) 1);
+      digest.update(new byte[]{
+          (byte) (bytes.length >>> 24),
+          (byte) (bytes.length >>> 16),
+          (byte) (bytes.length >>> 8),
+          (byte) bytes.length});
+      digest.update(bytes);
+    }
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof AccessPrincipal)) {
+      return false;
+    }
+    final AccessPrincipal that = (AccessPrincipal) o;
+    return hash == that.hash
+        && Objects.equals(user, that.user)
+        && roles.equals(that.roles)
+        && groups.equals(that.groups);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+}
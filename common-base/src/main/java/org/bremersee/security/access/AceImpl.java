@@ -16,9 +16,12 @@
 
 package org.bremersee.security.access;
 
-import java.util.Collection;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.TreeSet;
 import javax.validation.constraints.NotNull;
 import lombok.ToString;
@@ -27,6 +30,10 @@ import org.springframework.validation.annotation.Validated;
 /**
  * The internal access control entry implementation.
  *
+ * <p>The hash code is cached. It is reset whenever the guest flag or one of the sets is changed.
+ * Like {@link String#hashCode()} the cache is a single field, where {@code 0} means not computed,
+ * so that a racy read sees either a valid hash code or none.
+ *
  * @author Christian Bremer
  */
 @ToString
@@ -41,13 +48,16 @@ class AceImpl implements Ace {
 
   private final Set<String> groups;
 
+  @ToString.Exclude
+  private int hash;
+
   /**
    * Instantiates a new access control entry.
    */
   AceImpl() {
-    this.users = new TreeSet<>();
-    this.roles = new TreeSet<>();
-    this.groups = new TreeSet<>();
+    this.users = new TrackedSet(new TreeSet<>());
+    this.roles = new TrackedSet(new TreeSet<>());
+    this.groups = new TrackedSet(new TreeSet<>());
   }
 
   @Override
@@ -57,7 +67,10 @@ class AceImpl implements Ace {
 
   @Override
   public void setGuest(boolean guest) {
-    this.guest = guest;
+    if (this.guest != guest) {
+      this.guest = guest;
+      hash = 0;
+    }
   }
 
   @Override
@@ -83,25 +96,124 @@ class AceImpl implements Ace {
     if (!(o instanceof Ace)) {
       return false;
     }
+    if (o instanceof AceImpl && hashCode() != o.hashCode()) {
+      return false;
+    }
     Ace ace = (Ace) o;
     return guest == ace.isGuest()
-        && treeSet(groups).equals(treeSet(ace.getGroups()))
-        && treeSet(roles).equals(treeSet(ace.getRoles()))
-        && treeSet(users).equals(treeSet(ace.getUsers()));
+        && groups.equals(ace.getGroups())
+        && roles.equals(ace.getRoles())
+        && users.equals(ace.getUsers());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(guest, treeSet(users), treeSet(roles), treeSet(groups));
+    int h = hash;
+    if (h == 0) {
+      h = Objects.hash(guest, users, roles, groups);
+      hash = h;
+    }
+    return h;
   }
 
-  private TreeSet<String> treeSet(Collection<String> collection) {
-    if (collection == null) {
-      return new TreeSet<>();
+  /**
+   * A sorted set, that resets the cached hash code of the entry, when it or one of its views is
+   * changed.
+   */
+  private final class TrackedSet extends AbstractSet<String> implements SortedSet<String> {
+
+    private final SortedSet<String> delegate;
+
+    private TrackedSet(final SortedSet<String> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Comparator<? super String> comparator() {
+      return delegate.comparator();
+    }
+
+    @Override
+    public SortedSet<String> subSet(final String fromElement, final String toElement) {
+      return new TrackedSet(delegate.subSet(fromElement, toElement));
+    }
+
+    @Override
+    public SortedSet<String> headSet(final String toElement) {
+      return new TrackedSet(delegate.headSet(toElement));
+    }
+
+    @Override
+    public SortedSet<String> tailSet(final String fromElement) {
+      return new TrackedSet(delegate.tailSet(fromElement));
     }
-    if (collection instanceof TreeSet) {
-      return (TreeSet<String>) collection;
+
+    @Override
+    public String first() {
+      return delegate.first();
+    }
+
+    @Override
+    public String last() {
+      return delegate.last();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      final Iterator<String> iterator = delegate.iterator();
+      return new Iterator<String>() {
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public String next() {
+          return iterator.next();
+        }
+
+        @Override
+        public void remove() {
+          iterator.remove();
+          hash = 0;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return delegate.size();
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+      return delegate.contains(o);
+    }
+
+    @Override
+    public boolean add(final String s) {
+      if (delegate.add(s)) {
+        hash = 0;
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+      if (delegate.remove(o)) {
+        hash = 0;
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public void clear() {
+      if (!delegate.isEmpty()) {
+        delegate.clear();
+        hash = 0;
+      }
     }
-    return new TreeSet<>(collection);
   }
 }
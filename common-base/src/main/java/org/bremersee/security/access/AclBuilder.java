@@ -182,6 +182,24 @@ public interface AclBuilder {
    */
   AclBuilder removeAdminAccess(@Nullable String adminRole, @Nullable String... permissions);
 
+  /**
+   * Removes the users, roles, groups and guest flags, that are redundant because of the given
+   * permission implications. If for example write implies read, a user with the permission to
+   * write is removed from the entry of the read permission. Permissions, that imply each other,
+   * are not compacted.
+   *
+   * <p>The compacted acl must be evaluated with the same implications, e. g. by {@link
+   * AccessController#compile(Acl, PermissionImplications)}, {@link AccessController#from(Acl,
+   * PermissionImplications)}, {@link AccessController#view(Acl, PermissionImplications)} or
+   * {@link AclFilter#forAcl(java.util.function.Function, AccessPrincipal, String,
+   * PermissionImplications)}. Access controllers and filters without the implications deny the
+   * removed grants.
+   *
+   * @param implications the permission implications
+   * @return the acl builder
+   */
+  AclBuilder compact(@Nullable PermissionImplications implications);
+
   /**
    * Build acl.
    *
@@ -228,11 +246,10 @@ public interface AclBuilder {
     @Override
     public AclBuilder defaults(final String... permissions) {
       if (permissions != null) {
-        Arrays.stream(permissions).forEach(permission -> {
-          if (!entries.containsKey(permission)) {
-            entries.put(permission.toLowerCase(), new AceImpl());
-          }
-        });
+        Arrays.stream(permissions)
+            .filter(StringUtils::hasText)
+            .map(String::toLowerCase)
+            .forEach(permission -> entries.computeIfAbsent(permission, p -> new AceImpl()));
       }
       return this;
     }
@@ -439,6 +456,27 @@ public interface AclBuilder {
       return this;
     }
 
+    @Override
+    public AclBuilder compact(final PermissionImplications implications) {
+      if (implications != null && !implications.isEmpty()) {
+        entries.forEach((permission, ace) -> implications
+            .getImplyingPermissions(permission)
+            .stream()
+            .filter(implying -> !implications.implies(permission, implying))
+            .map(entries::get)
+            .filter(Objects::nonNull)
+            .forEach(implyingAce -> {
+              if (implyingAce.isGuest()) {
+                ace.setGuest(false);
+              }
+              ace.getUsers().removeAll(implyingAce.getUsers());
+              ace.getRoles().removeAll(implyingAce.getRoles());
+              ace.getGroups().removeAll(implyingAce.getGroups());
+            }));
+      }
+      return this;
+    }
+
     @Override
     public <T> T build(AclFactory<T> factory) {
       return factory.createAccessControlList(owner, entries);
@@ -0,0 +1,547 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import static org.springframework.util.Assert.notNull;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.validation.constraints.NotNull;
+import org.bremersee.common.model.AccessControlEntry;
+import org.bremersee.common.model.AccessControlList;
+import org.bremersee.security.access.CompiledAccessController.AceCompiler;
+import org.springframework.lang.Nullable;
+
+/**
+ * A compact binary format of access control lists.
+ *
+ * <p>Every string (the owner, the permissions and the names of the users, roles and groups) is
+ * written once into a dictionary; the entries refer to it by index. All numbers are written as
+ * variable length integers (7 bits per byte). The layout is:
+ * <pre>
+ * magic (1 byte) version (1 byte) flags (1 byte)
+ * dictionary size, (length, utf-8 bytes)*
+ * owner index + 1 (0 is null)
+ * entry count, (permission index, guest, user count, user index*, role count, role index*,
+ *               group count, group index*)*
+ * </pre>
+ *
+ * <p>The encoded access control lists can be written one after another into the same buffer and
+ * read in the same order. An encoded access control list can be decoded directly into a {@link
+ * CompiledAccessController} without creating any access control entries.
+ *
+ * @author Christian Bremer
+ */
+@SuppressWarnings("WeakerAccess")
+public abstract class AclCodec {
+
+  private static final byte MAGIC = (byte) 0xAC;
+
+  private static final byte VERSION = 1;
+
+  private static final byte FLAG_NULL = 1;
+
+  private static final int GUEST_FALSE = 0;
+
+  private static final int GUEST_TRUE = 1;
+
+  private static final int GUEST_NULL = 2;
+
+  private AclCodec() {
+  }
+
+  /**
+   * Encodes the given access control list.
+   *
+   * @param acl the access control list (can be {@code null})
+   * @return the buffer, that is ready to be read
+   */
+  public static ByteBuffer encode(@Nullable final Acl<? extends Ace> acl) {
+    final Encoder encoder = Encoder.of(acl);
+    final ByteBuffer buffer = ByteBuffer.allocate(encoder.size());
+    encoder.writeTo(buffer);
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Encodes the given access control list into the given buffer.
+   *
+   * @param acl    the access control list (can be {@code null})
+   * @param target the target buffer
+   * @throws java.nio.BufferOverflowException if the buffer is too small
+   */
+  public static void encode(
+      @Nullable final Acl<? extends Ace> acl,
+      @NotNull final ByteBuffer target) {
+    notNull(target, "Target buffer must not be null.");
+    Encoder.of(acl).writeTo(target);
+  }
+
+  /**
+   * Encodes the given access control list.
+   *
+   * @param acl the access control list (can be {@code null})
+   * @return the buffer, that is ready to be read
+   */
+  public static ByteBuffer encode(@Nullable final AccessControlList acl) {
+    final Encoder encoder = Encoder.of(acl);
+    final ByteBuffer buffer = ByteBuffer.allocate(encoder.size());
+    encoder.writeTo(buffer);
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Encodes the given access control list into the given buffer.
+   *
+   * @param acl    the access control list (can be {@code null})
+   * @param target the target buffer
+   * @throws java.nio.BufferOverflowException if the buffer is too small
+   */
+  public static void encode(
+      @Nullable final AccessControlList acl,
+      @NotNull final ByteBuffer target) {
+    notNull(target, "Target buffer must not be null.");
+    Encoder.of(acl).writeTo(target);
+  }
+
+  /**
+   * Decodes the next access control list of the given buffer.
+   *
+   * @param <T>     the acl type
+   * @param source  the buffer
+   * @param factory the acl factory
+   * @return the access control list (can be {@code null}, if {@code null} was encoded)
+   * @throws IllegalArgumentException if the buffer doesn't contain an encoded access control
+   *                                  list
+   */
+  @Nullable
+  public static <T> T decodeAcl(
+      @NotNull final ByteBuffer source,
+      @NotNull final AclFactory<T> factory) {
+
+    notNull(factory, "Acl factory must not be null.");
+    final Decoder decoder = new Decoder(source);
+    if (decoder.readHeader()) {
+      return null;
+    }
+    final String owner = decoder.readNullableString();
+    final int entryCount = decoder.readCount();
+    final Map<String, AceImpl> entries = new HashMap<>();
+    for (int i = 0; i < entryCount; i++) {
+      final String permission = decoder.readString();
+      final int guest = decoder.readVarInt();
+      AceImpl ace = entries.get(permission.toLowerCase());
+      if (ace == null) {
+        ace = new AceImpl();
+        entries.put(permission.toLowerCase(), ace);
+      }
+      if (guest == GUEST_TRUE) {
+        ace.setGuest(true);
+      }
+      decoder.readNames(ace.getUsers());
+      decoder.readNames(ace.getRoles());
+      decoder.readNames(ace.getGroups());
+    }
+    return factory.createAccessControlList(owner, entries);
+  }
+
+  /**
+   * Decodes the next access control list dto of the given buffer.
+   *
+   * @param source the buffer
+   * @return the access control list dto (can be {@code null}, if {@code null} was encoded)
+   * @throws IllegalArgumentException if the buffer doesn't contain an encoded access control
+   *                                  list
+   */
+  @Nullable
+  public static AccessControlList decodeAccessControlList(@NotNull final ByteBuffer source) {
+    final Decoder decoder = new Decoder(source);
+    if (decoder.readHeader()) {
+      return null;
+    }
+    final String owner = decoder.readNullableString();
+    final int entryCount = decoder.readCount();
+    final List<AccessControlEntry> entries = new ArrayList<>(entryCount);
+    for (int i = 0; i < entryCount; i++) {
+      final String permission = decoder.readString();
+      final int guest = decoder.readVarInt();
+      final AccessControlEntry entry = new AccessControlEntry();
+      entry.setPermission(permission);
+      entry.setGuest(guest == GUEST_NULL ? null : guest == GUEST_TRUE);
+      entry.setUsers(decoder.readNames(new ArrayList<>()));
+      entry.setRoles(decoder.readNames(new ArrayList<>()));
+      entry.setGroups(decoder.readNames(new ArrayList<>()));
+      entries.add(entry);
+    }
+    final AccessControlList acl = new AccessControlList();
+    acl.setOwner(owner);
+    acl.setEntries(entries);
+    return acl;
+  }
+
+  /**
+   * Decodes the next access control list of the given buffer into a compiled access controller.
+   *
+   * @param source the buffer
+   * @return the compiled access controller
+   * @throws IllegalArgumentException if the buffer doesn't contain an encoded access control
+   *                                  list
+   */
+  public static CompiledAccessController decodeAccessController(
+      @NotNull final ByteBuffer source) {
+    return decodeAccessController(source, null);
+  }
+
+  /**
+   * Decodes the next access control list of the given buffer into a compiled access controller.
+   *
+   * @param source       the buffer
+   * @param implications the permission implications (can be {@code null})
+   * @return the compiled access controller
+   * @throws IllegalArgumentException if the buffer doesn't contain an encoded access control
+   *                                  list
+   */
+  public static CompiledAccessController decodeAccessController(
+      @NotNull final ByteBuffer source,
+      @Nullable final PermissionImplications implications) {
+
+    final Decoder decoder = new Decoder(source);
+    if (decoder.readHeader()) {
+      return CompiledAccessController.compile((Acl<? extends Ace>) null);
+    }
+    final String owner = decoder.readNullableString();
+    final int entryCount = decoder.readCount();
+    final String[] permissions = new String[decoder.dictionary.length];
+    final Map<String, AceCompiler> compilers = new HashMap<>();
+    for (int i = 0; i < entryCount; i++) {
+      final int index = decoder.readIndex();
+      String permission = permissions[index];
+      if (permission == null) {
+        permission = CompiledAccessController.internPermission(decoder.dictionary[index]);
+        permissions[index] = permission;
+      }
+      AceCompiler compiler = compilers.get(permission);
+      if (compiler == null) {
+        compiler = new AceCompiler();
+        compilers.put(permission, compiler);
+      }
+      compiler.addGuest(decoder.readVarInt() == GUEST_TRUE);
+      for (int n = decoder.readCount(); n > 0; n--) {
+        compiler.addUser(decoder.readString());
+      }
+      for (int n = decoder.readCount(); n > 0; n--) {
+        compiler.addRole(decoder.readString());
+      }
+      for (int n = decoder.readCount(); n > 0; n--) {
+        compiler.addGroup(decoder.readString());
+      }
+    }
+    return CompiledAccessController.compile(owner, compilers, implications);
+  }
+
+  /**
+   * Collects the dictionary and the body (a sequence of numbers) of an access control list.
+   */
+  private static final class Encoder {
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private final List<byte[]> dictionary = new ArrayList<>();
+
+    private int[] body = new int[32];
+
+    private int bodyLength;
+
+    private boolean isNull;
+
+    private static Encoder of(final Acl<? extends Ace> acl) {
+      final Encoder encoder = new Encoder();
+      if (acl == null) {
+        encoder.isNull = true;
+        return encoder;
+      }
+      encoder.addNullableString(acl.getOwner());
+      final Map<String, ? extends Ace> entries = acl.entryMap();
+      int count = 0;
+      if (entries != null) {
+        for (final Map.Entry<String, ? extends Ace> entry : entries.entrySet()) {
+          if (entry.getKey() != null && entry.getValue() != null) {
+            count++;
+          }
+        }
+      }
+      encoder.add(count);
+      if (count > 0) {
+        for (final Map.Entry<String, ? extends Ace> entry : entries.entrySet()) {
+          final Ace ace = entry.getValue();
+          if (entry.getKey() != null && ace != null) {
+            encoder.addString(entry.getKey());
+            encoder.add(ace.isGuest() ? GUEST_TRUE : GUEST_FALSE);
+            encoder.addNames(ace.getUsers());
+            encoder.addNames(ace.getRoles());
+            encoder.addNames(ace.getGroups());
+          }
+        }
+      }
+      return encoder;
+    }
+
+    private static Encoder of(final AccessControlList acl) {
+      final Encoder encoder = new Encoder();
+      if (acl == null) {
+        encoder.isNull = true;
+        return encoder;
+      }
+      encoder.addNullableString(acl.getOwner());
+      final List<AccessControlEntry> entries = acl.getEntries();
+      int count = 0;
+      if (entries != null) {
+        for (final AccessControlEntry entry : entries) {
+          if (entry != null && entry.getPermission() != null) {
+            count++;
+          }
+        }
+      }
+      encoder.add(count);
+      if (count > 0) {
+        for (final AccessControlEntry entry : entries) {
+          if (entry != null && entry.getPermission() != null) {
+            encoder.addString(entry.getPermission());
+            encoder.add(entry.getGuest() == null
+                ? GUEST_NULL
+                : (entry.getGuest() ? GUEST_TRUE : GUEST_FALSE));
+            encoder.addNames(entry.getUsers());
+            encoder.addNames(entry.getRoles());
+            encoder.addNames(entry.getGroups());
+          }
+        }
+      }
+      return encoder;
+    }
+
+    private void add(final int value) {
+      if (bodyLength == body.length) {
+        body = Arrays.copyOf(body, body.length << 1);
+      }
+      body[bodyLength++] = value;
+    }
+
+    private int indexOf(final String value) {
+      Integer index = indexes.get(value);
+      if (index == null) {
+        index = dictionary.size();
+        indexes.put(value, index);
+        dictionary.add(value.getBytes(StandardCharsets.UTF_8));
+      }
+      return index;
+    }
+
+    private void addString(final String value) {
+      add(indexOf(value));
+    }
+
+    private void addNullableString(final String value) {
+      add(value == null ? 0 : indexOf(value) + 1);
+    }
+
+    private void addNames(final Collection<String> names) {
+      if (names == null || names.isEmpty()) {
+        add(0);
+        return;
+      }
+      int count = 0;
+      for (final String name : names) {
+        if (name != null) {
+          count++;
+        }
+      }
+      add(count);
+      for (final String name : names) {
+        if (name != null) {
+          addString(name);
+        }
+      }
+    }
+
+    private int size() {
+      int size = 3;
+      if (isNull) {
+        return size;
+      }
+      size += sizeOf(dictionary.size());
+      for (final byte[] bytes : dictionary) {
+        size += sizeOf(bytes.length) + bytes.length;
+      }
+      for (int i = 0; i < bodyLength; i++) {
+        size += sizeOf(body[i]);
+      }
+      return size;
+    }
+
+    private static int sizeOf(final int value) {
+      int size = 1;
+      int v = value >>> 7;
+      while (v != 0) {
+        size++;
+        v >>>= 7;
+      }
+      return size;
+    }
+
+    private void writeTo(final ByteBuffer buffer) {
+      buffer.put(MAGIC);
+      buffer.put(VERSION);
+      buffer.put(isNull ? FLAG_NULL : 0);
+      if (isNull) {
+        return;
+      }
+      writeVarInt(buffer, dictionary.size());
+      for (final byte[] bytes : dictionary) {
+        writeVarInt(buffer, bytes.length);
+        buffer.put(bytes);
+      }
+      for (int i = 0; i < bodyLength; i++) {
+        writeVarInt(buffer, body[i]);
+      }
+    }
+
+    private static void writeVarInt(final ByteBuffer buffer, final int value) {
+      int v = value;
+      while ((v & ~0x7F) != 0) {
+        buffer.put((byte) ((v & 0x7F) | 0x80));
+        v >>>= 7;
+      }
+      buffer.put((byte) v);
+    }
+  }
+
+  /**
+   * Reads an encoded access control list.
+   */
+  private static final class Decoder {
+
+    private final ByteBuffer buffer;
+
+    private String[] dictionary;
+
+    private Decoder(final ByteBuffer buffer) {
+      notNull(buffer, "Source buffer must not be null.");
+      this.buffer = buffer;
+    }
+
+    /**
+     * Reads the header and the dictionary.
+     *
+     * @return {@code true} if {@code null} was encoded, otherwise {@code false}
+     */
+    private boolean readHeader() {
+      try {
+        if (buffer.get() != MAGIC || buffer.get() != VERSION) {
+          throw new IllegalArgumentException("Buffer doesn't contain an encoded acl.");
+        }
+        if ((buffer.get() & FLAG_NULL) != 0) {
+          return true;
+        }
+        final int size = readCount();
+        dictionary = new String[size];
+        for (int i = 0; i < size; i++) {
+          final int length = readCount();
+          if (buffer.hasArray()) {
+            dictionary[i] = new String(
+                buffer.array(),
+                buffer.arrayOffset() + buffer.position(),
+                length,
+                StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+          } else {
+            final byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+          }
+        }
+        return false;
+      } catch (BufferUnderflowException e) {
+        throw new IllegalArgumentException("Encoded acl is truncated.", e);
+      }
+    }
+
+    private int readVarInt() {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        final byte b;
+        try {
+          b = buffer.get();
+        } catch (BufferUnderflowException e) {
+          throw new IllegalArgumentException("Encoded acl is truncated.", e);
+        }
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IllegalArgumentException("Encoded acl contains an invalid number.");
+    }
+
+    private int readCount() {
+      final int count = readVarInt();
+      if (count < 0 || count > buffer.remaining()) {
+        throw new IllegalArgumentException("Encoded acl contains an invalid length.");
+      }
+      return count;
+    }
+
+    private int readIndex() {
+      final int index = readVarInt();
+      if (index < 0 || index >= dictionary.length) {
+        throw new IllegalArgumentException("Encoded acl contains an invalid string reference.");
+      }
+      return index;
+    }
+
+    private String readString() {
+      return dictionary[readIndex()];
+    }
+
+    private String readNullableString() {
+      final int index = readVarInt();
+      if (index == 0) {
+        return null;
+      }
+      if (index < 0 || index > dictionary.length) {
+        throw new IllegalArgumentException("Encoded acl contains an invalid string reference.");
+      }
+      return dictionary[index - 1];
+    }
+
+    private <C extends Collection<String>> C readNames(final C target) {
+      for (int n = readCount(); n > 0; n--) {
+        target.add(readString());
+      }
+      return target;
+    }
+  }
+
+}
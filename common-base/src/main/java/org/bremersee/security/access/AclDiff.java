@@ -0,0 +1,389 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.validation.constraints.NotNull;
+import lombok.ToString;
+import org.springframework.lang.Nullable;
+
+/**
+ * The structural difference between two access control lists.
+ *
+ * <p>The difference is calculated per permission. The added and removed users, roles and groups
+ * are views on the sets of both access control lists, nothing is copied. So a diff must not be
+ * used any more, if one of the access control lists was changed.
+ *
+ * <p>A diff can be used to detect changes before an access control list is persisted and to
+ * issue minimal updates (e. g. {@code $addToSet} and {@code $pull} of MongoDB).
+ *
+ * @author Christian Bremer
+ */
+@ToString
+@SuppressWarnings("WeakerAccess")
+public final class AclDiff {
+
+  private final String oldOwner;
+
+  private final String newOwner;
+
+  private final Map<String, AceDiff> entries;
+
+  private AclDiff(
+      final String oldOwner,
+      final String newOwner,
+      final Map<String, AceDiff> entries) {
+    this.oldOwner = oldOwner;
+    this.newOwner = newOwner;
+    this.entries = entries;
+  }
+
+  /**
+   * Calculates the difference between the given access control lists. A {@code null} value is
+   * treated like an access control list without owner and entries.
+   *
+   * @param oldAcl the old access control list
+   * @param newAcl the new access control list
+   * @return the difference
+   */
+  public static AclDiff diff(
+      @Nullable final Acl<? extends Ace> oldAcl,
+      @Nullable final Acl<? extends Ace> newAcl) {
+
+    final Map<String, ? extends Ace> oldEntries = entryMap(oldAcl);
+    final Map<String, ? extends Ace> newEntries = entryMap(newAcl);
+    final Map<String, AceDiff> entries = new TreeMap<>();
+    for (final Map.Entry<String, ? extends Ace> entry : oldEntries.entrySet()) {
+      final Ace newAce = newEntries.get(entry.getKey());
+      if (newAce == null || !isEqual(entry.getValue(), newAce)) {
+        entries.put(entry.getKey(), new AceDiff(entry.getKey(), entry.getValue(), newAce));
+      }
+    }
+    for (final Map.Entry<String, ? extends Ace> entry : newEntries.entrySet()) {
+      if (entry.getValue() != null && oldEntries.get(entry.getKey()) == null) {
+        entries.put(entry.getKey(), new AceDiff(entry.getKey(), null, entry.getValue()));
+      }
+    }
+    return new AclDiff(
+        oldAcl != null ? oldAcl.getOwner() : null,
+        newAcl != null ? newAcl.getOwner() : null,
+        entries.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(entries));
+  }
+
+  private static Map<String, ? extends Ace> entryMap(final Acl<? extends Ace> acl) {
+    final Map<String, ? extends Ace> map = acl != null ? acl.entryMap() : null;
+    return map != null ? map : Collections.emptyMap();
+  }
+
+  private static boolean isEqual(final Ace oldAce, final Ace newAce) {
+    if (oldAce == newAce) {
+      return true;
+    }
+    if (oldAce == null) {
+      return false;
+    }
+    return oldAce.isGuest() == newAce.isGuest()
+        && oldAce.getUsers().equals(newAce.getUsers())
+        && oldAce.getRoles().equals(newAce.getRoles())
+        && oldAce.getGroups().equals(newAce.getGroups());
+  }
+
+  /**
+   * Determines whether both access control lists are equal.
+   *
+   * @return {@code true} if there is no difference, otherwise {@code false}
+   */
+  public boolean isEmpty() {
+    return !isOwnerChanged() && entries.isEmpty();
+  }
+
+  /**
+   * Determines whether the owner was changed.
+   *
+   * @return {@code true} if the owner was changed, otherwise {@code false}
+   */
+  public boolean isOwnerChanged() {
+    return !Objects.equals(oldOwner, newOwner);
+  }
+
+  /**
+   * Gets old owner.
+   *
+   * @return the old owner
+   */
+  @Nullable
+  public String getOldOwner() {
+    return oldOwner;
+  }
+
+  /**
+   * Gets new owner.
+   *
+   * @return the new owner
+   */
+  @Nullable
+  public String getNewOwner() {
+    return newOwner;
+  }
+
+  /**
+   * Returns the differences of the changed entries, the key is the permission.
+   *
+   * @return the unmodifiable differences of the entries, sorted by permission
+   */
+  public Map<String, AceDiff> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Returns the difference of the entry with the given permission.
+   *
+   * @param permission the permission
+   * @return the difference or {@code null}, if the entry wasn't changed
+   */
+  @Nullable
+  public AceDiff getEntry(@Nullable final String permission) {
+    return permission != null ? entries.get(permission) : null;
+  }
+
+  /**
+   * The difference between two entries of the same permission.
+   */
+  @ToString
+  public static final class AceDiff {
+
+    private final String permission;
+
+    @ToString.Exclude
+    private final Ace oldAce;
+
+    @ToString.Exclude
+    private final Ace newAce;
+
+    private AceDiff(final String permission, final Ace oldAce, final Ace newAce) {
+      this.permission = permission;
+      this.oldAce = oldAce;
+      this.newAce = newAce;
+    }
+
+    /**
+     * Gets permission.
+     *
+     * @return the permission
+     */
+    public String getPermission() {
+      return permission;
+    }
+
+    /**
+     * Determines whether the entry was added.
+     *
+     * @return {@code true} if the old access control list has no entry, otherwise {@code false}
+     */
+    public boolean isAdded() {
+      return oldAce == null;
+    }
+
+    /**
+     * Determines whether the entry was removed.
+     *
+     * @return {@code true} if the new access control list has no entry, otherwise {@code false}
+     */
+    public boolean isRemoved() {
+      return newAce == null;
+    }
+
+    /**
+     * Determines whether the guest flag was changed.
+     *
+     * @return {@code true} if the guest flag was changed, otherwise {@code false}
+     */
+    @ToString.Include
+    public boolean isGuestChanged() {
+      return isGuest(oldAce) != isGuest(newAce);
+    }
+
+    /**
+     * Determines whether guests have access in the new access control list.
+     *
+     * @return {@code true} if guests have access, otherwise {@code false}
+     */
+    public boolean isGuest() {
+      return isGuest(newAce);
+    }
+
+    private static boolean isGuest(final Ace ace) {
+      return ace != null && ace.isGuest();
+    }
+
+    /**
+     * Gets added users.
+     *
+     * @return the added users (a view)
+     */
+    @ToString.Include
+    public Set<String> getAddedUsers() {
+      return difference(users(newAce), users(oldAce));
+    }
+
+    /**
+     * Gets removed users.
+     *
+     * @return the removed users (a view)
+     */
+    @ToString.Include
+    public Set<String> getRemovedUsers() {
+      return difference(users(oldAce), users(newAce));
+    }
+
+    /**
+     * Gets added roles.
+     *
+     * @return the added roles (a view)
+     */
+    @ToString.Include
+    public Set<String> getAddedRoles() {
+      return difference(roles(newAce), roles(oldAce));
+    }
+
+    /**
+     * Gets removed roles.
+     *
+     * @return the removed roles (a view)
+     */
+    @ToString.Include
+    public Set<String> getRemovedRoles() {
+      return difference(roles(oldAce), roles(newAce));
+    }
+
+    /**
+     * Gets added groups.
+     *
+     * @return the added groups (a view)
+     */
+    @ToString.Include
+    public Set<String> getAddedGroups() {
+      return difference(groups(newAce), groups(oldAce));
+    }
+
+    /**
+     * Gets removed groups.
+     *
+     * @return the removed groups (a view)
+     */
+    @ToString.Include
+    public Set<String> getRemovedGroups() {
+      return difference(groups(oldAce), groups(newAce));
+    }
+
+    private static Set<String> users(final Ace ace) {
+      return ace != null && ace.getUsers() != null ? ace.getUsers() : Collections.emptySet();
+    }
+
+    private static Set<String> roles(final Ace ace) {
+      return ace != null && ace.getRoles() != null ? ace.getRoles() : Collections.emptySet();
+    }
+
+    private static Set<String> groups(final Ace ace) {
+      return ace != null && ace.getGroups() != null ? ace.getGroups() : Collections.emptySet();
+    }
+
+    private static Set<String> difference(final Set<String> set, final Set<String> other) {
+      if (set.isEmpty()) {
+        return Collections.emptySet();
+      }
+      if (other.isEmpty()) {
+        return Collections.unmodifiableSet(set);
+      }
+      return new Difference(set, other);
+    }
+  }
+
+  /**
+   * An unmodifiable view of the elements of a set, that are not contained in another set.
+   */
+  private static final class Difference extends AbstractSet<String> {
+
+    private final Set<String> set;
+
+    private final Set<String> other;
+
+    private Difference(@NotNull final Set<String> set, @NotNull final Set<String> other) {
+      this.set = set;
+      this.other = other;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+      return set.contains(o) && !other.contains(o);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      final Iterator<String> iterator = set.iterator();
+      return new Iterator<String>() {
+
+        private String next;
+
+        @Override
+        public boolean hasNext() {
+          while (next == null && iterator.hasNext()) {
+            final String candidate = iterator.next();
+            if (candidate != null && !other.contains(candidate)) {
+              next = candidate;
+            }
+          }
+          return next != null;
+        }
+
+        @Override
+        public String next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          final String result = next;
+          next = null;
+          return result;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (final String name : set) {
+        if (name != null && !other.contains(name)) {
+          size++;
+        }
+      }
+      return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return !iterator().hasNext();
+    }
+  }
+
+}
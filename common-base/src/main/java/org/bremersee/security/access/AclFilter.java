@@ -0,0 +1,276 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import static org.springframework.util.Assert.notNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.validation.constraints.NotNull;
+import org.bremersee.common.model.AccessControlList;
+import org.springframework.lang.Nullable;
+
+/**
+ * A filter that removes all items, the principal has not the specified permission for.
+ *
+ * <p>The access control list of each item is evaluated directly, it is never copied or converted.
+ * Collections with at least {@link #getParallelThreshold()} items are filtered in parallel.
+ *
+ * <pre>
+ * AclFilter&lt;Document&gt; filter = AclFilter
+ *     .forAcl(Document::getAcl, principal, PermissionConstants.READ);
+ * List&lt;Document&gt; readable = filter.filter(documentRepository.findAll());
+ * </pre>
+ *
+ * @param <T> the type of the items
+ * @author Christian Bremer
+ */
+public class AclFilter<T> implements Predicate<T> {
+
+  private final Predicate<T> predicate;
+
+  private final int parallelThreshold;
+
+  private AclFilter(final Predicate<T> predicate, final int parallelThreshold) {
+    this.predicate = predicate;
+    this.parallelThreshold = parallelThreshold;
+  }
+
+  /**
+   * Creates a filter for items with an access control list (entity).
+   *
+   * @param <T>          the type of the items
+   * @param aclExtractor the function that returns the access control list of an item
+   * @param principal    the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permission   the permission
+   * @return the filter
+   */
+  public static <T> AclFilter<T> forAcl(
+      @NotNull final Function<? super T, ? extends Acl<? extends Ace>> aclExtractor,
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission) {
+
+    notNull(aclExtractor, "Acl extractor must not be null.");
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return new AclFilter<>(
+        item -> item != null && AclView.hasPermission(
+            aclExtractor.apply(item), p.getUser(), p.getRoles(), p.getGroups(), true, permission),
+        Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a filter for items with an access control list (dto).
+   *
+   * @param <T>          the type of the items
+   * @param aclExtractor the function that returns the access control list of an item
+   * @param principal    the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permission   the permission
+   * @return the filter
+   */
+  public static <T> AclFilter<T> forAccessControlList(
+      @NotNull final Function<? super T, ? extends AccessControlList> aclExtractor,
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission) {
+
+    notNull(aclExtractor, "Acl extractor must not be null.");
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return new AclFilter<>(
+        item -> item != null && AccessControlListView.hasPermission(
+            aclExtractor.apply(item), p.getUser(), p.getRoles(), p.getGroups(), permission),
+        Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a filter for items with an access control list (entity), that applies the given
+   * permission implications.
+   *
+   * @param <T>          the type of the items
+   * @param aclExtractor the function that returns the access control list of an item
+   * @param principal    the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permission   the permission
+   * @param implications the permission implications
+   * @return the filter
+   */
+  public static <T> AclFilter<T> forAcl(
+      @NotNull final Function<? super T, ? extends Acl<? extends Ace>> aclExtractor,
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission,
+      @Nullable final PermissionImplications implications) {
+
+    notNull(aclExtractor, "Acl extractor must not be null.");
+    final String[] permissions = grantingPermissions(permission, implications);
+    if (permissions.length <= 1) {
+      return forAcl(aclExtractor, principal, permission);
+    }
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return new AclFilter<>(
+        item -> {
+          if (item == null) {
+            return false;
+          }
+          final Acl<? extends Ace> acl = aclExtractor.apply(item);
+          for (final String granting : permissions) {
+            if (AclView.hasPermission(
+                acl, p.getUser(), p.getRoles(), p.getGroups(), true, granting)) {
+              return true;
+            }
+          }
+          return false;
+        },
+        Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a filter for items with an access control list (dto), that applies the given
+   * permission implications.
+   *
+   * @param <T>          the type of the items
+   * @param aclExtractor the function that returns the access control list of an item
+   * @param principal    the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permission   the permission
+   * @param implications the permission implications
+   * @return the filter
+   */
+  public static <T> AclFilter<T> forAccessControlList(
+      @NotNull final Function<? super T, ? extends AccessControlList> aclExtractor,
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission,
+      @Nullable final PermissionImplications implications) {
+
+    notNull(aclExtractor, "Acl extractor must not be null.");
+    final String[] permissions = grantingPermissions(permission, implications);
+    if (permissions.length <= 1) {
+      return forAccessControlList(aclExtractor, principal, permission);
+    }
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return new AclFilter<>(
+        item -> {
+          if (item == null) {
+            return false;
+          }
+          final AccessControlList acl = aclExtractor.apply(item);
+          for (final String granting : permissions) {
+            if (AccessControlListView.hasPermission(
+                acl, p.getUser(), p.getRoles(), p.getGroups(), granting)) {
+              return true;
+            }
+          }
+          return false;
+        },
+        Integer.MAX_VALUE);
+  }
+
+  private static String[] grantingPermissions(
+      @Nullable final String permission,
+      @Nullable final PermissionImplications implications) {
+
+    if (permission == null || implications == null) {
+      return new String[]{permission};
+    }
+    final List<String> permissions = new ArrayList<>();
+    permissions.add(permission);
+    permissions.addAll(implications.getImplyingPermissions(permission));
+    return permissions.toArray(new String[0]);
+  }
+
+  /**
+   * Returns a filter, that filters collections with at least the given number of items in
+   * parallel.
+   *
+   * @param parallelThreshold the minimum size of a collection that is filtered in parallel
+   * @return the filter
+   */
+  public AclFilter<T> parallel(final int parallelThreshold) {
+    return new AclFilter<>(predicate, Math.max(parallelThreshold, 1));
+  }
+
+  /**
+   * Gets the minimum size of a collection that is filtered in parallel.
+   *
+   * @return the parallel threshold ({@link Integer#MAX_VALUE} means never)
+   */
+  public int getParallelThreshold() {
+    return parallelThreshold;
+  }
+
+  @Override
+  public boolean test(@Nullable final T item) {
+    return predicate.test(item);
+  }
+
+  /**
+   * Filters the given stream.
+   *
+   * @param items the items
+   * @return the filtered stream
+   */
+  public Stream<T> filter(@Nullable final Stream<T> items) {
+    return items == null ? Stream.empty() : items.filter(predicate);
+  }
+
+  /**
+   * Filters the given items.
+   *
+   * @param items the items
+   * @return the list of the items, the principal has the permission for
+   */
+  public List<T> filter(@Nullable final Iterable<? extends T> items) {
+    if (items == null) {
+      return Collections.emptyList();
+    }
+    if (items instanceof Collection) {
+      return filter((Collection<? extends T>) items);
+    }
+    final List<T> result = new ArrayList<>();
+    for (final T item : items) {
+      if (predicate.test(item)) {
+        result.add(item);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Filters the given items. If the size of the collection is greater or equal to the parallel
+   * threshold, the items are filtered in parallel. The order of the items is kept.
+   *
+   * @param items the items
+   * @return the list of the items, the principal has the permission for
+   */
+  public List<T> filter(@Nullable final Collection<? extends T> items) {
+    if (items == null || items.isEmpty()) {
+      return Collections.emptyList();
+    }
+    if (items.size() >= parallelThreshold) {
+      return items.parallelStream().filter(predicate).collect(Collectors.toList());
+    }
+    final List<T> result = new ArrayList<>(items.size());
+    for (final T item : items) {
+      if (predicate.test(item)) {
+        result.add(item);
+      }
+    }
+    return result;
+  }
+
+}
@@ -33,7 +33,8 @@ class AclImpl extends TreeMap<String, Ace> implements Acl<Ace> {
   private String owner;
 
   /**
-   * Instantiates a new internal acl.
+   * Instantiates a new internal acl. The permissions are converted to lower case, entries of
+   * permissions that differ only in case are merged.
    *
    * @param owner   the owner
    * @param entries the entries
@@ -43,10 +44,26 @@ class AclImpl extends TreeMap<String, Ace> implements Acl<Ace> {
       final Map<String, ? extends Ace> entries) {
     this.owner = owner;
     if (entries != null) {
-      putAll(entries);
+      for (final Map.Entry<String, ? extends Ace> entry : entries.entrySet()) {
+        if (entry.getKey() != null && entry.getValue() != null) {
+          merge(entry.getKey().toLowerCase(), entry.getValue(), AclImpl::mergeAces);
+        }
+      }
     }
   }
 
+  private static Ace mergeAces(final Ace ace, final Ace other) {
+    final AceImpl merged = new AceImpl();
+    merged.setGuest(ace.isGuest() || other.isGuest());
+    merged.getUsers().addAll(ace.getUsers());
+    merged.getUsers().addAll(other.getUsers());
+    merged.getRoles().addAll(ace.getRoles());
+    merged.getRoles().addAll(other.getRoles());
+    merged.getGroups().addAll(ace.getGroups());
+    merged.getGroups().addAll(other.getGroups());
+    return merged;
+  }
+
   @Override
   public String getOwner() {
     return owner;
@@ -70,14 +87,24 @@ class AclImpl extends TreeMap<String, Ace> implements Acl<Ace> {
     if (!(o instanceof Acl)) {
       return false;
     }
+    if (o instanceof AclImpl && hashCode() != o.hashCode()) {
+      return false;
+    }
     Acl<? extends Ace> acl = (Acl<? extends Ace>) o;
+    final Map<String, ? extends Ace> entries = acl.entryMap();
     return Objects.equals(owner, acl.getOwner())
-        && (new TreeMap<>(this)).equals(new TreeMap<>(acl.entryMap()));
+        && (entries != null ? super.equals(entries) : isEmpty());
   }
 
+  /**
+   * Returns the hash code. It is derived from the owner and the hash codes of the entries, which
+   * are cached by the entries of the acl builder, so nothing is copied.
+   *
+   * @return the hash code
+   */
   @Override
   public int hashCode() {
-    return Objects.hash(owner, new TreeMap<>(this));
+    return Objects.hash(owner, super.hashCode());
   }
 
 }
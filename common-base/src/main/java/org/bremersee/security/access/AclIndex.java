@@ -0,0 +1,357 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import static org.springframework.util.Assert.notNull;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.validation.constraints.NotNull;
+import org.bremersee.common.model.AccessControlList;
+import org.bremersee.security.access.CompiledAccessController.CompiledAce;
+import org.springframework.lang.Nullable;
+
+/**
+ * An in-memory inverted index of access control lists.
+ *
+ * <p>For each permission the index maps the users, roles, groups and guests to the ids of the
+ * resources they have access to (and the owners to the ids of their resources). So the question
+ * "which resources can be read by this principal" is answered by a union of some sets instead of
+ * checking the access control list of every resource.
+ *
+ * <p>The index must be updated with {@link #put(String, Acl)} or {@link #remove(String)}, when
+ * an access control list was changed. It is safe to be used by multiple threads.
+ *
+ * @author Christian Bremer
+ */
+@SuppressWarnings("WeakerAccess")
+public class AclIndex {
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Map<String, CompiledAccessController> resources = new HashMap<>();
+
+  private final Map<String, Set<String>> owners = new HashMap<>();
+
+  private final Map<String, PermissionIndex> permissions = new HashMap<>();
+
+  private final PermissionImplications implications;
+
+  /**
+   * Instantiates a new acl index without permission implications.
+   */
+  public AclIndex() {
+    this(null);
+  }
+
+  /**
+   * Instantiates a new acl index. The permission implications are applied, when an access control
+   * list is indexed, e. g. a user with the permission to write is also found as a reader, if write
+   * implies read.
+   *
+   * @param implications the permission implications (can be {@code null})
+   */
+  public AclIndex(@Nullable PermissionImplications implications) {
+    this.implications = implications != null ? implications : PermissionImplications.none();
+  }
+
+  /**
+   * Adds the access control list of the given resource to the index or replaces the existing
+   * one.
+   *
+   * @param resourceId the resource id
+   * @param acl        the access control list (if it is {@code null}, the resource is removed)
+   */
+  public void put(@NotNull final String resourceId, @Nullable final Acl<? extends Ace> acl) {
+    notNull(resourceId, "Resource id must not be null.");
+    if (acl == null) {
+      remove(resourceId);
+    } else {
+      put(resourceId, CompiledAccessController.compile(acl, implications));
+    }
+  }
+
+  /**
+   * Adds the access control list of the given resource to the index or replaces the existing
+   * one.
+   *
+   * @param resourceId the resource id
+   * @param acl        the access control list (if it is {@code null}, the resource is removed)
+   */
+  public void put(@NotNull final String resourceId, @Nullable final AccessControlList acl) {
+    notNull(resourceId, "Resource id must not be null.");
+    if (acl == null) {
+      remove(resourceId);
+    } else {
+      put(resourceId, CompiledAccessController.compile(acl, implications));
+    }
+  }
+
+  private void put(final String resourceId, final CompiledAccessController accessController) {
+    lock.writeLock().lock();
+    try {
+      final CompiledAccessController old = resources.put(resourceId, accessController);
+      if (old != null) {
+        unindex(resourceId, old);
+      }
+      index(resourceId, accessController);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the given resource from the index.
+   *
+   * @param resourceId the resource id
+   * @return {@code true} if the resource was indexed, otherwise {@code false}
+   */
+  public boolean remove(@Nullable final String resourceId) {
+    if (resourceId == null) {
+      return false;
+    }
+    lock.writeLock().lock();
+    try {
+      final CompiledAccessController old = resources.remove(resourceId);
+      if (old != null) {
+        unindex(resourceId, old);
+        return true;
+      }
+      return false;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes all resources from the index.
+   */
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      resources.clear();
+      owners.clear();
+      permissions.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of indexed resources.
+   *
+   * @return the size
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return resources.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the access controller of the given resource.
+   *
+   * @param resourceId the resource id
+   * @return the access controller or {@code null}, if the resource is not indexed
+   */
+  @Nullable
+  public AccessController getAccessController(@Nullable final String resourceId) {
+    if (resourceId == null) {
+      return null;
+    }
+    lock.readLock().lock();
+    try {
+      return resources.get(resourceId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the ids of all resources, on which the given principal has the given permission.
+   *
+   * @param principal  the principal (if it is {@code null}, the anonymous principal is used)
+   * @param permission the permission
+   * @return the resource ids (a new modifiable set)
+   */
+  public Set<String> findResources(
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission) {
+
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return findResources(p.getUser(), p.getRoles(), p.getGroups(), permission);
+  }
+
+  /**
+   * Finds the ids of all resources, on which the given user with the given roles and groups has
+   * the given permission.
+   *
+   * @param user       the user
+   * @param roles      the roles
+   * @param groups     the groups
+   * @param permission the permission
+   * @return the resource ids (a new modifiable set)
+   */
+  public Set<String> findResources(
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups,
+      @Nullable final String permission) {
+
+    final Set<String> result = new HashSet<>();
+    if (permission == null) {
+      return result;
+    }
+    final String key = CompiledAccessController.internPermission(permission);
+    lock.readLock().lock();
+    try {
+      if (user != null) {
+        addAll(result, owners.get(user));
+      }
+      final PermissionIndex index = permissions.get(key);
+      if (index != null) {
+        result.addAll(index.guests);
+        if (user != null) {
+          addAll(result, index.users.get(user));
+        }
+        addAll(result, index.roles, roles);
+        addAll(result, index.groups, groups);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return result;
+  }
+
+  private static void addAll(final Set<String> result, @Nullable final Set<String> resourceIds) {
+    if (resourceIds != null) {
+      result.addAll(resourceIds);
+    }
+  }
+
+  private static void addAll(
+      final Set<String> result,
+      final Map<String, Set<String>> index,
+      @Nullable final Collection<String> names) {
+
+    if (names != null && !index.isEmpty()) {
+      for (final String name : names) {
+        if (name != null) {
+          addAll(result, index.get(name));
+        }
+      }
+    }
+  }
+
+  private void index(final String resourceId, final CompiledAccessController accessController) {
+    if (accessController.getOwner() != null) {
+      add(owners, accessController.getOwner(), resourceId);
+    }
+    for (final Map.Entry<String, CompiledAce> entry : accessController.getEntries().entrySet()) {
+      final PermissionIndex index = permissions
+          .computeIfAbsent(entry.getKey(), key -> new PermissionIndex());
+      final CompiledAce ace = entry.getValue();
+      if (ace.isGuest()) {
+        index.guests.add(resourceId);
+      }
+      add(index.users, ace.getUsers(), resourceId);
+      add(index.roles, ace.getRoles(), resourceId);
+      add(index.groups, ace.getGroups(), resourceId);
+    }
+  }
+
+  private void unindex(final String resourceId, final CompiledAccessController accessController) {
+    if (accessController.getOwner() != null) {
+      remove(owners, accessController.getOwner(), resourceId);
+    }
+    for (final Map.Entry<String, CompiledAce> entry : accessController.getEntries().entrySet()) {
+      final PermissionIndex index = permissions.get(entry.getKey());
+      if (index != null) {
+        final CompiledAce ace = entry.getValue();
+        index.guests.remove(resourceId);
+        remove(index.users, ace.getUsers(), resourceId);
+        remove(index.roles, ace.getRoles(), resourceId);
+        remove(index.groups, ace.getGroups(), resourceId);
+        if (index.isEmpty()) {
+          permissions.remove(entry.getKey());
+        }
+      }
+    }
+  }
+
+  private static void add(
+      final Map<String, Set<String>> index,
+      final Collection<String> names,
+      final String resourceId) {
+    for (final String name : names) {
+      add(index, name, resourceId);
+    }
+  }
+
+  private static void add(
+      final Map<String, Set<String>> index,
+      final String name,
+      final String resourceId) {
+    index.computeIfAbsent(name, key -> new HashSet<>()).add(resourceId);
+  }
+
+  private static void remove(
+      final Map<String, Set<String>> index,
+      final Collection<String> names,
+      final String resourceId) {
+    for (final String name : names) {
+      remove(index, name, resourceId);
+    }
+  }
+
+  private static void remove(
+      final Map<String, Set<String>> index,
+      final String name,
+      final String resourceId) {
+    final Set<String> resourceIds = index.get(name);
+    if (resourceIds != null && resourceIds.remove(resourceId) && resourceIds.isEmpty()) {
+      index.remove(name);
+    }
+  }
+
+  /**
+   * The index of one permission.
+   */
+  private static final class PermissionIndex {
+
+    private final Set<String> guests = new HashSet<>();
+
+    private final Map<String, Set<String>> users = new HashMap<>();
+
+    private final Map<String, Set<String>> roles = new HashMap<>();
+
+    private final Map<String, Set<String>> groups = new HashMap<>();
+
+    private boolean isEmpty() {
+      return guests.isEmpty() && users.isEmpty() && roles.isEmpty() && groups.isEmpty();
+    }
+  }
+
+}
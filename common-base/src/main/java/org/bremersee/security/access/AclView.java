@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import lombok.ToString;
+import org.springframework.lang.Nullable;
+
+/**
+ * An access controller that evaluates an access control list (entity) directly, without copying
+ * it. The permission is looked up as it is and in lower case, like the keys of the entry map,
+ * that are created by the {@link AclBuilder}. Changes of the access control list are visible
+ * immediately.
+ *
+ * @author Christian Bremer
+ */
+@ToString
+final class AclView implements AccessController {
+
+  private final Acl<? extends Ace> acl;
+
+  /**
+   * Instantiates a new acl view.
+   *
+   * @param acl the acl
+   */
+  AclView(@Nullable final Acl<? extends Ace> acl) {
+    this.acl = acl;
+  }
+
+  @Override
+  public boolean hasPermission(
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups,
+      @Nullable final String permission) {
+    return hasPermission(acl, user, roles, groups, false, permission);
+  }
+
+  @Override
+  public boolean hasPermission(
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission) {
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return hasPermission(acl, p.getUser(), p.getRoles(), p.getGroups(), true, permission);
+  }
+
+  /**
+   * Determines whether the given user with the given roles and groups has the specified
+   * permission.
+   *
+   * @param acl        the access control list
+   * @param user       the user
+   * @param roles      the roles
+   * @param groups     the groups
+   * @param hashed     specifies whether the roles and groups are hash based sets
+   * @param permission the permission
+   * @return {@code true} if the user has the permission, otherwise {@code false}
+   */
+  static boolean hasPermission(
+      @Nullable final Acl<? extends Ace> acl,
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups,
+      final boolean hashed,
+      @Nullable final String permission) {
+
+    if (acl == null || permission == null) {
+      return false;
+    }
+    if (user != null && user.equals(acl.getOwner())) {
+      return true;
+    }
+    final Map<String, ? extends Ace> map = acl.entryMap();
+    if (map == null || map.isEmpty()) {
+      return false;
+    }
+    final Ace ace = map.get(permission);
+    if (ace != null && grants(ace, user, roles, groups, hashed)) {
+      return true;
+    }
+    final String lowerCase = permission.toLowerCase();
+    if (lowerCase.equals(permission)) {
+      return false;
+    }
+    final Ace lowerCaseAce = map.get(lowerCase);
+    return lowerCaseAce != null && grants(lowerCaseAce, user, roles, groups, hashed);
+  }
+
+  private static boolean grants(
+      final Ace ace,
+      final String user,
+      final Collection<String> roles,
+      final Collection<String> groups,
+      final boolean hashed) {
+
+    if (ace.isGuest()) {
+      return true;
+    }
+    return (user != null && ace.getUsers().contains(user))
+        || containsAny(roles, ace.getRoles(), hashed)
+        || containsAny(groups, ace.getGroups(), hashed);
+  }
+
+  private static boolean containsAny(
+      final Collection<String> names,
+      final Set<String> granted,
+      final boolean hashed) {
+
+    if (names == null || names.isEmpty() || granted == null || granted.isEmpty()) {
+      return false;
+    }
+    if (hashed) {
+      for (final String name : granted) {
+        if (name != null && names.contains(name)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    for (final String name : names) {
+      if (name != null && granted.contains(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import static org.springframework.util.Assert.notNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.validation.constraints.NotNull;
+import lombok.ToString;
+import org.bremersee.common.model.AccessControlEntry;
+import org.bremersee.common.model.AccessControlList;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * Converts many access control lists between the dto ({@link AccessControlList}) and the acl
+ * type of the persistence layer.
+ *
+ * <p>The result is the same as the result of the {@link AclMapperImpl}, but every access control
+ * list is converted in one pass without streams, lambdas and the tree sets of the {@link
+ * AclBuilder}. The entries, that are passed to the {@link AclFactory}, are backed by hash sets.
+ * Like the mapper, a {@code null} value is converted into an empty access control list with the
+ * default permissions, unless {@code returnNull} is set.
+ *
+ * @param <T> the acl type
+ * @author Christian Bremer
+ */
+@SuppressWarnings("WeakerAccess")
+public class BulkAclConverter<T extends Acl<? extends Ace>> {
+
+  private static final AccessControlEntryComparator ENTRY_COMPARATOR
+      = new AccessControlEntryComparator();
+
+  private final AclFactory<T> aclFactory;
+
+  private final String[] defaultPermissions;
+
+  private final String adminRole;
+
+  private final boolean returnNull;
+
+  /**
+   * Instantiates a new bulk acl converter.
+   *
+   * @param aclFactory the acl factory
+   */
+  public BulkAclConverter(@NotNull AclFactory<T> aclFactory) {
+    this(aclFactory, null, null, false);
+  }
+
+  /**
+   * Instantiates a new bulk acl converter.
+   *
+   * @param aclFactory         the acl factory
+   * @param defaultPermissions the default permissions
+   * @param adminRole          the admin role; if it is present, it is added to every entry of
+   *                           the converted acl and removed from every entry of the converted
+   *                           dto (like {@code switchAdminAccess} of the {@link AclMapperImpl})
+   */
+  public BulkAclConverter(
+      @NotNull AclFactory<T> aclFactory,
+      @Nullable String[] defaultPermissions,
+      @Nullable String adminRole) {
+    this(aclFactory, defaultPermissions, adminRole, false);
+  }
+
+  /**
+   * Instantiates a new bulk acl converter.
+   *
+   * @param aclFactory         the acl factory
+   * @param defaultPermissions the default permissions
+   * @param adminRole          the admin role; if it is present, it is added to every entry of
+   *                           the converted acl and removed from every entry of the converted
+   *                           dto (like {@code switchAdminAccess} of the {@link AclMapperImpl})
+   * @param returnNull         specifies whether {@code null} is converted into {@code null}
+   */
+  public BulkAclConverter(
+      @NotNull AclFactory<T> aclFactory,
+      @Nullable String[] defaultPermissions,
+      @Nullable String adminRole,
+      boolean returnNull) {
+    notNull(aclFactory, "Acl factory must not be null.");
+    this.aclFactory = aclFactory;
+    this.defaultPermissions = normalize(defaultPermissions);
+    this.adminRole = StringUtils.hasText(adminRole) ? adminRole : null;
+    this.returnNull = returnNull;
+  }
+
+  private static String[] normalize(final String[] permissions) {
+    if (permissions == null || permissions.length == 0) {
+      return new String[0];
+    }
+    final Set<String> set = new LinkedHashSet<>();
+    for (final String permission : permissions) {
+      if (StringUtils.hasText(permission)) {
+        set.add(permission.toLowerCase());
+      }
+    }
+    return set.toArray(new String[0]);
+  }
+
+  /**
+   * Converts the given dto into the acl type.
+   *
+   * @param accessControlList the dto
+   * @return the acl or {@code null}, if the dto is {@code null} and {@code returnNull} is set
+   */
+  @Nullable
+  public T toAcl(@Nullable final AccessControlList accessControlList) {
+    if (accessControlList == null && returnNull) {
+      return null;
+    }
+    final Map<String, Entry> entries = new HashMap<>();
+    final List<AccessControlEntry> accessControlEntries = accessControlList != null
+        ? accessControlList.getEntries()
+        : null;
+    if (accessControlEntries != null) {
+      for (final AccessControlEntry ace : accessControlEntries) {
+        if (ace != null && StringUtils.hasText(ace.getPermission())) {
+          add(
+              entries,
+              ace.getPermission().toLowerCase(),
+              Boolean.TRUE.equals(ace.getGuest()),
+              ace.getUsers(),
+              ace.getRoles(),
+              ace.getGroups());
+        }
+      }
+    }
+    addDefaults(entries);
+    if (adminRole != null) {
+      for (final Entry entry : entries.values()) {
+        entry.roles.add(adminRole);
+      }
+    }
+    return aclFactory.createAccessControlList(
+        accessControlList != null ? accessControlList.getOwner() : null,
+        entries);
+  }
+
+  /**
+   * Converts the given acl into the dto.
+   *
+   * @param acl the acl
+   * @return the dto or {@code null}, if the acl is {@code null} and {@code returnNull} is set
+   */
+  @Nullable
+  public AccessControlList toAccessControlList(@Nullable final Acl<? extends Ace> acl) {
+    if (acl == null && returnNull) {
+      return null;
+    }
+    final Map<String, Entry> entries = new HashMap<>();
+    final Map<String, ? extends Ace> map = acl != null ? acl.entryMap() : null;
+    if (map != null) {
+      for (final Map.Entry<String, ? extends Ace> mapEntry : map.entrySet()) {
+        final Ace ace = mapEntry.getValue();
+        if (ace != null && StringUtils.hasText(mapEntry.getKey())) {
+          add(
+              entries,
+              mapEntry.getKey().toLowerCase(),
+              ace.isGuest(),
+              ace.getUsers(),
+              ace.getRoles(),
+              ace.getGroups());
+        }
+      }
+    }
+    addDefaults(entries);
+    final List<AccessControlEntry> accessControlEntries = new ArrayList<>(entries.size());
+    for (final Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+      final Entry entry = mapEntry.getValue();
+      if (adminRole != null) {
+        entry.roles.remove(adminRole);
+      }
+      accessControlEntries.add(AccessControlEntry
+          .builder()
+          .permission(mapEntry.getKey())
+          .guest(entry.guest)
+          .users(sorted(entry.users))
+          .roles(sorted(entry.roles))
+          .groups(sorted(entry.groups))
+          .build());
+    }
+    accessControlEntries.sort(ENTRY_COMPARATOR);
+    final AccessControlList accessControlList = new AccessControlList();
+    accessControlList.setOwner(acl != null ? acl.getOwner() : null);
+    accessControlList.setEntries(accessControlEntries);
+    return accessControlList;
+  }
+
+  /**
+   * Converts the given dtos into the acl type. The order is kept, {@code null} values are
+   * converted like {@link #toAcl(AccessControlList)} does.
+   *
+   * @param accessControlLists the dtos
+   * @return the acls
+   */
+  public List<T> toAcls(
+      @Nullable final Collection<? extends AccessControlList> accessControlLists) {
+    if (accessControlLists == null || accessControlLists.isEmpty()) {
+      return new ArrayList<>();
+    }
+    final List<T> acls = new ArrayList<>(accessControlLists.size());
+    for (final AccessControlList accessControlList : accessControlLists) {
+      acls.add(toAcl(accessControlList));
+    }
+    return acls;
+  }
+
+  /**
+   * Converts the given acls into dtos. The order is kept, {@code null} values are converted like
+   * {@link #toAccessControlList(Acl)} does.
+   *
+   * @param acls the acls
+   * @return the dtos
+   */
+  public List<AccessControlList> toAccessControlLists(
+      @Nullable final Collection<? extends Acl<? extends Ace>> acls) {
+    if (acls == null || acls.isEmpty()) {
+      return new ArrayList<>();
+    }
+    final List<AccessControlList> accessControlLists = new ArrayList<>(acls.size());
+    for (final Acl<? extends Ace> acl : acls) {
+      accessControlLists.add(toAccessControlList(acl));
+    }
+    return accessControlLists;
+  }
+
+  /**
+   * Adds the values of an entry. A guest value of {@code false} resets the guest flag of an
+   * existing entry, like {@link AclBuilder#guest(Boolean, String...)} does.
+   */
+  private static void add(
+      final Map<String, Entry> entries,
+      final String permission,
+      final boolean guest,
+      final Collection<String> users,
+      final Collection<String> roles,
+      final Collection<String> groups) {
+
+    Entry entry = entries.get(permission);
+    if (guest || entry != null || hasText(users) || hasText(roles) || hasText(groups)) {
+      if (entry == null) {
+        entry = new Entry();
+        entries.put(permission, entry);
+      }
+      entry.guest = guest;
+      addAll(entry.users, users);
+      addAll(entry.roles, roles);
+      addAll(entry.groups, groups);
+    }
+  }
+
+  private void addDefaults(final Map<String, Entry> entries) {
+    for (final String permission : defaultPermissions) {
+      if (!entries.containsKey(permission)) {
+        entries.put(permission, new Entry());
+      }
+    }
+  }
+
+  private static boolean hasText(final Collection<String> names) {
+    if (names != null) {
+      for (final String name : names) {
+        if (StringUtils.hasText(name)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static void addAll(final Set<String> target, final Collection<String> names) {
+    if (names != null) {
+      for (final String name : names) {
+        if (StringUtils.hasText(name)) {
+          target.add(name);
+        }
+      }
+    }
+  }
+
+  private static List<String> sorted(final Set<String> names) {
+    final List<String> list = new ArrayList<>(names);
+    Collections.sort(list);
+    return list;
+  }
+
+  /**
+   * An access control entry that is backed by hash sets.
+   */
+  @ToString
+  private static final class Entry implements Ace {
+
+    private boolean guest;
+
+    private final Set<String> users = new HashSet<>();
+
+    private final Set<String> roles = new HashSet<>();
+
+    private final Set<String> groups = new HashSet<>();
+
+    @Override
+    public boolean isGuest() {
+      return guest;
+    }
+
+    @Override
+    public void setGuest(final boolean guest) {
+      this.guest = guest;
+    }
+
+    @Override
+    public Set<String> getUsers() {
+      return users;
+    }
+
+    @Override
+    public Set<String> getRoles() {
+      return roles;
+    }
+
+    @Override
+    public Set<String> getGroups() {
+      return groups;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Ace)) {
+        return false;
+      }
+      final Ace ace = (Ace) o;
+      return guest == ace.isGuest()
+          && users.equals(ace.getUsers())
+          && roles.equals(ace.getRoles())
+          && groups.equals(ace.getGroups());
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(guest, users, roles, groups);
+    }
+  }
+
+}
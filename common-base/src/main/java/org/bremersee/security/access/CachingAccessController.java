@@ -0,0 +1,457 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import static org.springframework.util.Assert.isTrue;
+import static org.springframework.util.Assert.notNull;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import javax.validation.constraints.NotNull;
+import org.springframework.lang.Nullable;
+
+/**
+ * An access controller that memoizes the decisions of another access controller per principal
+ * and permission.
+ *
+ * <p>Only the methods that take an {@link AccessPrincipal} are memoized. The principals are
+ * looked up by their {@link AccessPrincipal#fingerprint() fingerprint} in an open addressing table
+ * with primitive keys and a hit is confirmed by comparing the stored principal, so that two
+ * principals with the same fingerprint never share their decisions. The decisions of all
+ * permissions of a principal are packed into one {@code long}. If the table reaches its maximum
+ * size, one entry is evicted for each new principal (round robin over the slots of the table).
+ *
+ * <p>When the access control list was changed, {@link #invalidate(AccessController)} must be
+ * called with the new access controller (or {@link #invalidate()}, if the delegate is a view of
+ * the changed access control list).
+ *
+ * @author Christian Bremer
+ */
+@SuppressWarnings("WeakerAccess")
+public class CachingAccessController implements AccessController {
+
+  /**
+   * The maximum number of permissions that can be memoized per principal.
+   */
+  static final int MAX_PERMISSIONS = 32;
+
+  private static final long EMPTY = 0L;
+
+  private static final long GRANTED_BITS = 0xFFFFFFFFL;
+
+  private final StampedLock lock = new StampedLock();
+
+  private final Map<String, Integer> customPermissions = new HashMap<>();
+
+  private final int maximumSize;
+
+  private volatile AccessController delegate;
+
+  private long[] keys;
+
+  private long[] values;
+
+  private AccessPrincipal[] principals;
+
+  private int size;
+
+  private int evictionIndex;
+
+  private long generation;
+
+  /**
+   * Instantiates a new caching access controller.
+   *
+   * @param delegate    the access controller that makes the decisions
+   * @param maximumSize the maximum number of principals
+   */
+  public CachingAccessController(@NotNull AccessController delegate, int maximumSize) {
+    notNull(delegate, "Delegate must not be null.");
+    isTrue(maximumSize > 0, "Maximum size must be greater than zero.");
+    this.delegate = delegate;
+    this.maximumSize = maximumSize;
+    final int capacity = tableSizeFor(Math.min(maximumSize, 1 << 10));
+    this.keys = new long[capacity];
+    this.values = new long[capacity];
+    this.principals = new AccessPrincipal[capacity];
+  }
+
+  private static int tableSizeFor(final int entries) {
+    int capacity = 16;
+    while (capacity < entries * 2 && capacity < (1 << 30)) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  private static int indexFor(final long key, final int mask) {
+    final long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  /**
+   * Gets the access controller that makes the decisions.
+   *
+   * @return the delegate
+   */
+  public AccessController getDelegate() {
+    return delegate;
+  }
+
+  /**
+   * Returns the number of memoized principals.
+   *
+   * @return the size
+   */
+  public int size() {
+    final long stamp = lock.readLock();
+    try {
+      return size;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Removes all memoized decisions. This must be called, if the access control list of the
+   * delegate was changed.
+   */
+  public void invalidate() {
+    final long stamp = lock.writeLock();
+    try {
+      clear();
+      generation++;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Replaces the access controller that makes the decisions and removes all memoized decisions.
+   * This must be called, if the access control list was changed and persisted.
+   *
+   * @param delegate the new access controller
+   */
+  public void invalidate(@NotNull final AccessController delegate) {
+    notNull(delegate, "Delegate must not be null.");
+    final long stamp = lock.writeLock();
+    try {
+      this.delegate = delegate;
+      clear();
+      generation++;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes the memoized decisions of the given principal.
+   *
+   * @param principal the principal
+   */
+  public void invalidate(@Nullable final AccessPrincipal principal) {
+    if (principal == null) {
+      return;
+    }
+    final long key = fingerprint(principal);
+    final long stamp = lock.writeLock();
+    try {
+      final int mask = keys.length - 1;
+      int i = indexFor(key, mask);
+      while (keys[i] != EMPTY) {
+        if (keys[i] == key && principal.equals(principals[i])) {
+          removeAt(i);
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  private void clear() {
+    final int capacity = tableSizeFor(Math.min(maximumSize, 1 << 10));
+    keys = new long[capacity];
+    values = new long[capacity];
+    principals = new AccessPrincipal[capacity];
+    size = 0;
+    evictionIndex = 0;
+  }
+
+  /**
+   * Removes the slot with the given index (backward shift deletion of linear probing).
+   *
+   * @param index the index
+   */
+  private void removeAt(final int index) {
+    final int mask = keys.length - 1;
+    int gap = index;
+    int i = (index + 1) & mask;
+    while (keys[i] != EMPTY) {
+      final int home = indexFor(keys[i], mask);
+      // move the entry into the gap, if its home slot is not between the gap and its position
+      if (((i - home) & mask) >= ((i - gap) & mask)) {
+        keys[gap] = keys[i];
+        values[gap] = values[i];
+        principals[gap] = principals[i];
+        gap = i;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[gap] = EMPTY;
+    values[gap] = 0L;
+    principals[gap] = null;
+    size--;
+  }
+
+  private long lookup(final long key, final AccessPrincipal principal) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0L) {
+      final long[] k = keys;
+      final long[] v = values;
+      final AccessPrincipal[] p = principals;
+      // the arrays may be replaced concurrently, so their lengths must be checked
+      if (k.length == v.length && k.length == p.length) {
+        final long value = probe(k, v, p, key, principal);
+        if (lock.validate(stamp)) {
+          return value;
+        }
+      }
+    }
+    stamp = lock.readLock();
+    try {
+      return probe(keys, values, principals, key, principal);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private static long probe(
+      final long[] keys,
+      final long[] values,
+      final AccessPrincipal[] principals,
+      final long key,
+      final AccessPrincipal principal) {
+
+    final int mask = keys.length - 1;
+    int i = indexFor(key, mask);
+    long k;
+    while ((k = keys[i]) != EMPTY) {
+      if (k == key) {
+        final AccessPrincipal p = principals[i];
+        return p == principal || principal.equals(p) ? values[i] : 0L;
+      }
+      i = (i + 1) & mask;
+    }
+    return 0L;
+  }
+
+  private long generation() {
+    long stamp = lock.tryOptimisticRead();
+    long value = generation;
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        value = generation;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return value;
+  }
+
+  private void store(
+      final long key,
+      final AccessPrincipal principal,
+      final long knownBits,
+      final long grantedBits,
+      final long expectedGeneration) {
+
+    final long stamp = lock.writeLock();
+    try {
+      if (generation != expectedGeneration) {
+        return; // decision was made with an invalidated delegate
+      }
+      int mask = keys.length - 1;
+      int i = indexFor(key, mask);
+      while (keys[i] != EMPTY) {
+        if (keys[i] == key) {
+          if (principal.equals(principals[i])) {
+            values[i] = (values[i] | (knownBits << 32) | grantedBits);
+          } else {
+            // another principal with the same fingerprint: the newer one wins the slot
+            principals[i] = principal;
+            values[i] = (knownBits << 32) | grantedBits;
+          }
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      if (size >= maximumSize) {
+        evict();
+      } else if ((size + 1) * 2 > keys.length) {
+        resize();
+      }
+      mask = keys.length - 1;
+      i = indexFor(key, mask);
+      while (keys[i] != EMPTY) {
+        i = (i + 1) & mask;
+      }
+      values[i] = (knownBits << 32) | grantedBits;
+      principals[i] = principal;
+      keys[i] = key;
+      size++;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes one entry. The slots are visited round robin, so the entries are evicted roughly in
+   * the order of their slots and not all at once.
+   */
+  private void evict() {
+    final int mask = keys.length - 1;
+    int i = evictionIndex & mask;
+    while (keys[i] == EMPTY) {
+      i = (i + 1) & mask;
+    }
+    removeAt(i);
+    evictionIndex = (i + 1) & mask;
+  }
+
+  private void resize() {
+    final long[] oldKeys = keys;
+    final long[] oldValues = values;
+    final long[] newKeys = new long[oldKeys.length << 1];
+    final long[] newValues = new long[newKeys.length];
+    final AccessPrincipal[] oldPrincipals = principals;
+    final AccessPrincipal[] newPrincipals = new AccessPrincipal[newKeys.length];
+    final int mask = newKeys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldKeys[j] != EMPTY) {
+        int i = indexFor(oldKeys[j], mask);
+        while (newKeys[i] != EMPTY) {
+          i = (i + 1) & mask;
+        }
+        newKeys[i] = oldKeys[j];
+        newValues[i] = oldValues[j];
+        newPrincipals[i] = oldPrincipals[j];
+      }
+    }
+    keys = newKeys;
+    values = newValues;
+    principals = newPrincipals;
+  }
+
+  /**
+   * Returns the key of the given principal in the table.
+   *
+   * @param principal the principal
+   * @return the key (never {@code 0})
+   */
+  long fingerprint(final AccessPrincipal principal) {
+    return principal.fingerprint();
+  }
+
+  /**
+   * Returns the index of the given permission. The known permissions have the indexes of {@link
+   * PermissionMask}, other permissions get the next free index.
+   *
+   * @param permission the permission
+   * @return the index or {@code -1}, if there are too many permissions
+   */
+  private int permissionIndex(final String permission) {
+    final int index = PermissionMask.indexOf(permission);
+    if (index >= 0) {
+      return index;
+    }
+    final String key = permission.toLowerCase();
+    synchronized (customPermissions) {
+      final Integer customIndex = customPermissions.get(key);
+      if (customIndex != null) {
+        return customIndex;
+      }
+      final int nextIndex = PermissionConstants.ALL.length + customPermissions.size();
+      if (nextIndex >= MAX_PERMISSIONS) {
+        return -1;
+      }
+      customPermissions.put(key, nextIndex);
+      return nextIndex;
+    }
+  }
+
+  @Override
+  public boolean hasPermission(
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups,
+      @Nullable final String permission) {
+    return delegate.hasPermission(user, roles, groups, permission);
+  }
+
+  @Override
+  public long effectivePermissions(
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups) {
+    return delegate.effectivePermissions(user, roles, groups);
+  }
+
+  @Override
+  public boolean hasPermission(
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission) {
+
+    if (permission == null) {
+      return false;
+    }
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    final int index = permissionIndex(permission);
+    if (index < 0) {
+      return delegate.hasPermission(p, permission);
+    }
+    final long key = fingerprint(p);
+    final long bit = 1L << index;
+    final long value = lookup(key, p);
+    if (((value >>> 32) & bit) != 0L) {
+      return (value & bit) != 0L;
+    }
+    final long expectedGeneration = generation();
+    final boolean result = delegate.hasPermission(p, permission);
+    store(key, p, bit, result ? bit : 0L, expectedGeneration);
+    return result;
+  }
+
+  @Override
+  public long effectivePermissions(@Nullable final AccessPrincipal principal) {
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    final long key = fingerprint(p);
+    final long value = lookup(key, p);
+    if (((value >>> 32) & PermissionMask.ALL) == PermissionMask.ALL) {
+      return value & PermissionMask.ALL;
+    }
+    final long expectedGeneration = generation();
+    final long result = delegate.effectivePermissions(p) & PermissionMask.ALL;
+    store(key, p, PermissionMask.ALL, result & GRANTED_BITS, expectedGeneration);
+    return result;
+  }
+
+}
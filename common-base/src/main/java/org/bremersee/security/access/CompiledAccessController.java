@@ -0,0 +1,569 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.ToString;
+import org.bremersee.common.model.AccessControlEntry;
+import org.bremersee.common.model.AccessControlList;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * An immutable access controller that is compiled once from an access control list.
+ *
+ * <p>The permissions are normalized and interned and the users, roles and groups of each entry
+ * are kept in hash based sets. The evaluation methods don't create any streams or lambdas, so
+ * this implementation should be used, if the same access control list is checked many times.
+ *
+ * @author Christian Bremer
+ */
+@ToString
+public final class CompiledAccessController implements AccessController {
+
+  private static final CompiledAccessController EMPTY = new CompiledAccessController(
+      null, Collections.emptyMap());
+
+  private final String owner;
+
+  private final Map<String, CompiledAce> entries;
+
+  @ToString.Exclude
+  private final CompiledAce[] knownEntries;
+
+  private CompiledAccessController(
+      final String owner,
+      final Map<String, CompiledAce> entries) {
+    this.owner = owner;
+    this.entries = entries;
+    this.knownEntries = new CompiledAce[PermissionConstants.ALL.length];
+    for (int i = 0; i < knownEntries.length; i++) {
+      knownEntries[i] = entries.get(PermissionConstants.ALL[i]);
+    }
+  }
+
+  /**
+   * Compiles the given access control list.
+   *
+   * @param acl the access control list
+   * @return the compiled access controller
+   */
+  public static CompiledAccessController compile(@Nullable final Acl<? extends Ace> acl) {
+    return compile(acl, PermissionImplications.none());
+  }
+
+  /**
+   * Compiles the given access control list. The grants of each entry are added to the entries of
+   * all permissions, that are implied by its permission, so the checks don't have to evaluate
+   * the implications.
+   *
+   * @param acl          the access control list
+   * @param implications the permission implications (can be {@code null})
+   * @return the compiled access controller
+   */
+  public static CompiledAccessController compile(
+      @Nullable final Acl<? extends Ace> acl,
+      @Nullable final PermissionImplications implications) {
+    if (acl == null) {
+      return EMPTY;
+    }
+    final Map<String, ? extends Ace> map = acl.entryMap();
+    final Map<String, AceCompiler> compilers = new HashMap<>();
+    if (map != null) {
+      for (final Map.Entry<String, ? extends Ace> entry : map.entrySet()) {
+        final Ace ace = entry.getValue();
+        if (ace != null && StringUtils.hasText(entry.getKey())) {
+          compilers
+              .computeIfAbsent(internPermission(entry.getKey()), key -> new AceCompiler())
+              .add(ace.isGuest(), ace.getUsers(), ace.getRoles(), ace.getGroups());
+        }
+      }
+    }
+    imply(compilers, implications);
+    return new CompiledAccessController(acl.getOwner(), compile(compilers));
+  }
+
+  /**
+   * Compiles the given access control list.
+   *
+   * @param acl the access control list
+   * @return the compiled access controller
+   */
+  public static CompiledAccessController compile(@Nullable final AccessControlList acl) {
+    return compile(acl, PermissionImplications.none());
+  }
+
+  /**
+   * Compiles the given access control list. The grants of each entry are added to the entries of
+   * all permissions, that are implied by its permission, so the checks don't have to evaluate
+   * the implications.
+   *
+   * @param acl          the access control list
+   * @param implications the permission implications (can be {@code null})
+   * @return the compiled access controller
+   */
+  public static CompiledAccessController compile(
+      @Nullable final AccessControlList acl,
+      @Nullable final PermissionImplications implications) {
+    if (acl == null) {
+      return EMPTY;
+    }
+    final Map<String, AceCompiler> compilers = new HashMap<>();
+    if (acl.getEntries() != null) {
+      for (final AccessControlEntry entry : acl.getEntries()) {
+        if (entry != null && StringUtils.hasText(entry.getPermission())) {
+          compilers
+              .computeIfAbsent(internPermission(entry.getPermission()), key -> new AceCompiler())
+              .add(
+                  Boolean.TRUE.equals(entry.getGuest()),
+                  entry.getUsers(),
+                  entry.getRoles(),
+                  entry.getGroups());
+        }
+      }
+    }
+    imply(compilers, implications);
+    return new CompiledAccessController(acl.getOwner(), compile(compilers));
+  }
+
+  /**
+   * Creates the compiled access controller from the collected entries.
+   *
+   * @param owner        the owner
+   * @param compilers    the collected entries, the key is the interned permission
+   * @param implications the permission implications (can be {@code null})
+   * @return the compiled access controller
+   */
+  static CompiledAccessController compile(
+      @Nullable final String owner,
+      final Map<String, AceCompiler> compilers,
+      @Nullable final PermissionImplications implications) {
+    imply(compilers, implications);
+    return new CompiledAccessController(owner, compile(compilers));
+  }
+
+  private static void imply(
+      final Map<String, AceCompiler> compilers,
+      final PermissionImplications implications) {
+
+    if (implications == null || implications.isEmpty() || compilers.isEmpty()) {
+      return;
+    }
+    final List<Map.Entry<String, AceCompiler>> sources = new ArrayList<>(compilers.entrySet());
+    for (final Map.Entry<String, AceCompiler> source : sources) {
+      for (final String implied : implications.getImpliedPermissions(source.getKey())) {
+        compilers
+            .computeIfAbsent(implied, key -> new AceCompiler())
+            .add(source.getValue());
+      }
+    }
+  }
+
+  private static Map<String, CompiledAce> compile(final Map<String, AceCompiler> compilers) {
+    if (compilers.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    final Map<String, CompiledAce> map = new HashMap<>(compilers.size() * 2);
+    for (final Map.Entry<String, AceCompiler> entry : compilers.entrySet()) {
+      map.put(entry.getKey(), entry.getValue().compile());
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  /**
+   * Returns the lower case permission. If it is one of the known permissions of {@link
+   * PermissionConstants}, the constant is returned.
+   *
+   * @param permission the permission
+   * @return the interned permission
+   */
+  static String internPermission(final String permission) {
+    final String lowerCase = permission.toLowerCase();
+    for (final String known : PermissionConstants.ALL) {
+      if (known.equals(lowerCase)) {
+        return known;
+      }
+    }
+    return lowerCase;
+  }
+
+  /**
+   * Gets owner.
+   *
+   * @return the owner
+   */
+  @Nullable
+  public String getOwner() {
+    return owner;
+  }
+
+  /**
+   * Returns the compiled entries, the key is the interned permission.
+   *
+   * @return the unmodifiable entries
+   */
+  Map<String, CompiledAce> getEntries() {
+    return entries;
+  }
+
+  @Nullable
+  private CompiledAce findEntry(final String permission) {
+    final CompiledAce ace = entries.get(permission);
+    if (ace != null || entries.isEmpty()) {
+      return ace;
+    }
+    return entries.get(permission.toLowerCase());
+  }
+
+  private boolean isOwner(final String user) {
+    return user != null && user.equals(owner);
+  }
+
+  @Override
+  public boolean hasPermission(
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups,
+      @Nullable final String permission) {
+
+    return hasPermission(user, roles, groups, false, permission);
+  }
+
+  @Override
+  public boolean hasPermission(
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission) {
+
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return hasPermission(p.getUser(), p.getRoles(), p.getGroups(), true, permission);
+  }
+
+  private boolean hasPermission(
+      final String user,
+      final Collection<String> roles,
+      final Collection<String> groups,
+      final boolean hashed,
+      final String permission) {
+
+    if (permission == null) {
+      return false;
+    }
+    if (isOwner(user)) {
+      return true;
+    }
+    final CompiledAce ace = findEntry(permission);
+    return ace != null && ace.grants(user, roles, groups, hashed);
+  }
+
+  @Override
+  public boolean hasAnyPermission(
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups,
+      @Nullable final Collection<String> permissions) {
+
+    return hasAnyPermission(user, roles, groups, false, permissions);
+  }
+
+  @Override
+  public boolean hasAnyPermission(
+      @Nullable final AccessPrincipal principal,
+      @Nullable final Collection<String> permissions) {
+
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return hasAnyPermission(p.getUser(), p.getRoles(), p.getGroups(), true, permissions);
+  }
+
+  private boolean hasAnyPermission(
+      final String user,
+      final Collection<String> roles,
+      final Collection<String> groups,
+      final boolean hashed,
+      final Collection<String> permissions) {
+
+    if (permissions == null) {
+      return false;
+    }
+    final boolean isOwner = isOwner(user);
+    for (final String permission : permissions) {
+      if (permission != null) {
+        if (isOwner) {
+          return true;
+        }
+        final CompiledAce ace = findEntry(permission);
+        if (ace != null && ace.grants(user, roles, groups, hashed)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean hasAllPermissions(
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups,
+      @Nullable final Collection<String> permissions) {
+
+    return hasAllPermissions(user, roles, groups, false, permissions);
+  }
+
+  @Override
+  public boolean hasAllPermissions(
+      @Nullable final AccessPrincipal principal,
+      @Nullable final Collection<String> permissions) {
+
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return hasAllPermissions(p.getUser(), p.getRoles(), p.getGroups(), true, permissions);
+  }
+
+  private boolean hasAllPermissions(
+      final String user,
+      final Collection<String> roles,
+      final Collection<String> groups,
+      final boolean hashed,
+      final Collection<String> permissions) {
+
+    if (permissions == null || permissions.isEmpty()) {
+      return false;
+    }
+    final boolean isOwner = isOwner(user);
+    for (final String permission : permissions) {
+      if (permission == null) {
+        return false;
+      }
+      if (!isOwner) {
+        final CompiledAce ace = findEntry(permission);
+        if (ace == null || !ace.grants(user, roles, groups, hashed)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the effective permissions of the given user with the given roles and groups as a bit
+   * mask over the known permissions (see {@link PermissionMask}). The user, roles and groups are
+   * resolved in one pass against the access control list.
+   *
+   * @param user   the user
+   * @param roles  the roles
+   * @param groups the groups
+   * @return the mask of the effective permissions
+   */
+  @Override
+  public long effectivePermissions(
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups) {
+
+    return effectivePermissions(user, roles, groups, false);
+  }
+
+  @Override
+  public long effectivePermissions(@Nullable final AccessPrincipal principal) {
+    final AccessPrincipal p = principal != null ? principal : AccessPrincipal.anonymous();
+    return effectivePermissions(p.getUser(), p.getRoles(), p.getGroups(), true);
+  }
+
+  private long effectivePermissions(
+      final String user,
+      final Collection<String> roles,
+      final Collection<String> groups,
+      final boolean hashed) {
+
+    if (isOwner(user)) {
+      return PermissionMask.ALL;
+    }
+    long mask = PermissionMask.NONE;
+    for (int i = 0; i < knownEntries.length; i++) {
+      final CompiledAce ace = knownEntries[i];
+      if (ace != null && ace.grants(user, roles, groups, hashed)) {
+        mask |= 1L << i;
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Determines whether one of the given names is contained in the granted names.
+   *
+   * @param names   the names of the caller (can be null)
+   * @param granted the granted names (a hash based set)
+   * @param hashed  specifies whether the names of the caller are a hash based set
+   * @return {@code true} if one of the names is granted, otherwise {@code false}
+   */
+  static boolean containsAny(
+      @Nullable final Collection<String> names,
+      final Set<String> granted,
+      final boolean hashed) {
+
+    if (names == null || names.isEmpty() || granted.isEmpty()) {
+      return false;
+    }
+    if ((hashed || names instanceof HashSet) && granted.size() < names.size()) {
+      for (final String name : granted) {
+        if (names.contains(name)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    for (final String name : names) {
+      if (name != null && granted.contains(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The compiled access control entry.
+   */
+  @ToString
+  static final class CompiledAce {
+
+    private final boolean guest;
+
+    private final Set<String> users;
+
+    private final Set<String> roles;
+
+    private final Set<String> groups;
+
+    private CompiledAce(
+        final boolean guest,
+        final Set<String> users,
+        final Set<String> roles,
+        final Set<String> groups) {
+      this.guest = guest;
+      this.users = users;
+      this.roles = roles;
+      this.groups = groups;
+    }
+
+    boolean isGuest() {
+      return guest;
+    }
+
+    Set<String> getUsers() {
+      return users;
+    }
+
+    Set<String> getRoles() {
+      return roles;
+    }
+
+    Set<String> getGroups() {
+      return groups;
+    }
+
+    private boolean grants(
+        final String user,
+        final Collection<String> roles,
+        final Collection<String> groups,
+        final boolean hashed) {
+
+      if (guest) {
+        return true;
+      }
+      if (user != null && users.contains(user)) {
+        return true;
+      }
+      return containsAny(roles, this.roles, hashed) || containsAny(groups, this.groups, hashed);
+    }
+  }
+
+  /**
+   * Collects the values of one or more entries with the same permission.
+   */
+  static final class AceCompiler {
+
+    private boolean guest;
+
+    private final Set<String> users = new HashSet<>();
+
+    private final Set<String> roles = new HashSet<>();
+
+    private final Set<String> groups = new HashSet<>();
+
+    private void add(
+        final boolean guest,
+        final Collection<String> users,
+        final Collection<String> roles,
+        final Collection<String> groups) {
+      this.guest = this.guest || guest;
+      addAll(this.users, users);
+      addAll(this.roles, roles);
+      addAll(this.groups, groups);
+    }
+
+    void addGuest(final boolean guest) {
+      this.guest = this.guest || guest;
+    }
+
+    void addUser(final String user) {
+      if (StringUtils.hasText(user)) {
+        users.add(user);
+      }
+    }
+
+    void addRole(final String role) {
+      if (StringUtils.hasText(role)) {
+        roles.add(role);
+      }
+    }
+
+    void addGroup(final String group) {
+      if (StringUtils.hasText(group)) {
+        groups.add(group);
+      }
+    }
+
+    private void add(final AceCompiler source) {
+      add(source.guest, source.users, source.roles, source.groups);
+    }
+
+    private static void addAll(final Set<String> target, final Collection<String> source) {
+      if (source != null) {
+        for (final String name : source) {
+          if (StringUtils.hasText(name)) {
+            target.add(name);
+          }
+        }
+      }
+    }
+
+    private CompiledAce compile() {
+      return new CompiledAce(guest, freeze(users), freeze(roles), freeze(groups));
+    }
+
+    private static Set<String> freeze(final Set<String> set) {
+      return set.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(set);
+    }
+  }
+
+}
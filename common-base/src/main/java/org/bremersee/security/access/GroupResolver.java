@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.springframework.lang.Nullable;
+
+/**
+ * Resolves the groups of a user, that are not given directly, e. g. the parent groups of nested
+ * LDAP groups. The expanded principal can be checked against the access control lists, so that
+ * the members of a nested group are found without a directory round trip.
+ *
+ * @author Christian Bremer
+ */
+public interface GroupResolver {
+
+  /**
+   * Returns a group resolver, that returns the given groups.
+   *
+   * @return the group resolver
+   */
+  static GroupResolver identity() {
+    return groups -> groups == null || groups.isEmpty()
+        ? Collections.emptySet()
+        : new HashSet<>(groups);
+  }
+
+  /**
+   * Resolves the given groups: the result contains the given groups and all groups, that they are
+   * members of (directly or transitively).
+   *
+   * @param groups the groups
+   * @return the resolved groups
+   */
+  Set<String> resolveGroups(@Nullable Collection<String> groups);
+
+  /**
+   * Returns a principal with the same user and roles and the resolved groups of the given
+   * principal.
+   *
+   * @param principal the principal
+   * @return the expanded principal
+   */
+  default AccessPrincipal expand(@Nullable AccessPrincipal principal) {
+    if (principal == null) {
+      return AccessPrincipal.anonymous();
+    }
+    return AccessPrincipal.of(
+        principal.getUser(),
+        principal.getRoles(),
+        resolveGroups(principal.getGroups()));
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.bremersee.security.access;
+
+import java.util.Collection;
+import java.util.Set;
+import lombok.ToString;
+import org.springframework.lang.Nullable;
+
+/**
+ * An access controller that applies permission implications to another access controller: a
+ * permission is granted, if the permission itself or a permission, that implies it, is granted by
+ * the other access controller. It is used to evaluate access control lists, that were compacted
+ * with {@link AclBuilder#compact(PermissionImplications)}, without compiling them.
+ *
+ * @author Christian Bremer
+ */
+@ToString
+final class ImplyingAccessController implements AccessController {
+
+  private final AccessController delegate;
+
+  private final PermissionImplications implications;
+
+  private ImplyingAccessController(
+      final AccessController delegate,
+      final PermissionImplications implications) {
+    this.delegate = delegate;
+    this.implications = implications;
+  }
+
+  /**
+   * Applies the given permission implications to the given access controller.
+   *
+   * @param delegate     the access controller
+   * @param implications the permission implications (can be {@code null})
+   * @return the access controller, that applies the implications
+   */
+  static AccessController of(
+      final AccessController delegate,
+      @Nullable final PermissionImplications implications) {
+    if (implications == null || implications.isEmpty()) {
+      return delegate;
+    }
+    return new ImplyingAccessController(delegate, implications);
+  }
+
+  @Override
+  public boolean hasPermission(
+      @Nullable final String user,
+      @Nullable final Collection<String> roles,
+      @Nullable final Collection<String> groups,
+      @Nullable final String permission) {
+
+    if (delegate.hasPermission(user, roles, groups, permission)) {
+      return true;
+    }
+    final Set<String> implying = implications.getImplyingPermissions(permission);
+    for (final String implyingPermission : implying) {
+      if (delegate.hasPermission(user, roles, groups, implyingPermission)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean hasPermission(
+      @Nullable final AccessPrincipal principal,
+      @Nullable final String permission) {
+
+    if (delegate.hasPermission(principal, permission)) {
+      return true;
+    }
+    final Set<String> implying = implications.getImplyingPermissions(permission);
+    for (final String implyingPermission : implying) {
+      if (delegate.hasPermission(principal, implyingPermission)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
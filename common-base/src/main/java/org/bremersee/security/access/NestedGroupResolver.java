@@ -0,0 +1,305 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import static org.springframework.util.Assert.isTrue;
+import static org.springframework.util.Assert.notNull;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * A group resolver, that keeps the graph of nested groups in memory.
+ *
+ * <p>The graph consists of the direct parent groups of every group. It can be changed group by
+ * group with {@link #setParentGroups(String, Collection)} and {@link #removeGroup(String)}, or it
+ * can be loaded from a source (e. g. the directory) with {@link #refresh()}, which only applies
+ * the changes. The refresh can be scheduled with {@link #scheduleRefresh(ScheduledExecutorService,
+ * Duration)}.
+ *
+ * <p>The transitive parent groups of a group are calculated, when they are requested for the
+ * first time, and cached until the graph above the group is changed.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+@SuppressWarnings("WeakerAccess")
+public class NestedGroupResolver implements GroupResolver {
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Map<String, Set<String>> parents = new HashMap<>();
+
+  private final Map<String, Set<String>> children = new HashMap<>();
+
+  private final Map<String, Set<String>> closures = new ConcurrentHashMap<>();
+
+  private final Supplier<? extends Map<String, ? extends Collection<String>>> source;
+
+  /**
+   * Instantiates a new nested group resolver without a source. The graph must be changed with
+   * {@link #setParentGroups(String, Collection)} and {@link #removeGroup(String)}.
+   */
+  public NestedGroupResolver() {
+    this(null);
+  }
+
+  /**
+   * Instantiates a new nested group resolver. The graph is loaded from the source, when {@link
+   * #refresh()} is called.
+   *
+   * @param source the source, that returns the direct parent groups of all groups (the key of the
+   *               map is the group, the value contains the groups, that it is a member of)
+   */
+  public NestedGroupResolver(
+      @Nullable Supplier<? extends Map<String, ? extends Collection<String>>> source) {
+    this.source = source;
+  }
+
+  /**
+   * Sets the direct parent groups of the given group.
+   *
+   * @param group        the group
+   * @param parentGroups the direct parent groups (if it is empty, the group is removed)
+   */
+  public void setParentGroups(
+      @NotNull final String group,
+      @Nullable final Collection<String> parentGroups) {
+
+    notNull(group, "Group must not be null.");
+    final Set<String> newParents = new HashSet<>();
+    if (parentGroups != null) {
+      for (final String parentGroup : parentGroups) {
+        if (StringUtils.hasText(parentGroup) && !parentGroup.equals(group)) {
+          newParents.add(parentGroup);
+        }
+      }
+    }
+    lock.writeLock().lock();
+    try {
+      final Set<String> oldParents = parents.getOrDefault(group, Collections.emptySet());
+      if (oldParents.equals(newParents)) {
+        return;
+      }
+      invalidate(group);
+      for (final String oldParent : oldParents) {
+        if (!newParents.contains(oldParent)) {
+          remove(children, oldParent, group);
+        }
+      }
+      for (final String newParent : newParents) {
+        children.computeIfAbsent(newParent, key -> new HashSet<>()).add(group);
+      }
+      if (newParents.isEmpty()) {
+        parents.remove(group);
+      } else {
+        parents.put(group, newParents);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the given group from the graph: it is no longer a member of other groups and other
+   * groups are no longer members of it.
+   *
+   * @param group the group
+   */
+  public void removeGroup(@Nullable final String group) {
+    if (group == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      invalidate(group);
+      final Set<String> oldParents = parents.remove(group);
+      if (oldParents != null) {
+        for (final String oldParent : oldParents) {
+          remove(children, oldParent, group);
+        }
+      }
+      final Set<String> oldChildren = children.remove(group);
+      if (oldChildren != null) {
+        for (final String oldChild : oldChildren) {
+          remove(parents, oldChild, group);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private static void remove(
+      final Map<String, Set<String>> map,
+      final String key,
+      final String value) {
+    final Set<String> values = map.get(key);
+    if (values != null && values.remove(value) && values.isEmpty()) {
+      map.remove(key);
+    }
+  }
+
+  /**
+   * Removes the cached closures of the given group and of all groups, that are members of it
+   * (directly or transitively). Must be called with the write lock.
+   *
+   * @param group the group
+   */
+  private void invalidate(final String group) {
+    if (closures.isEmpty()) {
+      return;
+    }
+    final Set<String> visited = new HashSet<>();
+    final Deque<String> queue = new ArrayDeque<>();
+    queue.add(group);
+    while (!queue.isEmpty()) {
+      final String next = queue.poll();
+      if (visited.add(next)) {
+        closures.remove(next);
+        queue.addAll(children.getOrDefault(next, Collections.emptySet()));
+      }
+    }
+  }
+
+  /**
+   * Loads the graph from the source and applies the changes. Nothing happens, if there is no
+   * source.
+   */
+  public void refresh() {
+    if (source == null) {
+      return;
+    }
+    final Map<String, ? extends Collection<String>> graph = source.get();
+    final Set<String> groups;
+    lock.readLock().lock();
+    try {
+      groups = new HashSet<>(parents.keySet());
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (graph != null) {
+      for (final Map.Entry<String, ? extends Collection<String>> entry : graph.entrySet()) {
+        if (entry.getKey() != null) {
+          setParentGroups(entry.getKey(), entry.getValue());
+          groups.remove(entry.getKey());
+        }
+      }
+    }
+    for (final String group : groups) {
+      setParentGroups(group, null);
+    }
+  }
+
+  /**
+   * Schedules the refresh of the graph with the given executor. The first refresh is executed
+   * immediately. A failed refresh is logged and doesn't cancel the following ones.
+   *
+   * @param executor the executor
+   * @param interval the interval between the end of a refresh and the start of the next one
+   * @return the future, that can be used to cancel the refresh
+   */
+  public ScheduledFuture<?> scheduleRefresh(
+      @NotNull final ScheduledExecutorService executor,
+      @NotNull final Duration interval) {
+
+    notNull(executor, "Executor must not be null.");
+    notNull(interval, "Interval must not be null.");
+    isTrue(!interval.isNegative() && !interval.isZero(), "Interval must be positive.");
+    return executor.scheduleWithFixedDelay(() -> {
+      try {
+        refresh();
+      } catch (RuntimeException e) {
+        log.error("Refreshing nested groups failed.", e);
+      }
+    }, 0L, interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the groups, that the given group is a member of (directly or transitively). The given
+   * group itself is not contained.
+   *
+   * @param group the group
+   * @return the unmodifiable parent groups
+   */
+  public Set<String> getParentGroups(@Nullable final String group) {
+    if (group == null) {
+      return Collections.emptySet();
+    }
+    final Set<String> closure = closures.get(group);
+    if (closure != null) {
+      return closure;
+    }
+    lock.readLock().lock();
+    try {
+      if (!parents.containsKey(group)) {
+        return Collections.emptySet(); // unknown groups are not cached
+      }
+      // the closure is calculated and cached with the read lock, so that no writer can
+      // invalidate it in between
+      return closures.computeIfAbsent(group, this::calculateParentGroups);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private Set<String> calculateParentGroups(final String group) {
+    final Set<String> result = new HashSet<>();
+    final Deque<String> queue = new ArrayDeque<>(parents.get(group));
+    while (!queue.isEmpty()) {
+      final String next = queue.poll();
+      if (!next.equals(group) && result.add(next)) {
+        queue.addAll(parents.getOrDefault(next, Collections.emptySet()));
+      }
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+  @Override
+  public Set<String> resolveGroups(@Nullable final Collection<String> groups) {
+    if (groups == null || groups.isEmpty()) {
+      return Collections.emptySet();
+    }
+    final Set<String> result = new HashSet<>();
+    for (final String group : groups) {
+      if (group != null) {
+        result.add(group);
+        result.addAll(getParentGroups(group));
+      }
+    }
+    return result;
+  }
+
+}
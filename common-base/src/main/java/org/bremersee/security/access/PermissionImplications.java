@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * Implication rules between permissions, e. g. "administration implies write implies read".
+ *
+ * <p>A user, that has a permission, has all permissions that are implied by it. The rules are
+ * transitive; the transitive closure is calculated once, when the rules are created. The
+ * permissions are case insensitive.
+ *
+ * @author Christian Bremer
+ */
+@ToString
+@EqualsAndHashCode
+@SuppressWarnings("WeakerAccess")
+public final class PermissionImplications {
+
+  private static final PermissionImplications NONE = new PermissionImplications(
+      Collections.emptyMap());
+
+  private final Map<String, Set<String>> impliedPermissions;
+
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  private final Map<String, Set<String>> implyingPermissions;
+
+  private PermissionImplications(final Map<String, Set<String>> impliedPermissions) {
+    this.impliedPermissions = impliedPermissions;
+    final Map<String, Set<String>> implying = new HashMap<>();
+    for (final Map.Entry<String, Set<String>> entry : impliedPermissions.entrySet()) {
+      for (final String implied : entry.getValue()) {
+        implying.computeIfAbsent(implied, key -> new LinkedHashSet<>()).add(entry.getKey());
+      }
+    }
+    this.implyingPermissions = freeze(implying);
+  }
+
+  /**
+   * Returns the rules without any implication.
+   *
+   * @return the rules without any implication
+   */
+  public static PermissionImplications none() {
+    return NONE;
+  }
+
+  /**
+   * Creates a hierarchy of permissions: each permission implies all following permissions, e. g.
+   * {@code hierarchy("administration", "write", "read")}.
+   *
+   * @param permissions the permissions, the strongest first
+   * @return the implication rules
+   */
+  public static PermissionImplications hierarchy(@Nullable final String... permissions) {
+    final Map<String, Collection<String>> rules = new HashMap<>();
+    if (permissions != null) {
+      for (int i = 0; i < permissions.length - 1; i++) {
+        if (StringUtils.hasText(permissions[i])) {
+          rules.put(permissions[i], Collections.singletonList(permissions[i + 1]));
+        }
+      }
+    }
+    return of(rules);
+  }
+
+  /**
+   * Creates implication rules. The key of the map is a permission, the value contains the
+   * permissions, that are directly implied by it.
+   *
+   * @param rules the rules
+   * @return the implication rules
+   */
+  public static PermissionImplications of(
+      @Nullable final Map<String, ? extends Collection<String>> rules) {
+
+    if (rules == null || rules.isEmpty()) {
+      return NONE;
+    }
+    final Map<String, Set<String>> direct = new HashMap<>();
+    for (final Map.Entry<String, ? extends Collection<String>> rule : rules.entrySet()) {
+      if (StringUtils.hasText(rule.getKey()) && rule.getValue() != null) {
+        final String permission = CompiledAccessController.internPermission(rule.getKey());
+        for (final String implied : rule.getValue()) {
+          if (StringUtils.hasText(implied)) {
+            direct
+                .computeIfAbsent(permission, key -> new LinkedHashSet<>())
+                .add(CompiledAccessController.internPermission(implied));
+          }
+        }
+      }
+    }
+    final Map<String, Set<String>> closure = new HashMap<>();
+    for (final String permission : direct.keySet()) {
+      final Set<String> implied = new LinkedHashSet<>();
+      final Deque<String> queue = new ArrayDeque<>(direct.get(permission));
+      while (!queue.isEmpty()) {
+        final String next = queue.poll();
+        if (!next.equals(permission) && implied.add(next)) {
+          queue.addAll(direct.getOrDefault(next, Collections.emptySet()));
+        }
+      }
+      if (!implied.isEmpty()) {
+        closure.put(permission, implied);
+      }
+    }
+    return closure.isEmpty() ? NONE : new PermissionImplications(freeze(closure));
+  }
+
+  private static Map<String, Set<String>> freeze(final Map<String, Set<String>> map) {
+    if (map.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    final Map<String, Set<String>> frozen = new HashMap<>(map.size() * 2);
+    for (final Map.Entry<String, Set<String>> entry : map.entrySet()) {
+      frozen.put(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+    }
+    return Collections.unmodifiableMap(frozen);
+  }
+
+  /**
+   * Determines whether there are no implications.
+   *
+   * @return {@code true} if there are no implications, otherwise {@code false}
+   */
+  public boolean isEmpty() {
+    return impliedPermissions.isEmpty();
+  }
+
+  /**
+   * Returns the permissions, that are implied by the given permission (directly or
+   * transitively). The given permission itself is not contained.
+   *
+   * @param permission the permission
+   * @return the implied permissions (lower case)
+   */
+  public Set<String> getImpliedPermissions(@Nullable final String permission) {
+    return get(impliedPermissions, permission);
+  }
+
+  /**
+   * Returns the permissions, that imply the given permission (directly or transitively). The
+   * given permission itself is not contained.
+   *
+   * @param permission the permission
+   * @return the implying permissions (lower case)
+   */
+  public Set<String> getImplyingPermissions(@Nullable final String permission) {
+    return get(implyingPermissions, permission);
+  }
+
+  private static Set<String> get(final Map<String, Set<String>> map, final String permission) {
+    if (permission == null || map.isEmpty()) {
+      return Collections.emptySet();
+    }
+    final Set<String> permissions = map.get(CompiledAccessController.internPermission(permission));
+    return permissions != null ? permissions : Collections.emptySet();
+  }
+
+  /**
+   * Determines whether the given permission implies the other permission. Every permission
+   * implies itself.
+   *
+   * @param permission        the permission
+   * @param impliedPermission the other permission
+   * @return {@code true} if the permission implies the other permission, otherwise {@code false}
+   */
+  public boolean implies(
+      @Nullable final String permission,
+      @Nullable final String impliedPermission) {
+
+    if (permission == null || impliedPermission == null) {
+      return false;
+    }
+    return permission.equalsIgnoreCase(impliedPermission)
+        || getImpliedPermissions(permission)
+        .contains(CompiledAccessController.internPermission(impliedPermission));
+  }
+
+}
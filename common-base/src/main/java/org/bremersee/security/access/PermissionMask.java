@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.security.access;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.springframework.lang.Nullable;
+
+/**
+ * Bit masks over the known permissions of {@link PermissionConstants}.
+ *
+ * <p>The bit of a permission is determined by its index in {@link PermissionConstants#ALL}.
+ * Permissions that are not known have no bit.
+ *
+ * @author Christian Bremer
+ */
+@SuppressWarnings("WeakerAccess")
+public abstract class PermissionMask {
+
+  /**
+   * The empty mask.
+   */
+  public static final long NONE = 0L;
+
+  /**
+   * The mask of all known permissions.
+   */
+  public static final long ALL = (1L << PermissionConstants.ALL.length) - 1L;
+
+  private PermissionMask() {
+  }
+
+  /**
+   * Returns the index of the given permission in {@link PermissionConstants#ALL}.
+   *
+   * @param permission the permission
+   * @return the index or {@code -1}, if the permission is not known
+   */
+  public static int indexOf(@Nullable String permission) {
+    if (permission == null) {
+      return -1;
+    }
+    for (int i = 0; i < PermissionConstants.ALL.length; i++) {
+      // identity check first, callers normally use the constants
+      if (PermissionConstants.ALL[i] == permission
+          || PermissionConstants.ALL[i].equalsIgnoreCase(permission)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Determines whether the given permission is a known permission.
+   *
+   * @param permission the permission
+   * @return {@code true} if the permission has a bit, otherwise {@code false}
+   */
+  public static boolean isKnown(@Nullable String permission) {
+    return indexOf(permission) >= 0;
+  }
+
+  /**
+   * Returns the mask of the given permissions. Unknown permissions are ignored.
+   *
+   * @param permissions the permissions
+   * @return the mask
+   */
+  public static long of(@Nullable String... permissions) {
+    long mask = NONE;
+    if (permissions != null) {
+      for (String permission : permissions) {
+        final int index = indexOf(permission);
+        if (index >= 0) {
+          mask |= 1L << index;
+        }
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Returns the mask of the given permissions. Unknown permissions are ignored.
+   *
+   * @param permissions the permissions
+   * @return the mask
+   */
+  public static long of(@Nullable Collection<String> permissions) {
+    long mask = NONE;
+    if (permissions != null) {
+      for (String permission : permissions) {
+        final int index = indexOf(permission);
+        if (index >= 0) {
+          mask |= 1L << index;
+        }
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Determines whether the mask contains at least one of the required permissions.
+   *
+   * @param mask     the mask (e. g. the effective permissions)
+   * @param required the mask of the required permissions
+   * @return {@code true} if at least one of the required permissions is set, otherwise {@code
+   *     false}
+   */
+  public static boolean hasAny(long mask, long required) {
+    return (mask & required) != NONE;
+  }
+
+  /**
+   * Determines whether the mask contains all of the required permissions.
+   *
+   * @param mask     the mask (e. g. the effective permissions)
+   * @param required the mask of the required permissions
+   * @return {@code true} if all required permissions are set, otherwise {@code false}
+   */
+  public static boolean hasAll(long mask, long required) {
+    return required != NONE && (mask & required) == required;
+  }
+
+  /**
+   * Returns the permissions of the given mask.
+   *
+   * @param mask the mask
+   * @return the permissions
+   */
+  public static Set<String> toPermissions(long mask) {
+    if ((mask & ALL) == NONE) {
+      return Collections.emptySet();
+    }
+    final Set<String> permissions = new LinkedHashSet<>();
+    for (int i = 0; i < PermissionConstants.ALL.length; i++) {
+      if ((mask & (1L << i)) != NONE) {
+        permissions.add(PermissionConstants.ALL[i]);
+      }
+    }
+    return permissions;
+  }
+
+}
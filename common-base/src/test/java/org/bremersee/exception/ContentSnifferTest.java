@@ -0,0 +1,91 @@
+package org.bremersee.exception;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import org.bremersee.exception.ContentSniffer.Format;
+import org.junit.Test;
+
+/**
+ * The content sniffer test.
+ *
+ * @author Christian Bremer
+ */
+public class ContentSnifferTest {
+
+  private static Format sniff(String content) {
+    byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+    return ContentSniffer.sniff(bytes, bytes.length);
+  }
+
+  /**
+   * Sniff bytes.
+   */
+  @Test
+  public void sniffBytes() {
+    assertEquals(Format.JSON, sniff("{\"message\":\"foo\"}"));
+    assertEquals(Format.JSON, sniff(" \r\n\t{}"));
+    assertEquals(Format.JSON, sniff("\uFEFF{}"));
+    assertEquals(Format.XML, sniff("<?xml version=\"1.0\"?><RestApiException/>"));
+    assertEquals(Format.XML, sniff("  <RestApiException/>"));
+    assertEquals(Format.TEXT, sniff("<!DOCTYPE html><html></html>"));
+    assertEquals(Format.TEXT, sniff("<HTML></HTML>"));
+    assertEquals(Format.TEXT, sniff("Bad Gateway"));
+    assertEquals(Format.TEXT, sniff("[1, 2]"));
+    assertEquals(Format.TEXT, sniff("   "));
+    assertEquals(Format.TEXT, ContentSniffer.sniff(null, 0));
+    assertEquals(Format.TEXT, ContentSniffer.sniff(new byte[]{'{'}, 0));
+  }
+
+  /**
+   * Sniff characters.
+   */
+  @Test
+  public void sniffCharacters() {
+    assertEquals(Format.JSON, ContentSniffer.sniff("\uFEFF {\"message\":\"foo\"}"));
+    assertEquals(Format.XML, ContentSniffer.sniff("\n<RestApiException/>"));
+    assertEquals(Format.TEXT, ContentSniffer.sniff("<!doctype HTML><html></html>"));
+    assertEquals(Format.TEXT, ContentSniffer.sniff("Bad Gateway"));
+    assertEquals(Format.TEXT, ContentSniffer.sniff(""));
+    assertEquals(Format.TEXT, ContentSniffer.sniff((String) null));
+  }
+
+  /**
+   * Is rest api exception.
+   */
+  @Test
+  public void isRestApiException() {
+    assertTrue(ContentSniffer.isRestApiException(
+        " {\"_type\" : \"RestApiException\",\"message\":\"foo\"} ", Format.JSON));
+    assertTrue(ContentSniffer.isRestApiException(
+        "{\"message\":\"_type\",\"_type\":\"RestApiException\"}", Format.JSON));
+    assertFalse(ContentSniffer.isRestApiException(
+        "{\"timestamp\":\"2019-12-24T18:00:00Z\",\"status\":404,\"message\":\"foo\"}",
+        Format.JSON));
+    assertFalse(ContentSniffer.isRestApiException(
+        "{\"_type\":\"RestApiException\",\"message\":\"fo", Format.JSON));
+    assertFalse(ContentSniffer.isRestApiException(
+        "{\"_type\":\"RestApiException\"}", Format.TEXT));
+    assertFalse(ContentSniffer.isRestApiException("{}", Format.JSON));
+    assertFalse(ContentSniffer.isRestApiException(null, Format.JSON));
+
+    assertTrue(ContentSniffer.isRestApiException(
+        "<?xml version=\"1.0\"?>\n<RestApiException _type=\"RestApiException\"><id>1</id>"
+            + "</RestApiException>", Format.XML));
+    assertTrue(ContentSniffer.isRestApiException(
+        "<RestApiException><_type>RestApiException</_type></RestApiException>", Format.XML));
+    assertFalse(ContentSniffer.isRestApiException(
+        "<RestApiException><message>foo</message></RestApiException>", Format.XML));
+    assertFalse(ContentSniffer.isRestApiException(
+        "<RestApiException _type=\"RestApiException\"><id>1", Format.XML));
+
+    byte[] bytes = "\uFEFF{\"_type\":\"RestApiException\",\"message\":\"\u00e4\"}"
+        .getBytes(StandardCharsets.UTF_8);
+    assertTrue(ContentSniffer.isRestApiException(bytes, bytes.length, Format.JSON));
+    assertFalse(ContentSniffer.isRestApiException(bytes, bytes.length - 1, Format.JSON));
+    assertFalse(ContentSniffer.isRestApiException(null, 0, Format.JSON));
+  }
+
+}
@@ -0,0 +1,166 @@
+package org.bremersee.exception;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bremersee.exception.model.RestApiException;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+
+/**
+ * The deduplicating rest api exception mapper test.
+ *
+ * @author Christian Bremer
+ */
+public class DeduplicatingRestApiExceptionMapperTest {
+
+  private static class CountingMapper extends RestApiExceptionMapperImpl {
+
+    private final AtomicInteger builds = new AtomicInteger();
+
+    private CountingMapper() {
+      super(new RestApiExceptionMapperProperties(), "test");
+    }
+
+    @Override
+    public RestApiException build(ExceptionAnalysis analysis, String requestPath) {
+      builds.incrementAndGet();
+      return super.build(analysis, requestPath);
+    }
+  }
+
+  private static Exception createException(String message) {
+    return new IllegalStateException(message, new RuntimeException("Cause"));
+  }
+
+  /**
+   * Identical exceptions get a copy of the payload.
+   */
+  @Test
+  public void build() {
+    AtomicLong clock = new AtomicLong();
+    CountingMapper delegate = new CountingMapper();
+    DeduplicatingRestApiExceptionMapper mapper = new DeduplicatingRestApiExceptionMapper(
+        delegate, Duration.ofSeconds(1L), 10, 5, clock::get);
+
+    RestApiException first = null;
+    for (int i = 0; i < 10; i++) {
+      RestApiException payload = mapper.build(createException("Failed"), "/api/" + i, null);
+      if (first == null) {
+        first = payload;
+      }
+      assertEquals(first.getId(), payload.getId());
+      assertEquals("Failed", payload.getMessage());
+      assertEquals("/api/" + i, payload.getPath());
+      assertSame(first.getCause(), payload.getCause());
+    }
+    assertNotNull(first.getId());
+    assertEquals(1, delegate.builds.get());
+    assertEquals(1, mapper.size());
+
+    RestApiException other = mapper.build(createException("Other"), "/api/other", null);
+    assertNotEquals(first.getId(), other.getId());
+    assertEquals(2, delegate.builds.get());
+    assertEquals(2, mapper.size());
+
+    clock.addAndGet(Duration.ofSeconds(1L).toNanos());
+    RestApiException next = mapper.build(createException("Failed"), "/api/next", null);
+    assertNotEquals(first.getId(), next.getId());
+    assertEquals(3, delegate.builds.get());
+
+    mapper.flush();
+    assertEquals(0, mapper.size());
+  }
+
+  /**
+   * The maximum size is not exceeded.
+   */
+  @Test
+  public void maximumSize() {
+    CountingMapper delegate = new CountingMapper();
+    DeduplicatingRestApiExceptionMapper mapper = new DeduplicatingRestApiExceptionMapper(
+        delegate, Duration.ofMinutes(1L), 3, 0);
+    for (int i = 0; i < 10; i++) {
+      mapper.build(createException("Failed " + i), "/api", null);
+    }
+    assertEquals(3, mapper.size());
+    assertEquals(10, delegate.builds.get());
+
+    mapper.build(createException("Failed 9"), "/api", null);
+    mapper.build(createException("Failed 7"), "/api", null);
+    assertEquals(10, delegate.builds.get());
+    mapper.build(createException("Failed 6"), "/api", null);
+    assertEquals(11, delegate.builds.get());
+    assertEquals(3, mapper.size());
+  }
+
+  /**
+   * Expired windows are removed by other exceptions.
+   */
+  @Test
+  public void expire() {
+    AtomicLong clock = new AtomicLong();
+    CountingMapper delegate = new CountingMapper();
+    DeduplicatingRestApiExceptionMapper mapper = new DeduplicatingRestApiExceptionMapper(
+        delegate, Duration.ofSeconds(1L), 10, 0, clock::get);
+    mapper.build(createException("Failed"), "/api", null);
+    mapper.build(createException("Failed"), "/api", null);
+    assertEquals(1, mapper.size());
+
+    clock.addAndGet(Duration.ofSeconds(1L).toNanos());
+    mapper.build(createException("Other"), "/api", null);
+    assertEquals(1, mapper.size());
+    mapper.build(createException("Other"), "/api", null);
+    assertEquals(2, delegate.builds.get());
+  }
+
+  /**
+   * Different exceptions with the same fingerprint get different payloads.
+   */
+  @Test
+  public void sameFingerprint() {
+    CountingMapper delegate = new CountingMapper();
+    DeduplicatingRestApiExceptionMapper mapper = new DeduplicatingRestApiExceptionMapper(
+        delegate, Duration.ofMinutes(1L), 10, 5, System::nanoTime) {
+      @Override
+      long fingerprint(ExceptionAnalysis analysis) {
+        return 0L;
+      }
+    };
+    RestApiException first = mapper.build(createException("Failed"), "/api", null);
+    RestApiException other = mapper.build(createException("Other"), "/api", null);
+    assertEquals("Other", other.getMessage());
+    assertNotEquals(first.getId(), other.getId());
+    RestApiException next = mapper.build(
+        new IllegalArgumentException("Other", new RuntimeException("Cause")), "/api", null);
+    assertEquals(IllegalArgumentException.class.getName(), next.getClassName());
+    assertEquals(3, delegate.builds.get());
+    assertEquals(1, mapper.size());
+  }
+
+  /**
+   * The other methods are delegated.
+   */
+  @Test
+  public void delegate() {
+    RestApiExceptionMapperProperties properties = new RestApiExceptionMapperProperties();
+    properties.setApiPaths(Collections.singletonList("/api/**"));
+    DeduplicatingRestApiExceptionMapper mapper = new DeduplicatingRestApiExceptionMapper(
+        new RestApiExceptionMapperImpl(properties, "test"), Duration.ofMinutes(1L), 3);
+    assertEquals(properties.getApiPaths(), mapper.getApiPaths());
+    assertEquals(
+        HttpStatus.BAD_REQUEST,
+        mapper.detectHttpStatus(new IllegalArgumentException(), null));
+    RestApiException payload = mapper.build(new IllegalArgumentException(), null, null);
+    assertNull(payload.getId());
+    assertNull(payload.getPath());
+  }
+
+}
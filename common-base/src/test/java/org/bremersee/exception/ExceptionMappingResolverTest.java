@@ -0,0 +1,117 @@
+package org.bremersee.exception;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.bremersee.exception.RestApiExceptionMapperProperties.ExceptionMapping;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+
+/**
+ * The exception mapping resolver test.
+ *
+ * @author Christian Bremer
+ */
+public class ExceptionMappingResolverTest {
+
+  private static List<ExceptionMapping> createMappings() {
+    List<ExceptionMapping> mappings = new ArrayList<>();
+    mappings.add(new ExceptionMapping(
+        IllegalArgumentException.class.getName(), HttpStatus.BAD_REQUEST, "ARG"));
+    mappings.add(new ExceptionMapping(
+        "java.io.*", HttpStatus.SERVICE_UNAVAILABLE, "IO"));
+    mappings.add(new ExceptionMapping(
+        RuntimeException.class.getName(), HttpStatus.CONFLICT, "RT"));
+    return mappings;
+  }
+
+  /**
+   * Resolves the first matching element.
+   */
+  @Test
+  public void resolve() {
+    List<ExceptionMapping> mappings = createMappings();
+    ExceptionMappingResolver<ExceptionMapping> resolver = ExceptionMappingResolver
+        .compile(mappings, ExceptionMapping::getExceptionClassName);
+
+    assertSame(mappings.get(0), resolver.resolve(new NumberFormatException()));
+    assertSame(mappings.get(1), resolver.resolve(new UncheckedIOException(new IOException())));
+    assertSame(mappings.get(2), resolver.resolve(new IllegalStateException()));
+    assertSame(mappings.get(0),
+        resolver.resolve(new IllegalStateException(new IllegalArgumentException())));
+    assertSame(mappings.get(1), resolver.resolve(new Exception(new IOException())));
+    assertNull(resolver.resolve(new Exception()));
+    assertNull(resolver.resolve(null));
+    assertEquals(3, resolver.size());
+
+    assertSame(mappings.get(2), resolver.resolve(new IllegalStateException("Other")));
+    assertNull(resolver.resolve(new Exception("Other")));
+    assertEquals(3, resolver.size());
+  }
+
+  /**
+   * The chain cache is bounded and evicts single chains.
+   */
+  @Test
+  public void boundedChainCache() {
+    List<ExceptionMapping> mappings = createMappings();
+    ExceptionMappingResolver<ExceptionMapping> resolver = ExceptionMappingResolver
+        .compile(mappings, ExceptionMapping::getExceptionClassName);
+    Throwable throwable = new IllegalStateException();
+    for (int i = 0; i < ExceptionMappingResolver.MAX_CACHE_SIZE + 100; i++) {
+      throwable = new Exception(throwable);
+      assertSame(mappings.get(2), resolver.resolve(throwable));
+    }
+    assertEquals(ExceptionMappingResolver.MAX_CACHE_SIZE, resolver.size());
+    assertSame(mappings.get(0), resolver.resolve(new IllegalArgumentException()));
+    assertEquals(ExceptionMappingResolver.MAX_CACHE_SIZE, resolver.size());
+  }
+
+  /**
+   * Cause cycles are ignored.
+   */
+  @Test
+  public void resolveCauseCycle() {
+    Exception first = new Exception();
+    Exception second = new Exception(first);
+    first.initCause(second);
+    ExceptionMappingResolver<ExceptionMapping> resolver = ExceptionMappingResolver
+        .compile(createMappings(), ExceptionMapping::getExceptionClassName);
+    assertNull(resolver.resolve(second));
+  }
+
+  /**
+   * Changes of the list are detected.
+   */
+  @Test
+  public void isCompiledFrom() {
+    List<ExceptionMapping> mappings = createMappings();
+    ExceptionMappingResolver<ExceptionMapping> resolver = ExceptionMappingResolver
+        .compile(mappings, ExceptionMapping::getExceptionClassName);
+    assertTrue(resolver.isCompiledFrom(mappings));
+    assertFalse(resolver.isCompiledFrom(createMappings()));
+    assertFalse(resolver.isCompiledFrom(null));
+
+    mappings.get(0).setStatus(HttpStatus.I_AM_A_TEAPOT.value());
+    assertTrue(resolver.isCompiledFrom(mappings));
+    mappings.get(0).setExceptionClassName(IllegalStateException.class.getName());
+    assertFalse(resolver.isCompiledFrom(mappings));
+
+    resolver = ExceptionMappingResolver
+        .compile(mappings, ExceptionMapping::getExceptionClassName);
+    mappings.remove(2);
+    assertFalse(resolver.isCompiledFrom(mappings));
+
+    resolver = ExceptionMappingResolver.compile(null, ExceptionMapping::getExceptionClassName);
+    assertTrue(resolver.isCompiledFrom(null));
+    assertNull(resolver.resolve(new RuntimeException()));
+  }
+
+}
@@ -0,0 +1,41 @@
+package org.bremersee.exception;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * The headers only mode test.
+ *
+ * @author Christian Bremer
+ */
+public class HeadersOnlyModeTest {
+
+  /**
+   * Is headers only.
+   */
+  @Test
+  public void isHeadersOnly() {
+    assertFalse(HeadersOnlyMode.NEVER.isHeadersOnly(RestApiExceptionUtils.HEADERS_ONLY_VALUE));
+    assertTrue(HeadersOnlyMode.ALWAYS.isHeadersOnly(null));
+    assertTrue(HeadersOnlyMode.ON_REQUEST.isHeadersOnly("Headers-Only"));
+    assertFalse(HeadersOnlyMode.ON_REQUEST.isHeadersOnly("body"));
+    assertFalse(HeadersOnlyMode.ON_REQUEST.isHeadersOnly(null));
+  }
+
+  /**
+   * Is headers only response.
+   */
+  @Test
+  public void isHeadersOnlyResponse() {
+    assertFalse(RestApiExceptionUtils.isHeadersOnly(null));
+    assertFalse(RestApiExceptionUtils.isHeadersOnly(new HttpHeaders()));
+    assertTrue(RestApiExceptionUtils.isHeadersOnly(Collections.singletonMap(
+        "x-error-transport",
+        Collections.singletonList(RestApiExceptionUtils.HEADERS_ONLY_VALUE))));
+  }
+
+}
@@ -23,12 +23,18 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bremersee.exception.annotation.ErrorCode;
 import org.bremersee.exception.RestApiExceptionMapperProperties.ExceptionMapping;
 import org.bremersee.exception.RestApiExceptionMapperProperties.ExceptionMappingConfig;
+import org.bremersee.exception.RestApiExceptionMapperProperties.StackTraceMode;
 import org.bremersee.exception.model.RestApiException;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.method.HandlerMethod;
 
 /**
  * The rest api exception mapper impl test.
@@ -155,4 +161,268 @@ public class RestApiExceptionMapperImplTest {
     assertNull(model.getClassName());
   }
 
+  /**
+   * Test build with stack trace fingerprint.
+   */
+  @Test
+  public void testBuildWithStackTraceFingerprint() {
+    final RestApiExceptionMapperProperties properties = new RestApiExceptionMapperProperties();
+    final ExceptionMappingConfig config = new ExceptionMappingConfig();
+    config.setIncludeStackTrace(true);
+    config.setStackTraceMode(StackTraceMode.FINGERPRINT);
+    properties.setDefaultExceptionMappingConfig(config);
+    final RestApiExceptionMapper fingerprintMapper = new RestApiExceptionMapperImpl(
+        properties, "fingerprint");
+
+    final RestApiException model = fingerprintMapper.build(
+        new IllegalStateException("Outer", new Exception("Inner")), "/api/a", null);
+    assertEquals(1, model.getStackTrace().size());
+    assertEquals(
+        RestApiExceptionUtils.STACK_TRACE_FINGERPRINT_CLASS,
+        model.getStackTrace().get(0).getDeclaringClass());
+    assertNotNull(model.getCause());
+    assertEquals(1, model.getCause().getStackTrace().size());
+  }
+
+  /**
+   * Test analyze.
+   */
+  @Test
+  public void testAnalyze() {
+    final ServiceException exception = new ServiceException(409, "Either a or b", "TEST:4711");
+    final ExceptionAnalysis analysis = mapper.analyze(exception, null);
+    assertEquals(HttpStatus.CONFLICT, analysis.getHttpStatus());
+    assertEquals("Either a or b", analysis.getMessage());
+    assertEquals("TEST:4711", analysis.getErrorCode());
+    assertNotNull(analysis.getConfig());
+    assertEquals(analysis.getHttpStatus(), mapper.detectHttpStatus(exception, null));
+
+    final RestApiException model = mapper.build(analysis, "/api/something");
+    assertEquals(analysis.getMessage(), model.getMessage());
+    assertEquals(analysis.getErrorCode(), model.getErrorCode());
+    assertEquals("/api/something", model.getPath());
+  }
+
+  /**
+   * Test that analyze uses the overridden detect methods.
+   */
+  @Test
+  public void testAnalyzeWithOverriddenDetectMethods() {
+    final RestApiExceptionMapperProperties properties = new RestApiExceptionMapperProperties();
+    final RestApiExceptionMapper customMapper = new RestApiExceptionMapperImpl(
+        properties, "test") {
+      @Override
+      public HttpStatus detectHttpStatus(Throwable exception, Object handler) {
+        return HttpStatus.BAD_GATEWAY;
+      }
+
+      @Override
+      protected String detectMessage(
+          Throwable exception, Object handler, ExceptionMappingConfig config) {
+        return "Custom message";
+      }
+
+      @Override
+      protected String detectErrorCode(
+          Throwable exception, Object handler, ExceptionMappingConfig config) {
+        return "CUSTOM";
+      }
+    };
+    final ServiceException exception = new ServiceException(409, "Either a or b", "TEST:4711");
+    final ExceptionAnalysis analysis = customMapper.analyze(exception, null);
+    assertEquals(HttpStatus.BAD_GATEWAY, analysis.getHttpStatus());
+    assertEquals("Custom message", analysis.getMessage());
+    assertEquals("CUSTOM", analysis.getErrorCode());
+
+    final RestApiException model = customMapper.build(exception, "/api/something", null);
+    assertEquals("Custom message", model.getMessage());
+    assertEquals("CUSTOM", model.getErrorCode());
+  }
+
+  /**
+   * Test that analyze looks up the exception mapping and its config only once.
+   */
+  @Test
+  public void testAnalyzeLooksUpMappingOnce() {
+    final AtomicInteger mappingLookups = new AtomicInteger();
+    final AtomicInteger configLookups = new AtomicInteger();
+    final RestApiExceptionMapperProperties properties = new RestApiExceptionMapperProperties() {
+      @Override
+      public ExceptionMapping findExceptionMapping(Throwable throwable) {
+        mappingLookups.incrementAndGet();
+        return super.findExceptionMapping(throwable);
+      }
+
+      @Override
+      public ExceptionMappingConfig findExceptionMappingConfig(Throwable throwable) {
+        configLookups.incrementAndGet();
+        return super.findExceptionMappingConfig(throwable);
+      }
+    };
+    final RestApiExceptionMapper countingMapper = new RestApiExceptionMapperImpl(
+        properties, "test");
+    final ExceptionAnalysis analysis = countingMapper
+        .analyze(new IllegalArgumentException("Bad"), null);
+    assertEquals(HttpStatus.BAD_REQUEST, analysis.getHttpStatus());
+    assertEquals("Bad", analysis.getMessage());
+    assertEquals(1, mappingLookups.get());
+    assertEquals(1, configLookups.get());
+  }
+
+  /**
+   * Test the default analyze method of the interface.
+   */
+  @Test
+  public void testDefaultAnalyze() {
+    final RestApiExceptionMapper defaultMapper = new RestApiExceptionMapper() {
+      @Override
+      public List<String> getApiPaths() {
+        return Collections.emptyList();
+      }
+
+      @Override
+      public RestApiException build(Throwable exception, String requestPath, Object handler) {
+        return mapper.build(exception, requestPath, handler);
+      }
+
+      @Override
+      public HttpStatus detectHttpStatus(Throwable exception, Object handler) {
+        return HttpStatus.CONFLICT;
+      }
+    };
+    final ServiceException exception = new ServiceException(409, "Either a or b", "TEST:4711");
+    final ExceptionAnalysis analysis = defaultMapper.analyze(exception, null);
+    assertEquals(HttpStatus.CONFLICT, analysis.getHttpStatus());
+    assertEquals("Either a or b", analysis.getMessage());
+    assertEquals("TEST:4711", analysis.getErrorCode());
+  }
+
+  /**
+   * Test that build uses the overridden methods for the stack trace and the cause.
+   */
+  @Test
+  public void testBuildWithOverriddenStackTraceAndCauseMethods() {
+    final RestApiExceptionMapperProperties properties = new RestApiExceptionMapperProperties();
+    final ExceptionMappingConfig config = new ExceptionMappingConfig();
+    config.setIncludeStackTrace(true);
+    config.setIncludeCause(true);
+    config.setStackTraceMaxDepth(1);
+    properties.setDefaultExceptionMappingConfig(config);
+    final RestApiExceptionMapper customMapper = new RestApiExceptionMapperImpl(
+        properties, "test") {
+      @Override
+      protected void addStackTraceItems(
+          RestApiException restApiException, StackTraceElement[] stackTrace) {
+        assertEquals(1, stackTrace.length);
+        restApiException.setStackTrace(Collections.emptyList());
+      }
+
+      @Override
+      protected RestApiException buildRestApiExceptionCause(
+          Throwable cause, ExceptionMappingConfig config) {
+        return RestApiException.builder().message("Custom cause").build();
+      }
+    };
+    final RestApiException model = customMapper.build(
+        new IllegalStateException("Test", new IllegalArgumentException("Cause")),
+        "/api/something",
+        null);
+    assertNotNull(model.getStackTrace());
+    assertTrue(model.getStackTrace().isEmpty());
+    assertNotNull(model.getCause());
+    assertEquals("Custom cause", model.getCause().getMessage());
+  }
+
+  /**
+   * Test build with annotated exception.
+   */
+  @Test
+  public void testBuildWithAnnotatedException() {
+    for (int i = 0; i < 2; i++) {
+      final RestApiException model = mapper.build(new AnnotatedException(), "/api/a", null);
+      assertEquals("I am a teapot.", model.getMessage());
+      assertEquals("TEAPOT", model.getErrorCode());
+      assertEquals(
+          HttpStatus.I_AM_A_TEAPOT,
+          mapper.detectHttpStatus(new AnnotatedException(), null));
+    }
+  }
+
+  /**
+   * Test build with status method.
+   */
+  @Test
+  public void testBuildWithStatusMethod() {
+    for (int i = 0; i < 2; i++) {
+      assertEquals(
+          HttpStatus.GONE,
+          mapper.detectHttpStatus(new StatusMethodException(410), null));
+      assertEquals(
+          HttpStatus.CONFLICT,
+          mapper.detectHttpStatus(new StatusMethodException(409), null));
+    }
+  }
+
+  /**
+   * Test build with annotated handler method.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testBuildWithAnnotatedHandlerMethod() throws Exception {
+    final HandlerMethod handler = new HandlerMethod(
+        new AnnotatedHandler(), AnnotatedHandler.class.getMethod("handle"));
+    for (int i = 0; i < 2; i++) {
+      final RestApiException model = mapper.build(new Exception(), "/api/a", handler);
+      assertEquals("Not implemented.", model.getMessage());
+      assertEquals("HANDLER", model.getErrorCode());
+      assertEquals(HttpStatus.NOT_IMPLEMENTED, mapper.detectHttpStatus(new Exception(), handler));
+    }
+  }
+
+  /**
+   * An annotated exception.
+   */
+  @ResponseStatus(code = HttpStatus.I_AM_A_TEAPOT, reason = "I am a teapot.")
+  @ErrorCode("TEAPOT")
+  public static class AnnotatedException extends RuntimeException {
+
+  }
+
+  /**
+   * An exception with a status method.
+   */
+  public static class StatusMethodException extends RuntimeException {
+
+    private final int status;
+
+    StatusMethodException(int status) {
+      this.status = status;
+    }
+
+    /**
+     * Returns the status.
+     *
+     * @return the status
+     */
+    public int status() {
+      return status;
+    }
+  }
+
+  /**
+   * An annotated handler.
+   */
+  public static class AnnotatedHandler {
+
+    /**
+     * Handle.
+     */
+    @ResponseStatus(code = HttpStatus.NOT_IMPLEMENTED, reason = "Not implemented.")
+    @ErrorCode("HANDLER")
+    public void handle() {
+      // nothing to do
+    }
+  }
+
 }
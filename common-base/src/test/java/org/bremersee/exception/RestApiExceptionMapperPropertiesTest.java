@@ -2,6 +2,7 @@ package org.bremersee.exception;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -44,6 +45,41 @@ public class RestApiExceptionMapperPropertiesTest {
     assertEquals("ILLEGAL_ACCESS", mapping.getCode());
   }
 
+  /**
+   * Tests that memoized exception mappings are discarded, when the mappings are changed.
+   */
+  @Test
+  public void findExceptionMappingAfterRebinding() {
+    RestApiExceptionMapperProperties properties = new RestApiExceptionMapperProperties();
+    Exception exception = new IllegalStateException(new IllegalArgumentException());
+    ExceptionMapping mapping = properties.findExceptionMapping(exception);
+    assertEquals(HttpStatus.BAD_REQUEST.value(), mapping.getStatus());
+    assertSame(mapping, properties.findExceptionMapping(exception));
+
+    ExceptionMapping newMapping = new ExceptionMapping(
+        IllegalStateException.class.getName(), HttpStatus.CONFLICT, "CONFLICT");
+    properties.getExceptionMappings().add(0, newMapping);
+    assertSame(newMapping, properties.findExceptionMapping(exception));
+
+    newMapping.setExceptionClassName(UnsupportedOperationException.class.getName());
+    assertEquals(HttpStatus.BAD_REQUEST.value(),
+        properties.findExceptionMapping(exception).getStatus());
+
+    List<ExceptionMapping> mappings = new ArrayList<>();
+    properties.setExceptionMappings(mappings);
+    assertSame(properties.getDefaultExceptionMapping(), properties.findExceptionMapping(exception));
+
+    ExceptionMappingConfig config = new ExceptionMappingConfig();
+    config.setExceptionClassName("java.lang.*");
+    List<ExceptionMappingConfig> configs = new ArrayList<>();
+    configs.add(config);
+    assertSame(
+        properties.getDefaultExceptionMappingConfig(),
+        properties.findExceptionMappingConfig(exception));
+    properties.setExceptionMappingConfigs(configs);
+    assertSame(config, properties.findExceptionMappingConfig(exception));
+  }
+
   /**
    * Tests find exception mapping config.
    */
@@ -19,8 +19,14 @@ package org.bremersee.exception;
 import static org.bremersee.http.converter.ObjectMapperHelper.getJsonMapper;
 import static org.bremersee.http.converter.ObjectMapperHelper.getXmlMapper;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.util.UUID;
@@ -28,8 +34,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.bremersee.TestHelper;
 import org.bremersee.exception.model.RestApiException;
 import org.junit.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
@@ -88,6 +96,28 @@ public class RestApiExceptionParserImplTest {
     assertEquals(expected, actual);
   }
 
+  /**
+   * Test that a parser with an object mapper builder can parse several responses.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testResponsesWithObjectMapperBuilder() throws Exception {
+    final RestApiException expected = TestHelper.restApiException();
+    final RestApiExceptionParser parser = new RestApiExceptionParserImpl(
+        Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .featuresToEnable(SerializationFeature.WRITE_DATES_WITH_ZONE_ID));
+    for (int i = 0; i < 2; i++) {
+      assertEquals(expected, parser.parseException(
+          getJsonMapper().writeValueAsString(expected),
+          buildHttpHeaders(MediaType.APPLICATION_JSON, null)));
+      assertEquals(expected, parser.parseException(
+          getXmlMapper().writeValueAsString(expected),
+          buildHttpHeaders(MediaType.APPLICATION_XML, null)));
+    }
+  }
+
   /**
    * Test response is something else.
    *
@@ -110,6 +140,32 @@ public class RestApiExceptionParserImplTest {
     assertEquals(expected, actual);
   }
 
+  /**
+   * Test that a json or xml response, that is not a rest api exception, is not parsed.
+   */
+  @Test
+  public void testResponseIsNotARestApiException() {
+    final RestApiExceptionParser parser = new RestApiExceptionParserImpl();
+    final String json = "{\"status\":502,\"message\":\"Bad Gateway\"}";
+    RestApiException actual = parser.parseException(
+        json,
+        buildHttpHeaders(MediaType.TEXT_PLAIN, null));
+    assertEquals(json, actual.getMessage());
+    assertNull(actual.getErrorCode());
+
+    final String xml = "<error><message>Bad Gateway</message></error>";
+    actual = parser.parseException(
+        xml,
+        buildHttpHeaders(MediaType.APPLICATION_XML, null));
+    assertEquals(xml, actual.getMessage());
+
+    final String html = "<html><body>Bad Gateway</body></html>";
+    actual = parser.parseExceptionFromBytes(
+        html.getBytes(StandardCharsets.UTF_8),
+        buildHttpHeaders(MediaType.TEXT_HTML, null));
+    assertEquals(html, actual.getMessage());
+  }
+
   /**
    * Test response is empty.
    */
@@ -159,6 +215,131 @@ public class RestApiExceptionParserImplTest {
     assertEquals(expected, actual);
   }
 
+  /**
+   * Test responses as bytes, input stream and data buffer.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testResponseAsBytes() throws Exception {
+    final RestApiException expected = TestHelper.restApiException();
+    final RestApiExceptionParser parser = new RestApiExceptionParserImpl();
+    final byte[] json = getJsonMapper().writeValueAsBytes(expected);
+    final byte[] xml = getXmlMapper().writeValueAsBytes(expected);
+
+    assertEquals(expected, parser.parseExceptionFromBytes(
+        json, buildHttpHeaders(MediaType.APPLICATION_JSON, null)));
+    assertEquals(expected, parser.parseExceptionFromStream(
+        new ByteArrayInputStream(xml), buildHttpHeaders(MediaType.APPLICATION_XML, null)));
+    assertEquals(expected, parser.parseExceptionFromDataBuffer(
+        new DefaultDataBufferFactory().wrap(json),
+        buildHttpHeaders(MediaType.APPLICATION_JSON_UTF8, null)));
+    assertEquals(expected, parser.parseExceptionFromStream(
+        new ByteArrayInputStream(xml), buildHttpHeaders(MediaType.TEXT_PLAIN, null)));
+
+    final RestApiException actual = parser.parseExceptionFromBytes(
+        null, buildHttpHeaders(MediaType.APPLICATION_JSON, null));
+    assertEquals(RestApiExceptionUtils.NO_MESSAGE_VALUE, actual.getMessage());
+  }
+
+  /**
+   * Test that a large html response is truncated.
+   */
+  @Test
+  public void testLargeHtmlResponse() {
+    final StringBuilder sb = new StringBuilder("<!DOCTYPE html><html><body>");
+    for (int i = 0; i < 10000; i++) {
+      sb.append("<p>Bad Gateway</p>");
+    }
+    sb.append("</body></html>");
+    final byte[] html = sb.toString().getBytes(StandardCharsets.UTF_8);
+    final RestApiExceptionParserImpl parser = new RestApiExceptionParserImpl();
+    parser.setMaxBodySize(100);
+
+    RestApiException actual = parser.parseExceptionFromStream(
+        new ByteArrayInputStream(html), buildHttpHeaders(MediaType.TEXT_HTML, null));
+    assertEquals(100, actual.getMessage().length());
+    assertTrue(sb.toString().startsWith(actual.getMessage()));
+
+    actual = parser.parseExceptionFromBytes(html, buildHttpHeaders(null, null));
+    assertEquals(100, actual.getMessage().length());
+  }
+
+  /**
+   * Test that a json or xml response, that is larger than the maximum body size, is parsed
+   * completely.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testLargeJsonAndXmlResponse() throws Exception {
+    final RestApiException expected = TestHelper.restApiException();
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append("Large message. ");
+    }
+    expected.setMessage(sb.toString());
+    final byte[] json = getJsonMapper().writeValueAsBytes(expected);
+    final byte[] xml = getXmlMapper().writeValueAsBytes(expected);
+    final RestApiExceptionParserImpl parser = new RestApiExceptionParserImpl();
+    parser.setMaxBodySize(100);
+    assertTrue(json.length > 10000);
+
+    assertEquals(expected, parser.parseExceptionFromBytes(
+        json, buildHttpHeaders(MediaType.APPLICATION_JSON, null)));
+    assertEquals(expected, parser.parseExceptionFromStream(
+        new ByteArrayInputStream(json), buildHttpHeaders(MediaType.APPLICATION_JSON, null)));
+    assertEquals(expected, parser.parseExceptionFromStream(
+        new ByteArrayInputStream(xml), buildHttpHeaders(MediaType.APPLICATION_XML, null)));
+    assertEquals(expected, parser.parseExceptionFromDataBuffer(
+        new DefaultDataBufferFactory().wrap(xml),
+        buildHttpHeaders(MediaType.APPLICATION_XML, null)));
+    assertTrue(RestApiExceptionParserImpl.isParsedBody(
+        json, 100, buildHttpHeaders(MediaType.APPLICATION_JSON, null)));
+    assertFalse(RestApiExceptionParserImpl.isParsedBody(
+        "<html><body>Bad Gateway</body></html>".getBytes(StandardCharsets.UTF_8), 12,
+        buildHttpHeaders(MediaType.TEXT_HTML, null)));
+  }
+
+  /**
+   * Test that a json or xml response, that is larger than the maximum parsed body size, is not
+   * parsed and the exception is built from the headers.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testTooLargeJsonAndXmlResponse() throws Exception {
+    final RestApiException expected = TestHelper.restApiException();
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append("Large message. ");
+    }
+    expected.setMessage(sb.toString());
+    final byte[] json = getJsonMapper().writeValueAsBytes(expected);
+    final byte[] xml = getXmlMapper().writeValueAsBytes(expected);
+    final RestApiExceptionParserImpl parser = new RestApiExceptionParserImpl();
+    parser.setMaxBodySize(100);
+    parser.setMaxParsedBodySize(1000);
+    final MultiValueMap<String, String> errorHeaders = new LinkedMultiValueMap<>();
+    errorHeaders.set(RestApiExceptionUtils.MESSAGE_HEADER_NAME, "Too large");
+    errorHeaders.set(RestApiExceptionUtils.CODE_HEADER_NAME, "TEST:413");
+
+    RestApiException actual = parser.parseExceptionFromStream(
+        new ByteArrayInputStream(json), buildHttpHeaders(MediaType.APPLICATION_JSON, errorHeaders));
+    assertEquals("Too large", actual.getMessage());
+    assertEquals("TEST:413", actual.getErrorCode());
+
+    actual = parser.parseExceptionFromDataBuffer(
+        new DefaultDataBufferFactory().wrap(xml),
+        buildHttpHeaders(MediaType.APPLICATION_XML, errorHeaders));
+    assertEquals("Too large", actual.getMessage());
+    assertEquals("TEST:413", actual.getErrorCode());
+
+    parser.setMaxParsedBodySize(json.length);
+    assertEquals(expected, parser.parseExceptionFromStream(
+        new ByteArrayInputStream(json), buildHttpHeaders(MediaType.APPLICATION_JSON, null)));
+  }
+
   private HttpHeaders buildHttpHeaders(
       MediaType contentType,
       MultiValueMap<String, String> errorHeaders) {
@@ -0,0 +1,176 @@
+package org.bremersee.exception;
+
+import static org.bremersee.http.converter.ObjectMapperHelper.getJsonMapper;
+import static org.bremersee.http.converter.ObjectMapperHelper.getXmlMapper;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import org.bremersee.exception.model.RestApiException;
+import org.bremersee.exception.model.StackTraceItem;
+import org.junit.Test;
+
+/**
+ * The rest api exception template cache test.
+ *
+ * @author Christian Bremer
+ */
+public class RestApiExceptionTemplateCacheTest {
+
+  private static RestApiException restApiException(String id, String path) {
+    return RestApiException.builder()
+        .id(id)
+        .timestamp(OffsetDateTime.now(ZoneOffset.UTC))
+        .message("Not found.")
+        .errorCode("TEST:404")
+        .errorCodeInherited(false)
+        .className(ServiceException.class.getName())
+        .application("test")
+        .path(path)
+        .build();
+  }
+
+  /**
+   * Render json.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void renderJson() throws Exception {
+    RestApiExceptionTemplateCache cache = new RestApiExceptionTemplateCache();
+    RestApiException first = restApiException("1", "/api/one");
+    RestApiException second = restApiException(null, "/api/<two> & \"three\"/ä");
+
+    assertArrayEquals(getJsonMapper().writeValueAsBytes(first), cache.renderJson(first));
+    assertArrayEquals(getJsonMapper().writeValueAsBytes(second), cache.renderJson(second));
+    assertEquals(2, cache.size());
+    assertArrayEquals(getJsonMapper().writeValueAsBytes(first), cache.renderJson(first));
+    assertEquals(2, cache.size());
+
+    RestApiException third = restApiException("3", "/api/three");
+    assertEquals(third, getJsonMapper().readValue(cache.renderJson(third), RestApiException.class));
+    assertEquals(2, cache.size());
+  }
+
+  /**
+   * Render xml.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void renderXml() throws Exception {
+    RestApiExceptionTemplateCache cache = new RestApiExceptionTemplateCache(
+        getJsonMapper(), getXmlMapper(), true, 10);
+    RestApiException first = restApiException("1", "/api/one");
+    byte[] actual = cache.renderXml(first);
+    assertNotNull(actual);
+    assertEquals(first, getXmlMapper().readValue(actual, RestApiException.class));
+
+    RestApiException second = restApiException("2", "/api/<two> & \"three\"/ä");
+    actual = cache.renderXml(second);
+    assertNotNull(actual);
+    assertEquals(second, getXmlMapper().readValue(actual, RestApiException.class));
+    assertEquals(1, cache.size());
+
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  /**
+   * Rest api exceptions with stack trace are not rendered.
+   */
+  @Test
+  public void renderWithStackTrace() {
+    RestApiExceptionTemplateCache cache = new RestApiExceptionTemplateCache();
+    RestApiException cause = restApiException(null, null);
+    cause.setStackTrace(Collections.singletonList(
+        new StackTraceItem("Foo", "bar", "Foo.java", 1)));
+    RestApiException restApiException = restApiException("1", "/api/one");
+    restApiException.setCause(cause);
+    assertNull(cache.renderJson(restApiException));
+    assertNull(cache.renderXml(restApiException));
+    assertNull(cache.renderJson(null));
+    assertEquals(0, cache.size());
+  }
+
+  /**
+   * The messages are not part of the template key.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void renderDifferentMessages() throws Exception {
+    RestApiExceptionTemplateCache cache = new RestApiExceptionTemplateCache();
+    for (int i = 0; i < 5; i++) {
+      RestApiException restApiException = restApiException("1", "/api/one");
+      restApiException.setMessage("Message <" + i + "> & \"" + i + "\"");
+      assertArrayEquals(
+          getJsonMapper().writeValueAsBytes(restApiException),
+          cache.renderJson(restApiException));
+      assertEquals(
+          restApiException,
+          getXmlMapper().readValue(cache.renderXml(restApiException), RestApiException.class));
+    }
+    assertEquals(2, cache.size());
+
+    RestApiException restApiException = restApiException("1", "/api/one");
+    restApiException.setMessage("Line 1\nLine 2");
+    assertArrayEquals(
+        getJsonMapper().writeValueAsBytes(restApiException),
+        cache.renderJson(restApiException));
+    assertNull(cache.renderXml(restApiException));
+  }
+
+  /**
+   * Rest api exceptions with cause are not rendered.
+   */
+  @Test
+  public void renderWithCause() {
+    RestApiExceptionTemplateCache cache = new RestApiExceptionTemplateCache();
+    RestApiException restApiException = restApiException("1", "/api/one");
+    restApiException.setCause(restApiException(null, null));
+    assertNull(cache.renderJson(restApiException));
+    assertNull(cache.renderXml(restApiException));
+    assertEquals(0, cache.size());
+  }
+
+  /**
+   * Nothing is rendered as xml without xml mapper.
+   */
+  @Test
+  public void renderWithoutXmlMapper() {
+    RestApiExceptionTemplateCache cache = new RestApiExceptionTemplateCache(
+        getJsonMapper(), null, false, 2);
+    RestApiException restApiException = restApiException("1", "/api/one");
+    assertNotNull(cache.renderJson(restApiException));
+    assertNull(cache.renderXml(restApiException));
+    assertEquals(1, cache.size());
+  }
+
+  /**
+   * No more templates are created, if the cache reaches its maximum size.
+   */
+  @Test
+  public void maximumSize() {
+    RestApiExceptionTemplateCache cache = new RestApiExceptionTemplateCache(
+        getJsonMapper(), getXmlMapper(), false, 2);
+    for (int i = 0; i < 5; i++) {
+      RestApiException restApiException = restApiException("1", "/api/one");
+      restApiException.setErrorCode("TEST:" + i);
+      if (i < 2) {
+        assertNotNull(cache.renderJson(restApiException));
+      } else {
+        assertNull(cache.renderJson(restApiException));
+      }
+    }
+    assertEquals(2, cache.size());
+    RestApiException restApiException = restApiException("1", "/api/one");
+    restApiException.setErrorCode("TEST:0");
+    assertNotNull(cache.renderJson(restApiException));
+  }
+
+}
@@ -0,0 +1,149 @@
+package org.bremersee.exception;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Collections;
+import java.util.List;
+import org.bremersee.exception.RestApiExceptionMapperProperties.ExceptionMappingConfig;
+import org.bremersee.exception.model.StackTraceItem;
+import org.junit.Test;
+
+/**
+ * The stack trace converter test.
+ *
+ * @author Christian Bremer
+ */
+public class StackTraceConverterTest {
+
+  private static StackTraceElement frame(String className, String methodName, int line) {
+    return new StackTraceElement(className, methodName, "Foo.java", line);
+  }
+
+  private static StackTraceElement[] createStackTrace() {
+    return new StackTraceElement[]{
+        frame("org.example.Service", "recurse", 10),
+        frame("org.example.Service", "recurse", 10),
+        frame("org.example.Service", "recurse", 10),
+        frame("reactor.core.publisher.Mono", "subscribe", 4000),
+        frame("org.example.Controller", "get", 20),
+        frame("java.lang.Thread", "run", 748)
+    };
+  }
+
+  private static StackTraceElement[] select(
+      StackTraceElement[] stackTrace,
+      StackTraceElement[] enclosingStackTrace,
+      ExceptionMappingConfig config) {
+    return StackTraceConverter.select(stackTrace, enclosingStackTrace, config);
+  }
+
+  /**
+   * All frames are selected by default.
+   */
+  @Test
+  public void selectAll() {
+    StackTraceElement[] frames = select(createStackTrace(), null, new ExceptionMappingConfig());
+    assertEquals(6, frames.length);
+    assertEquals("org.example.Service", frames[0].getClassName());
+    assertEquals("recurse", frames[0].getMethodName());
+    assertEquals("Foo.java", frames[0].getFileName());
+    assertEquals(10, frames[0].getLineNumber());
+    assertEquals(
+        0,
+        select(new StackTraceElement[0], null, new ExceptionMappingConfig()).length);
+  }
+
+  /**
+   * Frames are limited, filtered and collapsed.
+   */
+  @Test
+  public void selectWithPolicies() {
+    ExceptionMappingConfig config = new ExceptionMappingConfig();
+    config.setStackTraceExcludePackages(Collections.singletonList("reactor."));
+    config.setCollapseStackTrace(true);
+    StackTraceElement[] frames = select(createStackTrace(), null, config);
+    assertEquals(3, frames.length);
+    assertEquals("org.example.Controller", frames[1].getClassName());
+
+    config.setStackTraceMaxDepth(2);
+    assertEquals(2, select(createStackTrace(), null, config).length);
+
+    config.setStackTraceMaxDepth(0);
+    config.setStackTraceIncludePackages(Collections.singletonList("org.example."));
+    frames = select(createStackTrace(), null, config);
+    assertEquals(2, frames.length);
+
+    config.setStackTraceIncludePackages(null);
+    StackTraceElement[] enclosing = new StackTraceElement[]{
+        frame("org.example.Other", "call", 5),
+        frame("org.example.Controller", "get", 20),
+        frame("java.lang.Thread", "run", 748)
+    };
+    frames = select(createStackTrace(), enclosing, config);
+    assertEquals(1, frames.length);
+    assertEquals("recurse", frames[0].getMethodName());
+  }
+
+  /**
+   * Recursions over several frames are collapsed.
+   */
+  @Test
+  public void selectWithRecursionCycle() {
+    StackTraceElement[] stackTrace = new StackTraceElement[]{
+        frame("org.example.Parser", "parse", 1),
+        frame("org.example.Parser", "parseObject", 2),
+        frame("org.example.Parser", "parseValue", 3),
+        frame("org.example.Parser", "parseObject", 2),
+        frame("org.example.Parser", "parseValue", 3),
+        frame("org.example.Parser", "parseObject", 2),
+        frame("org.example.Parser", "parseValue", 3),
+        frame("org.example.Controller", "get", 20)
+    };
+    ExceptionMappingConfig config = new ExceptionMappingConfig();
+    assertEquals(8, select(stackTrace, null, config).length);
+
+    config.setCollapseStackTrace(true);
+    StackTraceElement[] frames = select(stackTrace, null, config);
+    assertEquals(4, frames.length);
+    assertEquals("parse", frames[0].getMethodName());
+    assertEquals("parseObject", frames[1].getMethodName());
+    assertEquals("parseValue", frames[2].getMethodName());
+    assertEquals("get", frames[3].getMethodName());
+  }
+
+  /**
+   * Only the fingerprint is sent.
+   */
+  @Test
+  public void toFingerprintItems() {
+    ExceptionMappingConfig config = new ExceptionMappingConfig();
+    List<StackTraceItem> items = StackTraceConverter
+        .toFingerprintItems(select(createStackTrace(), null, config));
+    assertEquals(1, items.size());
+    StackTraceItem item = items.get(0);
+    assertEquals(RestApiExceptionUtils.STACK_TRACE_FINGERPRINT_CLASS, item.getDeclaringClass());
+    assertEquals(16, item.getMethodName().length());
+    assertEquals(Integer.valueOf(6), item.getLineNumber());
+    assertEquals(
+        item,
+        StackTraceConverter.toFingerprintItems(select(createStackTrace(), null, config)).get(0));
+
+    StackTraceElement[] other = createStackTrace();
+    other[4] = frame("org.example.Controller", "get", 21);
+    assertNotEquals(
+        item.getMethodName(),
+        StackTraceConverter.toFingerprintItems(select(other, null, config)).get(0)
+            .getMethodName());
+  }
+
+  /**
+   * The hex string has always 16 digits.
+   */
+  @Test
+  public void toHex() {
+    assertEquals("000000000000000f", StackTraceConverter.toHex(15L));
+    assertEquals("ffffffffffffffff", StackTraceConverter.toHex(-1L));
+  }
+
+}
@@ -29,6 +29,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import org.bremersee.TestHelper;
+import org.bremersee.exception.RestApiExceptionUtils;
 import org.bremersee.exception.model.RestApiException;
 import org.junit.Assert;
 import org.junit.Test;
@@ -174,4 +175,39 @@ public class FeignClientExceptionErrorDecoderTest {
     assertEquals(500, ((FeignClientException) actual).status());
   }
 
+  /**
+   * Test decode headers only response.
+   */
+  @Test
+  public void testDecodeHeadersOnlyResponse() {
+    final MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+    headers.add(
+        RestApiExceptionUtils.TRANSPORT_HEADER_NAME,
+        RestApiExceptionUtils.HEADERS_ONLY_VALUE);
+    headers.add(RestApiExceptionUtils.MESSAGE_HEADER_NAME, "Not found.");
+    headers.add(RestApiExceptionUtils.CODE_HEADER_NAME, "TEST:404");
+    //noinspection unchecked
+    final Response response = Response
+        .builder()
+        .request(Request
+            .create(
+                HttpMethod.GET,
+                "http://example.org",
+                new HashMap<>(),
+                null,
+                StandardCharsets.UTF_8))
+        .body("This body must not be read.".getBytes(StandardCharsets.UTF_8))
+        .headers((Map) headers)
+        .reason("Not found")
+        .status(404)
+        .build();
+    final Exception actual = decoder.decode("getNothing", response);
+    assertTrue(actual instanceof FeignClientException);
+    final RestApiException restApiException = ((FeignClientException) actual)
+        .getRestApiException();
+    assertNotNull(restApiException);
+    assertEquals("Not found.", restApiException.getMessage());
+    assertEquals("TEST:404", restApiException.getErrorCode());
+  }
+
 }
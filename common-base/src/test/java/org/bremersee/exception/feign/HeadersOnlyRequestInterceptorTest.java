@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.bremersee.exception.feign;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import feign.Request;
+import feign.Request.HttpMethod;
+import feign.RequestTemplate;
+import feign.Response;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.bremersee.exception.HeadersOnlyMode;
+import org.bremersee.exception.RestApiExceptionUtils;
+import org.bremersee.exception.model.RestApiException;
+import org.junit.Test;
+
+/**
+ * The headers only request interceptor test.
+ *
+ * @author Christian Bremer
+ */
+public class HeadersOnlyRequestInterceptorTest {
+
+  private static final HeadersOnlyRequestInterceptor interceptor
+      = new HeadersOnlyRequestInterceptor();
+
+  /**
+   * Test that the request header causes a headers only response, that is decoded.
+   */
+  @Test
+  public void roundTrip() {
+    final RequestTemplate template = new RequestTemplate();
+    interceptor.apply(template);
+    final Collection<String> transport = template.headers()
+        .get(RestApiExceptionUtils.TRANSPORT_HEADER_NAME);
+    assertEquals(Collections.singletonList(RestApiExceptionUtils.HEADERS_ONLY_VALUE),
+        transport);
+
+    // the server decides with the default mode
+    assertTrue(HeadersOnlyMode.ON_REQUEST.isHeadersOnly(transport.iterator().next()));
+    final Map<String, Collection<String>> headers = new HashMap<>();
+    headers.put(
+        RestApiExceptionUtils.TRANSPORT_HEADER_NAME,
+        Collections.singletonList(RestApiExceptionUtils.HEADERS_ONLY_VALUE));
+    headers.put(
+        RestApiExceptionUtils.MESSAGE_HEADER_NAME,
+        Collections.singletonList("Not found."));
+    headers.put(
+        RestApiExceptionUtils.CODE_HEADER_NAME,
+        Collections.singletonList("TEST:404"));
+    final Response response = Response
+        .builder()
+        .request(Request
+            .create(
+                HttpMethod.GET,
+                "http://example.org",
+                template.headers(),
+                null,
+                StandardCharsets.UTF_8))
+        .headers(headers)
+        .status(404)
+        .build();
+
+    final Exception exception = new FeignClientExceptionErrorDecoder()
+        .decode("getSomething", response);
+    assertTrue(exception instanceof FeignClientException);
+    final RestApiException restApiException = ((FeignClientException) exception)
+        .getRestApiException();
+    assertEquals("Not found.", restApiException.getMessage());
+    assertEquals("TEST:404", restApiException.getErrorCode());
+  }
+
+  /**
+   * Test that a transport header, that is already set, is not changed.
+   */
+  @Test
+  public void keepTransportHeader() {
+    final RequestTemplate template = new RequestTemplate();
+    template.header(RestApiExceptionUtils.TRANSPORT_HEADER_NAME, "body");
+    interceptor.apply(template);
+    assertEquals(
+        Collections.singletonList("body"),
+        template.headers().get(RestApiExceptionUtils.TRANSPORT_HEADER_NAME));
+  }
+
+}
@@ -0,0 +1,39 @@
+package org.bremersee.http.converter;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.Test;
+
+/**
+ * The object mapper helper test.
+ *
+ * @author Christian Bremer
+ */
+public class ObjectMapperHelperTest {
+
+  /**
+   * The shared json mapper is created once.
+   */
+  @Test
+  public void getSharedJsonMapper() {
+    assertSame(ObjectMapperHelper.getSharedJsonMapper(), ObjectMapperHelper.getSharedJsonMapper());
+    assertNotSame(ObjectMapperHelper.getSharedJsonMapper(), ObjectMapperHelper.getJsonMapper());
+    assertFalse(ObjectMapperHelper.getSharedJsonMapper()
+        .isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+  }
+
+  /**
+   * The shared xml mapper is created once.
+   */
+  @Test
+  public void getSharedXmlMapper() {
+    assertSame(ObjectMapperHelper.getSharedXmlMapper(), ObjectMapperHelper.getSharedXmlMapper());
+    assertNotSame(ObjectMapperHelper.getSharedXmlMapper(), ObjectMapperHelper.getXmlMapper());
+    assertFalse(ObjectMapperHelper.getSharedXmlMapper()
+        .isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+  }
+
+}
@@ -0,0 +1,120 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bremersee.security.access.AccessControllerCache.Stats;
+import org.junit.Test;
+
+/**
+ * The access controller cache test.
+ *
+ * @author Christian Bremer
+ */
+public class AccessControllerCacheTest {
+
+  private static final Acl<? extends Ace> acl = AclBuilder.builder()
+      .owner("owner")
+      .addUser("anna", PermissionConstants.READ)
+      .buildAcl();
+
+  /**
+   * Get and versions.
+   */
+  @Test
+  public void getAndVersions() {
+    AccessControllerCache cache = new AccessControllerCache(10);
+    AccessController controller = cache.get("1", 1L, acl);
+    assertTrue(controller.hasPermission("anna", null, null, PermissionConstants.READ));
+    assertSame(controller, cache.get("1", 1L, acl));
+    assertSame(controller, cache.getIfPresent("1", 1L));
+    assertNull(cache.getIfPresent("1", 2L));
+    AccessController newController = cache.get("1", 2L, acl);
+    assertNotSame(controller, newController);
+    assertEquals(1, cache.size());
+
+    Stats stats = cache.getStats();
+    assertEquals(2L, stats.getHitCount());
+    assertEquals(3L, stats.getMissCount());
+    assertEquals(0L, stats.getEvictionCount());
+    assertEquals(0.4, stats.getHitRate(), 0.0001);
+
+    cache.invalidate("1");
+    assertNull(cache.getIfPresent("1", 2L));
+    cache.get("2", 1L, AclBuilder.builder().buildAccessControlList());
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+  }
+
+  /**
+   * Least recently used eviction.
+   */
+  @Test
+  public void evictLeastRecentlyUsed() {
+    AccessControllerCache cache = new AccessControllerCache(2, null, 1, System::nanoTime);
+    AccessController c1 = cache.get("1", 1L, acl);
+    cache.get("2", 1L, acl);
+    assertSame(c1, cache.getIfPresent("1", 1L));
+    cache.get("3", 1L, acl);
+    assertEquals(2, cache.size());
+    assertNotNull(cache.getIfPresent("1", 1L));
+    assertNull(cache.getIfPresent("2", 1L));
+    assertNotNull(cache.getIfPresent("3", 1L));
+    assertEquals(1L, cache.getStats().getEvictionCount());
+  }
+
+  /**
+   * The maximum size is distributed over all segments.
+   */
+  @Test
+  public void maximumSize() {
+    AccessControllerCache cache = new AccessControllerCache(40, null, 16, System::nanoTime);
+    AccessController controller = AccessController.compile(acl);
+    for (int i = 0; i < 1000; i++) {
+      cache.get(String.valueOf(i), 1L, () -> controller);
+    }
+    assertEquals(40, cache.size());
+    assertEquals(960L, cache.getStats().getEvictionCount());
+  }
+
+  /**
+   * Every segment of a cache with a small maximum size can hold an entry.
+   */
+  @Test
+  public void smallMaximumSize() {
+    for (int maximumSize : new int[]{3, 5}) {
+      AccessControllerCache cache = new AccessControllerCache(maximumSize);
+      AccessController controller = AccessController.compile(acl);
+      for (int i = 0; i < 100; i++) {
+        String key = String.valueOf(i);
+        cache.get(key, 1L, () -> controller);
+        assertSame(controller, cache.getIfPresent(key, 1L));
+      }
+      assertEquals(maximumSize, cache.size());
+    }
+  }
+
+  /**
+   * Time to live.
+   */
+  @Test
+  public void expire() {
+    AtomicLong clock = new AtomicLong();
+    AccessControllerCache cache = new AccessControllerCache(
+        10, Duration.ofSeconds(10L), 4, clock::get);
+    AccessController c1 = cache.get("1", 1L, acl);
+    clock.addAndGet(Duration.ofSeconds(9L).toNanos());
+    assertSame(c1, cache.get("1", 1L, acl));
+    clock.addAndGet(Duration.ofSeconds(1L).toNanos());
+    assertNull(cache.getIfPresent("1", 1L));
+    assertEquals(1L, cache.getStats().getEvictionCount());
+    assertNotSame(c1, cache.get("1", 1L, acl));
+  }
+
+}
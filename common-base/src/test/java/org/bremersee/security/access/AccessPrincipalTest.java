@@ -0,0 +1,78 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Test;
+
+/**
+ * The access principal test.
+ *
+ * @author Christian Bremer
+ */
+public class AccessPrincipalTest {
+
+  /**
+   * Equals and hash code.
+   */
+  @Test
+  public void equalsAndHashCode() {
+    AccessPrincipal p0 = AccessPrincipal.of(
+        "anna", Arrays.asList("ROLE_USER", "ROLE_ADMIN", null), Collections.singleton("staff"));
+    AccessPrincipal p1 = AccessPrincipal.of(
+        "anna", new HashSet<>(Arrays.asList("ROLE_ADMIN", "ROLE_USER")), Arrays.asList("staff"));
+    assertEquals(p0, p1);
+    assertEquals(p0.hashCode(), p1.hashCode());
+    assertEquals(2, p0.getRoles().size());
+    assertNotEquals(p0, AccessPrincipal.of("bob", p0.getRoles(), p0.getGroups()));
+
+    AccessPrincipal anonymous = AccessPrincipal.of(null, null, null);
+    assertEquals(AccessPrincipal.anonymous(), anonymous);
+    assertNull(anonymous.getUser());
+    assertTrue(anonymous.getRoles().isEmpty());
+    assertTrue(anonymous.getGroups().isEmpty());
+  }
+
+  /**
+   * Has permission with principal.
+   */
+  @Test
+  public void hasPermission() {
+    Acl<? extends Ace> acl = AclBuilder.builder()
+        .owner("owner")
+        .addUser("anna", PermissionConstants.WRITE)
+        .addRole("ROLE_USER", PermissionConstants.READ)
+        .addGroup("staff", PermissionConstants.DELETE)
+        .guest(true, PermissionConstants.CREATE)
+        .buildAcl();
+    AccessPrincipal principal = AccessPrincipal.of(
+        "bob", Arrays.asList("ROLE_USER", "ROLE_FOO"), Collections.singletonList("staff"));
+    for (AccessController controller : Arrays
+        .asList(AccessController.from(acl), AccessController.compile(acl))) {
+      assertTrue(controller.hasPermission(principal, PermissionConstants.READ));
+      assertTrue(controller.hasPermission(principal, PermissionConstants.DELETE));
+      assertFalse(controller.hasPermission(principal, PermissionConstants.WRITE));
+      assertTrue(controller.hasAnyPermission(
+          principal, PermissionConstants.WRITE, PermissionConstants.DELETE));
+      assertFalse(controller.hasAllPermissions(
+          principal, PermissionConstants.WRITE, PermissionConstants.DELETE));
+      assertTrue(controller.hasAllPermissions(
+          principal, PermissionConstants.READ, PermissionConstants.CREATE));
+      assertTrue(controller.hasPermission((AccessPrincipal) null, PermissionConstants.CREATE));
+      assertFalse(controller.hasPermission((AccessPrincipal) null, PermissionConstants.READ));
+      assertTrue(controller.hasAllPermissions(
+          AccessPrincipal.of("owner", null, null), PermissionConstants.ALL));
+      assertEquals(
+          PermissionMask.of(
+              PermissionConstants.READ, PermissionConstants.DELETE, PermissionConstants.CREATE),
+          controller.effectivePermissions(principal));
+    }
+  }
+
+}
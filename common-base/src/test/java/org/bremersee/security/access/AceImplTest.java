@@ -0,0 +1,115 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.Test;
+
+/**
+ * The ace impl and acl impl test.
+ *
+ * @author Christian Bremer
+ */
+public class AceImplTest {
+
+  private static AceImpl createAce() {
+    AceImpl ace = new AceImpl();
+    ace.getUsers().addAll(Arrays.asList("zoe", "anna"));
+    ace.getRoles().add("ROLE_USER");
+    ace.getGroups().add("staff");
+    return ace;
+  }
+
+  /**
+   * The sets are sorted sets and changes through their views reset the hash code.
+   */
+  @Test
+  public void setsAreSorted() {
+    AceImpl ace = createAce();
+    assertTrue(ace.getUsers() instanceof SortedSet);
+    SortedSet<String> users = (SortedSet<String>) ace.getUsers();
+    assertEquals("anna", users.first());
+    assertEquals("zoe", users.last());
+    int hash = ace.hashCode();
+    users.headSet("b").clear();
+    assertEquals(Collections.singleton("zoe"), ace.getUsers());
+    assertNotEquals(hash, ace.hashCode());
+    assertEquals(
+        Objects.hash(false, new TreeSet<>(ace.getUsers()), ace.getRoles(), ace.getGroups()),
+        ace.hashCode());
+  }
+
+  /**
+   * The cached hash code is reset on every change.
+   */
+  @Test
+  public void hashCodeIsReset() {
+    AceImpl ace = createAce();
+    AceImpl other = createAce();
+    assertEquals(ace, other);
+    assertEquals(ace.hashCode(), other.hashCode());
+    assertEquals(
+        Objects.hash(false, new TreeSet<>(ace.getUsers()), ace.getRoles(), ace.getGroups()),
+        ace.hashCode());
+    assertEquals(Arrays.asList("anna", "zoe"), Arrays.asList(ace.getUsers().toArray()));
+
+    ace.getUsers().add("bob");
+    assertNotEquals(ace, other);
+    other.getUsers().add("bob");
+    assertEquals(ace, other);
+
+    ace.setGuest(true);
+    assertNotEquals(ace, other);
+    ace.setGuest(false);
+    assertEquals(ace, other);
+
+    Iterator<String> iterator = ace.getRoles().iterator();
+    iterator.next();
+    iterator.remove();
+    assertNotEquals(ace, other);
+    other.getRoles().clear();
+    assertEquals(ace, other);
+    assertEquals(ace.hashCode(), other.hashCode());
+
+    ace.getGroups().removeIf("staff"::equals);
+    assertNotEquals(ace, other);
+    other.getGroups().remove("staff");
+    assertEquals(ace, other);
+  }
+
+  /**
+   * Acl equals and hash code.
+   */
+  @Test
+  public void aclEqualsAndHashCode() {
+    Map<String, AceImpl> entries = new HashMap<>();
+    entries.put(PermissionConstants.READ, createAce());
+    AclImpl acl = new AclImpl("owner", entries);
+    AclImpl other = new AclImpl("owner", new TreeMap<>(entries));
+    assertEquals(acl, other);
+    assertEquals(Objects.hash("owner", new TreeMap<>(acl)), acl.hashCode());
+
+    entries.get(PermissionConstants.READ).getUsers().add("bob");
+    assertEquals(acl, other); // same entry instance
+    other.put(PermissionConstants.READ, createAce());
+    assertNotEquals(acl, other);
+    assertNotEquals(acl.hashCode(), other.hashCode());
+
+    Acl<? extends Ace> built = AclBuilder.builder().from(acl).buildAcl();
+    assertEquals(acl, built);
+    assertEquals(built, acl);
+    other.setOwner("another");
+    assertNotEquals(acl, other);
+  }
+
+}
@@ -0,0 +1,147 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import org.bremersee.common.model.AccessControlEntry;
+import org.bremersee.common.model.AccessControlList;
+import org.junit.Test;
+
+/**
+ * The acl codec test.
+ *
+ * @author Christian Bremer
+ */
+public class AclCodecTest {
+
+  private static AccessControlList createAccessControlList() {
+    return AccessControlList
+        .builder()
+        .owner("owner")
+        .entries(Arrays.asList(
+            AccessControlEntry
+                .builder()
+                .permission("read")
+                .guest(true)
+                .users(Arrays.asList("anna", "bob", "Jürgen"))
+                .roles(Collections.singletonList("ROLE_USER"))
+                .groups(Collections.singletonList("staff"))
+                .build(),
+            AccessControlEntry
+                .builder()
+                .permission("write")
+                .users(Arrays.asList("anna", "bob"))
+                .roles(Collections.singletonList("ROLE_USER"))
+                .groups(Collections.emptyList())
+                .build()))
+        .build();
+  }
+
+  /**
+   * Encode and decode acl dto.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void accessControlList() throws Exception {
+    AccessControlList acl = createAccessControlList();
+    ByteBuffer buffer = AclCodec.encode(acl);
+    int size = buffer.remaining();
+    assertTrue(size < new ObjectMapper().writeValueAsBytes(acl).length / 2);
+    AccessControlList decoded = AclCodec.decodeAccessControlList(buffer);
+    assertEquals(acl, decoded);
+    assertFalse(buffer.hasRemaining());
+
+    assertNull(AclCodec.decodeAccessControlList(AclCodec.encode((AccessControlList) null)));
+  }
+
+  /**
+   * Encode and decode acl.
+   */
+  @Test
+  public void acl() {
+    Acl<? extends Ace> acl = AclBuilder.builder().from(createAccessControlList()).buildAcl();
+    Acl<? extends Ace> decoded = AclCodec.decodeAcl(AclCodec.encode(acl), AclImpl::new);
+    assertEquals(acl, decoded);
+    assertEquals(
+        AclBuilder.builder().from(createAccessControlList()).buildAccessControlList(),
+        AclCodec.decodeAcl(AclCodec.encode(createAccessControlList()), AclFactory.dtoFactory()));
+    assertNull(AclCodec.decodeAcl(AclCodec.encode((Acl<? extends Ace>) null), AclImpl::new));
+  }
+
+  /**
+   * Decode into compiled access controller.
+   */
+  @Test
+  public void accessController() {
+    AccessControlList acl = createAccessControlList();
+    AccessController expected = AccessController.compile(acl);
+    AccessController actual = AclCodec.decodeAccessController(AclCodec.encode(acl));
+    for (String user : Arrays.asList("owner", "anna", "Jürgen", "carl", null)) {
+      AccessPrincipal principal = AccessPrincipal.of(user, null, null);
+      assertEquals(
+          expected.effectivePermissions(principal),
+          actual.effectivePermissions(principal));
+    }
+    AccessPrincipal principal = AccessPrincipal.of(null, Collections.singleton("ROLE_USER"), null);
+    assertTrue(actual.hasPermission(principal, PermissionConstants.WRITE));
+
+    PermissionImplications implications = PermissionImplications.hierarchy(
+        PermissionConstants.ADMINISTRATION, PermissionConstants.DELETE);
+    AccessController implied = AclCodec.decodeAccessController(
+        AclCodec.encode(AclBuilder.builder()
+            .addUser("anna", PermissionConstants.ADMINISTRATION)
+            .buildAcl()),
+        implications);
+    assertTrue(implied.hasPermission("anna", null, null, PermissionConstants.DELETE));
+    assertFalse(AclCodec.decodeAccessController(AclCodec.encode((AccessControlList) null))
+        .hasPermission("owner", null, null, PermissionConstants.READ));
+  }
+
+  /**
+   * Many acls in one direct buffer.
+   */
+  @Test
+  public void stream() {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+    AccessControlList acl = createAccessControlList();
+    for (int i = 0; i < 10; i++) {
+      acl.setOwner("owner" + i);
+      AclCodec.encode(acl, buffer);
+    }
+    AclCodec.encode((Acl<? extends Ace>) null, buffer);
+    buffer.flip();
+    for (int i = 0; i < 10; i++) {
+      AccessControlList decoded = AclCodec.decodeAccessControlList(buffer);
+      assertEquals("owner" + i, decoded.getOwner());
+      assertEquals(acl.getEntries(), decoded.getEntries());
+    }
+    assertNull(AclCodec.decodeAccessControlList(buffer));
+    assertFalse(buffer.hasRemaining());
+  }
+
+  /**
+   * Invalid data.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void truncated() {
+    ByteBuffer buffer = AclCodec.encode(createAccessControlList());
+    buffer.limit(buffer.limit() - 3);
+    AclCodec.decodeAccessControlList(buffer);
+  }
+
+  /**
+   * Invalid magic number.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidMagic() {
+    AclCodec.decodeAccessController(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+  }
+
+}
@@ -0,0 +1,118 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.bremersee.security.access.AclDiff.AceDiff;
+import org.junit.Test;
+
+/**
+ * The acl diff test.
+ *
+ * @author Christian Bremer
+ */
+public class AclDiffTest {
+
+  private static Acl<? extends Ace> createAcl() {
+    return AclBuilder.builder()
+        .owner("owner")
+        .addUser("anna", PermissionConstants.READ, PermissionConstants.WRITE)
+        .addUser("bob", PermissionConstants.READ)
+        .addRole("ROLE_USER", PermissionConstants.READ)
+        .addGroup("staff", PermissionConstants.DELETE)
+        .buildAcl();
+  }
+
+  /**
+   * Equal acls have no difference.
+   */
+  @Test
+  public void noDifference() {
+    assertTrue(AclDiff.diff(createAcl(), createAcl()).isEmpty());
+    assertTrue(AclDiff.diff(null, null).isEmpty());
+    assertTrue(AclDiff.diff(null, null).getEntries().isEmpty());
+  }
+
+  /**
+   * Differences.
+   */
+  @Test
+  public void diff() {
+    Acl<? extends Ace> oldAcl = createAcl();
+    Acl<? extends Ace> newAcl = AclBuilder.builder()
+        .from(oldAcl)
+        .owner("anna")
+        .removeUser("bob", PermissionConstants.READ)
+        .addUser("carl", PermissionConstants.READ)
+        .addRole("ROLE_ADMIN", PermissionConstants.READ)
+        .removeGroup("staff", PermissionConstants.DELETE)
+        .guest(true, "custom")
+        .buildAcl();
+    newAcl.entryMap().get(PermissionConstants.WRITE).setGuest(true);
+
+    AclDiff diff = AclDiff.diff(oldAcl, newAcl);
+    assertFalse(diff.isEmpty());
+    assertTrue(diff.isOwnerChanged());
+    assertEquals("owner", diff.getOldOwner());
+    assertEquals("anna", diff.getNewOwner());
+    assertEquals(
+        new HashSet<>(Arrays.asList(
+            "custom", PermissionConstants.DELETE, PermissionConstants.READ,
+            PermissionConstants.WRITE)),
+        diff.getEntries().keySet());
+
+    AceDiff read = diff.getEntry(PermissionConstants.READ);
+    assertNotNull(read);
+    assertFalse(read.isAdded());
+    assertFalse(read.isRemoved());
+    assertFalse(read.isGuestChanged());
+    assertEquals(Collections.singleton("carl"), read.getAddedUsers());
+    assertEquals(Collections.singleton("bob"), read.getRemovedUsers());
+    assertEquals(1, read.getRemovedUsers().size());
+    assertTrue(read.getRemovedUsers().contains("bob"));
+    assertFalse(read.getRemovedUsers().contains("anna"));
+    assertEquals(Collections.singleton("ROLE_ADMIN"), read.getAddedRoles());
+    assertTrue(read.getRemovedRoles().isEmpty());
+    assertTrue(read.getAddedGroups().isEmpty());
+
+    AceDiff delete = diff.getEntry(PermissionConstants.DELETE);
+    assertNotNull(delete);
+    assertEquals(Collections.singleton("staff"), delete.getRemovedGroups());
+
+    AceDiff write = diff.getEntry(PermissionConstants.WRITE);
+    assertNotNull(write);
+    assertTrue(write.isGuestChanged());
+    assertTrue(write.isGuest());
+    assertTrue(write.getAddedUsers().isEmpty());
+
+    AceDiff custom = diff.getEntry("custom");
+    assertNotNull(custom);
+    assertTrue(custom.isAdded());
+    assertTrue(custom.isGuest());
+
+    assertNull(diff.getEntry(PermissionConstants.ADMINISTRATION));
+    assertNull(diff.getEntry(null));
+    assertNotNull(diff.toString());
+  }
+
+  /**
+   * Removed entries.
+   */
+  @Test
+  public void removedEntries() {
+    AclDiff diff = AclDiff.diff(createAcl(), null);
+    assertTrue(diff.isOwnerChanged());
+    AceDiff read = diff.getEntry(PermissionConstants.READ);
+    assertNotNull(read);
+    assertTrue(read.isRemoved());
+    assertEquals(new HashSet<>(Arrays.asList("anna", "bob")), read.getRemovedUsers());
+    assertTrue(read.getAddedUsers().isEmpty());
+  }
+
+}
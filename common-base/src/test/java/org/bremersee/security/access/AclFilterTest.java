@@ -0,0 +1,99 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.bremersee.common.model.AccessControlEntry;
+import org.bremersee.common.model.AccessControlList;
+import org.junit.Test;
+
+/**
+ * The acl filter test.
+ *
+ * @author Christian Bremer
+ */
+public class AclFilterTest {
+
+  private static final AccessPrincipal principal = AccessPrincipal.of(
+      "anna", Collections.singletonList("ROLE_USER"), Collections.singletonList("staff"));
+
+  /**
+   * Filter items with acl.
+   */
+  @Test
+  public void filterAcl() {
+    List<Acl<? extends Ace>> items = Arrays.asList(
+        AclBuilder.builder().owner("anna").buildAcl(),
+        AclBuilder.builder().addUser("anna", "read").buildAcl(),
+        AclBuilder.builder().addRole("ROLE_USER", "read").buildAcl(),
+        AclBuilder.builder().addGroup("staff", "read").buildAcl(),
+        AclBuilder.builder().guest(true, "read").buildAcl(),
+        AclBuilder.builder().addUser("anna", "write").buildAcl(),
+        AclBuilder.builder().addRole("ROLE_ADMIN", "read").buildAcl(),
+        null);
+    AclFilter<Acl<? extends Ace>> filter = AclFilter.forAcl(acl -> acl, principal, "READ");
+    assertEquals(items.subList(0, 5), filter.filter(items));
+    Iterable<Acl<? extends Ace>> iterable = items::iterator;
+    assertEquals(items.subList(0, 5), filter.filter(iterable));
+    assertEquals(
+        items.subList(0, 5),
+        filter.filter(items.stream()).collect(Collectors.toList()));
+    assertEquals(items.subList(0, 5), filter.parallel(2).filter(items));
+    assertTrue(filter.filter((List<Acl<? extends Ace>>) null).isEmpty());
+  }
+
+  /**
+   * Filter items with acl that has mixed case permissions.
+   */
+  @Test
+  public void filterAclWithMixedCasePermissions() {
+    Map<String, Ace> entries = new HashMap<>();
+    AceImpl ace = new AceImpl();
+    ace.getUsers().add("anna");
+    entries.put("Read", ace);
+    Acl<Ace> acl = new AclImpl(null, entries);
+    assertTrue(AclFilter.forAcl((Acl<Ace> a) -> a, principal, PermissionConstants.READ)
+        .test(acl));
+    assertFalse(AclFilter.forAcl((Acl<Ace> a) -> a, principal, PermissionConstants.WRITE)
+        .test(acl));
+  }
+
+  /**
+   * Filter items with access control list.
+   */
+  @Test
+  public void filterAccessControlList() {
+    List<AccessControlList> items = IntStream.range(0, 100)
+        .mapToObj(i -> AccessControlList
+            .builder()
+            .owner("owner")
+            .entries(Collections.singletonList(AccessControlEntry
+                .builder()
+                .permission("read")
+                .users(i % 2 == 0 ? Collections.singletonList("anna") : new ArrayList<>())
+                .build()))
+            .build())
+        .collect(Collectors.toList());
+    AclFilter<AccessControlList> filter = AclFilter
+        .forAccessControlList(acl -> acl, principal, PermissionConstants.READ);
+    assertEquals(50, filter.filter(items).size());
+    assertEquals(50, filter.parallel(10).filter(items).size());
+    assertEquals(10, filter.parallel(10).getParallelThreshold());
+    assertEquals(
+        100,
+        AclFilter.forAccessControlList(
+            (AccessControlList acl) -> acl, AccessPrincipal.of("owner", null, null), "delete")
+            .filter(items)
+            .size());
+  }
+
+}
@@ -0,0 +1,118 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.bremersee.common.model.AccessControlList;
+import org.junit.Test;
+
+/**
+ * The acl index test.
+ *
+ * @author Christian Bremer
+ */
+public class AclIndexTest {
+
+  private static Set<String> set(String... values) {
+    return new HashSet<>(Arrays.asList(values));
+  }
+
+  /**
+   * Find resources.
+   */
+  @Test
+  public void findResources() {
+    AclIndex index = new AclIndex();
+    index.put("1", AclBuilder.builder()
+        .owner("owner")
+        .addUser("anna", PermissionConstants.READ)
+        .buildAcl());
+    index.put("2", AclBuilder.builder()
+        .owner("anna")
+        .addRole("ROLE_USER", PermissionConstants.READ, PermissionConstants.WRITE)
+        .buildAccessControlList());
+    index.put("3", AclBuilder.builder()
+        .addGroup("staff", PermissionConstants.READ)
+        .guest(true, "custom")
+        .buildAcl());
+    assertEquals(3, index.size());
+
+    AccessPrincipal anna = AccessPrincipal.of("anna", null, null);
+    AccessPrincipal bob = AccessPrincipal.of(
+        "bob", Collections.singleton("ROLE_USER"), Collections.singleton("staff"));
+    assertEquals(set("1", "2"), index.findResources(anna, PermissionConstants.READ));
+    assertEquals(set("2"), index.findResources(anna, PermissionConstants.DELETE));
+    assertEquals(set("2", "3"), index.findResources(bob, "READ"));
+    assertEquals(set("2"), index.findResources(bob, PermissionConstants.WRITE));
+    assertEquals(set("3"), index.findResources(null, "Custom"));
+    assertEquals(set("1"), index.findResources("owner", null, null, "anything"));
+    assertTrue(index.findResources(bob, null).isEmpty());
+  }
+
+  /**
+   * Update and remove.
+   */
+  @Test
+  public void updateAndRemove() {
+    AclIndex index = new AclIndex();
+    AccessPrincipal anna = AccessPrincipal.of("anna", null, null);
+    index.put("1", AclBuilder.builder()
+        .addUser("anna", PermissionConstants.READ)
+        .buildAcl());
+    assertEquals(set("1"), index.findResources(anna, PermissionConstants.READ));
+
+    index.put("1", AclBuilder.builder()
+        .addUser("anna", PermissionConstants.WRITE)
+        .buildAcl());
+    assertTrue(index.findResources(anna, PermissionConstants.READ).isEmpty());
+    assertEquals(set("1"), index.findResources(anna, PermissionConstants.WRITE));
+    AccessController accessController = index.getAccessController("1");
+    assertNotNull(accessController);
+    assertTrue(accessController.hasPermission(anna, PermissionConstants.WRITE));
+
+    index.put("1", (AccessControlList) null);
+    assertEquals(0, index.size());
+    assertNull(index.getAccessController("1"));
+    assertTrue(index.findResources(anna, PermissionConstants.WRITE).isEmpty());
+    assertFalse(index.remove("1"));
+
+    index.put("2", AclBuilder.builder().owner("anna").buildAcl());
+    assertTrue(index.remove("2"));
+    index.put("3", AclBuilder.builder().owner("anna").buildAcl());
+    index.clear();
+    assertTrue(index.findResources(anna, PermissionConstants.READ).isEmpty());
+  }
+
+  /**
+   * The index returns the same results as the access controller.
+   */
+  @Test
+  public void sameResultsAsAccessController() {
+    AclIndex index = new AclIndex();
+    Acl<? extends Ace> acl = AclBuilder.builder()
+        .owner("owner")
+        .addUser("anna", PermissionConstants.READ, PermissionConstants.WRITE)
+        .addRole("ROLE_USER", PermissionConstants.READ)
+        .addGroup("staff", PermissionConstants.DELETE)
+        .buildAcl();
+    index.put("1", acl);
+    AccessController accessController = AccessController.from(acl);
+    for (String user : Arrays.asList("owner", "anna", "bob", null)) {
+      AccessPrincipal principal = AccessPrincipal.of(
+          user, Collections.singleton("ROLE_USER"), Collections.singleton("staff"));
+      for (String permission : PermissionConstants.ALL) {
+        assertEquals(
+            accessController.hasPermission(principal, permission),
+            index.findResources(principal, permission).contains("1"));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,130 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.bremersee.common.model.AccessControlEntry;
+import org.bremersee.common.model.AccessControlList;
+import org.junit.Test;
+
+/**
+ * The acl view and access control list view test.
+ *
+ * @author Christian Bremer
+ */
+public class AclViewTest {
+
+  private static final List<String> users = Arrays.asList("owner", "anna", "bob");
+
+  private static final List<List<String>> roles = Arrays.asList(
+      Collections.emptyList(), Collections.singletonList("ROLE_USER"));
+
+  private static final List<List<String>> groups = Arrays.asList(
+      Collections.emptyList(), Arrays.asList("other", "staff"));
+
+  private static final List<String> permissions = Arrays.asList(
+      "administration", "create", "delete", "read", "Read", "WRITE", "write", "Custom");
+
+  private static void assertSameResults(AccessController expected, AccessController actual) {
+    for (String user : users) {
+      for (List<String> userRoles : roles) {
+        for (List<String> userGroups : groups) {
+          AccessPrincipal principal = AccessPrincipal.of(user, userRoles, userGroups);
+          for (String permission : permissions) {
+            boolean result = expected.hasPermission(user, userRoles, userGroups, permission);
+            assertEquals(result, actual.hasPermission(user, userRoles, userGroups, permission));
+            assertEquals(result, actual.hasPermission(principal, permission));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Acl view.
+   */
+  @Test
+  public void aclView() {
+    Acl<? extends Ace> acl = AclBuilder.builder()
+        .owner("owner")
+        .addUser("anna", PermissionConstants.READ, PermissionConstants.WRITE)
+        .addRole("ROLE_USER", PermissionConstants.READ)
+        .addGroup("staff", PermissionConstants.READ, PermissionConstants.DELETE)
+        .guest(true, "custom")
+        .buildAcl();
+    assertSameResults(AccessController.from(acl), AccessController.view(acl));
+    assertFalse(AccessController.view((Acl<? extends Ace>) null)
+        .hasPermission("owner", null, null, PermissionConstants.READ));
+  }
+
+  /**
+   * The permissions of an acl, that differ only in case, are merged.
+   */
+  @Test
+  public void aclViewWithMixedCasePermissions() {
+    Map<String, Ace> entries = new HashMap<>();
+    AceImpl ace = new AceImpl();
+    ace.getUsers().add("anna");
+    entries.put("Read", ace);
+    AceImpl other = new AceImpl();
+    other.getGroups().add("staff");
+    entries.put("read", other);
+    AccessController view = AccessController.view(new AclImpl(null, entries));
+    assertTrue(view.hasPermission("anna", null, null, "READ"));
+    assertTrue(view.hasPermission("bob", null, Collections.singletonList("staff"), "Read"));
+    assertFalse(view.hasPermission("bob", null, null, PermissionConstants.READ));
+  }
+
+  /**
+   * Access control list view.
+   */
+  @Test
+  public void accessControlListView() {
+    AccessControlList acl = AccessControlList
+        .builder()
+        .owner("owner")
+        .entries(new ArrayList<>(Arrays.asList(
+            AccessControlEntry
+                .builder()
+                .permission("Read")
+                .users(Collections.singletonList("anna"))
+                .roles(Collections.singletonList("ROLE_USER"))
+                .build(),
+            AccessControlEntry
+                .builder()
+                .permission("read")
+                .groups(Collections.singletonList("staff"))
+                .build(),
+            AccessControlEntry
+                .builder()
+                .permission("write")
+                .users(Collections.singletonList("anna"))
+                .build(),
+            AccessControlEntry
+                .builder()
+                .permission("CUSTOM")
+                .guest(true)
+                .build()
+        )))
+        .build();
+    AccessController view = AccessController.view(acl);
+    assertSameResults(AccessController.from(acl), view);
+
+    // changes are visible immediately
+    assertFalse(view.hasPermission("bob", null, null, PermissionConstants.DELETE));
+    acl.getEntries().add(AccessControlEntry
+        .builder()
+        .permission(PermissionConstants.DELETE)
+        .users(Collections.singletonList("bob"))
+        .build());
+    assertTrue(view.hasPermission("bob", null, null, PermissionConstants.DELETE));
+  }
+
+}
@@ -0,0 +1,151 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.bremersee.common.model.AccessControlEntry;
+import org.bremersee.common.model.AccessControlList;
+import org.bremersee.security.core.AuthorityConstants;
+import org.junit.Test;
+
+/**
+ * The bulk acl converter test.
+ *
+ * @author Christian Bremer
+ */
+public class BulkAclConverterTest {
+
+  private static AccessControlList createAccessControlList() {
+    return AccessControlList
+        .builder()
+        .owner("owner")
+        .entries(Arrays.asList(
+            AccessControlEntry
+                .builder()
+                .permission("Write")
+                .groups(Arrays.asList("group", " "))
+                .roles(Collections.singletonList("role"))
+                .users(Arrays.asList("zoe", "anna"))
+                .build(),
+            AccessControlEntry
+                .builder()
+                .permission("read")
+                .guest(true)
+                .build(),
+            AccessControlEntry
+                .builder()
+                .permission("READ")
+                .users(Collections.singletonList("bob"))
+                .guest(false)
+                .build(),
+            AccessControlEntry
+                .builder()
+                .permission("custom")
+                .guest(false)
+                .build(),
+            AccessControlEntry
+                .builder()
+                .permission(" ")
+                .users(Collections.singletonList("bob"))
+                .build()))
+        .build();
+  }
+
+  /**
+   * The results are the same as the results of the acl mapper.
+   */
+  @Test
+  public void sameResultsAsMapper() {
+    for (String[] defaults : Arrays.asList(null, PermissionConstants.ALL)) {
+      for (boolean switchAdminAccess : Arrays.asList(false, true)) {
+        AclMapperImpl<Acl<? extends Ace>> mapper = new AclMapperImpl<>(
+            AclImpl::new, defaults, switchAdminAccess);
+        BulkAclConverter<Acl<? extends Ace>> converter = new BulkAclConverter<>(
+            AclImpl::new,
+            defaults,
+            switchAdminAccess ? AuthorityConstants.ADMIN_ROLE_NAME : null);
+
+        AccessControlList source = createAccessControlList();
+        Acl<? extends Ace> expectedAcl = mapper.map(source);
+        Acl<? extends Ace> acl = converter.toAcl(source);
+        assertEquals(expectedAcl, acl);
+        assertEquals(acl, expectedAcl);
+        assertEquals(expectedAcl.hashCode(), acl.hashCode());
+
+        assertEquals(mapper.map(expectedAcl), converter.toAccessControlList(acl));
+        assertEquals(mapper.map(expectedAcl), converter.toAccessControlList(expectedAcl));
+      }
+    }
+  }
+
+  /**
+   * The results of null values, blank and mixed case default permissions are the same as the
+   * results of the acl mapper.
+   */
+  @Test
+  public void sameResultsAsMapperWithNullValues() {
+    List<String[]> defaultsList = Arrays.asList(
+        null,
+        new String[0],
+        new String[]{"Read", " ", null, "WRITE", "read", "Custom"});
+    for (String[] defaults : defaultsList) {
+      for (boolean switchAdminAccess : Arrays.asList(false, true)) {
+        for (boolean returnNull : Arrays.asList(false, true)) {
+          AclMapperImpl<Acl<? extends Ace>> mapper = new AclMapperImpl<>(
+              AclImpl::new, defaults, switchAdminAccess, returnNull);
+          BulkAclConverter<Acl<? extends Ace>> converter = new BulkAclConverter<>(
+              AclImpl::new,
+              defaults,
+              switchAdminAccess ? AuthorityConstants.ADMIN_ROLE_NAME : null,
+              returnNull);
+
+          assertEquals(mapper.map((AccessControlList) null), converter.toAcl(null));
+          assertEquals(mapper.map((Acl) null), converter.toAccessControlList(null));
+
+          AccessControlList source = createAccessControlList();
+          Acl<? extends Ace> expectedAcl = mapper.map(source);
+          assertEquals(expectedAcl, converter.toAcl(source));
+          assertEquals(mapper.map(expectedAcl), converter.toAccessControlList(expectedAcl));
+
+          AccessControlList empty = AccessControlList.builder().owner("owner").build();
+          assertEquals(mapper.map(empty), converter.toAcl(empty));
+        }
+      }
+    }
+  }
+
+  /**
+   * Bulk conversion.
+   */
+  @Test
+  public void bulk() {
+    BulkAclConverter<Acl<? extends Ace>> converter = new BulkAclConverter<>(
+        AclImpl::new, null, null, true);
+    assertNull(converter.toAcl(null));
+    assertNull(converter.toAccessControlList(null));
+    assertTrue(converter.toAcls(null).isEmpty());
+    assertTrue(converter.toAccessControlLists(null).isEmpty());
+
+    List<Acl<? extends Ace>> acls = converter.toAcls(
+        Arrays.asList(createAccessControlList(), null));
+    assertEquals(2, acls.size());
+    assertNull(acls.get(1));
+    assertTrue(acls.get(0).entryMap().get("read").getUsers().contains("bob"));
+
+    List<AccessControlList> dtos = converter.toAccessControlLists(acls);
+    assertEquals(2, dtos.size());
+    assertNull(dtos.get(1));
+    AccessControlEntry write = dtos.get(0).getEntries().get(1);
+    assertEquals("write", write.getPermission());
+    assertEquals(Arrays.asList("anna", "zoe"), write.getUsers());
+
+    converter = new BulkAclConverter<>(AclImpl::new, PermissionConstants.ALL, null);
+    acls = converter.toAcls(Collections.singletonList(null));
+    assertEquals(PermissionConstants.ALL.length, acls.get(0).entryMap().size());
+  }
+
+}
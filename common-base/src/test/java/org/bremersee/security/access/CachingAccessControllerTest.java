@@ -0,0 +1,187 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * The caching access controller test.
+ *
+ * @author Christian Bremer
+ */
+public class CachingAccessControllerTest {
+
+  private static class CountingAccessController implements AccessController {
+
+    private final AccessController delegate;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private CountingAccessController(Acl<? extends Ace> acl) {
+      this.delegate = AccessController.compile(acl);
+    }
+
+    @Override
+    public boolean hasPermission(
+        String user,
+        Collection<String> roles,
+        Collection<String> groups,
+        String permission) {
+      calls.incrementAndGet();
+      return delegate.hasPermission(user, roles, groups, permission);
+    }
+  }
+
+  private static Acl<? extends Ace> createAcl() {
+    return AclBuilder.builder()
+        .owner("owner")
+        .addUser("anna", PermissionConstants.READ)
+        .addRole("ROLE_USER", PermissionConstants.WRITE)
+        .guest(true, "custom")
+        .buildAcl();
+  }
+
+  /**
+   * Fingerprint.
+   */
+  @Test
+  public void fingerprint() {
+    AccessPrincipal p0 = AccessPrincipal.of("anna", Collections.singleton("ab"), null);
+    AccessPrincipal p1 = AccessPrincipal.of("anna", null, Collections.singleton("ab"));
+    AccessPrincipal p2 = AccessPrincipal.of("Aa", null, null);
+    AccessPrincipal p3 = AccessPrincipal.of("BB", null, null);
+    assertEquals(p2.getUser().hashCode(), p3.getUser().hashCode());
+    assertNotEquals(p0.fingerprint(), p1.fingerprint());
+    assertNotEquals(p2.fingerprint(), p3.fingerprint());
+    assertEquals(
+        p0.fingerprint(),
+        AccessPrincipal.of("anna", Collections.singletonList("ab"), null).fingerprint());
+  }
+
+  /**
+   * Decisions are memoized.
+   */
+  @Test
+  public void hasPermission() {
+    CountingAccessController counting = new CountingAccessController(createAcl());
+    CachingAccessController controller = new CachingAccessController(counting, 100);
+    AccessPrincipal anna = AccessPrincipal.of("anna", null, null);
+    AccessPrincipal bob = AccessPrincipal.of("bob", Collections.singleton("ROLE_USER"), null);
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(controller.hasPermission(anna, PermissionConstants.READ));
+      assertFalse(controller.hasPermission(anna, PermissionConstants.WRITE));
+      assertTrue(controller.hasPermission(anna, "CUSTOM"));
+      assertTrue(controller.hasPermission(bob, PermissionConstants.WRITE));
+      assertFalse(controller.hasPermission(bob, "read"));
+    }
+    assertEquals(5, counting.calls.get());
+    assertEquals(2, controller.size());
+    assertFalse(controller.hasAllPermissions(bob, PermissionConstants.WRITE, "read"));
+    assertEquals(5, counting.calls.get());
+
+    long expected = PermissionMask.of(PermissionConstants.READ);
+    assertEquals(expected, controller.effectivePermissions(anna));
+    int calls = counting.calls.get();
+    assertEquals(expected, controller.effectivePermissions(anna));
+    assertEquals(calls, counting.calls.get());
+
+    // not memoized
+    assertTrue(controller.hasPermission("anna", null, null, PermissionConstants.READ));
+    assertEquals(calls + 1, counting.calls.get());
+  }
+
+  /**
+   * Invalidate.
+   */
+  @Test
+  public void invalidate() {
+    CountingAccessController counting = new CountingAccessController(createAcl());
+    CachingAccessController controller = new CachingAccessController(counting, 100);
+    AccessPrincipal anna = AccessPrincipal.of("anna", null, null);
+    assertFalse(controller.hasPermission(anna, PermissionConstants.DELETE));
+
+    AccessController changed = AccessController.compile(AclBuilder.builder()
+        .from(createAcl())
+        .addUser("anna", PermissionConstants.DELETE)
+        .buildAcl());
+    controller.invalidate(changed);
+    assertSame(changed, controller.getDelegate());
+    assertEquals(0, controller.size());
+    assertTrue(controller.hasPermission(anna, PermissionConstants.DELETE));
+
+    controller.invalidate(anna);
+    assertEquals(0, controller.size());
+    controller.hasPermission(anna, PermissionConstants.DELETE);
+    controller.invalidate();
+    assertEquals(0, controller.size());
+  }
+
+  /**
+   * Many principals.
+   */
+  @Test
+  public void manyPrincipals() {
+    CachingAccessController controller = new CachingAccessController(
+        AccessController.compile(createAcl()), 5000);
+    for (int i = 0; i < 4000; i++) {
+      AccessPrincipal principal = AccessPrincipal.of("user" + i, null, null);
+      assertFalse(controller.hasPermission(principal, PermissionConstants.READ));
+    }
+    assertEquals(4000, controller.size());
+    for (int i = 0; i < 4000; i += 2) {
+      controller.invalidate(AccessPrincipal.of("user" + i, null, null));
+    }
+    assertEquals(2000, controller.size());
+    for (int i = 1; i < 4000; i += 2) {
+      AccessPrincipal principal = AccessPrincipal.of("user" + i, null, null);
+      assertFalse(controller.hasPermission(principal, PermissionConstants.READ));
+    }
+    assertEquals(2000, controller.size());
+    for (int i = 4000; i < 7001; i++) {
+      AccessPrincipal principal = AccessPrincipal.of("user" + i, null, null);
+      assertFalse(controller.hasPermission(principal, PermissionConstants.READ));
+    }
+    assertEquals(5000, controller.size());
+  }
+
+  /**
+   * Principals with the same fingerprint don't share their decisions.
+   */
+  @Test
+  public void sameFingerprint() {
+    CachingAccessController controller = new CachingAccessController(
+        AccessController.compile(createAcl()), 10) {
+      @Override
+      long fingerprint(AccessPrincipal principal) {
+        return 1L;
+      }
+    };
+    for (int i = 0; i < 2; i++) {
+      for (AccessPrincipal principal : Arrays.asList(
+          AccessPrincipal.of("anna", null, null),
+          AccessPrincipal.of("stranger", null, null))) {
+        assertEquals(
+            controller.getDelegate().hasPermission(principal, PermissionConstants.READ),
+            controller.hasPermission(principal, PermissionConstants.READ));
+        assertEquals(
+            controller.getDelegate().effectivePermissions(principal),
+            controller.effectivePermissions(principal));
+      }
+    }
+    assertEquals(1, controller.size());
+    controller.invalidate(AccessPrincipal.of("anna", null, null));
+    assertEquals(1, controller.size());
+    controller.invalidate(AccessPrincipal.of("stranger", null, null));
+    assertEquals(0, controller.size());
+  }
+
+}
@@ -0,0 +1,130 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.bremersee.common.model.AccessControlEntry;
+import org.bremersee.common.model.AccessControlList;
+import org.junit.Test;
+
+/**
+ * The compiled access controller test.
+ *
+ * @author Christian Bremer
+ */
+public class CompiledAccessControllerTest {
+
+  private static AccessControlList createAccessControlList() {
+    return AccessControlList
+        .builder()
+        .owner("owner")
+        .entries(Arrays.asList(
+            AccessControlEntry
+                .builder()
+                .permission("write")
+                .groups(Collections.singletonList("group"))
+                .roles(Collections.singletonList("role"))
+                .users(Collections.singletonList("user"))
+                .build(),
+            AccessControlEntry
+                .builder()
+                .permission("read")
+                .groups(new ArrayList<>())
+                .roles(new ArrayList<>())
+                .users(new ArrayList<>())
+                .guest(true)
+                .build()
+        ))
+        .build();
+  }
+
+  /**
+   * Has permission.
+   */
+  @Test
+  public void hasPermission() {
+    CompiledAccessController controller = AccessController.compile(createAccessControlList());
+    assertEquals("owner", controller.getOwner());
+    assertTrue(controller.hasPermission("test", null, null, "read"));
+    assertTrue(controller.hasPermission("user", null, null, "WRITE"));
+    assertTrue(controller.hasPermission(
+        null, Arrays.asList("foo", "role"), Collections.emptyList(), "write"));
+    assertTrue(controller.hasPermission(
+        null, null, Collections.singleton("group"), "write"));
+    assertTrue(controller.hasPermission("owner", null, null, "delete"));
+    assertFalse(controller.hasPermission("test", null, null, "write"));
+    assertFalse(controller.hasPermission("owner", null, null, null));
+    assertFalse(AccessController.compile((AccessControlList) null)
+        .hasPermission("owner", null, null, "read"));
+  }
+
+  /**
+   * Has any permission.
+   */
+  @Test
+  public void hasAnyPermission() {
+    CompiledAccessController controller = AccessController.compile(createAccessControlList());
+    assertTrue(controller.hasAnyPermission(
+        "user", Collections.emptyList(), Collections.emptyList(), "delete", "write"));
+    assertTrue(controller.hasAnyPermission(
+        "owner", Collections.emptyList(), Collections.emptyList(), "delete"));
+    assertFalse(controller.hasAnyPermission(
+        "user", Collections.emptyList(), Collections.emptyList(), "delete"));
+    assertFalse(controller.hasAnyPermission(
+        "owner", Collections.emptyList(), Collections.emptyList()));
+  }
+
+  /**
+   * Has all permissions.
+   */
+  @Test
+  public void hasAllPermissions() {
+    CompiledAccessController controller = AccessController.compile(createAccessControlList());
+    assertTrue(controller.hasAllPermissions(
+        "test", Collections.emptyList(), Collections.singleton("group"), "read", "write"));
+    assertFalse(controller.hasAllPermissions(
+        "test", Collections.emptyList(), Collections.singleton("test"), "read", "write"));
+    assertTrue(controller.hasAllPermissions(
+        "owner", Collections.emptyList(), Collections.emptyList(), PermissionConstants.ALL));
+  }
+
+  /**
+   * Compiled access controller has the same results as the default access controller.
+   */
+  @Test
+  public void sameResultsAsDefaultAccessController() {
+    Acl<? extends Ace> acl = AclBuilder.builder()
+        .owner("owner")
+        .addUser("anna", PermissionConstants.READ, PermissionConstants.WRITE)
+        .addRole("ROLE_USER", PermissionConstants.READ)
+        .addGroup("staff", PermissionConstants.READ, PermissionConstants.DELETE)
+        .guest(true, "Custom")
+        .buildAcl();
+    AccessController expected = AccessController.from(acl);
+    AccessController actual = AccessController.compile(acl);
+    List<String> users = Arrays.asList("owner", "anna", "bob");
+    List<List<String>> roles = Arrays.asList(
+        Collections.emptyList(), Collections.singletonList("ROLE_USER"));
+    List<List<String>> groups = Arrays.asList(
+        Collections.emptyList(), Arrays.asList("other", "staff"));
+    List<String> permissions = new ArrayList<>(Arrays.asList(PermissionConstants.ALL));
+    permissions.add("custom");
+    for (String user : users) {
+      for (List<String> userRoles : roles) {
+        for (List<String> userGroups : groups) {
+          for (String permission : permissions) {
+            assertEquals(
+                expected.hasPermission(user, userRoles, userGroups, permission),
+                actual.hasPermission(user, userRoles, userGroups, permission));
+          }
+        }
+      }
+    }
+  }
+
+}
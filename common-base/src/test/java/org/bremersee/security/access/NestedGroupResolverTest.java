@@ -0,0 +1,122 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * The nested group resolver test.
+ *
+ * @author Christian Bremer
+ */
+public class NestedGroupResolverTest {
+
+  private static Set<String> set(String... values) {
+    return new HashSet<>(Arrays.asList(values));
+  }
+
+  /**
+   * Resolve groups.
+   */
+  @Test
+  public void resolveGroups() {
+    NestedGroupResolver resolver = new NestedGroupResolver();
+    resolver.setParentGroups("developers", Collections.singleton("staff"));
+    resolver.setParentGroups("staff", Arrays.asList("employees", "staff", " "));
+    resolver.setParentGroups("employees", Collections.singleton("developers")); // cycle
+    assertEquals(set("staff", "employees"), resolver.getParentGroups("developers"));
+    assertSame(resolver.getParentGroups("developers"), resolver.getParentGroups("developers"));
+    assertEquals(set("developers", "employees"), resolver.getParentGroups("staff"));
+    assertEquals(
+        set("developers", "staff", "employees", "other"),
+        resolver.resolveGroups(Arrays.asList("developers", "other")));
+    assertTrue(resolver.getParentGroups("other").isEmpty());
+    assertTrue(resolver.resolveGroups(null).isEmpty());
+
+    resolver.setParentGroups("employees", null);
+    assertEquals(set("staff", "employees"), resolver.getParentGroups("developers"));
+    assertEquals(set("employees"), resolver.getParentGroups("staff"));
+    assertTrue(resolver.getParentGroups("employees").isEmpty());
+
+    resolver.setParentGroups("employees", Collections.singleton("all"));
+    assertEquals(set("staff", "employees", "all"), resolver.getParentGroups("developers"));
+
+    resolver.removeGroup("staff");
+    assertTrue(resolver.getParentGroups("developers").isEmpty());
+    assertEquals(set("all"), resolver.getParentGroups("employees"));
+  }
+
+  /**
+   * Access control checks with nested groups.
+   */
+  @Test
+  public void expand() {
+    NestedGroupResolver resolver = new NestedGroupResolver();
+    resolver.setParentGroups("developers", Collections.singleton("staff"));
+    AccessController accessController = AccessController.compile(AclBuilder.builder()
+        .addGroup("staff", PermissionConstants.READ)
+        .buildAcl());
+    AccessPrincipal principal = AccessPrincipal.of(
+        "anna", null, Collections.singleton("developers"));
+    assertFalse(accessController.hasPermission(principal, PermissionConstants.READ));
+    assertTrue(accessController.hasPermission(
+        resolver.expand(principal), PermissionConstants.READ));
+    assertSame(AccessPrincipal.anonymous(), resolver.expand(null));
+    assertEquals(
+        principal,
+        GroupResolver.identity().expand(principal));
+  }
+
+  /**
+   * Refresh from a source.
+   */
+  @Test
+  public void refresh() throws Exception {
+    Map<String, Collection<String>> graph = new HashMap<>();
+    graph.put("developers", Collections.singleton("staff"));
+    graph.put("staff", Collections.singleton("employees"));
+    NestedGroupResolver resolver = new NestedGroupResolver(() -> graph);
+    resolver.refresh();
+    assertEquals(set("staff", "employees"), resolver.getParentGroups("developers"));
+
+    graph.remove("staff");
+    graph.put("admins", Collections.singleton("staff"));
+    resolver.refresh();
+    assertEquals(set("staff"), resolver.getParentGroups("developers"));
+    assertEquals(set("staff"), resolver.getParentGroups("admins"));
+
+    CountDownLatch latch = new CountDownLatch(2);
+    NestedGroupResolver scheduled = new NestedGroupResolver(() -> {
+      latch.countDown();
+      if (latch.getCount() == 1L) {
+        throw new IllegalStateException("Directory is not available.");
+      }
+      return graph;
+    });
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    try {
+      ScheduledFuture<?> future = scheduled.scheduleRefresh(executor, Duration.ofMillis(10L));
+      assertTrue(latch.await(5L, TimeUnit.SECONDS));
+      future.cancel(false);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
@@ -0,0 +1,222 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.bremersee.common.model.AccessControlList;
+import org.junit.Test;
+
+/**
+ * The permission implications test.
+ *
+ * @author Christian Bremer
+ */
+public class PermissionImplicationsTest {
+
+  private static final PermissionImplications hierarchy = PermissionImplications.hierarchy(
+      PermissionConstants.ADMINISTRATION, PermissionConstants.WRITE, PermissionConstants.READ);
+
+  /**
+   * Transitive closure.
+   */
+  @Test
+  public void closure() {
+    assertEquals(
+        new HashSet<>(Arrays.asList(PermissionConstants.WRITE, PermissionConstants.READ)),
+        hierarchy.getImpliedPermissions("Administration"));
+    assertEquals(
+        new HashSet<>(Arrays.asList(PermissionConstants.ADMINISTRATION, PermissionConstants.WRITE)),
+        hierarchy.getImplyingPermissions(PermissionConstants.READ));
+    assertTrue(hierarchy.implies(PermissionConstants.ADMINISTRATION, "READ"));
+    assertTrue(hierarchy.implies(PermissionConstants.READ, PermissionConstants.READ));
+    assertFalse(hierarchy.implies(PermissionConstants.READ, PermissionConstants.WRITE));
+    assertFalse(hierarchy.implies(null, PermissionConstants.WRITE));
+    assertTrue(hierarchy.getImpliedPermissions(PermissionConstants.DELETE).isEmpty());
+    assertTrue(hierarchy.getImpliedPermissions(null).isEmpty());
+
+    assertSame(PermissionImplications.none(), PermissionImplications.of(null));
+    assertSame(PermissionImplications.none(), PermissionImplications.hierarchy("read"));
+    assertTrue(PermissionImplications.none().isEmpty());
+    assertEquals(hierarchy, PermissionImplications.hierarchy("ADMINISTRATION", "write", "read"));
+  }
+
+  /**
+   * Cycles.
+   */
+  @Test
+  public void cycles() {
+    Map<String, List<String>> rules = new HashMap<>();
+    rules.put("a", Collections.singletonList("b"));
+    rules.put("b", Arrays.asList("a", "c"));
+    PermissionImplications implications = PermissionImplications.of(rules);
+    assertEquals(new HashSet<>(Arrays.asList("b", "c")), implications.getImpliedPermissions("a"));
+    assertEquals(new HashSet<>(Arrays.asList("a", "c")), implications.getImpliedPermissions("b"));
+    assertEquals(new HashSet<>(Arrays.asList("a", "b")), implications.getImplyingPermissions("c"));
+
+    Acl<? extends Ace> acl = AclBuilder.builder()
+        .addUser("anna", "a", "c")
+        .addUser("bob", "b")
+        .compact(implications)
+        .buildAcl();
+    assertEquals(Collections.singleton("anna"), acl.entryMap().get("a").getUsers());
+    assertEquals(Collections.singleton("bob"), acl.entryMap().get("b").getUsers());
+    assertTrue(acl.entryMap().get("c").getUsers().isEmpty());
+  }
+
+  /**
+   * Compile with implications.
+   */
+  @Test
+  public void compile() {
+    AccessControlList acl = AclBuilder.builder()
+        .owner("owner")
+        .addUser("anna", PermissionConstants.ADMINISTRATION)
+        .addRole("ROLE_USER", PermissionConstants.WRITE)
+        .guest(true, PermissionConstants.READ)
+        .buildAccessControlList();
+    AccessController accessController = AccessController.compile(acl, hierarchy);
+    AccessPrincipal anna = AccessPrincipal.of("anna", null, null);
+    AccessPrincipal bob = AccessPrincipal.of("bob", Collections.singleton("ROLE_USER"), null);
+    assertTrue(accessController.hasAllPermissions(
+        anna, PermissionConstants.ADMINISTRATION, PermissionConstants.WRITE, "Read"));
+    assertTrue(accessController.hasPermission(bob, PermissionConstants.WRITE));
+    assertTrue(accessController.hasPermission(bob, PermissionConstants.READ));
+    assertFalse(accessController.hasPermission(bob, PermissionConstants.ADMINISTRATION));
+    assertTrue(accessController.hasPermission(null, PermissionConstants.READ));
+    assertFalse(accessController.hasPermission(null, PermissionConstants.WRITE));
+    assertEquals(
+        PermissionMask.of(PermissionConstants.WRITE, PermissionConstants.READ),
+        accessController.effectivePermissions(bob));
+
+    assertFalse(AccessController.compile(acl).hasPermission(anna, PermissionConstants.WRITE));
+  }
+
+  /**
+   * Compaction keeps the results of the compiled access controller.
+   */
+  @Test
+  public void compact() {
+    AclBuilder builder = AclBuilder.builder()
+        .owner("owner")
+        .addUser("anna", PermissionConstants.ADMINISTRATION, PermissionConstants.WRITE,
+            PermissionConstants.READ)
+        .addUser("bob", PermissionConstants.WRITE, PermissionConstants.READ)
+        .addUser("carl", PermissionConstants.READ, PermissionConstants.DELETE)
+        .addRole("ROLE_USER", PermissionConstants.READ)
+        .addGroup("staff", PermissionConstants.WRITE, PermissionConstants.READ)
+        .guest(true, PermissionConstants.WRITE, PermissionConstants.READ);
+    Acl<? extends Ace> full = builder.buildAcl();
+    Acl<? extends Ace> compacted = builder.compact(hierarchy).buildAcl();
+
+    assertEquals(
+        Collections.singleton("carl"),
+        compacted.entryMap().get(PermissionConstants.READ).getUsers());
+    assertEquals(
+        Collections.singleton("ROLE_USER"),
+        compacted.entryMap().get(PermissionConstants.READ).getRoles());
+    assertTrue(compacted.entryMap().get(PermissionConstants.READ).getGroups().isEmpty());
+    assertFalse(compacted.entryMap().get(PermissionConstants.READ).isGuest());
+    assertEquals(
+        Collections.singleton("bob"),
+        compacted.entryMap().get(PermissionConstants.WRITE).getUsers());
+    assertTrue(compacted.entryMap().get(PermissionConstants.WRITE).isGuest());
+
+    AccessController expected = AccessController.compile(full, hierarchy);
+    AccessController actual = AccessController.compile(compacted, hierarchy);
+    for (String user : Arrays.asList("owner", "anna", "bob", "carl", "dave", null)) {
+      for (List<String> roles : Arrays.asList(
+          Collections.<String>emptyList(), Collections.singletonList("ROLE_USER"))) {
+        AccessPrincipal principal = AccessPrincipal.of(
+            user, roles, Collections.singleton("staff"));
+        assertEquals(
+            expected.effectivePermissions(principal),
+            actual.effectivePermissions(principal));
+      }
+    }
+  }
+
+  /**
+   * A compacted acl is evaluated with the implications by all access controllers and filters.
+   */
+  @Test
+  public void evaluateCompacted() {
+    AclBuilder builder = AclBuilder.builder()
+        .addUser("anna", PermissionConstants.ADMINISTRATION, PermissionConstants.WRITE,
+            PermissionConstants.READ)
+        .addGroup("staff", PermissionConstants.WRITE, PermissionConstants.READ);
+    Acl<? extends Ace> full = builder.buildAcl();
+    Acl<? extends Ace> compacted = builder.compact(hierarchy).buildAcl();
+    AccessPrincipal anna = AccessPrincipal.of("anna", null, null);
+    AccessPrincipal staff = AccessPrincipal.of("bob", null, Collections.singleton("staff"));
+
+    assertFalse(AccessController.from(compacted).hasPermission(anna, PermissionConstants.READ));
+    AccessController expected = AccessController.compile(full, hierarchy);
+    for (AccessController actual : Arrays.asList(
+        AccessController.from(compacted, hierarchy),
+        AccessController.view(compacted, hierarchy))) {
+      for (AccessPrincipal principal : Arrays.asList(anna, staff)) {
+        assertEquals(
+            expected.effectivePermissions(principal),
+            actual.effectivePermissions(principal));
+        assertEquals(
+            expected.hasPermission(principal, PermissionConstants.READ),
+            actual.hasPermission(principal, PermissionConstants.READ));
+        assertEquals(
+            expected.effectivePermissions(
+                principal.getUser(), principal.getRoles(), principal.getGroups()),
+            actual.effectivePermissions(
+                principal.getUser(), principal.getRoles(), principal.getGroups()));
+      }
+    }
+
+    List<Acl<? extends Ace>> items = Collections.singletonList(compacted);
+    assertTrue(AclFilter.<Acl<? extends Ace>>forAcl(acl -> acl, anna, PermissionConstants.READ)
+        .filter(items).isEmpty());
+    assertEquals(
+        items,
+        AclFilter.<Acl<? extends Ace>>forAcl(
+            acl -> acl, anna, PermissionConstants.READ, hierarchy)
+            .filter(items));
+    assertEquals(
+        items,
+        AclFilter.<Acl<? extends Ace>>forAcl(
+            acl -> acl, staff, PermissionConstants.READ, hierarchy)
+            .filter(items));
+
+    AccessControlList dto = AclBuilder.builder().from(compacted).buildAccessControlList();
+    assertEquals(
+        expected.effectivePermissions(anna),
+        AccessController.view(dto, hierarchy).effectivePermissions(anna));
+    assertEquals(
+        expected.effectivePermissions(staff),
+        AccessController.from(dto, hierarchy).effectivePermissions(staff));
+    assertEquals(
+        Collections.singletonList(dto),
+        AclFilter.<AccessControlList>forAccessControlList(
+            acl -> acl, anna, PermissionConstants.READ, hierarchy)
+            .filter(Collections.singletonList(dto)));
+  }
+
+  /**
+   * Index with implications.
+   */
+  @Test
+  public void index() {
+    AclIndex index = new AclIndex(hierarchy);
+    index.put("1", AclBuilder.builder()
+        .addUser("anna", PermissionConstants.ADMINISTRATION)
+        .buildAcl());
+    assertEquals(
+        Collections.singleton("1"),
+        index.findResources(AccessPrincipal.of("anna", null, null), PermissionConstants.READ));
+  }
+
+}
@@ -0,0 +1,82 @@
+package org.bremersee.security.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import org.junit.Test;
+
+/**
+ * The permission mask test.
+ *
+ * @author Christian Bremer
+ */
+public class PermissionMaskTest {
+
+  /**
+   * Of and to permissions.
+   */
+  @Test
+  public void ofAndToPermissions() {
+    long mask = PermissionMask.of(PermissionConstants.READ, "WRITE", "custom", null);
+    assertTrue(PermissionMask.isKnown("Read"));
+    assertFalse(PermissionMask.isKnown("custom"));
+    assertEquals(mask, PermissionMask.of(Arrays.asList("write", "read")));
+    assertEquals(
+        new LinkedHashSet<>(Arrays.asList(PermissionConstants.READ, PermissionConstants.WRITE)),
+        PermissionMask.toPermissions(mask));
+    assertEquals(
+        new LinkedHashSet<>(Arrays.asList(PermissionConstants.ALL)),
+        PermissionMask.toPermissions(PermissionMask.ALL));
+    assertTrue(PermissionMask.toPermissions(PermissionMask.NONE).isEmpty());
+  }
+
+  /**
+   * Has any and has all.
+   */
+  @Test
+  public void hasAnyAndHasAll() {
+    long mask = PermissionMask.of(PermissionConstants.READ, PermissionConstants.WRITE);
+    assertTrue(PermissionMask.hasAny(mask, PermissionMask.of(PermissionConstants.READ)));
+    assertTrue(PermissionMask.hasAll(mask, mask));
+    assertFalse(PermissionMask.hasAll(
+        mask, PermissionMask.of(PermissionConstants.READ, PermissionConstants.DELETE)));
+    assertFalse(PermissionMask.hasAny(mask, PermissionMask.of(PermissionConstants.DELETE)));
+    assertFalse(PermissionMask.hasAll(mask, PermissionMask.NONE));
+  }
+
+  /**
+   * Effective permissions.
+   */
+  @Test
+  public void effectivePermissions() {
+    Acl<? extends Ace> acl = AclBuilder.builder()
+        .owner("owner")
+        .addUser("anna", PermissionConstants.READ, PermissionConstants.WRITE)
+        .addGroup("staff", PermissionConstants.DELETE)
+        .guest(true, PermissionConstants.CREATE)
+        .buildAcl();
+    long expected = PermissionMask.of(
+        PermissionConstants.READ,
+        PermissionConstants.WRITE,
+        PermissionConstants.DELETE,
+        PermissionConstants.CREATE);
+    for (AccessController controller : Arrays
+        .asList(AccessController.from(acl), AccessController.compile(acl))) {
+      assertEquals(
+          expected,
+          controller.effectivePermissions(
+              "anna", Collections.emptyList(), Collections.singletonList("staff")));
+      assertEquals(
+          PermissionMask.ALL,
+          controller.effectivePermissions("owner", null, null));
+      assertEquals(
+          PermissionMask.of(PermissionConstants.CREATE),
+          controller.effectivePermissions("bob", null, null));
+    }
+  }
+
+}